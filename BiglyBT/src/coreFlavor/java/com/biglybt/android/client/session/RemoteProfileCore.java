@@ -45,6 +45,15 @@ public class RemoteProfileCore
 		return raPrefs.pw;
 	}
 
+	/**
+	 * The core is our own service on the loopback, where gzipping each request
+	 * and reply only costs CPU (and battery) on both ends.
+	 */
+	@Override
+	public boolean useCompressedRPC() {
+		return false;
+	}
+
 	@Override
 	public String getUser() {
 		CorePrefs corePrefs = CorePrefs.getInstance();
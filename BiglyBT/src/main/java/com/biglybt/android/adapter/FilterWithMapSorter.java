@@ -69,6 +69,10 @@ public abstract class FilterWithMapSorter<T>
 					"Sorting on UIThread! " + AndroidUtils.getCompressedStackTrace());
 		}
 
+		if (sortWithoutMaps(items)) {
+			return;
+		}
+
 		// java.lang.IllegalArgumentException: Comparison method violates its
 		// general contract!
 		try {
@@ -81,6 +85,16 @@ public abstract class FilterWithMapSorter<T>
 		// but typically sort is done just before going to FILTERSTATE_PUBLISHING
 	}
 
+	/**
+	 * Chance for subclasses with typed data to sort without going through
+	 * {@link ComparatorMapFields#mapGetter(Object)} for every comparison.
+	 *
+	 * @return true if items were sorted
+	 */
+	protected boolean sortWithoutMaps(List<T> items) {
+		return false;
+	}
+
 	public void setSortDefinition(SortDefinition sortDefinition, boolean isAsc) {
 		if (sorter == null) {
 			log(Log.ERROR, TAG,
@@ -68,6 +68,20 @@ public abstract class FlexibleRecyclerAdapter<ADAPTERTYPE extends RecyclerView.A
 	@Thunk
 	static final long MAX_DIFFUTIL_MS = AndroidUtils.DEBUG ? 10000 : 800;
 
+	/**
+	 * More notifications than this and {@link #setItemsIncremental} leaves it
+	 * to DiffUtil
+	 */
+	private static final int MAX_INCREMENTAL_OPS = 100;
+
+	private static final int OP_REMOVE = 0;
+
+	private static final int OP_INSERT = 1;
+
+	private static final int OP_MOVE = 2;
+
+	private static final int OP_CHANGE = 3;
+
 	@Thunk
 	final Object mLock = new Object();
 
@@ -1047,6 +1061,201 @@ public abstract class FlexibleRecyclerAdapter<ADAPTERTYPE extends RecyclerView.A
 		triggerOnSetItemsCompleteListeners();
 	}
 
+	/**
+	 * Set items when the caller knows which items have changed since the
+	 * current list was set.  Items not in changedItems must be unchanged and
+	 * still in the same order relative to each other, so the notifications can
+	 * be worked out directly instead of with a full DiffUtil pass.
+	 * <p/>
+	 * Falls back to {@link #setItems(List, SparseIntArray, SetItemsCallBack)}
+	 * when that doesn't hold or there are too many changes.
+	 *
+	 * @param changedItems Items (added, updated or moved) from the new list.
+	 *                     Items are matched with {@link Comparable#compareTo}
+	 * @return If items were set immediately.  False if items will be set async
+	 */
+	public boolean setItemsIncremental(final List<T> items,
+			SparseIntArray countsByViewType, @NonNull Collection<T> changedItems,
+			SetItemsCallBack<T> callback) {
+		if (!AndroidUtilsUI.isUIThread() || neverSetItems
+				|| !lifecycle.getCurrentState().isAtLeast(Lifecycle.State.CREATED)
+				|| (setItemsAsyncTask != null && !setItemsAsyncTask.isComplete()
+						&& !setItemsAsyncTask.isCancelled())) {
+			return setItems(items, countsByViewType, callback);
+		}
+
+		long start = AndroidUtils.DEBUG_ADAPTER ? System.currentTimeMillis() : 0;
+
+		int[] ops;
+		synchronized (mLock) {
+			ops = buildIncrementalOps(mItems, items, changedItems);
+		}
+		if (ops == null) {
+			if (AndroidUtils.DEBUG_ADAPTER) {
+				log(TAG, "setItemsIncremental: not incremental, using DiffUtil");
+			}
+			return setItems(items, countsByViewType, callback);
+		}
+
+		List<T> notifyUncheckedList;
+		synchronized (mLock) {
+			this.countsByViewType = countsByViewType;
+			mItems = items;
+
+			if (selectedItem != null) {
+				// relink, since we may have a new object with the same stableId
+				selectedPosition = getPositionForItem(selectedItem);
+				selectedItem = getItem(selectedPosition);
+			}
+
+			notifyUncheckedList = relinkCheckedItems();
+		}
+
+		if (selector != null) {
+			for (T item : notifyUncheckedList) {
+				selector.onItemCheckedChanged(thisAdapter, item, false);
+			}
+		}
+
+		boolean isAtTop = recyclerView != null
+				&& recyclerView.computeVerticalScrollOffset() == 0;
+
+		for (int i = 0; i < ops.length; i += 3) {
+			switch (ops[i]) {
+				case OP_REMOVE:
+					notifyItemRemoved(ops[i + 1]);
+					break;
+				case OP_INSERT:
+					notifyItemInserted(ops[i + 1]);
+					break;
+				case OP_MOVE:
+					notifyItemMoved(ops[i + 1], ops[i + 2]);
+					break;
+				case OP_CHANGE:
+					notifyItemChanged(ops[i + 1]);
+					break;
+			}
+		}
+
+		if (isAtTop) {
+			recyclerView.scrollToPosition(0);
+		}
+
+		if (AndroidUtils.DEBUG_ADAPTER) {
+			log(TAG, "setItemsIncremental: " + (ops.length / 3) + " notifications, "
+					+ changedItems.size() + " changed, in "
+					+ (System.currentTimeMillis() - start) + "ms");
+		}
+
+		lastSetItemsOn = System.currentTimeMillis();
+		triggerOnSetItemsCompleteListeners();
+		return true;
+	}
+
+	/**
+	 * Walk the old list into the new one, recording the notifications needed as
+	 * [op, position, toPosition] triples.
+	 *
+	 * @return null if the lists differ by more than the changed items
+	 */
+	private int[] buildIncrementalOps(List<T> oldItems, List<T> newItems,
+			Collection<T> changedItems) {
+		TreeSet<T> changed = new TreeSet<>(changedItems);
+		TreeSet<T> newSet = new TreeSet<>(newItems);
+		if (newSet.size() != newItems.size()) {
+			// duplicates, can't match items up
+			return null;
+		}
+
+		List<T> work = new ArrayList<>(oldItems);
+		int[] ops = new int[MAX_INCREMENTAL_OPS * 3];
+		int numOps = 0;
+
+		// Removals, from the end so positions of the ones still to go don't shift
+		for (int i = work.size() - 1; i >= 0; i--) {
+			if (!newSet.contains(work.get(i))) {
+				if (numOps == MAX_INCREMENTAL_OPS) {
+					return null;
+				}
+				work.remove(i);
+				ops[numOps * 3] = OP_REMOVE;
+				ops[numOps * 3 + 1] = i;
+				numOps++;
+			}
+		}
+
+		TreeSet<T> oldSet = new TreeSet<>(work);
+		int num = newItems.size();
+		for (int i = 0; i < num; i++) {
+			T item = newItems.get(i);
+			if (i < work.size() && work.get(i).compareTo(item) == 0) {
+				continue;
+			}
+			if (numOps == MAX_INCREMENTAL_OPS) {
+				return null;
+			}
+			if (!oldSet.contains(item)) {
+				work.add(i, item);
+				ops[numOps * 3] = OP_INSERT;
+				ops[numOps * 3 + 1] = i;
+				numOps++;
+				continue;
+			}
+			boolean itemChanged = changed.contains(item);
+			T current = work.get(i);
+			if (!itemChanged && !changed.contains(current)) {
+				// two unchanged items swapped order, caller's assumption is wrong
+				return null;
+			}
+			if (itemChanged) {
+				// bring the changed item up to here
+				int from = indexOf(work, item, i + 1);
+				work.add(i, work.remove(from));
+				ops[numOps * 3] = OP_MOVE;
+				ops[numOps * 3 + 1] = from;
+				ops[numOps * 3 + 2] = i;
+			} else {
+				// changed item in the way goes to the end, it'll be moved up to its
+				// place when the walk gets there
+				int last = work.size() - 1;
+				work.add(work.remove(i));
+				ops[numOps * 3] = OP_MOVE;
+				ops[numOps * 3 + 1] = i;
+				ops[numOps * 3 + 2] = last;
+				i--;
+			}
+			numOps++;
+		}
+		if (work.size() != num) {
+			return null;
+		}
+
+		// Changed items that were already there need rebinding
+		for (int i = 0; i < num; i++) {
+			T item = work.get(i);
+			if (oldSet.contains(item) && changed.contains(item)) {
+				if (numOps == MAX_INCREMENTAL_OPS) {
+					return null;
+				}
+				ops[numOps * 3] = OP_CHANGE;
+				ops[numOps * 3 + 1] = i;
+				numOps++;
+			}
+		}
+
+		return Arrays.copyOf(ops, numOps * 3);
+	}
+
+	private static <T extends Comparable<T>> int indexOf(List<T> list, T item,
+			int start) {
+		for (int i = start, size = list.size(); i < size; i++) {
+			if (list.get(i).compareTo(item) == 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	protected void triggerOnSetItemsCompleteListeners() {
 		OnSetItemsCompleteListener[] listeners = listOnSetItemsCompleteListener.toArray(
 				new OnSetItemsCompleteListener[0]);
@@ -40,6 +40,10 @@ public class FilesAdapterItemFile
 
 	final long length;
 
+	/** File map when the torrent's file list isn't fetched ({@link LazyFilesTree}) */
+	@Nullable
+	Map<String, Object> mapLazy;
+
 	@SuppressWarnings({
 		"unchecked",
 		"rawtypes"
@@ -61,6 +65,9 @@ public class FilesAdapterItemFile
 	@Override
 	@Nullable
 	public Map<String, Object> getMap(Session session, long torrentID) {
+		if (mapLazy != null) {
+			return mapLazy;
+		}
 		if (session == null) {
 			return null;
 		}
@@ -49,6 +49,9 @@ public class FilesAdapterItemFolder
 
 	public final String folder;
 
+	/** Number of files from the server, when they aren't summarized locally */
+	private int numFilesSummary = -1;
+
 	FilesAdapterItemFolder(String folder, @Nullable FilesAdapterItemFolder parent,
 			String path, String name) {
 		super(parent, path, name);
@@ -86,8 +89,22 @@ public class FilesAdapterItemFolder
 		}
 	}
 
+	/**
+	 * Use totals from the server ({@link LazyFilesTree}) instead of summarizing
+	 * the folder's files
+	 */
+	void setSummary(int numFiles, int numFilesWanted, long size,
+			long sizeWanted) {
+		numFilesSummary = numFiles;
+		this.numFilesWanted = numFilesWanted;
+		numFilesFilteredWanted = numFilesWanted;
+		this.size = size;
+		this.sizeWanted = sizeWanted;
+		sizeWantedFiltered = sizeWanted;
+	}
+
 	public int getNumFiles() {
-		return fileIndexes.size();
+		return numFilesSummary >= 0 ? numFilesSummary : fileIndexes.size();
 	}
 
 	public int[] getFileIndexes() {
@@ -99,7 +116,8 @@ public class FilesAdapterItemFolder
 	}
 
 	public int getNumFilteredFiles() {
-		return filteredFileIndexes.size();
+		return numFilesSummary >= 0 ? numFilesSummary
+				: filteredFileIndexes.size();
 	}
 
 	public int[] getFilteredFileIndexes() {
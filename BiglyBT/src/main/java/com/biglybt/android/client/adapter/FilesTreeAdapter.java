@@ -36,6 +36,7 @@ import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.graphics.drawable.DrawableCompat;
 import android.support.v7.content.res.AppCompatResources;
 import android.text.Spannable;
@@ -134,6 +135,11 @@ public class FilesTreeAdapter
 		Object oItem = getItem(position);
 		boolean isFolder = (oItem instanceof FilesAdapterItemFolder);
 
+		LazyFilesTree lazyTree = getFilter().getLazyTree();
+		if (lazyTree != null && oItem != null) {
+			lazyTree.itemShown(sessionGetter.getSession(), (FilesAdapterItem) oItem);
+		}
+
 		int level = useTree ? ((FilesAdapterItem) oItem).level : 0;
 		int paddingX = levelPaddingPx * level;
 		int parentWidth = holder.itemView.getWidth();
@@ -282,6 +288,15 @@ public class FilesTreeAdapter
 
 	public void setExpandState(FilesAdapterItemFolder folder, boolean expand) {
 		folder.expand = expand;
+		LazyFilesTree lazyTree = getFilter().getLazyTree();
+		if (lazyTree != null) {
+			String path = LazyFilesTree.getPath(folder.folder);
+			if (expand) {
+				lazyTree.expand(sessionGetter.getSession(), path);
+			} else {
+				lazyTree.collapse(path);
+			}
+		}
 		int adapterPosition = getPositionForItem(folder);
 		notifyItemChanged(adapterPosition);
 		if (expand) {
@@ -314,6 +329,18 @@ public class FilesTreeAdapter
 			ReplyMapReceivedListener replyMapReceivedListener,
 			FilesAdapterItemFolder folderItem) {
 		Session session = sessionGetter.getSession();
+		LazyFilesTree lazyTree = getFilter().getLazyTree();
+		if (lazyTree != null) {
+			// Folder's files aren't fetched, nothing is filtered
+			boolean wanted = toWantStat == null
+					? folderItem.numFilesWanted < folderItem.getNumFiles()
+					: toWantStat;
+			lazyTree.getFileIndexes(session, LazyFilesTree.getPath(folderItem.folder),
+					fileIndexes -> session.torrent.setFileWantState("FolderWant",
+							torrentID, fileIndexes, wanted,
+							lazyTree.refreshAfter(session, replyMapReceivedListener)));
+			return;
+		}
 		Map<?, ?> torrent = session.torrent.getCachedTorrent(torrentID);
 		if (torrent == null) {
 			return;
@@ -523,10 +550,34 @@ public class FilesTreeAdapter
 		}
 
 		Session session = sessionGetter.getSession();
+		LazyFilesTree lazyTree = getFilter().getLazyTree();
+		if (lazyTree != null) {
+			// folder totals come from the server
+			replyMapReceivedListener = lazyTree.refreshAfter(session,
+					replyMapReceivedListener);
+		}
 		session.torrent.setFileWantState("FileWant" + i, torrentID, fileIndexes,
 				toWantState, replyMapReceivedListener);
 	}
 
+	/**
+	 * Set the wanted state of every file that passes the filter, including
+	 * ones in folders that haven't been fetched when showing a folder at a time
+	 */
+	public void setFilteredWantState(boolean toWantState,
+			@Nullable ReplyMapReceivedListener replyMapReceivedListener) {
+		LazyFilesTree lazyTree = getFilter().getLazyTree();
+		if (lazyTree == null) {
+			setWantState(toWantState, replyMapReceivedListener,
+					getFilteredFileItems());
+			return;
+		}
+		Session session = sessionGetter.getSession();
+		session.torrent.setFileWantState("FilteredWant", torrentID,
+				getFilteredFileIndexes(), toWantState,
+				lazyTree.refreshAfter(session, replyMapReceivedListener));
+	}
+
 	@SuppressWarnings("rawtypes")
 	@Thunk
 	static Map<?, ?> getFileMap(FilesAdapterItem o, @NonNull List<?> mapList) {
@@ -631,10 +682,16 @@ public class FilesTreeAdapter
 		List<FilesAdapterItem> allItems = getAllItems();
 		int i = 0;
 		for (FilesAdapterItem item : allItems) {
-			if (item instanceof FilesAdapterItemFile) {
+			if (item instanceof FilesAdapterItemFile && i < filteredCount) {
 				array[i++] = (FilesAdapterItemFile) item;
 			}
 		}
+		if (i < filteredCount) {
+			// not all are fetched when showing a folder at a time
+			FilesAdapterItemFile[] old = array;
+			array = new FilesAdapterItemFile[i];
+			System.arraycopy(old, 0, array, 0, i);
+		}
 		return array;
 	}
 
@@ -20,6 +20,7 @@ import java.util.*;
 
 import com.biglybt.android.adapter.*;
 import com.biglybt.android.client.*;
+import com.biglybt.android.client.rpc.RPCSupports;
 import com.biglybt.android.client.session.Session;
 import com.biglybt.android.util.MapUtils;
 import com.biglybt.util.Thunk;
@@ -28,6 +29,7 @@ import com.simplecityapps.recyclerview_fastscroll.views.FastScrollRecyclerView;
 import android.os.Build;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import android.util.SparseArray;
 import android.widget.SectionIndexer;
@@ -58,6 +60,13 @@ public class FilesTreeFilter
 
 	private static final String ID_SORT_FILTER = "-files";
 
+	/**
+	 * Torrents with at least this many files are shown a folder at a time via
+	 * {@link LazyFilesTree} (when the tree is shown unfiltered) instead of
+	 * fetching every file
+	 */
+	private static final int LAZY_TREE_MIN_FILES = 5000;
+
 	private final SessionAdapterFilterTalkback<FilesAdapterItem> talkback;
 
 	private final long torrentID;
@@ -102,6 +111,16 @@ public class FilesTreeFilter
 
 	private int defaultSortID;
 
+	private LazyFilesTree lazyTree;
+
+	@Thunk
+	volatile boolean usingLazyTree;
+
+	private int lazyNumFiles;
+
+	@Thunk
+	boolean fetchingAllFiles;
+
 	FilesTreeFilter(long torrentID,
 			SessionAdapterFilterTalkback<FilesAdapterItem> talkback) {
 		super(talkback);
@@ -158,10 +177,29 @@ public class FilesTreeFilter
 		}
 		final List<?> listFiles = MapUtils.getMapList(torrent,
 				TransmissionVars.FIELD_TORRENT_FILES, null);
-		if (listFiles == null) {
+		int fileCount = MapUtils.getMapInt(torrent,
+				TransmissionVars.FIELD_TORRENT_FILE_COUNT,
+				listFiles == null ? 0 : listFiles.size());
+		boolean haveAllFiles = listFiles != null && listFiles.size() >= fileCount;
+
+		if (!haveAllFiles && useTree && canUseLazyTree(session, fileCount)) {
+			List<FilesAdapterItem> list = performLazyTreeFiltering(session, map);
+			map.put(RESULTFIELD_LIST, list);
+
+			results.values = map;
+			results.count = list.size();
+			return results;
+		}
+		usingLazyTree = false;
+
+		if (listFiles == null || (!haveAllFiles && lazyTree != null)) {
 			if (AndroidUtils.DEBUG_ADAPTER) {
 				log(TAG, "No files");
 			}
+			if (lazyTree != null) {
+				// was showing a folder at a time, now filtered or sorted
+				fetchAllFiles(session);
+			}
 			return results;
 		}
 		if (AndroidUtils.DEBUG_ADAPTER) {
@@ -187,6 +225,100 @@ public class FilesTreeFilter
 		return results;
 	}
 
+	/**
+	 * @return true if the torrent's files would be fetched a folder at a time
+	 */
+	public boolean canUseLazyTree(Map<?, ?> torrent) {
+		int fileCount = MapUtils.getMapInt(torrent,
+				TransmissionVars.FIELD_TORRENT_FILE_COUNT, 0);
+		return getSorter().getSortDefinition().id == 0
+				&& canUseLazyTree(talkback.getSession(), fileCount);
+	}
+
+	private boolean canUseLazyTree(Session session, int fileCount) {
+		return fileCount >= LAZY_TREE_MIN_FILES
+				&& session.getSupports(RPCSupports.SUPPORTS_FILES_TREE)
+				&& (constraint == null || constraint.length() == 0) && sizeStart <= 0
+				&& sizeEnd <= 0 && !showOnlyComplete && !showOnlyWanted;
+	}
+
+	/**
+	 * Folders come back from the server already in tree order, so no sorting.
+	 */
+	private List<FilesAdapterItem> performLazyTreeFiltering(Session session,
+			Map<String, Object> map) {
+		if (lazyTree == null) {
+			lazyTree = new LazyFilesTree(torrentID, () -> refilter(false));
+		}
+		usingLazyTree = true;
+		lazyTree.ensureRoot(session);
+
+		List<FilesAdapterItem> list = new ArrayList<>();
+		Map<String, FilesAdapterItemFolder> mapFoldersNew = new HashMap<>();
+		Map<?, ?> summary = lazyTree.buildList(list, mapFoldersNew);
+		if (summary == null) {
+			// root not fetched yet, treeChanged will refilter
+			return list;
+		}
+
+		maxSize = Math.max(maxSize, MapUtils.getMapLong(summary,
+				TransmissionVars.FIELD_FILES_LENGTH, 0));
+
+		int numFiles = MapUtils.getMapInt(summary, "numFiles", 0);
+		int numFilesWanted = MapUtils.getMapInt(summary, "numFilesWanted", 0);
+		long sizeWanted = MapUtils.getMapLong(summary, "sizeWanted", 0);
+		lazyNumFiles = numFiles;
+
+		map.put(RESULTFIELD_TOTAL_FILTERED_SIZE_WANTED, sizeWanted);
+		map.put(RESULTFIELD_TOTAL_FILTERED_NUM_FILES_WANTED, numFilesWanted);
+		map.put(RESULTFIELD_TOTAL_FILTERED_NUM_FILES, numFiles);
+
+		map.put(RESULTFIELD_TOTAL_SIZE_WANTED, sizeWanted);
+		map.put(RESULTFIELD_TOTAL_NUM_FILES_WANTED, numFilesWanted);
+
+		map.put(RESULTFIELD_FOLDERS, mapFoldersNew);
+
+		return list;
+	}
+
+	private void fetchAllFiles(Session session) {
+		synchronized (mLock) {
+			if (fetchingAllFiles) {
+				return;
+			}
+			fetchingAllFiles = true;
+		}
+		session.torrent.getFileInfo(TAG, torrentID, null,
+				(callID, addedTorrentMaps, fields, fileIndexes, removedTorrentIDs) -> {
+					synchronized (mLock) {
+						fetchingAllFiles = false;
+					}
+					refilter(false);
+				});
+	}
+
+	/**
+	 * @return The tree being shown a folder at a time, or null if the full file
+	 * list is being used
+	 */
+	@Nullable
+	public LazyFilesTree getLazyTree() {
+		return usingLazyTree ? lazyTree : null;
+	}
+
+	/**
+	 * @return false if the full file list is being used and needs refreshing
+	 * instead
+	 */
+	public boolean refreshLazyTree() {
+		LazyFilesTree tree = getLazyTree();
+		if (tree == null) {
+			return false;
+		}
+		tree.refresh(talkback.getSession());
+		return true;
+	}
+
 	private List<FilesAdapterItem> performNonTreeFiltering(
 			Map<String, Object> map, List<?> listFiles) {
 		long totalFilteredSizeWanted = 0;
@@ -633,7 +765,7 @@ public class FilesTreeFilter
 
 	@Override
 	public boolean showLetterUI() {
-		return files != null && files.length > 3;
+		return getUnfilteredFileCount() > 3;
 	}
 
 	@Override
@@ -744,6 +876,9 @@ public class FilesTreeFilter
 	}
 
 	public int getUnfilteredFileCount() {
+		if (usingLazyTree) {
+			return lazyNumFiles;
+		}
 		return files == null ? 0 : files.length;
 	}
 
@@ -0,0 +1,41 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.biglybt.android.client.adapter;
+
+import java.util.Collection;
+import java.util.List;
+
+import android.support.annotation.NonNull;
+import android.util.SparseIntArray;
+
+/**
+ * SessionAdapterFilterTalkback for adapters that can apply a list that only
+ * differs from the previous one by a known set of items, without a full diff
+ */
+public interface IncrementalAdapterFilterTalkback<ADAPTERTYPE extends Comparable<ADAPTERTYPE>>
+	extends SessionAdapterFilterTalkback<ADAPTERTYPE>
+{
+	/**
+	 * @param changedItems Items from values that were added, updated or moved.
+	 *                     All other items are unchanged and in the same order
+	 *                     relative to each other as in the previous values
+	 * @return If items were set immediately.  False if items will be set async
+	 */
+	boolean setItemsIncremental(List<ADAPTERTYPE> values,
+			SparseIntArray countsByViewType,
+			@NonNull Collection<ADAPTERTYPE> changedItems);
+}
@@ -0,0 +1,382 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.biglybt.android.client.adapter;
+
+import java.util.*;
+
+import com.biglybt.android.client.AndroidUtils;
+import com.biglybt.android.client.TorrentUtils;
+import com.biglybt.android.client.TransmissionVars;
+import com.biglybt.android.client.rpc.ReplyMapReceivedListener;
+import com.biglybt.android.client.session.Session;
+import com.biglybt.android.util.MapUtils;
+import com.biglybt.util.Thunk;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+/**
+ * A torrent's file tree fetched from the server a folder at a time (with the
+ * server summing up each sub-folder), for torrents with too many files to
+ * fetch and build the whole tree of.
+ * <p/>
+ * Only the root and expanded folders are kept.  Collapsing a folder drops it
+ * and everything under it.
+ */
+public class LazyFilesTree
+{
+	private static final String TAG = "LazyFilesTree";
+
+	/** Children requested at a time */
+	private static final int PAGE_SIZE = 500;
+
+	/** Server won't return more children than this in one go */
+	private static final int MAX_PAGE_SIZE = 5000;
+
+	interface TreeChangedListener
+	{
+		void treeChanged();
+	}
+
+	interface FileIndexesListener
+	{
+		void fileIndexesReceived(int[] fileIndexes);
+	}
+
+	static class Node
+	{
+		final String path;
+
+		Map<?, ?> summary;
+
+		final List<Map<?, ?>> folders = new ArrayList<>();
+
+		final List<Map<String, Object>> files = new ArrayList<>();
+
+		int total = -1;
+
+		boolean loading;
+
+		Node(String path) {
+			this.path = path;
+		}
+
+		int getNumLoaded() {
+			return folders.size() + files.size();
+		}
+
+		boolean hasMore() {
+			return total < 0 || getNumLoaded() < total;
+		}
+	}
+
+	private final long torrentID;
+
+	private final TreeChangedListener listener;
+
+	/** Root ("") and expanded folders, by '/' separated path */
+	private final Map<String, Node> nodes = new HashMap<>();
+
+	LazyFilesTree(long torrentID, TreeChangedListener listener) {
+		this.torrentID = torrentID;
+		this.listener = listener;
+	}
+
+	public long getTorrentID() {
+		return torrentID;
+	}
+
+	/**
+	 * @param folder Folder of a {@link FilesAdapterItemFolder}, which has a
+	 *               trailing slash
+	 */
+	static String getPath(@NonNull String folder) {
+		return folder.endsWith("/") ? folder.substring(0, folder.length() - 1)
+				: folder;
+	}
+
+	public synchronized boolean isExpanded(String path) {
+		return nodes.containsKey(path);
+	}
+
+	public void ensureRoot(Session session) {
+		expand(session, "");
+	}
+
+	public void expand(Session session, String path) {
+		Node node;
+		synchronized (this) {
+			if (nodes.containsKey(path)) {
+				return;
+			}
+			node = new Node(path);
+			nodes.put(path, node);
+		}
+		loadPage(session, node, 0, PAGE_SIZE);
+	}
+
+	public synchronized void collapse(String path) {
+		if (path.isEmpty()) {
+			return;
+		}
+		String prefix = path + "/";
+		for (Iterator<String> it = nodes.keySet().iterator(); it.hasNext();) {
+			String key = it.next();
+			if (key.equals(path) || key.startsWith(prefix)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Re-fetch the loaded part of every kept folder
+	 */
+	public void refresh(Session session) {
+		List<Node> list;
+		synchronized (this) {
+			list = new ArrayList<>(nodes.values());
+		}
+		for (Node node : list) {
+			int limit = Math.min(MAX_PAGE_SIZE,
+					Math.max(PAGE_SIZE, node.getNumLoaded()));
+			loadPage(session, node, 0, limit);
+		}
+	}
+
+	/**
+	 * Fetch the next page of a folder when the last of its loaded children is
+	 * shown
+	 */
+	public void itemShown(Session session, FilesAdapterItem item) {
+		Node node;
+		synchronized (this) {
+			String path = item.parent == null ? "" : getPath(item.parent.folder);
+			node = nodes.get(path);
+			if (node == null || node.loading || !node.hasMore()
+					|| !isLastLoaded(node, item)) {
+				return;
+			}
+		}
+		loadPage(session, node, node.getNumLoaded(), PAGE_SIZE);
+	}
+
+	private static boolean isLastLoaded(Node node, FilesAdapterItem item) {
+		if (item instanceof FilesAdapterItemFile) {
+			if (node.files.isEmpty()) {
+				return false;
+			}
+			Map<?, ?> last = node.files.get(node.files.size() - 1);
+			return MapUtils.getMapInt(last, TransmissionVars.FIELD_FILES_INDEX,
+					-1) == ((FilesAdapterItemFile) item).fileIndex;
+		}
+		if (!node.files.isEmpty() || node.folders.isEmpty()) {
+			return false;
+		}
+		Map<?, ?> last = node.folders.get(node.folders.size() - 1);
+		return getPath(((FilesAdapterItemFolder) item).folder).equals(
+				MapUtils.getMapString(last, "path", null));
+	}
+
+	private void loadPage(Session session, final Node node, final int offset,
+			int limit) {
+		synchronized (this) {
+			node.loading = true;
+		}
+		session.torrent.getFilesTree(torrentID, node.path, offset, limit, false,
+				new ReplyMapReceivedListener() {
+					@Override
+					public void rpcSuccess(String id, Map<?, ?> optionalMap) {
+						synchronized (LazyFilesTree.this) {
+							node.loading = false;
+							if (nodes.get(node.path) != node) {
+								// collapsed while we were fetching
+								return;
+							}
+							List<Map<?, ?>> folders = MapUtils.getMapList(optionalMap,
+									"folders", null);
+							List<Map<String, Object>> files = MapUtils.getMapList(
+									optionalMap, "files", null);
+							if (offset == 0) {
+								node.folders.clear();
+								node.files.clear();
+							} else if (offset != node.getNumLoaded()) {
+								// raced with a refresh
+								return;
+							}
+							if (folders != null) {
+								node.folders.addAll(folders);
+							}
+							if (files != null) {
+								node.files.addAll(files);
+							}
+							node.summary = MapUtils.getMapMap(optionalMap, "folder", null);
+							node.total = MapUtils.getMapInt(optionalMap, "total",
+									node.getNumLoaded());
+						}
+						listener.treeChanged();
+					}
+
+					@Override
+					public void rpcError(String id, Exception e) {
+						loadFailed(node, e.toString());
+					}
+
+					@Override
+					public void rpcFailure(String id, String message) {
+						loadFailed(node, message);
+					}
+				});
+	}
+
+	@Thunk
+	synchronized void loadFailed(Node node, String message) {
+		node.loading = false;
+		if (AndroidUtils.DEBUG_ADAPTER) {
+			Log.d(TAG, "Failed to get files of '" + node.path + "': " + message);
+		}
+	}
+
+	/**
+	 * Fetch the indexes of all files under a folder, for changing the state of
+	 * the whole folder
+	 */
+	public void getFileIndexes(Session session, String path,
+			final FileIndexesListener l) {
+		session.torrent.getFilesTree(torrentID, path, 0, 0, true,
+				new ReplyMapReceivedListener() {
+					@Override
+					public void rpcSuccess(String id, Map<?, ?> optionalMap) {
+						List<?> list = MapUtils.getMapList(optionalMap, "indexes", null);
+						if (list == null) {
+							return;
+						}
+						int[] fileIndexes = new int[list.size()];
+						for (int i = 0; i < fileIndexes.length; i++) {
+							fileIndexes[i] = ((Number) list.get(i)).intValue();
+						}
+						l.fileIndexesReceived(fileIndexes);
+					}
+
+					@Override
+					public void rpcError(String id, Exception e) {
+					}
+
+					@Override
+					public void rpcFailure(String id, String message) {
+					}
+				});
+	}
+
+	/**
+	 * @return Listener that refreshes the folder totals once the change is done
+	 */
+	public ReplyMapReceivedListener refreshAfter(final Session session,
+			@Nullable final ReplyMapReceivedListener l) {
+		return new ReplyMapReceivedListener() {
+			@Override
+			public void rpcSuccess(String id, Map<?, ?> optionalMap) {
+				refresh(session);
+				if (l != null) {
+					l.rpcSuccess(id, optionalMap);
+				}
+			}
+
+			@Override
+			public void rpcError(String id, Exception e) {
+				if (l != null) {
+					l.rpcError(id, e);
+				}
+			}
+
+			@Override
+			public void rpcFailure(String id, String message) {
+				if (l != null) {
+					l.rpcFailure(id, message);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Add the root's children to list, followed by the children of each
+	 * expanded folder after the folder.  Sub-folders come before files.
+	 *
+	 * @return Totals of the whole torrent, or null if the root isn't loaded yet
+	 */
+	public synchronized Map<?, ?> buildList(List<FilesAdapterItem> list,
+			Map<String, FilesAdapterItemFolder> mapFolders) {
+		Node root = nodes.get("");
+		if (root == null || root.summary == null) {
+			return null;
+		}
+		addChildren(root, null, list, mapFolders);
+		return root.summary;
+	}
+
+	private void addChildren(Node node, @Nullable FilesAdapterItemFolder parent,
+			List<FilesAdapterItem> list,
+			Map<String, FilesAdapterItemFolder> mapFolders) {
+		String pathWithSlash = node.path.isEmpty() ? "" : node.path + "/";
+
+		for (Map<?, ?> mapFolder : node.folders) {
+			String path = MapUtils.getMapString(mapFolder, "path", "");
+			String name = MapUtils.getMapString(mapFolder,
+					TransmissionVars.FIELD_FILES_NAME, "");
+			String folderWithSlash = path + "/";
+
+			FilesAdapterItemFolder folderItem = new FilesAdapterItemFolder(
+					folderWithSlash, parent, pathWithSlash, name);
+			folderItem.setSummary(MapUtils.getMapInt(mapFolder, "numFiles", 0),
+					MapUtils.getMapInt(mapFolder, "numFilesWanted", 0),
+					MapUtils.getMapLong(mapFolder, TransmissionVars.FIELD_FILES_LENGTH,
+							0),
+					MapUtils.getMapLong(mapFolder, "sizeWanted", 0));
+
+			Node expanded = nodes.get(path);
+			folderItem.expand = expanded != null;
+
+			list.add(folderItem);
+			mapFolders.put(folderWithSlash, folderItem);
+
+			if (expanded != null) {
+				addChildren(expanded, folderItem, list, mapFolders);
+			}
+		}
+
+		for (Map<String, Object> mapFile : node.files) {
+			int index = MapUtils.getMapInt(mapFile,
+					TransmissionVars.FIELD_FILES_INDEX, -1);
+			String name = MapUtils.getMapString(mapFile,
+					TransmissionVars.FIELD_FILES_NAME, "");
+			boolean wanted = MapUtils.getMapBoolean(mapFile,
+					TransmissionVars.FIELD_FILESTATS_WANTED, true);
+			int breakAt = AndroidUtils.lastindexOfAny(name, TorrentUtils.ANYSLASH,
+					-1);
+			String shortName = breakAt < 0 ? name : name.substring(breakAt + 1);
+
+			FilesAdapterItemFile f = Build.VERSION.SDK_INT >= 19
+					? new FilesAdapterItemFile19(index, parent, pathWithSlash,
+							shortName, wanted, mapFile)
+					: new FilesAdapterItemFile(index, parent, pathWithSlash, shortName,
+							wanted, mapFile);
+			f.mapLazy = mapFile;
+			list.add(f);
+		}
+	}
+}
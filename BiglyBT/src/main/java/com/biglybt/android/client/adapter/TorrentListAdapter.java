@@ -16,6 +16,7 @@
 
 package com.biglybt.android.client.adapter;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -53,7 +54,7 @@ public class TorrentListAdapter
 	extends
 	SortableRecyclerAdapter<TorrentListAdapter, TorrentListHolder, TorrentListAdapterItem>
 	implements FlexibleRecyclerAdapter.SetItemsCallBack<TorrentListAdapterItem>,
-	SessionAdapterFilterTalkback<TorrentListAdapterItem>
+	IncrementalAdapterFilterTalkback<TorrentListAdapterItem>
 {
 
 	@Thunk
@@ -118,6 +119,13 @@ public class TorrentListAdapter
 		return setItems(values, countsByViewType, this);
 	}
 
+	@Override
+	public boolean setItemsIncremental(List<TorrentListAdapterItem> values,
+			SparseIntArray countsByViewType,
+			@NonNull Collection<TorrentListAdapterItem> changedItems) {
+		return setItemsIncremental(values, countsByViewType, changedItems, this);
+	}
+
 	@Override
 	public boolean areContentsTheSame(TorrentListAdapterItem oldItem,
 			TorrentListAdapterItem newItem) {
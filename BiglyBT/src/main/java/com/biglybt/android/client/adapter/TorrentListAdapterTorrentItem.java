@@ -31,8 +31,19 @@ public class TorrentListAdapterTorrentItem
 {
 	final Long torrentID;
 
+	/**
+	 * Row in the {@link com.biglybt.android.client.session.TorrentStore}
+	 * snapshot this item was filtered from, only valid during that filter pass
+	 */
+	final int storeRow;
+
 	public TorrentListAdapterTorrentItem(Long torrentID) {
+		this(torrentID, -1);
+	}
+
+	TorrentListAdapterTorrentItem(Long torrentID, int storeRow) {
 		this.torrentID = torrentID;
+		this.storeRow = storeRow;
 	}
 
 	public Map<?, ?> getTorrentMap(@NonNull Session session) {
@@ -24,6 +24,7 @@ import com.biglybt.android.adapter.*;
 import com.biglybt.android.client.*;
 import com.biglybt.android.client.session.Session;
 import com.biglybt.android.client.session.Session_Tag;
+import com.biglybt.android.client.session.TorrentStore;
 import com.biglybt.android.util.MapUtils;
 import com.biglybt.util.DisplayFormatters;
 import com.biglybt.util.Thunk;
@@ -32,7 +33,6 @@ import android.arch.lifecycle.Lifecycle;
 import android.content.res.Resources;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
-import android.support.v4.util.LongSparseArray;
 import android.text.format.DateFormat;
 import android.util.SparseArray;
 import android.util.SparseIntArray;
@@ -60,6 +60,16 @@ public class TorrentListFilter
 
 	private static final String RESULTFIELD_COUNTS_VIEWTYPE = "countsByViewType";
 
+	private static final String RESULTFIELD_CHANGED = "changed";
+
+	private static final String RESULTFIELD_STORE_SEQ = "storeSeq";
+
+	/**
+	 * More changed torrents than this (or than a quarter of the list) and a
+	 * full filter and sort is done instead of an incremental one
+	 */
+	private static final int MAX_INCREMENTAL_CHANGES = 64;
+
 	@Thunk
 	final Object lockSections = new Object();
 
@@ -75,6 +85,38 @@ public class TorrentListFilter
 
 	private int defaultSortID;
 
+	/**
+	 * Typed torrent fields being filtered.  Only used on the filtering thread,
+	 * from {@link #performFiltering2(CharSequence)} until it returns
+	 */
+	@Thunk
+	TorrentStore filterSnapshot;
+
+	/**
+	 * Torrent IDs of the last filter result, in sort order and without headers,
+	 * along with what it was filtered with.  Filtering thread only.
+	 */
+	private long[] lastOrderIDs;
+
+	private long lastStoreSeq;
+
+	private long lastFilterMode;
+
+	private String lastConstraint;
+
+	private SortDefinition lastSortDefinition;
+
+	private boolean lastSortAsc;
+
+	/**
+	 * Item count of each header in the last filter result, by title.  Filtering
+	 * thread only.
+	 */
+	private Map<String, Integer> lastHeaderCounts;
+
+	/** Store sequence of the last result given to the adapter */
+	private volatile long publishedStoreSeq = -1;
+
 	TorrentListFilter(
 			@NonNull SessionAdapterFilterTalkback<TorrentListAdapterItem> talkback) {
 		super(talkback);
@@ -111,51 +153,230 @@ public class TorrentListFilter
 			return results;
 		}
 
-		LongSparseArray<Map<?, ?>> torrentList = session.torrent.getListAsSparseArray();
-		int size = torrentList.size();
+		TorrentStore snapshot = session.torrent.getStoreSnapshot();
+		int size = snapshot.size();
 
 		if (TorrentListAdapter.DEBUG) {
 			log(TAG, "performFiltering: size=" + size + "/filterMode=" + filterMode);
 		}
 
-		if (size > 0 && filterMode > 0) {
-			if (TorrentListAdapter.DEBUG) {
-				log(TAG, "filtering " + torrentList.size());
-			}
+		String constraint = _constraint == null ? ""
+				: _constraint.toString().toUpperCase(Locale.US);
+		TorrentListSorter sorter = (TorrentListSorter) getSorter();
+		TorrentStore.RowComparator rowComparator = sorter == null ? null
+				: sorter.getRowComparator(snapshot);
 
-			if (filterMode >= 0 && filterMode != FILTERBY_ALL) {
-				for (int i = size - 1; i >= 0; i--) {
-					long key = torrentList.keyAt(i);
+		Map<String, Object> map = new HashMap<>();
+		ArrayList<TorrentListAdapterItem> keys;
+
+		filterSnapshot = snapshot;
+		try {
+			List<TorrentListAdapterItem> changedItems = new ArrayList<>();
+			keys = rowComparator == null ? null
+					: filterIncremental(snapshot, constraint, rowComparator, sorter,
+							changedItems);
+			if (keys != null) {
+				map.put(RESULTFIELD_CHANGED, changedItems);
+			} else {
+				keys = filterFull(snapshot, _constraint);
+			}
 
-					if (!filterCheck(filterMode, key)) {
-						torrentList.removeAt(i);
-						size--;
-					}
+			if (rowComparator != null && !isBuildLetters()) {
+				int num = keys.size();
+				long[] ids = new long[num];
+				for (int i = 0; i < num; i++) {
+					ids[i] = ((TorrentListAdapterTorrentItem) keys.get(i)).torrentID;
 				}
+				lastOrderIDs = ids;
+				lastStoreSeq = snapshot.getSeq();
+				lastFilterMode = filterMode;
+				lastConstraint = constraint;
+				lastSortDefinition = sorter.getSortDefinition();
+				lastSortAsc = sorter.isAsc();
+			} else {
+				lastOrderIDs = null;
 			}
 
-			if (TorrentListAdapter.DEBUG) {
-				log(TAG, "type filtered to " + size);
+			map.put(RESULTFIELD_STORE_SEQ, snapshot.getSeq());
+			map.put(RESULTFIELD_LIST, keys);
+			refreshSections(keys, map);
+
+			if (map.containsKey(RESULTFIELD_CHANGED)) {
+				addChangedHeaders(keys, changedItems);
 			}
+			lastHeaderCounts = lastOrderIDs == null ? null : getHeaderCounts(keys);
+		} finally {
+			filterSnapshot = null;
 		}
-		int num = torrentList.size();
-		ArrayList<TorrentListAdapterItem> keys = new ArrayList<>(num);
-		for (int i = 0; i < num; i++) {
-			keys.add(new TorrentListAdapterTorrentItem(torrentList.keyAt(i)));
+
+		results.values = map;
+		results.count = keys.size();
+
+		return results;
+	}
+
+	private ArrayList<TorrentListAdapterItem> filterFull(TorrentStore snapshot,
+			CharSequence _constraint) {
+		int size = snapshot.size();
+		boolean filterByMode = size > 0 && filterMode > 0
+				&& filterMode != FILTERBY_ALL;
+
+		ArrayList<TorrentListAdapterItem> keys = new ArrayList<>(size);
+		for (int row = 0; row < size; row++) {
+			if (!filterByMode || filterCheck(filterMode, snapshot, row)) {
+				keys.add(
+						new TorrentListAdapterTorrentItem(snapshot.getID(row), row));
+			}
+		}
+
+		if (TorrentListAdapter.DEBUG && filterByMode) {
+			log(TAG, "type filtered to " + keys.size());
 		}
 
 		performLetterFiltering(_constraint, keys);
 
 		doSort(keys);
 
-		Map<String, Object> map = new HashMap<>();
-		map.put(RESULTFIELD_LIST, keys);
-		refreshSections(keys, map);
+		return keys;
+	}
 
-		results.values = map;
-		results.count = keys.size();
+	/**
+	 * Update the last result with the torrents that changed since, keeping the
+	 * rest of the sorted order and binary search inserting the changed ones.
+	 *
+	 * @param changedItems filled with the items of torrents that changed
+	 * @return null if a full filter is needed
+	 */
+	private ArrayList<TorrentListAdapterItem> filterIncremental(
+			TorrentStore snapshot, String constraint,
+			TorrentStore.RowComparator comparator, TorrentListSorter sorter,
+			List<TorrentListAdapterItem> changedItems) {
+		if (lastOrderIDs == null || isBuildLetters()
+				|| publishedStoreSeq != lastStoreSeq || filterMode != lastFilterMode
+				|| !constraint.equals(lastConstraint)
+				|| sorter.getSortDefinition() != lastSortDefinition
+				|| sorter.isAsc() != lastSortAsc
+				|| snapshot.getSeq() < lastStoreSeq) {
+			return null;
+		}
 
-		return results;
+		int size = snapshot.size();
+		int maxChanges = Math.min(MAX_INCREMENTAL_CHANGES, size / 4);
+		int[] changedRows = new int[maxChanges];
+		int numChanged = 0;
+		for (int row = 0; row < size; row++) {
+			if (snapshot.getChangeSeq(row) > lastStoreSeq) {
+				if (numChanged == maxChanges) {
+					return null;
+				}
+				changedRows[numChanged++] = row;
+			}
+		}
+
+		// unchanged torrents of the last result are still in order
+		int[] rows = new int[lastOrderIDs.length + numChanged];
+		int num = 0;
+		for (long id : lastOrderIDs) {
+			int row = snapshot.indexOf(id);
+			if (row >= 0 && snapshot.getChangeSeq(row) <= lastStoreSeq) {
+				rows[num++] = row;
+			}
+		}
+
+		boolean filterByMode = filterMode > 0 && filterMode != FILTERBY_ALL;
+		boolean[] isChanged = new boolean[size];
+		for (int i = 0; i < numChanged; i++) {
+			int row = changedRows[i];
+			if (filterByMode && !filterCheck(filterMode, snapshot, row)) {
+				continue;
+			}
+			String name = snapshot.getName(row);
+			if (!constraintCheck(constraint, name == null ? "" : name, null, null)) {
+				continue;
+			}
+			int pos = binarySearch(rows, num, row, comparator);
+			System.arraycopy(rows, pos, rows, pos + 1, num - pos);
+			rows[pos] = row;
+			num++;
+			isChanged[row] = true;
+		}
+
+		ArrayList<TorrentListAdapterItem> keys = new ArrayList<>(num);
+		for (int i = 0; i < num; i++) {
+			int row = rows[i];
+			TorrentListAdapterTorrentItem item = new TorrentListAdapterTorrentItem(
+					snapshot.getID(row), row);
+			keys.add(item);
+			if (isChanged[row]) {
+				changedItems.add(item);
+			}
+		}
+
+		if (TorrentListAdapter.DEBUG) {
+			log(TAG, "performFiltering: incremental, " + numChanged + " changed");
+		}
+		return keys;
+	}
+
+	/**
+	 * Headers are matched by title, so one whose count changed, or that has
+	 * changed torrents under it, has to be rebound too.
+	 */
+	private void addChangedHeaders(List<TorrentListAdapterItem> keys,
+			List<TorrentListAdapterItem> changedItems) {
+		Set<TorrentListAdapterItem> changed = new HashSet<>(changedItems);
+		TorrentListAdapterHeaderItem header = null;
+		boolean headerChanged = false;
+		for (TorrentListAdapterItem item : keys) {
+			if (item instanceof TorrentListAdapterHeaderItem) {
+				if (headerChanged) {
+					changedItems.add(header);
+				}
+				header = (TorrentListAdapterHeaderItem) item;
+				Integer lastCount = lastHeaderCounts == null ? null
+						: lastHeaderCounts.get(header.title);
+				headerChanged = lastCount == null || lastCount != header.count;
+			} else if (header != null && !headerChanged
+					&& changed.contains(item)) {
+				headerChanged = true;
+			}
+		}
+		if (headerChanged) {
+			changedItems.add(header);
+		}
+	}
+
+	private static Map<String, Integer> getHeaderCounts(
+			List<TorrentListAdapterItem> keys) {
+		Map<String, Integer> counts = new HashMap<>();
+		for (TorrentListAdapterItem item : keys) {
+			if (item instanceof TorrentListAdapterHeaderItem) {
+				TorrentListAdapterHeaderItem header = (TorrentListAdapterHeaderItem) item;
+				counts.put(header.title, header.count);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * @return position to insert row at to keep rows[0..num) sorted
+	 */
+	private static int binarySearch(int[] rows, int num, int row,
+			TorrentStore.RowComparator comparator) {
+		int low = 0;
+		int high = num - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comp = comparator.compare(rows[mid], row);
+			if (comp < 0) {
+				low = mid + 1;
+			} else if (comp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return low;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -164,6 +385,7 @@ public class TorrentListFilter
 			FilterResults results) {
 		// Now we have to inform the adapter about the new list filtered
 		if (results.count == 0 || !(results.values instanceof Map)) {
+			publishedStoreSeq = -1;
 			talkback.removeAllItems();
 			return true;
 		}
@@ -183,12 +405,28 @@ public class TorrentListFilter
 			displayList = new ArrayList<>();
 		}
 
+		Long storeSeq = (Long) map.get(RESULTFIELD_STORE_SEQ);
+		publishedStoreSeq = storeSeq == null ? -1 : storeSeq;
+
+		List<TorrentListAdapterItem> changedItems = (List<TorrentListAdapterItem>) map.get(
+				RESULTFIELD_CHANGED);
+		if (changedItems != null
+				&& (talkback instanceof IncrementalAdapterFilterTalkback)) {
+			return ((IncrementalAdapterFilterTalkback<TorrentListAdapterItem>) talkback).setItemsIncremental(
+					displayList, countsByViewType, changedItems);
+		}
+
 		return talkback.setItems(displayList, countsByViewType);
 	}
 
 	@Nullable
 	@Override
 	protected String getStringToConstrain(TorrentListAdapterItem item) {
+		int row = getStoreRow(item);
+		if (row >= 0) {
+			String name = filterSnapshot.getName(row);
+			return name == null ? "" : name;
+		}
 		if (item instanceof TorrentListAdapterTorrentItem) {
 			Session session = talkback.getSession();
 			Map<?, ?> map = ((TorrentListAdapterTorrentItem) item).getTorrentMap(
@@ -204,50 +442,59 @@ public class TorrentListFilter
 		}
 	}
 
+	@Override
+	protected boolean sortWithoutMaps(List<TorrentListAdapterItem> items) {
+		TorrentStore snapshot = filterSnapshot;
+		TorrentListSorter sorter = (TorrentListSorter) getSorter();
+		return snapshot != null && sorter != null && sorter.sort(snapshot, items);
+	}
+
+	/**
+	 * @return Row of the item in {@link #filterSnapshot}, or -1
+	 */
 	@Thunk
-	boolean filterCheck(long filterMode, long torrentID) {
-		Session session = talkback.getSession();
-		Map<?, ?> map = session.torrent.getCachedTorrent(torrentID);
-		if (map == null) {
-			return false;
+	int getStoreRow(TorrentListAdapterItem item) {
+		if (filterSnapshot == null
+				|| !(item instanceof TorrentListAdapterTorrentItem)) {
+			return -1;
 		}
+		return ((TorrentListAdapterTorrentItem) item).storeRow;
+	}
 
+	private static boolean filterCheck(long filterMode, TorrentStore snapshot,
+			int row) {
 		if (filterMode > 10) {
-			List<?> listTagUIDs = MapUtils.getMapList(map,
-					TransmissionVars.FIELD_TORRENT_TAG_UIDS, null);
-			return listTagUIDs != null && listTagUIDs.contains(filterMode);
+			return snapshot.hasTag(row, filterMode);
 		}
 
 		switch ((int) filterMode) {
 			case FILTERBY_ACTIVE:
-				long dlRate = MapUtils.getMapLong(map,
-						TransmissionVars.FIELD_TORRENT_RATE_DOWNLOAD, -1);
-				long ulRate = MapUtils.getMapLong(map,
-						TransmissionVars.FIELD_TORRENT_RATE_UPLOAD, -1);
+				long dlRate = snapshot.getLong(TorrentStore.COL_RATE_DOWNLOAD, row,
+						-1);
+				long ulRate = snapshot.getLong(TorrentStore.COL_RATE_UPLOAD, row, -1);
 				if (ulRate <= 0 && dlRate <= 0) {
 					return false;
 				}
 				break;
 
 			case FILTERBY_COMPLETE: {
-				float pctDone = MapUtils.getMapFloat(map,
-						TransmissionVars.FIELD_TORRENT_PERCENT_DONE, 0);
+				float pctDone = (float) snapshot.getDouble(
+						TorrentStore.COL_PERCENT_DONE, row, 0);
 				if (pctDone < 1.0f) {
 					return false;
 				}
 				break;
 			}
 			case FILTERBY_INCOMPLETE: {
-				float pctDone = MapUtils.getMapFloat(map,
-						TransmissionVars.FIELD_TORRENT_PERCENT_DONE, 0);
+				float pctDone = (float) snapshot.getDouble(
+						TorrentStore.COL_PERCENT_DONE, row, 0);
 				if (pctDone >= 1.0f) {
 					return false;
 				}
 				break;
 			}
 			case FILTERBY_STOPPED: {
-				int status = MapUtils.getMapInt(map,
-						TransmissionVars.FIELD_TORRENT_STATUS,
+				long status = snapshot.getLong(TorrentStore.COL_STATUS, row,
 						TransmissionVars.TR_STATUS_STOPPED);
 				if (status != TransmissionVars.TR_STATUS_STOPPED) {
 					return false;
@@ -452,19 +699,18 @@ public class TorrentListFilter
 			@Override
 			public Integer getGroupID(TorrentListAdapterItem o, boolean isAsc,
 					List<TorrentListAdapterItem> items) {
-				if (!(o instanceof TorrentListAdapterTorrentItem)) {
+				int row = getStoreRow(o);
+				if (row < 0) {
 					return 0;
 				}
-				Session session = talkback.getSession();
-				Map<?, ?> map = ((TorrentListAdapterTorrentItem) o).getTorrentMap(
-						session);
-				boolean complete = MapUtils.getMapBoolean(map,
-						TransmissionVars.FIELD_TORRENT_IS_COMPLETE, false);
+				TorrentStore snapshot = filterSnapshot;
+				boolean complete = snapshot.getBoolean(TorrentStore.COL_IS_COMPLETE,
+						row, false);
 				if (items.size() < 10) {
 					return complete ? -1 : -2;
 				}
-				long position = MapUtils.getMapLong(map,
-						TransmissionVars.FIELD_TORRENT_POSITION, 1) - 1;
+				long position = snapshot.getLong(TorrentStore.COL_POSITION, row, 1)
+						- 1;
 				return (int) ((position / 10) << 1) + (complete ? 1 : 0);
 			}
 
@@ -504,29 +750,27 @@ public class TorrentListFilter
 					@Override
 					public Integer getGroupID(TorrentListAdapterItem o, boolean isAsc,
 							List<TorrentListAdapterItem> items) {
-						if (!(o instanceof TorrentListAdapterTorrentItem)) {
+						int row = getStoreRow(o);
+						if (row < 0) {
 							return 0;
 						}
+						TorrentStore snapshot = filterSnapshot;
 						Session session = talkback.getSession();
-						Map<?, ?> map = ((TorrentListAdapterTorrentItem) o).getTorrentMap(
-								session);
 						boolean active;
-						List<?> listTagUIDs = MapUtils.getMapList(map,
-								TransmissionVars.FIELD_TORRENT_TAG_UIDS, null);
 						Long tagUID_Active = session.tag.getDownloadStateUID(
 								Session_Tag.STATEID_ACTIVE);
-						if (listTagUIDs != null && tagUID_Active != null) {
-							active = listTagUIDs.contains(tagUID_Active);
+						if (snapshot.hasTagList(row) && tagUID_Active != null) {
+							active = snapshot.hasTag(row, tagUID_Active);
 						} else {
-							long rateDL = MapUtils.getMapLong(map,
-									TransmissionVars.FIELD_TORRENT_RATE_DOWNLOAD, 0);
-							long rateUL = MapUtils.getMapLong(map,
-									TransmissionVars.FIELD_TORRENT_RATE_UPLOAD, 0);
+							long rateDL = snapshot.getLong(
+									TorrentStore.COL_RATE_DOWNLOAD, row, 0);
+							long rateUL = snapshot.getLong(TorrentStore.COL_RATE_UPLOAD,
+									row, 0);
 							active = rateDL > 0 && rateUL > 0;
 						}
 						if (!active) {
-							long lastActiveOn = MapUtils.getMapLong(map,
-									TransmissionVars.FIELD_TORRENT_DATE_ACTIVITY, 0);
+							long lastActiveOn = snapshot.getLong(
+									TorrentStore.COL_DATE_ACTIVITY, row, 0);
 							if (lastActiveOn > 0) {
 								GregorianCalendar today = new GregorianCalendar();
 								GregorianCalendar calendar = new GregorianCalendar();
@@ -584,14 +828,12 @@ public class TorrentListFilter
 					@Override
 					public Integer getGroupID(TorrentListAdapterItem o, boolean isAsc,
 							List<TorrentListAdapterItem> items) {
-						if (!(o instanceof TorrentListAdapterTorrentItem)) {
+						int row = getStoreRow(o);
+						if (row < 0) {
 							return 0;
 						}
-						Session session = talkback.getSession();
-						Map<?, ?> map = ((TorrentListAdapterTorrentItem) o).getTorrentMap(
-								session);
-						long addedOn = MapUtils.getMapLong(map,
-								TransmissionVars.FIELD_TORRENT_DATE_ADDED, 0);
+						long addedOn = filterSnapshot.getLong(TorrentStore.COL_DATE_ADDED,
+								row, 0);
 						GregorianCalendar calendar = new GregorianCalendar();
 						calendar.setTimeInMillis(addedOn * 1000);
 						return (calendar.get(Calendar.YEAR) << 4)
@@ -616,14 +858,12 @@ public class TorrentListFilter
 					@Override
 					public Integer getGroupID(TorrentListAdapterItem o, boolean isAsc,
 							List<TorrentListAdapterItem> items) {
-						if (!(o instanceof TorrentListAdapterTorrentItem)) {
+						int row = getStoreRow(o);
+						if (row < 0) {
 							return 0;
 						}
-						Session session = talkback.getSession();
-						Map<?, ?> map = ((TorrentListAdapterTorrentItem) o).getTorrentMap(
-								session);
-						float pctDone = MapUtils.getMapFloat(map,
-								TransmissionVars.FIELD_TORRENT_PERCENT_DONE, 0);
+						float pctDone = (float) filterSnapshot.getDouble(
+								TorrentStore.COL_PERCENT_DONE, row, 0);
 
 						return ((int) (pctDone * 10)) * 10;
 					}
@@ -654,14 +894,12 @@ public class TorrentListFilter
 					@Override
 					public Integer getGroupID(TorrentListAdapterItem o, boolean isAsc,
 							List<TorrentListAdapterItem> items) {
-						if (!(o instanceof TorrentListAdapterTorrentItem)) {
+						int row = getStoreRow(o);
+						if (row < 0) {
 							return 0;
 						}
-						Session session = talkback.getSession();
-						Map<?, ?> map = ((TorrentListAdapterTorrentItem) o).getTorrentMap(
-								session);
-						float ratio = MapUtils.getMapFloat(map,
-								TransmissionVars.FIELD_TORRENT_UPLOAD_RATIO, 0);
+						float ratio = (float) filterSnapshot.getDouble(
+								TorrentStore.COL_UPLOAD_RATIO, row, 0);
 						return (int) ratio;
 					}
 
@@ -686,14 +924,12 @@ public class TorrentListFilter
 					@Override
 					public Integer getGroupID(TorrentListAdapterItem o, boolean isAsc,
 							List<TorrentListAdapterItem> items) {
-						if (!(o instanceof TorrentListAdapterTorrentItem)) {
+						int row = getStoreRow(o);
+						if (row < 0) {
 							return 0;
 						}
-						Session session = talkback.getSession();
-						Map<?, ?> map = ((TorrentListAdapterTorrentItem) o).getTorrentMap(
-								session);
-						long bytes = MapUtils.getMapLong(map,
-								TransmissionVars.FIELD_TORRENT_SIZE_WHEN_DONE, 0);
+						long bytes = filterSnapshot.getLong(
+								TorrentStore.COL_SIZE_WHEN_DONE, row, 0);
 
 						if (bytes < 1024L * 1024L * MB_BREAK) {
 							return 0;
@@ -746,14 +982,12 @@ public class TorrentListFilter
 					@Override
 					public Integer getGroupID(TorrentListAdapterItem o, boolean isAsc,
 							List<TorrentListAdapterItem> items) {
-						if (!(o instanceof TorrentListAdapterTorrentItem)) {
+						int row = getStoreRow(o);
+						if (row < 0) {
 							return -1;
 						}
-						Session session = talkback.getSession();
-						Map<?, ?> map = ((TorrentListAdapterTorrentItem) o).getTorrentMap(
-								session);
-						return MapUtils.getMapInt(map,
-								TransmissionVars.FIELD_TORRENT_STATUS, 0);
+						return (int) filterSnapshot.getLong(TorrentStore.COL_STATUS, row,
+								0);
 					}
 
 					@Override
@@ -809,17 +1043,15 @@ public class TorrentListFilter
 					@Override
 					public Integer getGroupID(TorrentListAdapterItem o, boolean isAsc,
 							List<TorrentListAdapterItem> items) {
-						if (!(o instanceof TorrentListAdapterTorrentItem)) {
+						int row = getStoreRow(o);
+						if (row < 0) {
 							return -1;
 						}
-						Session session = talkback.getSession();
-						Map<?, ?> map = ((TorrentListAdapterTorrentItem) o).getTorrentMap(
-								session);
-						long etaSecs = MapUtils.getMapLong(map,
-								TransmissionVars.FIELD_TORRENT_ETA, -1);
+						long etaSecs = filterSnapshot.getLong(TorrentStore.COL_ETA, row,
+								-1);
 						if (etaSecs < 0) {
-							float pctDone = MapUtils.getMapFloat(map,
-									TransmissionVars.FIELD_TORRENT_PERCENT_DONE, 0);
+							float pctDone = (float) filterSnapshot.getDouble(
+									TorrentStore.COL_PERCENT_DONE, row, 0);
 							if (pctDone >= 1) {
 								return 0;
 							}
@@ -859,14 +1091,12 @@ public class TorrentListFilter
 					public Integer getGroupID(TorrentListAdapterItem o, boolean isAsc,
 							List<TorrentListAdapterItem> items) {
 						{
-							if (!(o instanceof TorrentListAdapterTorrentItem)) {
+							int row = getStoreRow(o);
+							if (row < 0) {
 								return -1;
 							}
-							Session session = talkback.getSession();
-							Map<?, ?> map = ((TorrentListAdapterTorrentItem) o).getTorrentMap(
-									session);
-							int numFiles = MapUtils.getMapInt(map,
-									TransmissionVars.FIELD_TORRENT_FILE_COUNT, 0);
+							int numFiles = (int) filterSnapshot.getLong(
+									TorrentStore.COL_FILE_COUNT, row, 0);
 							if (numFiles < 0) {
 								return -1;
 							} else if (numFiles == 1) {
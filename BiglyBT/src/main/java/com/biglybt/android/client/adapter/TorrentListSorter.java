@@ -25,8 +25,11 @@ import com.biglybt.android.client.SessionGetter;
 import com.biglybt.android.client.TransmissionVars;
 import com.biglybt.android.client.session.Session;
 import com.biglybt.android.client.session.Session_Tag;
+import com.biglybt.android.client.session.TorrentStore;
 import com.biglybt.android.util.MapUtils;
 
+import android.support.annotation.NonNull;
+
 /**
  * Created by TuxPaper on 8/6/18.
  */
@@ -35,6 +38,8 @@ public class TorrentListSorter
 {
 	static final String SORTDEFINITION_ACTIVESORT = "ActiveSort";
 
+	private static final int COL_ACTIVESORT = -2;
+
 	private final SessionGetter sessionGetter;
 
 	private Long tagUID_Active;
@@ -54,6 +59,130 @@ public class TorrentListSorter
 		return null;
 	}
 
+	/**
+	 * @return Comparator over the rows of the snapshot giving the same order as
+	 *         the map comparator, or null if a sort field isn't stored as a
+	 *         column (so the map comparator needs to be used)
+	 */
+	TorrentStore.RowComparator getRowComparator(
+			@NonNull final TorrentStore snapshot) {
+		SortDefinition sortDefinition = getSortDefinition();
+		if (sortDefinition == null) {
+			return null;
+		}
+
+		final int numFields = sortDefinition.sortFieldIDs.length;
+		final int[] cols = new int[numFields];
+		final boolean[] reverse = new boolean[numFields];
+		boolean isAsc = isAsc();
+		for (int i = 0; i < numFields; i++) {
+			String fieldID = sortDefinition.sortFieldIDs[i];
+			int col = fieldID.equals(SORTDEFINITION_ACTIVESORT) ? COL_ACTIVESORT
+					: TorrentStore.getColumn(fieldID);
+			if (col == -1) {
+				return null;
+			}
+			cols[i] = col;
+			reverse[i] = isAsc != sortDefinition.sortOrderNatural[i];
+		}
+
+		if (tagUID_Active == null) {
+			Session session = sessionGetter.getSession();
+			if (session != null) {
+				tagUID_Active = session.tag.getDownloadStateUID(
+						Session_Tag.STATEID_ACTIVE);
+			}
+		}
+
+		return (lhs, rhs) -> {
+			for (int i = 0; i < numFields; i++) {
+				int col = cols[i];
+				int comp;
+				if (col == COL_ACTIVESORT) {
+					comp = Boolean.valueOf(isActive(snapshot, lhs)).compareTo(
+							isActive(snapshot, rhs));
+				} else {
+					boolean hasLHS = snapshot.has(col, lhs);
+					boolean hasRHS = snapshot.has(col, rhs);
+					if (!hasLHS || !hasRHS) {
+						// missing values always first, regardless of direction
+						if (hasLHS != hasRHS) {
+							return hasLHS ? 1 : -1;
+						}
+						continue;
+					}
+					if (col == TorrentStore.COL_ETA) {
+						long etaLHS = snapshot.getLong(col, lhs, -1);
+						long etaRHS = snapshot.getLong(col, rhs, -1);
+						if (etaLHS < 0) {
+							etaLHS = Long.MAX_VALUE;
+						}
+						if (etaRHS < 0) {
+							etaRHS = Long.MAX_VALUE;
+						}
+						comp = etaLHS > etaRHS ? 1 : etaLHS == etaRHS ? 0 : -1;
+					} else {
+						comp = snapshot.compare(col, lhs, rhs);
+					}
+				}
+				if (comp != 0) {
+					return reverse[i] ? -comp : comp;
+				}
+			}
+			// ties stay in torrent ID order, as they did when sorting the id ordered
+			// map list
+			long idLHS = snapshot.getID(lhs);
+			long idRHS = snapshot.getID(rhs);
+			return idLHS > idRHS ? 1 : idLHS == idRHS ? 0 : -1;
+		};
+	}
+
+	/**
+	 * Sort using the typed columns of the store snapshot the items were
+	 * filtered from.
+	 *
+	 * @return false if the map comparator needs to be used
+	 */
+	boolean sort(@NonNull TorrentStore snapshot,
+			List<TorrentListAdapterItem> items) {
+		TorrentStore.RowComparator comparator = getRowComparator(snapshot);
+		if (comparator == null) {
+			return false;
+		}
+
+		int size = items.size();
+		int[] rows = new int[size];
+		TorrentListAdapterItem[] itemByRow = new TorrentListAdapterItem[snapshot.size()];
+		for (int i = 0; i < size; i++) {
+			TorrentListAdapterItem item = items.get(i);
+			if (!(item instanceof TorrentListAdapterTorrentItem)) {
+				return false;
+			}
+			int row = ((TorrentListAdapterTorrentItem) item).storeRow;
+			if (row < 0 || row >= itemByRow.length) {
+				return false;
+			}
+			rows[i] = row;
+			itemByRow[row] = item;
+		}
+
+		TorrentStore.sortRows(rows, size, comparator);
+
+		for (int i = 0; i < size; i++) {
+			items.set(i, itemByRow[rows[i]]);
+		}
+		return true;
+	}
+
+	private boolean isActive(TorrentStore snapshot, int row) {
+		if (snapshot.hasTagList(row) && tagUID_Active != null) {
+			return snapshot.hasTag(row, tagUID_Active);
+		}
+		long rateDL = snapshot.getLong(TorrentStore.COL_RATE_DOWNLOAD, row, 0);
+		long rateUL = snapshot.getLong(TorrentStore.COL_RATE_UPLOAD, row, 0);
+		return rateDL > 0 && rateUL > 0;
+	}
+
 	@Override
 	public Map<?, ?> mapGetter(TorrentListAdapterItem o) {
 		Session session = sessionGetter.getSession();
@@ -250,7 +250,9 @@ public class FilesFragment
 		adapter.setCheckOnSelectedAfterMS(100);
 		adapter.addOnSetItemsCompleteListener(this::onSetItemsComplete);
 		if (torrent != null) {
-			if (torrent.containsKey(TransmissionVars.FIELD_TORRENT_FILES)) {
+			if (torrent.containsKey(TransmissionVars.FIELD_TORRENT_FILES)
+					|| adapter.getFilter().canUseLazyTree(torrent)) {
+				// Lazy tree fetches the folders it shows itself
 				adapter.setTorrentID(torrentID, false);
 			} else {
 				session.torrent.getFileInfo(TAG, torrentID, null,
@@ -872,8 +874,7 @@ public class FilesFragment
 			}
 			case R.id.action_filtered_files_wanted: {
 				showProgressBar();
-				FilesAdapterItemFile[] items = adapter.getFilteredFileItems();
-				adapter.setWantState(true, hideProgressOnRpcReceive, items);
+				adapter.setFilteredWantState(true, hideProgressOnRpcReceive);
 				return true;
 			}
 			case R.id.action_sel_folder_filtered_wanted:
@@ -900,8 +901,7 @@ public class FilesFragment
 			case R.id.action_filtered_files_unwanted: {
 				// TODO: Delete Prompt
 				showProgressBar();
-				FilesAdapterItemFile[] items = adapter.getFilteredFileItems();
-				adapter.setWantState(false, hideProgressOnRpcReceive, items);
+				adapter.setFilteredWantState(false, hideProgressOnRpcReceive);
 				return true;
 			}
 			case R.id.action_sel_folder_filtered_unwanted:
@@ -1329,6 +1329,11 @@ public class FilesFragment
 				TransmissionVars.FIELD_TORRENT_FILES, null);
 		int selectedPosition = adapter.getSelectedPosition();
 		long id = adapter.getItemId(selectedPosition);
+		if (adapter.getFilter().getLazyTree() != null) {
+			// files of the shown folders only, which aren't in the torrent map
+			return adapter.getSelectedItem() instanceof FilesAdapterItemFile
+					? (int) id : -1;
+		}
 		if (listFiles == null || id < 0 || id >= listFiles.size()) {
 			return -1;
 		}
@@ -1473,6 +1478,13 @@ public class FilesFragment
 			return;
 		}
 
+		if (adapter.getFilter().refreshLazyTree()) {
+			if (swipeRefresh != null) {
+				swipeRefresh.setRefreshing(false);
+			}
+			return;
+		}
+
 		setRefreshing(true);
 		session.torrent.getFileInfo(TAG, torrentID, null, (id, added, fields, idxs,
 				removed) -> AndroidUtilsUI.runOnUIThread(this, false, a -> {
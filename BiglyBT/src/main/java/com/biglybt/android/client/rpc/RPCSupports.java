@@ -33,4 +33,10 @@ public interface RPCSupports
 	String SUPPORTS_SEARCH = "SEARCH";
 
 	String SUPPORTS_TORRENT_RENAAME = "TORRENTRENAME";
+
+	String SUPPORTS_TORRENT_GET_DELTA = "TORRENTGETDELTA";
+
+	String SUPPORTS_CHANGES_WAIT = "CHANGESWAIT";
+
+	String SUPPORTS_FILES_TREE = "FILESTREE";
 }
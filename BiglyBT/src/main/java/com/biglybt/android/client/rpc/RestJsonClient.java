@@ -16,8 +16,14 @@
 
 package com.biglybt.android.client.rpc;
 
+import java.util.List;
 import java.util.Map;
 
+import com.biglybt.android.util.JSONUtils;
+import com.biglybt.android.util.MapUtils;
+
+import android.support.annotation.Nullable;
+
 /**
  * Created by TuxPaper on 11/24/16.
  */
@@ -25,16 +31,51 @@ public abstract class RestJsonClient
 {
 	private static RestJsonClient newClient = null;
 
+	private static RestJsonClient uncompressedClient = null;
+
 	abstract Object connect(String url)
 			throws RPCException;
 
 	abstract void setSupportsSendingGzip(boolean supportsSendingGzip,
 			boolean supportsSendingChunk);
 
+	abstract void setRequestCompressedReply(boolean requestCompressedReply);
+
 	abstract Map<?, ?> connect(String id, String url, Map<?, ?> jsonPost,
 			Map<String, String> headers, String username, String password)
 			throws RPCException;
 
+	/**
+	 * Same as {@link #connect(String, String, Map, Map, String, String)}, but
+	 * entries of the reply's list at <code>listPath</code> are passed to
+	 * <code>l</code> as they become available.
+	 * <p>
+	 * This implementation decodes the whole reply first; subclasses that can
+	 * parse incrementally should override.
+	 */
+	Map<?, ?> connect(String id, String url, Map<?, ?> jsonPost,
+			Map<String, String> headers, String username, String password,
+			@Nullable String[] listPath,
+			@Nullable JSONUtils.StreamedListItemListener l)
+			throws RPCException {
+		Map<?, ?> map = connect(id, url, jsonPost, headers, username, password);
+		if (listPath == null || l == null || map == null) {
+			return map;
+		}
+		Map<?, ?> parent = map;
+		for (int i = 0; i < listPath.length - 1 && parent != null; i++) {
+			parent = MapUtils.getMapMap(parent, listPath[i], null);
+		}
+		List<?> list = MapUtils.getMapList(parent, listPath[listPath.length - 1],
+				null);
+		if (list != null) {
+			for (Object item : list) {
+				l.listItemDecoded(item);
+			}
+		}
+		return map;
+	}
+
 	public static RestJsonClient getInstance(boolean supportsSendingGZip,
 			boolean supportsChunkedRequests) {
 
@@ -45,4 +86,18 @@ public abstract class RestJsonClient
 				supportsChunkedRequests);
 		return newClient;
 	}
+
+	/**
+	 * Client that neither compresses requests nor asks for compressed replies.
+	 * Kept separate from {@link #getInstance(boolean, boolean)}, which is
+	 * shared and reconfigured by remote sessions.
+	 */
+	public static RestJsonClient getUncompressedInstance() {
+		if (uncompressedClient == null) {
+			uncompressedClient = new RestJsonClientOkHttp();
+			uncompressedClient.setSupportsSendingGzip(false, false);
+			uncompressedClient.setRequestCompressedReply(false);
+		}
+		return uncompressedClient;
+	}
 }
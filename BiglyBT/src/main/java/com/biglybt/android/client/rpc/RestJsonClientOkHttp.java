@@ -61,6 +61,8 @@ public class RestJsonClientOkHttp
 
 	private boolean supportsSendingChunk = false;
 
+	private boolean requestCompressedReply = true;
+
 	@Override
 	public void setSupportsSendingGzip(boolean supportsSendingGzip,
 			boolean supportsSendingChunk) {
@@ -73,6 +75,11 @@ public class RestJsonClientOkHttp
 		client = null;
 	}
 
+	@Override
+	public void setRequestCompressedReply(boolean requestCompressedReply) {
+		this.requestCompressedReply = requestCompressedReply;
+	}
+
 	@Override
 	public Object connect(String url)
 			throws RPCException {
@@ -84,6 +91,17 @@ public class RestJsonClientOkHttp
 			@Nullable Map<String, String> headers, @Nullable String username,
 			@Nullable String password)
 			throws RPCException {
+		return connect(id, url, jsonPost, headers, username, password, null,
+				null);
+	}
+
+	@Override
+	public Map<?, ?> connect(String id, String url, @Nullable Map<?, ?> jsonPost,
+			@Nullable Map<String, String> headers, @Nullable String username,
+			@Nullable String password, @Nullable String[] listPath,
+			@Nullable JSONUtils.StreamedListItemListener l)
+			throws RPCException {
+		boolean streamList = listPath != null && l != null;
 		long readTime = 0;
 		long connSetupTime = 0;
 		long connTime = 0;
@@ -113,6 +131,12 @@ public class RestJsonClientOkHttp
 					"User-Agent", AndroidUtils.BIGLYBT_USERAGENT).header("Accept",
 							"application/json");
 
+			if (!requestCompressedReply) {
+				// Setting our own Accept-Encoding stops OkHttp from transparently
+				// asking for gzip
+				builder.header("Accept-Encoding", "identity");
+			}
+
 			if (id != null) {
 				builder.header("vr-id",
 						id.length() < 50 ? id : (id.substring(0, 50) + "..."));
@@ -178,7 +202,8 @@ public class RestJsonClientOkHttp
 
 			ResponseBody body = response.body();
 			long contentLength = body.contentLength();
-			if (contentLength >= Integer.MAX_VALUE - 2) {
+			// Streamed lists never hold the whole reply, so size doesn't matter
+			if (!streamList && contentLength >= Integer.MAX_VALUE - 2) {
 				throw new RPCException(response, statusCode, "JSON response too large");
 			}
 
@@ -186,7 +211,7 @@ public class RestJsonClientOkHttp
 			StringBuilder sb = null;
 			BufferedReader br = null;
 			try {
-				if (USE_STRINGBUILDER) {
+				if (USE_STRINGBUILDER && !streamList) {
 					isr = body.charStream();
 					sb = new StringBuilder(
 							contentLength > 512 ? (int) contentLength + 2 : 512);
@@ -219,7 +244,8 @@ public class RestJsonClientOkHttp
 					isr = body.charStream();
 					br = new BufferedReader(isr, 8192);
 					br.mark(32767);
-					json = JSONUtils.decodeJSON(br);
+					json = streamList ? JSONUtils.decodeJSON(br, listPath, l)
+							: JSONUtils.decodeJSON(br);
 
 					if (DEBUG_DETAILED) {
 						String s = json.toString();
@@ -243,7 +269,7 @@ public class RestJsonClientOkHttp
 
 				String line = null;
 				try {
-					if (USE_STRINGBUILDER) {
+					if (sb != null) {
 						line = sb.subSequence(0, Math.min(128, sb.length())).toString();
 					} else if (br != null) {
 						br.reset();
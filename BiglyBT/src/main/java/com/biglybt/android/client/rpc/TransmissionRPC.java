@@ -44,6 +44,11 @@ public class TransmissionRPC
 
 	private static final String RPCKEY_FIELDS = "fields";
 
+	private static final String[] STREAM_PATH_TORRENTS = {
+		RPCKEY_ARGUMENTS,
+		"torrents"
+	};
+
 	private class ReplyMapReceivedListenerWithRefresh
 		implements ReplyMapReceivedListener
 	{
@@ -143,6 +148,13 @@ public class TransmissionRPC
 	@Thunk
 	long lastRecentTorrentGet;
 
+	/**
+	 * Version of the last field-level delta we merged.  0 asks the server for
+	 * full torrent maps.
+	 */
+	@Thunk
+	long torrentDeltaVersion;
+
 	@Thunk
 	int cacheBuster = new Random().nextInt();
 
@@ -220,6 +232,12 @@ public class TransmissionRPC
 								listSupports.contains("method:tags-get-list"));
 						mapSupports.put(RPCSupports.SUPPORTS_SUBSCRIPTIONS,
 								listSupports.contains("method:subscription-get"));
+						mapSupports.put(RPCSupports.SUPPORTS_TORRENT_GET_DELTA,
+								listSupports.contains("torrent-get:delta"));
+						mapSupports.put(RPCSupports.SUPPORTS_CHANGES_WAIT,
+								listSupports.contains("method:torrent-changes-wait"));
+						mapSupports.put(RPCSupports.SUPPORTS_FILES_TREE,
+								listSupports.contains("method:vuze-files-tree"));
 					}
 					mapSupports.put(RPCSupports.SUPPORTS_SEARCH, rpcVersionAZ >= 0);
 					map.put("supports", mapSupports);
@@ -231,8 +249,10 @@ public class TransmissionRPC
 					boolean goodAZ = azVersion == null
 							|| compareVersions(azVersion, "5.7.4.1_B02") >= 0;
 
-					restJsonClient = RestJsonClient.getInstance(
-							getSupports(RPCSupports.SUPPORTS_GZIP), goodAZ);
+					restJsonClient = session.getRemoteProfile().useCompressedRPC()
+							? RestJsonClient.getInstance(
+									getSupports(RPCSupports.SUPPORTS_GZIP), goodAZ)
+							: RestJsonClient.getUncompressedInstance();
 
 					if (AndroidUtils.DEBUG_RPC) {
 						Log.d(TAG, "Received Session-Get. " + map);
@@ -397,6 +417,16 @@ public class TransmissionRPC
 
 		mapArguments.put("base-url", session.getBaseURL());
 
+		// Only list refreshes use deltas.  Session_Torrent merges missing keys
+		// from the cached torrent map, so a torrent with only "id" and its
+		// changed fields updates correctly.
+		final boolean isDelta = getSupports(RPCSupports.SUPPORTS_TORRENT_GET_DELTA)
+				&& (ids == null || "recently-active".equals(ids));
+		if (isDelta) {
+			mapArguments.put("delta", true);
+			mapArguments.put("delta-version", torrentDeltaVersion);
+		}
+
 		if (rpcVersionAZ >= 3) {
 
 			if (fields == null
@@ -483,6 +513,18 @@ public class TransmissionRPC
 			}
 		}
 
+		// Merge each torrent into the session as soon as it's decoded, so the
+		// previous copy of each torrent can be released while the rest of the
+		// reply is still being read
+		JSONUtils.StreamedListItemListener torrentStreamListener = item -> {
+			if (!(item instanceof Map)) {
+				return;
+			}
+			Map mapTorrent = (Map) item;
+			fixupTorrentMap(mapTorrent, fields, isDelta);
+			session.torrent.mergeStreamedTorrent(mapTorrent, fileIndexes);
+		};
+
 		String idList = (ids instanceof long[]) ? Arrays.toString(((long[]) ids))
 				: "" + ids;
 		sendRequest(
@@ -490,7 +532,8 @@ public class TransmissionRPC
 						+ Arrays.toString(fileIndexes) + ", "
 						+ (fields == null ? "null" : fields.size()) + "/"
 						+ (fileFields == null ? "null" : fileFields.length),
-				map, new ReplyMapReceivedListener() {
+				map, STREAM_PATH_TORRENTS, torrentStreamListener,
+				new ReplyMapReceivedListener() {
 
 					@SuppressWarnings({
 						"unchecked",
@@ -499,40 +542,10 @@ public class TransmissionRPC
 					public void rpcSuccess(String id, Map optionalMap) {
 						List list = MapUtils.getMapList(optionalMap, "torrents",
 								Collections.EMPTY_LIST);
-						if (hasFileCountField == null || !hasFileCountField) {
-							for (Object o : list) {
-								if (!(o instanceof Map)) {
-									continue;
-								}
-								Map map = (Map) o;
-								if (map.containsKey(
-										TransmissionVars.FIELD_TORRENT_FILE_COUNT)) {
-									hasFileCountField = true;
-									continue;
-								}
-								int fileCount = MapUtils.getMapList(map,
-										TransmissionVars.FIELD_TORRENT_PRIORITIES,
-										Collections.EMPTY_LIST).size();
-								if (fileCount > 0) {
-									map.put(TransmissionVars.FIELD_TORRENT_FILE_COUNT, fileCount);
-								}
-							}
+						if (isDelta) {
+							torrentDeltaVersion = MapUtils.getMapLong(optionalMap,
+									"delta-version", 0);
 						}
-
-						if (fields == null || fields.contains(
-								TransmissionVars.FIELD_TORRENT_PERCENT_DONE)) {
-							for (Object o : list) {
-								if (!(o instanceof Map)) {
-									continue;
-								}
-								Map map = (Map) o;
-								float donePct = MapUtils.getMapFloat(map,
-										TransmissionVars.FIELD_TORRENT_PERCENT_DONE, 0);
-								map.put(TransmissionVars.FIELD_TORRENT_IS_COMPLETE,
-										donePct >= 1);
-							}
-						}
-
 						// TODO: If we request a list of torrent IDs, and we don't get them
 						//       back on "success", then we should populate the listRemoved
 						List listRemoved = MapUtils.getMapList(optionalMap, "removed",
@@ -621,6 +634,35 @@ public class TransmissionRPC
 				});
 	}
 
+	@SuppressWarnings("unchecked")
+	@Thunk
+	void fixupTorrentMap(Map map, @Nullable List<String> fields,
+			boolean isDelta) {
+		if ((hasFileCountField == null || !hasFileCountField)
+				&& (!isDelta
+						|| map.containsKey(TransmissionVars.FIELD_TORRENT_PRIORITIES))) {
+			if (map.containsKey(TransmissionVars.FIELD_TORRENT_FILE_COUNT)) {
+				hasFileCountField = true;
+			} else {
+				int fileCount = MapUtils.getMapList(map,
+						TransmissionVars.FIELD_TORRENT_PRIORITIES,
+						Collections.EMPTY_LIST).size();
+				if (fileCount > 0) {
+					map.put(TransmissionVars.FIELD_TORRENT_FILE_COUNT, fileCount);
+				}
+			}
+		}
+
+		if ((fields == null
+				|| fields.contains(TransmissionVars.FIELD_TORRENT_PERCENT_DONE))
+				&& (!isDelta
+						|| map.containsKey(TransmissionVars.FIELD_TORRENT_PERCENT_DONE))) {
+			float donePct = MapUtils.getMapFloat(map,
+					TransmissionVars.FIELD_TORRENT_PERCENT_DONE, 0);
+			map.put(TransmissionVars.FIELD_TORRENT_IS_COMPLETE, donePct >= 1);
+		}
+	}
+
 	public void destroy() {
 		torrentListReceivedListeners.clear();
 		sessionSettingsReceivedListeners.clear();
@@ -630,6 +672,19 @@ public class TransmissionRPC
 	@Thunk
 	void sendRequest(final String id, final Map data,
 			@Nullable final ReplyMapReceivedListener l) {
+		sendRequest(id, data, null, null, l);
+	}
+
+	/**
+	 * @param streamListPath Path to a list in the reply whose entries are
+	 *                       passed to <code>streamListener</code> as they're
+	 *                       decoded, before <code>l</code> is triggered
+	 */
+	@Thunk
+	void sendRequest(final String id, final Map data,
+			@Nullable final String[] streamListPath,
+			@Nullable final JSONUtils.StreamedListItemListener streamListener,
+			@Nullable final ReplyMapReceivedListener l) {
 
 		if (AndroidUtils.DEBUG && session != null) {
 			RemoteProfile remoteProfile = session.getRemoteProfile();
@@ -672,10 +727,13 @@ public class TransmissionRPC
 			RemoteProfile remoteProfile = session.getRemoteProfile();
 			try {
 				if (restJsonClient == null) {
-					restJsonClient = RestJsonClient.getInstance(false, false);
+					restJsonClient = remoteProfile.useCompressedRPC()
+							? RestJsonClient.getInstance(false, false)
+							: RestJsonClient.getUncompressedInstance();
 				}
 				Map reply = restJsonClient.connect(id, rpcURL, data, headers,
-						remoteProfile.getUser(), remoteProfile.getAC());
+						remoteProfile.getUser(), remoteProfile.getAC(), streamListPath,
+						streamListener);
 
 				String result = MapUtils.getMapString(reply, "result", "");
 				if (l != null) {
@@ -703,7 +761,7 @@ public class TransmissionRPC
 						Log.d(TAG, "409: retrying");
 					}
 					headers = e.getFirstHeader("X-Transmission-Session-Id");
-					sendRequest(id, data, l);
+					sendRequest(id, data, streamListPath, streamListener, l);
 					return;
 				}
 
@@ -712,7 +770,7 @@ public class TransmissionRPC
 					if (remoteProfile.getRemoteType() == RemoteProfile.TYPE_CORE
 							&& !BiglyCoreUtils.isCoreStarted()) {
 						BiglyCoreUtils.waitForCore(session.getCurrentActivity());
-						sendRequest(id, data, l);
+						sendRequest(id, data, streamListPath, streamListener, l);
 						return;
 					}
 				}
@@ -837,6 +895,46 @@ public class TransmissionRPC
 		getTorrents(callID, ids, fieldIDs, null, null, l);
 	}
 
+	/**
+	 * Long-poll for torrent or tag changes.  Replies with "seq" (pass as
+	 * <code>since</code> next time), "ids" of changed torrents, "tags-changed",
+	 * "active" (transfers running after <code>activeIntervalSecs</code>) and
+	 * "reset" (do a full refresh).
+	 *
+	 * @param since 0 to get the current "seq" without waiting
+	 */
+	public void waitForChanges(long since, long activeIntervalSecs,
+			ReplyMapReceivedListener l) {
+		Map<String, Object> mapArguments = new HashMap<>();
+		mapArguments.put("since", since);
+		// server caps this below the web server's request time limit anyway
+		mapArguments.put("timeout", 15);
+		mapArguments.put("active-interval", activeIntervalSecs);
+		simpleRpcCall("torrent-changes-wait", mapArguments, l);
+	}
+
+	/**
+	 * Get one folder of a torrent's file tree.  Replies with "folder" (totals
+	 * for <code>path</code>), "folders" (totals of each sub-folder), "files"
+	 * (file maps, with "index"), "offset" and "total" (number of children,
+	 * sub-folders first).
+	 *
+	 * @param path '/' separated path of the folder, "" for the root
+	 * @param indexes also reply with the "indexes" of all files under the folder
+	 */
+	public void getFilesTree(long torrentID, String path, int offset, int limit,
+			boolean indexes, ReplyMapReceivedListener l) {
+		Map<String, Object> mapArguments = new HashMap<>();
+		mapArguments.put("id", torrentID);
+		mapArguments.put("path", path);
+		mapArguments.put("offset", offset);
+		mapArguments.put("limit", limit);
+		if (indexes) {
+			mapArguments.put("indexes", true);
+		}
+		simpleRpcCall("vuze-files-tree", mapArguments, l);
+	}
+
 	public void simpleRpcCall(String method, ReplyMapReceivedListener l) {
 		simpleRpcCall(method, (Map) null, l);
 	}
@@ -1206,6 +1304,15 @@ public class TransmissionRPC
 		return rpcVersionAZ;
 	}
 
+	/**
+	 * Next torrent list refresh will retrieve full torrent maps instead of
+	 * a delta.  Call when the torrent cache no longer holds what the server
+	 * last sent us.
+	 */
+	public void resetTorrentDelta() {
+		torrentDeltaVersion = 0;
+	}
+
 	@Thunk
 	boolean getSupports(String id) {
 		return MapUtils.getMapBoolean(mapSupports, id, false);
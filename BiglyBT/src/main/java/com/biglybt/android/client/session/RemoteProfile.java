@@ -260,6 +260,13 @@ public class RemoteProfile
 		return "localhost".equals(getHost());
 	}
 
+	/**
+	 * @return false if RPC traffic should be sent and received uncompressed
+	 */
+	public boolean useCompressedRPC() {
+		return true;
+	}
+
 	public int getRemoteType() {
 		return remoteType;
 	}
@@ -93,18 +93,88 @@ public class Session
 			}
 
 			if (isActivityVisible()) {
-				if (AndroidUtils.DEBUG_ANNOY) {
-					logd("Fire Handler");
-				}
-				triggerRefresh(true);
-
-				for (RefreshTriggerListener l : refreshTriggerListeners) {
-					l.triggerRefresh();
+				if (getSupports(RPCSupports.SUPPORTS_CHANGES_WAIT)) {
+					// Instead of refreshing every interval, hold a request open until
+					// the server says something changed (or transfers are active).
+					// The handler interval still limits how often we refresh.
+					waitForChanges(interval);
+					return;
 				}
+				fireRefresh(true);
 			}
 		}
 	}
 
+	@Thunk
+	void fireRefresh(boolean recentOnly) {
+		if (AndroidUtils.DEBUG_ANNOY) {
+			logd("Fire Handler");
+		}
+		triggerRefresh(recentOnly);
+
+		for (RefreshTriggerListener l : refreshTriggerListeners) {
+			l.triggerRefresh();
+		}
+	}
+
+	@Thunk
+	void waitForChanges(long activeInterval) {
+		if (waitingForChanges || transmissionRPC == null) {
+			return;
+		}
+		waitingForChanges = true;
+		final long since = changeSeq;
+		transmissionRPC.waitForChanges(since, activeInterval,
+				new ReplyMapReceivedListener() {
+					@Override
+					public void rpcSuccess(String id, Map<?, ?> optionalMap) {
+						changeSeq = MapUtils.getMapLong(optionalMap, "seq", 0);
+						List<?> ids = MapUtils.getMapList(optionalMap, "ids", null);
+						boolean reset = since == 0
+								|| MapUtils.getMapBoolean(optionalMap, "reset", false);
+						boolean tagsChanged = MapUtils.getMapBoolean(optionalMap,
+								"tags-changed", false);
+						boolean active = MapUtils.getMapBoolean(optionalMap, "active",
+								false);
+						if (tagsChanged) {
+							tag.needsTagRefresh = true;
+						}
+						boolean changed = reset || tagsChanged || active
+								|| (ids != null && ids.size() > 0);
+						changesWaitDone(changed, !reset);
+					}
+
+					@Override
+					public void rpcFailure(String id, String message) {
+						changesWaitDone(true, true);
+					}
+
+					@Override
+					public void rpcError(String id, Exception e) {
+						changesWaitDone(true, true);
+					}
+				});
+	}
+
+	@Thunk
+	void changesWaitDone(final boolean changed, final boolean recentOnly) {
+		new Handler(Looper.getMainLooper()).post(() -> {
+			waitingForChanges = false;
+			if (destroyed) {
+				return;
+			}
+			if (!changed && isActivityVisible()) {
+				waitForChanges(remoteProfile.calcUpdateInterval());
+			} else if (isActivityVisible()) {
+				// setRefreshingList(false) will setupNextRefresh, which brings us
+				// back to waiting
+				fireRefresh(recentOnly);
+			} else {
+				setupNextRefresh();
+			}
+		});
+	}
+
 	private final String[] FILE_FIELDS_REMOTE = new String[] {
 		TransmissionVars.FIELD_FILES_NAME,
 		TransmissionVars.FIELD_FILES_LENGTH,
@@ -193,6 +263,18 @@ public class Session
 
 	private long lastRefreshInterval = -1;
 
+	/**
+	 * A torrent-changes-wait request is outstanding
+	 */
+	@Thunk
+	boolean waitingForChanges;
+
+	/**
+	 * "seq" from the last torrent-changes-wait reply, 0 if none yet
+	 */
+	@Thunk
+	long changeSeq;
+
 	public Session(final @NonNull RemoteProfile _remoteProfile,
 			FragmentActivity currentActivity) {
 		this.remoteProfile = _remoteProfile;
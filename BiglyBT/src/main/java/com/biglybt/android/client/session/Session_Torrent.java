@@ -65,6 +65,12 @@ public class Session_Torrent
 	 */
 	private final LongSparseArray<Map<?, ?>> mapOriginal;
 
+	/**
+	 * Typed copy of the list fields of {@link #mapOriginal}, for filtering and
+	 * sorting.  Guarded by session.mLock, like mapOriginal
+	 */
+	private final TorrentStore store = new TorrentStore();
+
 	/**
 	 * Store the last torrent id that was retrieved with file info, so when we
 	 * are clearing the cache due to memory constraints, we can keep that last
@@ -172,52 +178,13 @@ public class Session_Torrent
 					if (!(key instanceof Number)) {
 						continue;
 					}
-					if (mapUpdatedTorrent.size() == 1) {
+					// Already merged as the reply was streamed in
+					if (mapOriginal.get(((Number) key).longValue(),
+							null) == mapUpdatedTorrent) {
 						continue;
 					}
-
-					mapUpdatedTorrent.put(TransmissionVars.FIELD_TORRENT_DOWNLOAD_DIR, "/storage/5C09-33D9/NVIDIA_SHIELD/Series");
-
-					long torrentID = ((Number) key).longValue();
-
-					Map<?, ?> old = mapOriginal.get(torrentID, null);
-					mapOriginal.put(torrentID, mapUpdatedTorrent);
-
-					if (mapUpdatedTorrent.containsKey(
-							TransmissionVars.FIELD_TORRENT_FILES)) {
-						lastTorrentWithFiles = torrentID;
-					}
-
-					/* Older Vuze clients would escape the strings */
-					if (requireStringUnescape) {
-						for (Object torrentKey : mapUpdatedTorrent.keySet()) {
-							Object o = mapUpdatedTorrent.get(torrentKey);
-							if (o instanceof String) {
-								mapUpdatedTorrent.put(torrentKey,
-										AndroidUtils.unescapeXML((String) o));
-							}
-						}
-					}
-
-					if (old != null) {
-						// merge anything missing in new map with old
-						for (Object torrentKey : old.keySet()) {
-							if (!mapUpdatedTorrent.containsKey(torrentKey)) {
-								//System.out.println(key + " missing " + torrentKey);
-								mapUpdatedTorrent.put(torrentKey, old.get(torrentKey));
-							}
-						}
-					}
-
-					mergeFiles(mapUpdatedTorrent, old, fileIndexes);
-
-					mapUpdatedTorrent.put(TransmissionVars.FIELD_LAST_UPDATED,
-							System.currentTimeMillis());
-
-					if (!addTorrentSilently) {
-						activateOpenOptionsDialog(torrentID, mapUpdatedTorrent,
-								listOpenOptionHashes);
-					}
+					mergeTorrent(mapUpdatedTorrent, fileIndexes, requireStringUnescape,
+							addTorrentSilently, listOpenOptionHashes);
 				}
 
 				// only clean up open options after we got a non-empty torrent list,
@@ -233,6 +200,7 @@ public class Session_Torrent
 						long torrentID = ((Number) removedItem).longValue();
 						if (mapOriginal.indexOfKey(torrentID) >= 0) {
 							mapOriginal.remove(torrentID);
+							store.remove(torrentID);
 							numAddedOrRemoved++;
 						} else {
 							if (AndroidUtils.DEBUG) {
@@ -255,6 +223,86 @@ public class Session_Torrent
 		}
 	}
 
+	/**
+	 * Merge a torrent map from a torrent-get list that is still being received.
+	 * {@link #addRemoveTorrents} skips it when the full list arrives.
+	 */
+	@SuppressWarnings("rawtypes")
+	public void mergeStreamedTorrent(Map mapUpdatedTorrent,
+			@Nullable int[] fileIndexes) {
+		session.ensureNotDestroyed();
+
+		boolean requireStringUnescape = session.transmissionRPC.isRequireStringUnescape();
+		synchronized (session.mLock) {
+			boolean addTorrentSilently = session.getRemoteProfile().isAddTorrentSilently();
+			List<String> listOpenOptionHashes = addTorrentSilently ? null
+					: session.remoteProfile.getOpenOptionsWaiterList();
+			mergeTorrent(mapUpdatedTorrent, fileIndexes, requireStringUnescape,
+					addTorrentSilently, listOpenOptionHashes);
+		}
+	}
+
+	@SuppressWarnings({
+		"rawtypes",
+		"unchecked"
+	})
+	private void mergeTorrent(Map mapUpdatedTorrent, @Nullable int[] fileIndexes,
+			boolean requireStringUnescape, boolean addTorrentSilently,
+			List<String> listOpenOptionHashes) {
+		Object key = mapUpdatedTorrent.get("id");
+		if (!(key instanceof Number)) {
+			return;
+		}
+		if (mapUpdatedTorrent.size() == 1) {
+			return;
+		}
+
+		mapUpdatedTorrent.put(TransmissionVars.FIELD_TORRENT_DOWNLOAD_DIR, "/storage/5C09-33D9/NVIDIA_SHIELD/Series");
+
+		long torrentID = ((Number) key).longValue();
+
+		Map<?, ?> old = mapOriginal.get(torrentID, null);
+		mapOriginal.put(torrentID, mapUpdatedTorrent);
+
+		if (mapUpdatedTorrent.containsKey(
+				TransmissionVars.FIELD_TORRENT_FILES)) {
+			lastTorrentWithFiles = torrentID;
+		}
+
+		/* Older Vuze clients would escape the strings */
+		if (requireStringUnescape) {
+			for (Object torrentKey : mapUpdatedTorrent.keySet()) {
+				Object o = mapUpdatedTorrent.get(torrentKey);
+				if (o instanceof String) {
+					mapUpdatedTorrent.put(torrentKey,
+							AndroidUtils.unescapeXML((String) o));
+				}
+			}
+		}
+
+		if (old != null) {
+			// merge anything missing in new map with old
+			for (Object torrentKey : old.keySet()) {
+				if (!mapUpdatedTorrent.containsKey(torrentKey)) {
+					//System.out.println(key + " missing " + torrentKey);
+					mapUpdatedTorrent.put(torrentKey, old.get(torrentKey));
+				}
+			}
+		}
+
+		mergeFiles(mapUpdatedTorrent, old, fileIndexes);
+
+		mapUpdatedTorrent.put(TransmissionVars.FIELD_LAST_UPDATED,
+				System.currentTimeMillis());
+
+		store.update(torrentID, mapUpdatedTorrent);
+
+		if (!addTorrentSilently) {
+			activateOpenOptionsDialog(torrentID, mapUpdatedTorrent,
+					listOpenOptionHashes);
+		}
+	}
+
 	private void mergeFiles(Map mapUpdatedTorrent, Map old,
 			final int[] fileIndexes) {
 		List<?> listUpdatedFiles = MapUtils.getMapList(mapUpdatedTorrent,
@@ -411,8 +459,12 @@ public class Session_Torrent
 
 		synchronized (session.mLock) {
 			mapOriginal.clear();
+			store.clear();
 			needsFullTorrentRefresh = true;
 		}
+		if (session.transmissionRPC != null) {
+			session.transmissionRPC.resetTorrentDelta();
+		}
 	}
 
 	public int clearFilesCaches(boolean keepLastUsedTorrentFiles) {
@@ -458,6 +510,10 @@ public class Session_Torrent
 	public void clearTorrentFromCache(long id) {
 		synchronized (session.mLock) {
 			mapOriginal.remove(id);
+			store.remove(id);
+		}
+		if (session.transmissionRPC != null) {
+			session.transmissionRPC.resetTorrentDelta();
 		}
 	}
 
@@ -470,6 +526,18 @@ public class Session_Torrent
 				rpc -> rpc.getTorrentFileInfo(callID, ids, fileIndexes, l));
 	}
 
+	/**
+	 * Get one folder of a torrent's file tree.
+	 *
+	 * @see TransmissionRPC#getFilesTree(long, String, int, int, boolean, ReplyMapReceivedListener)
+	 */
+	public void getFilesTree(final long torrentID, final String path,
+			final int offset, final int limit, final boolean indexes,
+			final ReplyMapReceivedListener l) {
+		session._executeRpc(
+				rpc -> rpc.getFilesTree(torrentID, path, offset, limit, indexes, l));
+	}
+
 	/**
 	 * Get all torrent maps.  Might be slow (walks tree)
 	 */
@@ -500,6 +568,18 @@ public class Session_Torrent
 		}
 	}
 
+	/**
+	 * @return Copy of the typed torrent list fields, safe to use off the
+	 *         session lock
+	 */
+	public TorrentStore getStoreSnapshot() {
+		session.ensureNotDestroyed();
+
+		synchronized (session.mLock) {
+			return store.snapshot();
+		}
+	}
+
 	public boolean isRefreshingList() {
 		return refreshingList;
 	}
@@ -0,0 +1,500 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+
+package com.biglybt.android.client.session;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.biglybt.android.client.TransmissionVars;
+
+/**
+ * Typed, one-array-per-field copy of the torrent fields the torrent list
+ * filters, sorts and groups on.
+ * <p/>
+ * Rows are kept dense (removal moves the last row into the hole), so a
+ * filter pass is a loop over primitive arrays instead of a map lookup, unbox
+ * and cast per field per torrent.  The torrent maps in {@link Session_Torrent}
+ * remain the source for everything else.
+ * <p/>
+ * Not thread safe.  The live store is only touched under the session lock;
+ * filtering works on a {@link #snapshot()}.
+ */
+public class TorrentStore
+{
+	public static final int COL_NAME = 0;
+
+	public static final int COL_STATUS = 1;
+
+	public static final int COL_RATE_DOWNLOAD = 2;
+
+	public static final int COL_RATE_UPLOAD = 3;
+
+	public static final int COL_SIZE_WHEN_DONE = 4;
+
+	public static final int COL_ETA = 5;
+
+	public static final int COL_POSITION = 6;
+
+	public static final int COL_FILE_COUNT = 7;
+
+	public static final int COL_DATE_ADDED = 8;
+
+	public static final int COL_DATE_ACTIVITY = 9;
+
+	public static final int COL_IS_COMPLETE = 10;
+
+	public static final int COL_PERCENT_DONE = 11;
+
+	public static final int COL_UPLOAD_RATIO = 12;
+
+	private static final int NUM_COLUMNS = 13;
+
+	/** First column stored as a double, columns before it (after name) are longs */
+	private static final int FIRST_DOUBLE_COL = COL_PERCENT_DONE;
+
+	private static final String[] COLUMN_FIELDS = {
+		TransmissionVars.FIELD_TORRENT_NAME,
+		TransmissionVars.FIELD_TORRENT_STATUS,
+		TransmissionVars.FIELD_TORRENT_RATE_DOWNLOAD,
+		TransmissionVars.FIELD_TORRENT_RATE_UPLOAD,
+		TransmissionVars.FIELD_TORRENT_SIZE_WHEN_DONE,
+		TransmissionVars.FIELD_TORRENT_ETA,
+		TransmissionVars.FIELD_TORRENT_POSITION,
+		TransmissionVars.FIELD_TORRENT_FILE_COUNT,
+		TransmissionVars.FIELD_TORRENT_DATE_ADDED,
+		TransmissionVars.FIELD_TORRENT_DATE_ACTIVITY,
+		TransmissionVars.FIELD_TORRENT_IS_COMPLETE,
+		TransmissionVars.FIELD_TORRENT_PERCENT_DONE,
+		TransmissionVars.FIELD_TORRENT_UPLOAD_RATIO,
+	};
+
+	private static final long[] NO_TAGS = new long[0];
+
+	public interface RowComparator
+	{
+		int compare(int rowLHS, int rowRHS);
+	}
+
+	private int count;
+
+	private long[] ids;
+
+	/** {@link #seq} at the time the row was last updated */
+	private long[] changeSeqs;
+
+	private long seq;
+
+	/** Bit per column, set when the torrent map had a usable value */
+	private int[] present;
+
+	private String[] names;
+
+	private long[][] longCols;
+
+	private double[][] doubleCols;
+
+	/** Sorted tag UIDs, null when the torrent map had no tag list */
+	private long[][] tagUIDs;
+
+	/** Open addressing id -> row + 1, 0 being empty */
+	private long[] indexKeys;
+
+	private int[] indexRows;
+
+	public TorrentStore() {
+		allocate(64);
+	}
+
+	private TorrentStore(TorrentStore other) {
+		count = other.count;
+		int capacity = Math.max(count, 1);
+		ids = Arrays.copyOf(other.ids, capacity);
+		changeSeqs = Arrays.copyOf(other.changeSeqs, capacity);
+		seq = other.seq;
+		present = Arrays.copyOf(other.present, capacity);
+		names = Arrays.copyOf(other.names, capacity);
+		// tag arrays are replaced, never modified, so sharing them is safe
+		tagUIDs = Arrays.copyOf(other.tagUIDs, capacity);
+		longCols = new long[FIRST_DOUBLE_COL][];
+		doubleCols = new double[NUM_COLUMNS][];
+		for (int col = 1; col < NUM_COLUMNS; col++) {
+			if (col < FIRST_DOUBLE_COL) {
+				longCols[col] = Arrays.copyOf(other.longCols[col], capacity);
+			} else {
+				doubleCols[col] = Arrays.copyOf(other.doubleCols[col], capacity);
+			}
+		}
+		indexKeys = other.indexKeys.clone();
+		indexRows = other.indexRows.clone();
+	}
+
+	private void allocate(int capacity) {
+		ids = new long[capacity];
+		changeSeqs = new long[capacity];
+		present = new int[capacity];
+		names = new String[capacity];
+		tagUIDs = new long[capacity][];
+		longCols = new long[FIRST_DOUBLE_COL][];
+		doubleCols = new double[NUM_COLUMNS][];
+		for (int col = 1; col < NUM_COLUMNS; col++) {
+			if (col < FIRST_DOUBLE_COL) {
+				longCols[col] = new long[capacity];
+			} else {
+				doubleCols[col] = new double[capacity];
+			}
+		}
+		indexKeys = new long[capacity * 2];
+		indexRows = new int[capacity * 2];
+	}
+
+	/**
+	 * @return Copy of the current rows, for use outside of the session lock
+	 */
+	public TorrentStore snapshot() {
+		return new TorrentStore(this);
+	}
+
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return Sequence number of the last update, increases with every update
+	 */
+	public long getSeq() {
+		return seq;
+	}
+
+	/**
+	 * @return {@link #getSeq()} as it was when the row was last updated
+	 */
+	public long getChangeSeq(int row) {
+		return changeSeqs[row];
+	}
+
+	public void clear() {
+		count = 0;
+		Arrays.fill(names, null);
+		Arrays.fill(tagUIDs, null);
+		Arrays.fill(indexRows, 0);
+	}
+
+	/**
+	 * @return row of the torrent, or -1 if not in the store
+	 */
+	public int indexOf(long id) {
+		int mask = indexKeys.length - 1;
+		int slot = hash(id) & mask;
+		while (true) {
+			int row = indexRows[slot];
+			if (row == 0) {
+				return -1;
+			}
+			if (indexKeys[slot] == id) {
+				return row - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Copy the list fields of an (already merged) torrent map into the store
+	 */
+	public void update(long id, Map<?, ?> map) {
+		int row = indexOf(id);
+		if (row < 0) {
+			if (count == ids.length) {
+				grow();
+			}
+			row = count++;
+			ids[row] = id;
+			names[row] = null;
+			indexPut(id, row);
+		}
+
+		changeSeqs[row] = ++seq;
+
+		int bits = 0;
+		Object oName = map.get(COLUMN_FIELDS[COL_NAME]);
+		if (oName instanceof String) {
+			// Keep the existing instance when unchanged so each refresh's decoded
+			// copy can be collected
+			if (!oName.equals(names[row])) {
+				names[row] = (String) oName;
+			}
+			bits |= 1 << COL_NAME;
+		} else {
+			names[row] = null;
+		}
+
+		for (int col = 1; col < NUM_COLUMNS; col++) {
+			Object o = map.get(COLUMN_FIELDS[col]);
+			if (o instanceof Number) {
+				if (col < FIRST_DOUBLE_COL) {
+					longCols[col][row] = ((Number) o).longValue();
+				} else {
+					doubleCols[col][row] = ((Number) o).doubleValue();
+				}
+				bits |= 1 << col;
+			} else if (o instanceof Boolean) {
+				boolean b = (Boolean) o;
+				if (col < FIRST_DOUBLE_COL) {
+					longCols[col][row] = b ? 1 : 0;
+				} else {
+					doubleCols[col][row] = b ? 1 : 0;
+				}
+				bits |= 1 << col;
+			}
+		}
+		present[row] = bits;
+
+		Object oTags = map.get(TransmissionVars.FIELD_TORRENT_TAG_UIDS);
+		if (oTags instanceof List) {
+			List<?> list = (List<?>) oTags;
+			long[] tags = list.isEmpty() ? NO_TAGS : new long[list.size()];
+			int numTags = 0;
+			for (Object o : list) {
+				if (o instanceof Number) {
+					tags[numTags++] = ((Number) o).longValue();
+				}
+			}
+			if (numTags != tags.length) {
+				tags = Arrays.copyOf(tags, numTags);
+			}
+			Arrays.sort(tags);
+			long[] oldTags = tagUIDs[row];
+			tagUIDs[row] = oldTags != null && Arrays.equals(oldTags, tags) ? oldTags
+					: tags;
+		} else {
+			tagUIDs[row] = null;
+		}
+	}
+
+	public void remove(long id) {
+		int row = indexOf(id);
+		if (row < 0) {
+			return;
+		}
+		indexRemove(id);
+		int last = --count;
+		if (row != last) {
+			ids[row] = ids[last];
+			changeSeqs[row] = changeSeqs[last];
+			present[row] = present[last];
+			names[row] = names[last];
+			tagUIDs[row] = tagUIDs[last];
+			for (int col = 1; col < NUM_COLUMNS; col++) {
+				if (col < FIRST_DOUBLE_COL) {
+					longCols[col][row] = longCols[col][last];
+				} else {
+					doubleCols[col][row] = doubleCols[col][last];
+				}
+			}
+			indexPut(ids[row], row);
+		}
+		names[last] = null;
+		tagUIDs[last] = null;
+	}
+
+	public long getID(int row) {
+		return ids[row];
+	}
+
+	public boolean has(int col, int row) {
+		return (present[row] & (1 << col)) != 0;
+	}
+
+	public String getName(int row) {
+		return names[row];
+	}
+
+	public long getLong(int col, int row, long def) {
+		if ((present[row] & (1 << col)) == 0) {
+			return def;
+		}
+		return col < FIRST_DOUBLE_COL ? longCols[col][row]
+				: (long) doubleCols[col][row];
+	}
+
+	public double getDouble(int col, int row, double def) {
+		if ((present[row] & (1 << col)) == 0) {
+			return def;
+		}
+		return col < FIRST_DOUBLE_COL ? longCols[col][row]
+				: doubleCols[col][row];
+	}
+
+	public boolean getBoolean(int col, int row, boolean def) {
+		return getLong(col, row, def ? 1 : 0) != 0;
+	}
+
+	/**
+	 * @return whether the torrent's map had a tag list
+	 */
+	public boolean hasTagList(int row) {
+		return tagUIDs[row] != null;
+	}
+
+	public boolean hasTag(int row, long tagUID) {
+		long[] tags = tagUIDs[row];
+		return tags != null && Arrays.binarySearch(tags, tagUID) >= 0;
+	}
+
+	/**
+	 * @return Column holding the field, or -1 if the field isn't stored
+	 */
+	public static int getColumn(String fieldID) {
+		for (int col = 0; col < NUM_COLUMNS; col++) {
+			if (COLUMN_FIELDS[col].equals(fieldID)) {
+				return col;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compare two rows the same way {@link com.biglybt.android.adapter.ComparatorMapFields}
+	 * compares the map values, with missing values first
+	 */
+	public int compare(int col, int rowLHS, int rowRHS) {
+		int bit = 1 << col;
+		boolean hasLHS = (present[rowLHS] & bit) != 0;
+		boolean hasRHS = (present[rowRHS] & bit) != 0;
+		if (!hasLHS || !hasRHS) {
+			return hasLHS == hasRHS ? 0 : hasLHS ? 1 : -1;
+		}
+		if (col == COL_NAME) {
+			return names[rowLHS].compareToIgnoreCase(names[rowRHS]);
+		}
+		if (col < FIRST_DOUBLE_COL) {
+			long l = longCols[col][rowLHS];
+			long r = longCols[col][rowRHS];
+			return l > r ? 1 : l == r ? 0 : -1;
+		}
+		return Double.compare(doubleCols[col][rowLHS], doubleCols[col][rowRHS]);
+	}
+
+	/**
+	 * Stable sort of rows[0..num) without boxing
+	 */
+	public static void sortRows(int[] rows, int num, RowComparator comparator) {
+		if (num < 2) {
+			return;
+		}
+		int[] src = Arrays.copyOf(rows, num);
+		mergeSort(src, rows, 0, num, comparator);
+	}
+
+	private static void mergeSort(int[] src, int[] dest, int low, int high,
+			RowComparator comparator) {
+		int length = high - low;
+		if (length < 7) {
+			// insertion sort on small runs, as Arrays.sort does
+			for (int i = low; i < high; i++) {
+				for (int j = i; j > low
+						&& comparator.compare(dest[j - 1], dest[j]) > 0; j--) {
+					int t = dest[j];
+					dest[j] = dest[j - 1];
+					dest[j - 1] = t;
+				}
+			}
+			return;
+		}
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid, comparator);
+		mergeSort(dest, src, mid, high, comparator);
+
+		if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+			System.arraycopy(src, low, dest, low, length);
+			return;
+		}
+
+		for (int i = low, p = low, q = mid; i < high; i++) {
+			if (q >= high || p < mid && comparator.compare(src[p], src[q]) <= 0) {
+				dest[i] = src[p++];
+			} else {
+				dest[i] = src[q++];
+			}
+		}
+	}
+
+	private void grow() {
+		int capacity = ids.length * 2;
+		ids = Arrays.copyOf(ids, capacity);
+		changeSeqs = Arrays.copyOf(changeSeqs, capacity);
+		present = Arrays.copyOf(present, capacity);
+		names = Arrays.copyOf(names, capacity);
+		tagUIDs = Arrays.copyOf(tagUIDs, capacity);
+		for (int col = 1; col < NUM_COLUMNS; col++) {
+			if (col < FIRST_DOUBLE_COL) {
+				longCols[col] = Arrays.copyOf(longCols[col], capacity);
+			} else {
+				doubleCols[col] = Arrays.copyOf(doubleCols[col], capacity);
+			}
+		}
+		indexKeys = new long[capacity * 2];
+		indexRows = new int[capacity * 2];
+		for (int row = 0; row < count; row++) {
+			indexPut(ids[row], row);
+		}
+	}
+
+	private static int hash(long id) {
+		long h = id * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void indexPut(long id, int row) {
+		int mask = indexKeys.length - 1;
+		int slot = hash(id) & mask;
+		while (indexRows[slot] != 0 && indexKeys[slot] != id) {
+			slot = (slot + 1) & mask;
+		}
+		indexKeys[slot] = id;
+		indexRows[slot] = row + 1;
+	}
+
+	private void indexRemove(long id) {
+		int mask = indexKeys.length - 1;
+		int slot = hash(id) & mask;
+		while (indexRows[slot] != 0) {
+			if (indexKeys[slot] == id) {
+				break;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (indexRows[slot] == 0) {
+			return;
+		}
+		// backward shift deletion keeps probe chains intact without tombstones
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (indexRows[next] != 0) {
+			int home = hash(indexKeys[next]) & mask;
+			boolean move = hole <= next ? (home <= hole || home > next)
+					: (home <= hole && home > next);
+			if (move) {
+				indexKeys[hole] = indexKeys[next];
+				indexRows[hole] = indexRows[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		indexRows[hole] = 0;
+	}
+}
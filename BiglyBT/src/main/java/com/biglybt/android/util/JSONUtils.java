@@ -45,6 +45,15 @@ public class JSONUtils
 
 	private static final String DEFAULT_MAP_KEY = "value";
 
+	/**
+	 * Receives list entries as they are decoded by
+	 * {@link #decodeJSON(Reader, String[], StreamedListItemListener)}
+	 */
+	public interface StreamedListItemListener
+	{
+		void listItemDecoded(Object item);
+	}
+
 	/**
 	 * decodes JSON formatted text into a map.
 	 * 
@@ -91,6 +100,54 @@ public class JSONUtils
 		return map;
 	}
 
+	/**
+	 * Decodes a JSON map, passing each entry of the list at
+	 * <code>listPath</code> to <code>l</code> as soon as it's decoded, rather
+	 * than after the whole document has been read.
+	 * <p>
+	 * The list is still placed in the returned map, holding whatever objects
+	 * were decoded, so callers that store the entries elsewhere don't double
+	 * memory use.
+	 *
+	 * @param listPath Keys from the root map to the list, ie.
+	 *                 <code>{"arguments", "torrents"}</code>
+	 */
+	public static Map<String, Object> decodeJSON(Reader json, String[] listPath,
+			StreamedListItemListener l) {
+		JSONReader jsonReader = new JSONReader(json);
+		try {
+			return readStreamedMap(jsonReader, listPath, 0, l);
+		} finally {
+			jsonReader.close();
+		}
+	}
+
+	private static Map<String, Object> readStreamedMap(JSONReader jsonReader,
+			String[] listPath, int depth, StreamedListItemListener l) {
+		Map<String, Object> map = new HashMap<>();
+		jsonReader.startObject();
+		while (jsonReader.hasNext()) {
+			String key = jsonReader.readString();
+			if (!listPath[depth].equals(key)) {
+				map.put(key, jsonReader.readObject());
+			} else if (depth < listPath.length - 1) {
+				map.put(key, readStreamedMap(jsonReader, listPath, depth + 1, l));
+			} else {
+				List<Object> list = new ArrayList<>();
+				jsonReader.startArray();
+				while (jsonReader.hasNext()) {
+					Object item = jsonReader.readObject();
+					l.listItemDecoded(item);
+					list.add(item);
+				}
+				jsonReader.endArray();
+				map.put(key, list);
+			}
+		}
+		jsonReader.endObject();
+		return map;
+	}
+
 	private static Object parseWithException(String json) {
 		//return new JSONParser(JSONParser.MODE_PERMISSIVE).parse(json);
 		return JSON.parse(json, features);
@@ -0,0 +1,314 @@
+/*
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.aelitis.azureus.plugins.xmwebui;
+
+import java.util.*;
+
+import com.biglybt.core.util.SystemTime;
+import com.biglybt.pif.disk.DiskManagerFileInfo;
+
+/**
+ * Folder structure of a torrent's files, so that "vuze-files-tree" can return
+ * one folder's children (with per folder totals) without the client having to
+ * fetch and build the tree of every file.
+ * <p/>
+ * Files are kept sorted by name, which puts the files under any folder in one
+ * contiguous range, so summarising a folder is a walk of its range.
+ */
+public class
+FileTreeIndex
+{
+	public static class
+	Folder
+	{
+		private final String			name;
+		private final String			path;
+
+		private int						start;
+		private int						end;
+
+		private final List<Folder>		folders	= new ArrayList<>();
+		private int[]					files;
+
+		private
+		Folder(
+			String		_name,
+			String		_path )
+		{
+			name	= _name;
+			path	= _path;
+		}
+
+		public String
+		getName()
+		{
+			return( name );
+		}
+
+			/**
+			 * @return path from the torrent root, '/' separated, "" for the root
+			 */
+
+		public String
+		getPath()
+		{
+			return( path );
+		}
+
+		public List<Folder>
+		getFolders()
+		{
+			return( folders );
+		}
+
+			/**
+			 * @return indexes of the files directly in this folder, in name order
+			 */
+
+		public int[]
+		getFiles()
+		{
+			return( files );
+		}
+
+		public int
+		getNumFiles()
+		{
+			return( end - start );
+		}
+	}
+
+	private final int					num_files;
+	private final long					created	= SystemTime.getMonotonousTime();
+
+	private final int[]					sorted;
+	private final Map<String,Folder>	folders	= new HashMap<>();
+	private final Folder				root;
+
+		/**
+		 * @param names	relative name of each file, '/' separated
+		 */
+
+	public
+	FileTreeIndex(
+		final String[]		names )
+	{
+		num_files	= names.length;
+
+		Integer[]	order = new Integer[num_files];
+
+		for ( int i=0;i<num_files;i++){
+
+			order[i] = i;
+		}
+
+		Arrays.sort(
+			order,
+			new Comparator<Integer>()
+			{
+				@Override
+				public int
+				compare(
+					Integer		i1,
+					Integer		i2 )
+				{
+					return( names[i1].compareTo( names[i2] ));
+				}
+			});
+
+		sorted = new int[num_files];
+
+		for ( int i=0;i<num_files;i++){
+
+			sorted[i] = order[i];
+		}
+
+		root = new Folder( "", "" );
+
+		build( root, names, 0, 0, num_files );
+	}
+
+	private void
+	build(
+		Folder		folder,
+		String[]	names,
+		int			prefix_len,
+		int			start,
+		int			end )
+	{
+		folder.start	= start;
+		folder.end		= end;
+
+		folders.put( folder.path, folder );
+
+		int[]	files		= new int[end - start];
+		int		num_files	= 0;
+
+		int	i = start;
+
+		while( i < end ){
+
+			String	name = names[sorted[i]];
+
+			int	slash = name.indexOf( '/', prefix_len );
+
+			if ( slash == -1 ){
+
+				files[num_files++] = sorted[i++];
+
+				continue;
+			}
+
+				// everything sharing "<folder>/" follows on from here
+
+			int	group_end = i + 1;
+
+			while( group_end < end && names[sorted[group_end]].regionMatches( 0, name, 0, slash + 1 )){
+
+				group_end++;
+			}
+
+			Folder	child = new Folder( name.substring( prefix_len, slash ), name.substring( 0, slash ));
+
+			folder.folders.add( child );
+
+			build( child, names, slash + 1, i, group_end );
+
+			i = group_end;
+		}
+
+		folder.files = num_files == files.length?files:Arrays.copyOf( files, num_files );
+
+			// "a.b/" sorts before "a/" by full name, put sub-folders in name order
+
+		if ( folder.folders.size() > 1 ){
+
+			Collections.sort(
+				folder.folders,
+				new Comparator<Folder>()
+				{
+					@Override
+					public int
+					compare(
+						Folder		f1,
+						Folder		f2 )
+					{
+						return( f1.name.compareTo( f2.name ));
+					}
+				});
+		}
+	}
+
+	public int
+	getFileCount()
+	{
+		return( num_files );
+	}
+
+	public long
+	getAge()
+	{
+		return( SystemTime.getMonotonousTime() - created );
+	}
+
+		/**
+		 * @param path	'/' separated, leading and trailing separators are ignored
+		 * @return null if there's no such folder
+		 */
+
+	public Folder
+	getFolder(
+		String		path )
+	{
+		if ( path == null ){
+
+			return( root );
+		}
+
+		while( path.startsWith( "/" )){
+
+			path = path.substring( 1 );
+		}
+
+		while( path.endsWith( "/" )){
+
+			path = path.substring( 0, path.length() - 1 );
+		}
+
+		return( folders.get( path ));
+	}
+
+		/**
+		 * @return indexes of every file under the folder, in name order
+		 */
+
+	public int[]
+	getFileIndexes(
+		Folder		folder )
+	{
+		return( Arrays.copyOfRange( sorted, folder.start, folder.end ));
+	}
+
+		/**
+		 * Totals of everything under the folder.  "priorities" lists the distinct
+		 * priorities of its wanted files.
+		 */
+
+	public Map<String,Object>
+	summarise(
+		Folder					folder,
+		DiskManagerFileInfo[]	files )
+	{
+		long	length			= 0;
+		long	size_wanted		= 0;
+		long	completed		= 0;
+		int		num_wanted		= 0;
+
+		SortedSet<Long>	priorities = new TreeSet<>();
+
+		for ( int i=folder.start;i<folder.end;i++){
+
+			DiskManagerFileInfo	file = files[sorted[i]];
+
+			long	file_length = file.getLength();
+
+			length		+= file_length;
+			completed	+= file.getDownloaded();
+
+			if ( !file.isSkipped()){
+
+				num_wanted++;
+
+				size_wanted	+= file_length;
+
+				priorities.add( TransmissionVars.convertVuzePriority( file.getNumericPriority()));
+			}
+		}
+
+		Map<String,Object>	map = new HashMap<>();
+
+		map.put( TransmissionVars.FIELD_FILES_NAME, folder.name );
+		map.put( "path", folder.path );
+		map.put( "numFiles", folder.getNumFiles());
+		map.put( "numFilesWanted", num_wanted );
+		map.put( TransmissionVars.FIELD_FILES_LENGTH, length );
+		map.put( "sizeWanted", size_wanted );
+		map.put( TransmissionVars.FIELD_FILESTATS_BYTES_COMPLETED, completed );
+		map.put( "priorities", new ArrayList<>( priorities ));
+
+		return( map );
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.aelitis.azureus.plugins.xmwebui;
+
+import java.util.*;
+
+import com.biglybt.core.util.SystemTime;
+
+/**
+ * Sequence numbered record of torrent and tag changes, so that clients can
+ * block in "torrent-changes-wait" until something happens instead of polling
+ * torrent-get on a timer.
+ */
+public class
+TorrentChangeTracker
+{
+		// replies are served by the tracker web server, which drops requests that take
+		// longer than "Tracker Max GET Time" (20s by default) so stay well inside that
+
+	public static final long	MAX_WAIT	= 15*1000;
+
+	private static final int	MAX_TRACKED	= 4096;
+
+	public interface
+	ActivityChecker
+	{
+		public boolean
+		isActive();
+	}
+
+		// start from the clock so a client holding a sequence from before a restart
+		// gets a reset rather than a false "nothing changed"
+
+	private long	seq	= SystemTime.getCurrentTime();
+
+		// changes up to and including this have been forgotten
+
+	private long	forgotten_seq	= seq;
+
+	private long	tags_seq;
+
+		// id -> seq of last change, oldest change first
+
+	private final LinkedHashMap<Long,Long>	changed = new LinkedHashMap<>();
+
+	public synchronized void
+	torrentChanged(
+		long	id )
+	{
+		seq++;
+
+		changed.remove( id );
+
+		changed.put( id, seq );
+
+		if ( changed.size() > MAX_TRACKED ){
+
+			Iterator<Long> it = changed.values().iterator();
+
+			forgotten_seq = it.next();
+
+			it.remove();
+		}
+
+		notifyAll();
+	}
+
+	public synchronized void
+	tagsChanged()
+	{
+		seq++;
+
+		tags_seq = seq;
+
+		notifyAll();
+	}
+
+		/**
+		 * Blocks until there has been a change after 'since', the timeout expires or,
+		 * checking every 'active_interval', the activity checker reports transfers
+		 * in progress.
+		 *
+		 * @param since	 sequence from a previous result, 0 to just get the current one
+		 */
+
+	public Map
+	waitForChanges(
+		long				since,
+		long				timeout,
+		long				active_interval,
+		ActivityChecker		checker )
+
+		throws InterruptedException
+	{
+		timeout = Math.max( 0, Math.min( timeout, MAX_WAIT ));
+
+		long	start 				= SystemTime.getMonotonousTime();
+		long	next_active_check	= start;
+
+		boolean	active = false;
+
+		while( since > 0 ){
+
+			long now;
+
+			synchronized( this ){
+
+				if ( seq != since ){
+
+						// changed, or the client's sequence is from before we restarted
+
+					break;
+				}
+
+				now = SystemTime.getMonotonousTime();
+
+				if ( now - start >= timeout ){
+
+					break;
+				}
+
+				long	wake = start + timeout;
+
+				if ( checker != null && active_interval > 0 ){
+
+					wake = Math.min( wake, next_active_check );
+				}
+
+				if ( now < wake ){
+
+					wait( wake - now );
+
+					continue;
+				}
+			}
+
+			if ( checker.isActive()){
+
+				active = true;
+
+				break;
+			}
+
+			next_active_check = now + active_interval;
+		}
+
+		Map result = new HashMap();
+
+		synchronized( this ){
+
+			result.put( "seq", seq );
+
+			if ( since <= 0 ){
+
+				return( result );
+			}
+
+			if ( since < forgotten_seq || since > seq ){
+
+				result.put( "reset", true );
+
+			}else{
+
+				List<Long>	ids = new ArrayList<>();
+
+				for ( Map.Entry<Long,Long> entry: changed.entrySet()){
+
+					if ( entry.getValue() > since ){
+
+						ids.add( entry.getKey());
+					}
+				}
+
+				result.put( "ids", ids );
+			}
+
+			result.put( "tags-changed", tags_seq > since );
+		}
+
+		result.put( "active", active );
+
+		return( result );
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+package com.aelitis.azureus.plugins.xmwebui;
+
+import java.util.*;
+
+/**
+ * Per-session record of the torrent field values last sent to a client, used
+ * by torrent-get's "delta" mode to send only the fields that have changed.
+ * <p/>
+ * The client echoes back the "delta-version" it last received.  If it doesn't
+ * match ours (lost reply, client cleared its cache, server restarted) all
+ * baselines are dropped and full torrent maps are sent again.
+ */
+public class
+TorrentGetDelta
+{
+	public static final String	ARG_DELTA			= "delta";
+	public static final String	ARG_DELTA_VERSION	= "delta-version";
+
+	private long						version;
+
+	private final Map<Long,Map<String,Object>>	sent = new HashMap<>();
+
+	public synchronized long
+	apply(
+		long				client_version,
+		boolean				is_full_list,
+		Map<Long,Map>		torrent_info )
+	{
+		if ( client_version != version ){
+
+			sent.clear();
+		}
+
+		if ( is_full_list ){
+
+				// anything we didn't see has gone, don't keep baselines for it
+
+			sent.keySet().retainAll( torrent_info.keySet());
+		}
+
+		Iterator<Map.Entry<Long,Map>> it = torrent_info.entrySet().iterator();
+
+		while( it.hasNext()){
+
+			Map.Entry<Long,Map> entry = it.next();
+
+			long	id		= entry.getKey();
+			Map		torrent = entry.getValue();
+
+			Map<String,Object>	prev = sent.get( id );
+
+			if ( prev == null ){
+
+				sent.put( id, new HashMap<String,Object>( torrent ));
+
+				continue;
+			}
+
+			Iterator<Map.Entry> field_it = torrent.entrySet().iterator();
+
+			boolean	changed = false;
+
+			while( field_it.hasNext()){
+
+				Map.Entry	field = field_it.next();
+
+				String	key 	= (String)field.getKey();
+				Object	value	= field.getValue();
+
+				if ( key.equals( "id" )){
+
+					continue;
+				}
+
+				if ( prev.containsKey( key ) && Objects.equals( prev.get( key ), value )){
+
+					field_it.remove();
+
+				}else{
+
+					prev.put( key, value );
+
+					changed = true;
+				}
+			}
+
+			if ( changed ){
+
+				if ( !torrent.containsKey( "id" )){
+
+					torrent.put( "id", id );
+				}
+			}else{
+
+				it.remove();
+			}
+		}
+
+		version++;
+
+		return( version );
+	}
+
+		/**
+		 * Torrents returned outside of delta mode may have given the client newer
+		 * values than our baselines, so forget them and resend in full next time
+		 */
+
+	public synchronized void
+	invalidate(
+		Collection<Long>	ids )
+	{
+		sent.keySet().removeAll( ids );
+	}
+}
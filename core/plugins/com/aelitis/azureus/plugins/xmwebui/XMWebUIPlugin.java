@@ -33,6 +33,7 @@ import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import org.gudy.bouncycastle.util.encoders.Base64;
 import org.json.simple.JSONObject;
@@ -193,6 +194,30 @@ XMWebUIPlugin
     
     private Map<String,Map<Long,String>>	session_torrent_info_cache = new HashMap<String,Map<Long,String>>();
     
+    private Map<String,TorrentGetDelta>		session_torrent_delta = new HashMap<String,TorrentGetDelta>();
+    
+    private TorrentChangeTracker			change_tracker = new TorrentChangeTracker();
+    
+    private static final int				FILE_TREE_CACHE_SIZE	= 8;
+    private static final long				FILE_TREE_CACHE_MILLIS	= 30*1000;
+    private static final int				FILE_TREE_MAX_LIMIT		= 5000;
+    
+    private Map<Long,FileTreeIndex>			file_tree_cache = 
+    	new LinkedHashMap<Long,FileTreeIndex>( FILE_TREE_CACHE_SIZE, 0.75f, true )
+    	{
+    		@Override
+    		protected boolean 
+    		removeEldestEntry(
+    			Map.Entry<Long,FileTreeIndex> eldest ) 
+    		{
+    			return( size() > FILE_TREE_CACHE_SIZE );
+    		}
+    	};
+    
+    private DownloadListener				change_download_listener;
+    private TagManagerListener				change_tag_manager_listener;
+    private TagTypeListener					change_tag_type_listener;
+    
     private Map<String,SearchInstance>	active_searches = new HashMap<String, SearchInstance>();
     private Map<String,TagSearchInstance>	active_tagsearches = new HashMap<String, TagSearchInstance>();
     
@@ -396,6 +421,8 @@ XMWebUIPlugin
 				
 		plugin_interface.getDownloadManager().addListener( this );
 		
+		addChangeListeners();
+		
 		plugin_interface.getDownloadManager().addDownloadStubListener(
 			new DownloadStubListener()
 			{	
@@ -761,6 +788,8 @@ XMWebUIPlugin
 		
 		plugin_interface.getDownloadManager().removeListener( this );
 
+		removeChangeListeners();
+		
 		if ( json_rpc_client != null ){
 		
 			plugin_interface.getUtilities().unregisterJSONRPCClient((Utilities.JSONClient)json_rpc_client);
@@ -794,6 +823,7 @@ XMWebUIPlugin
 	downloadAdded(
 		Download	download )
 	{
+		change_tracker.torrentChanged( getID( download, true ));
 	}
 	
 	// @see com.biglybt.pif.download.DownloadManagerListener#downloadRemoved(com.biglybt.pif.download.Download)
@@ -803,6 +833,121 @@ XMWebUIPlugin
 		Download	download )
 	{
 		addRecentlyRemoved( download );
+		
+		long id = getID( download, false );
+		
+		if ( id > 0 ){
+		
+			change_tracker.torrentChanged( id );
+			
+			synchronized( file_tree_cache ){
+				
+				file_tree_cache.remove( id );
+			}
+		}
+	}
+	
+	private void
+	addChangeListeners()
+	{
+		change_download_listener = 
+			new DownloadListener()
+			{
+				@Override
+				public void
+				stateChanged(
+					Download		download,
+					int				old_state,
+					int				new_state )
+				{
+					change_tracker.torrentChanged( getID( download, true ));
+				}
+
+				@Override
+				public void
+				positionChanged(
+					Download		download,
+					int 			oldPosition,
+					int 			newPosition )
+				{
+					change_tracker.torrentChanged( getID( download, true ));
+				}
+			};
+			
+		plugin_interface.getDownloadManager().getGlobalDownloadEventNotifier().addListener( change_download_listener );
+		
+		change_tag_type_listener =
+			new TagTypeListener()
+			{
+				@Override
+				public void
+				tagTypeChanged(
+					TagType		tag_type )
+				{
+					change_tracker.tagsChanged();
+				}
+				
+				@Override
+				public void
+				tagEventOccurred(
+					TagEvent	event )
+				{
+					change_tracker.tagsChanged();
+				}
+			};
+			
+		change_tag_manager_listener = 
+			new TagManagerListener()
+			{
+				@Override
+				public void
+				tagTypeAdded(
+					TagManager		manager,
+					TagType			tag_type )
+				{
+					tag_type.addTagTypeListener( change_tag_type_listener, false );
+					
+					change_tracker.tagsChanged();
+				}
+				
+				@Override
+				public void
+				tagTypeRemoved(
+					TagManager		manager,
+					TagType			tag_type )
+				{
+					tag_type.removeTagTypeListener( change_tag_type_listener );
+					
+					change_tracker.tagsChanged();
+				}
+			};
+			
+		TagManagerFactory.getTagManager().addTagManagerListener( change_tag_manager_listener, true );
+	}
+	
+	private void
+	removeChangeListeners()
+	{
+		if ( change_download_listener != null ){
+			
+			plugin_interface.getDownloadManager().getGlobalDownloadEventNotifier().removeListener( change_download_listener );
+			
+			change_download_listener = null;
+		}
+		
+		if ( change_tag_manager_listener != null ){
+			
+			TagManager tm = TagManagerFactory.getTagManager();
+			
+			tm.removeTagManagerListener( change_tag_manager_listener );
+			
+			for ( TagType tag_type: tm.getTagTypes()){
+				
+				tag_type.removeTagTypeListener( change_tag_type_listener );
+			}
+			
+			change_tag_manager_listener = null;
+		}
 	}
 	
 	private void
@@ -877,6 +1022,72 @@ XMWebUIPlugin
 	
 	
 
+	private void
+	writeJSONResponse(
+		TrackerWebPageRequest		request,
+		TrackerWebPageResponse		response,
+		Map							response_json,
+		boolean						logit )
+	
+		throws IOException
+	{
+		response.setContentType( "application/json; charset=UTF-8" );
+
+		if ( logit ){
+			
+				// tracing needs the whole string anyway
+			
+			String response_json_str = JSONUtils.encodeToJSON( response_json );
+			
+			log( "<- " + response_json_str.length() );
+			log( "<- " + response_json_str );
+
+			PrintWriter pw =new PrintWriter( new OutputStreamWriter( response.getOutputStream(), "UTF-8" ));
+		
+			pw.println( response_json_str );
+			
+			pw.flush();
+			
+			response.setGZIP( true );
+			
+			return;
+		}
+		
+			// encode straight into the (compressed) reply buffer rather than building the
+			// JSON object tree and String first - big torrent-get replies are tens of MB
+			// as a String but compress down massively
+		
+		OutputStream os = response.getOutputStream();
+		
+		String accept_encoding = (String)request.getHeaders().get( "accept-encoding" );
+		
+		GZIPOutputStream gzos = null;
+		
+		if ( HTTPUtils.canGZIP( accept_encoding )){
+			
+			response.setHeader( "Content-Encoding", "gzip" );
+			
+			os = gzos = new GZIPOutputStream( os );
+		}
+		
+			// we've done any compression ourselves
+		
+		response.setGZIP( false );
+		
+		Writer writer = new BufferedWriter( new OutputStreamWriter( os, "UTF-8" ), 16*1024 );
+		
+		JSONUtils.encodeToJSON( response_json, writer );
+		
+		writer.write( "\n" );
+		
+		writer.flush();
+		
+		if ( gzos != null ){
+			
+			gzos.finish();
+		}
+	}
+
 	@Override
 	public boolean
 	generateSupport(
@@ -979,23 +1190,7 @@ XMWebUIPlugin
 
 				Map response_json = processRequest( request, session_id_plus, request_json );
 
-				String response_json_str = JSONUtils.encodeToJSON( response_json );
-				
-				if ( logit ){
-				
-					log( "<- " + response_json_str.length() );
-					log( "<- " + response_json_str );
-				}
-
-				PrintWriter pw =new PrintWriter( new OutputStreamWriter( response.getOutputStream(), "UTF-8" ));
-			
-				pw.println( response_json_str );
-				
-				pw.flush();
-
-				response.setContentType( "application/json; charset=UTF-8" );
-				
-				response.setGZIP( true );
+				writeJSONResponse( request, response, response_json, logit );
 				
 				return( true );
 			
@@ -1022,23 +1217,8 @@ XMWebUIPlugin
 					response_json.put("request", request_json_str);
 				}
 
-				
-				String response_json_str = JSONUtils.encodeToJSON( response_json );
-				
-				if ( logit ){
-				
-					log( "<- " + response_json_str );
-				}
-				
-				PrintWriter pw =new PrintWriter( new OutputStreamWriter( response.getOutputStream(), "UTF-8" ));
-			
-				pw.println( response_json_str );
-				
-				pw.flush();
-				
-				response.setContentType( "application/json; charset=UTF-8" );
-				
-				response.setGZIP( true );
+
+				writeJSONResponse( request, response, response_json, logit );
 				
 				return( true );
 				
@@ -1659,6 +1839,10 @@ XMWebUIPlugin
 				// Vuze RPC v3
 				method_Tags_Get_List(args, result);
 
+			}else if ( method.equals( "torrent-changes-wait" )){
+
+				method_Torrent_Changes_Wait(args, result);
+
 			}else if ( method.equals(METHOD_TAGS_LOOKUP_START)){
 
 				method_Tags_Lookup_Start(args, result);
@@ -1719,6 +1903,10 @@ XMWebUIPlugin
 				
 				processVuzeFileAdd( args, result );
 	
+			}else if ( method.equals( "vuze-files-tree" )){
+				
+				processVuzeFilesTree( request, args, result );
+	
 			}else{
 			
 				Utilities.JSONServer server = (Utilities.JSONServer)json_server_methods.get( method );
@@ -2585,6 +2773,54 @@ XMWebUIPlugin
 		map.put(id, o);
 	}
 
+	/**
+	 * Long-poll alternative to refreshing on a timer.  Returns when any torrent 
+	 * or tag has changed since 'since' (the "seq" from the previous reply), when
+	 * 'active-interval' seconds pass with transfers running, or after 'timeout'
+	 * seconds.  A "reset" reply means the client should do a full refresh. 
+	 */
+	private void
+	method_Torrent_Changes_Wait(
+		Map		args,
+		Map		result )
+	{
+		long since				= MapUtils.getMapLong( args, "since", 0 );
+		long timeout			= MapUtils.getMapLong( args, "timeout", TorrentChangeTracker.MAX_WAIT/1000 )*1000;
+		long active_interval	= MapUtils.getMapLong( args, "active-interval", 0 )*1000;
+		
+		try{
+			Map changes = 
+				change_tracker.waitForChanges(
+					since, timeout, active_interval,
+					new TorrentChangeTracker.ActivityChecker()
+					{
+						@Override
+						public boolean
+						isActive()
+						{
+							for ( Download download: plugin_interface.getDownloadManager().getDownloads()){
+								
+								DownloadStats stats = download.getStats();
+								
+								if ( stats.getDownloadAverage() > 0 || stats.getUploadAverage() > 0 ){
+									
+									return( true );
+								}
+							}
+							
+							return( false );
+						}
+					});
+			
+			result.putAll( changes );
+			
+		}catch( InterruptedException e ){
+			
+			result.put( "seq", since );
+			result.put( "reset", true );
+		}
+	}
+
 	private void method_Tags_Get_List(Map args, Map result) {
 		List fields = (List) args.get("fields");
 		boolean all = fields == null || fields.size() == 0;
@@ -2960,7 +3196,8 @@ XMWebUIPlugin
 				"method:vuze-plugin-get-list", "method:tags-lookup-start",
 				"method:tags-lookup-get-results", "method:vuze-search-start",
 				"method:vuze-search-get-results", "torrent-add:torrent-duplicate",
-				"field:session:active-queue-size");
+				"field:session:active-queue-size", "torrent-get:delta",
+				"method:torrent-changes-wait", "method:vuze-files-tree");
 
 		synchronized( json_server_method_lock ){
   		for (String key : json_server_methods.keySet()) {
@@ -4817,7 +5054,44 @@ XMWebUIPlugin
 			}
 		} // for downloads
 		
-		if ( is_recently_active ){
+		boolean delta = MapUtils.getMapBoolean( args, TorrentGetDelta.ARG_DELTA, false );
+		
+		TorrentGetDelta torrent_delta;
+		
+		synchronized( session_torrent_delta ){
+			
+			torrent_delta = session_torrent_delta.get( session_id );
+			
+			if ( delta && torrent_delta == null ){
+				
+				if ( session_torrent_delta.size() > 8 ){
+					
+					session_torrent_delta.clear();
+				}
+				
+				torrent_delta = new TorrentGetDelta();
+				
+				session_torrent_delta.put( session_id, torrent_delta );
+			}
+		}
+		
+		if ( delta ){
+			
+				// field-level diff against what this session was last sent, values are
+				// compared directly so unchanged torrents are never encoded
+			
+			long client_version = MapUtils.getMapLong( args, TorrentGetDelta.ARG_DELTA_VERSION, 0 );
+			
+			long version = torrent_delta.apply( client_version, ids == null, torrent_info );
+			
+			result.put( TorrentGetDelta.ARG_DELTA_VERSION, version );
+			
+		}else if ( torrent_delta != null ){
+			
+			torrent_delta.invalidate( torrent_info.keySet());
+		}
+		
+		if ( is_recently_active && !delta ){
 			
 				// just return the latest diff for this session
 				// we could possibly, in theory, update the cache for all calls to this method, not just the 'recently active' calls
@@ -6629,25 +6903,9 @@ XMWebUIPlugin
 			obj.put(FIELD_FILES_LENGTH, file.getLength());
 		}
 		if (all || Collections.binarySearch(sortedFields, FIELD_FILES_NAME) >= 0) {
-			Torrent torrent = download.getTorrent();
-			boolean simpleTorrent = torrent == null ? false : torrent.isSimpleTorrent();
 			realFile = file.getFile(true);
 
-			if (simpleTorrent) {
-				obj.put(FIELD_FILES_NAME, realFile.getName());
-			} else {
-				String absolutePath = realFile.getAbsolutePath();
-				String savePath = download.getSavePath();
-				if (absolutePath.startsWith(savePath)) {
-					// TODO: .dnd_az parent..
-		    	//String dnd_sf = dm.getDownloadState().getAttribute( DownloadManagerState.AT_DND_SUBFOLDER );
-
-					// + 1 to remove the dir separator
-					obj.put(FIELD_FILES_NAME, absolutePath.substring(savePath.length() + 1));
-				} else {
-					obj.put(FIELD_FILES_NAME, absolutePath);
-				}
-			}
+			obj.put(FIELD_FILES_NAME, getFileName(download, realFile));
 		}
 
 		// Vuze specific, don't clutter transmission clients with these (they don't
@@ -6683,6 +6941,25 @@ XMWebUIPlugin
 		}
 	}
 
+	private String getFileName(Download download, File realFile) {
+		Torrent torrent = download.getTorrent();
+		boolean simpleTorrent = torrent == null ? false : torrent.isSimpleTorrent();
+
+		if (simpleTorrent) {
+			return realFile.getName();
+		}
+		String absolutePath = realFile.getAbsolutePath();
+		String savePath = download.getSavePath();
+		if (absolutePath.startsWith(savePath)) {
+			// TODO: .dnd_az parent..
+    	//String dnd_sf = dm.getDownloadState().getAttribute( DownloadManagerState.AT_DND_SUBFOLDER );
+
+			// + 1 to remove the dir separator
+			return absolutePath.substring(savePath.length() + 1);
+		}
+		return absolutePath;
+	}
+
 	private Object torrentGet_files_stub(
 			String host,
 			DownloadStub download_stub,
@@ -7361,6 +7638,169 @@ XMWebUIPlugin
 		return( id );
 	}
 	
+	/**
+	 * One folder of a torrent's file tree, so that clients can show torrents with
+	 * huge numbers of files a folder at a time.  Replies with "folder" (totals for
+	 * 'path'), "folders" (totals for each sub-folder) and a page of the files
+	 * directly in the folder.  Sub-folders come before files and "offset"/"limit"
+	 * page through both; "total" is the number of children.  With "indexes" the
+	 * indexes of every file under 'path' are returned too, for setting the wanted
+	 * state of a whole folder.
+	 */
+	private void
+	processVuzeFilesTree(
+		TrackerWebPageRequest		request,
+		Map 						args,
+		Map 						result)
+	
+		throws IOException
+	{
+		long id = MapUtils.getMapLong( args, "id", -1 );
+		
+		List<DownloadStub> list = getDownloads( id, false );
+		
+		if ( list == null || list.size() != 1 ){
+			
+			throw( new IOException( "Unknown download id: " + id ));
+		}
+		
+		Download download;
+		
+		try{
+			download = destubbify( list.get(0));
+			
+		}catch( Throwable e ){
+			
+			throw( new IOException( "Failed to get download: " + getCausesMesssages( e )));
+		}
+		
+		DiskManagerFileInfo[] files = download.getDiskManagerFileInfo();
+		
+		FileTreeIndex index = getFileTreeIndex( id, download, files );
+
+		String path = MapUtils.getMapString( args, "path", "" );
+		
+		FileTreeIndex.Folder folder = index.getFolder( path );
+		
+		if ( folder == null ){
+			
+			throw( new IOException( "Unknown path: " + path ));
+		}
+		
+		result.put( "id", id );
+		result.put( "path", folder.getPath());
+		result.put( "folder", index.summarise( folder, files ));
+		
+		if ( MapUtils.getMapBoolean( args, "indexes", false )){
+			
+			int[] indexes = index.getFileIndexes( folder );
+			
+			List<Integer> l_indexes = new ArrayList<>( indexes.length );
+			
+			for ( int i: indexes ){
+				
+				l_indexes.add( i );
+			}
+			
+			result.put( "indexes", l_indexes );
+		}
+		
+		List<FileTreeIndex.Folder>	sub_folders 	= folder.getFolders();
+		int[]						folder_files	= folder.getFiles();
+		
+		int total	= sub_folders.size() + folder_files.length;
+		int offset	= Math.max( 0, MapUtils.getMapInt( args, "offset", 0 ));
+		int limit	= MapUtils.getMapInt( args, "limit", FILE_TREE_MAX_LIMIT );
+		
+		limit = Math.max( 0, Math.min( limit, FILE_TREE_MAX_LIMIT ));
+		
+		int end = (int)Math.min((long)offset + limit, total );
+		
+		List<Map>	folder_list = new ArrayList<>();
+		List<Map>	file_list	= new ArrayList<>();
+		
+			// empty list -> all fields, including the Vuze specific ones
+		
+		List<String> file_fields = new ArrayList<>();
+		
+		List<String> requested_fields = (List<String>)args.get( "file-fields" );
+		
+		if ( requested_fields != null ){
+			
+			file_fields.addAll( requested_fields );
+			
+			Collections.sort( file_fields );
+		}
+		
+		String host		= (String)request.getHeaders().get( "host" );
+		String baseURL	= MapUtils.getMapString( args, "base-url", null );
+		
+		for ( int i=offset;i<end;i++){
+			
+			if ( i < sub_folders.size()){
+				
+				folder_list.add( index.summarise( sub_folders.get(i), files ));
+				
+			}else{
+				
+				int file_index = folder_files[ i - sub_folders.size()];
+				
+				DiskManagerFileInfo file = files[file_index];
+				
+				Map map = new TreeMap();
+				
+				map.put( FIELD_FILES_INDEX, file_index );
+				
+				torrentGet_files( map, file_fields, host, baseURL, download, file );
+				torrentGet_fileStats( map, file_fields, file );
+				
+				file_list.add( map );
+			}
+		}
+		
+		result.put( "folders", folder_list );
+		result.put( "files", file_list );
+		result.put( "offset", offset );
+		result.put( "total", total );
+	}
+	
+	private FileTreeIndex
+	getFileTreeIndex(
+		long					id,
+		Download				download,
+		DiskManagerFileInfo[]	files )
+	{
+		synchronized( file_tree_cache ){
+			
+			FileTreeIndex index = file_tree_cache.get( id );
+			
+				// files can be renamed or relinked underneath us, don't hang on too long
+			
+			if ( 	index != null && 
+					index.getFileCount() == files.length && 
+					index.getAge() < FILE_TREE_CACHE_MILLIS ){
+				
+				return( index );
+			}
+		}
+		
+		String[] names = new String[files.length];
+		
+		for ( int i=0;i<files.length;i++){
+			
+			names[i] = getFileName( download, files[i].getFile( true )).replace( File.separatorChar, '/' );
+		}
+		
+		FileTreeIndex index = new FileTreeIndex( names );
+		
+		synchronized( file_tree_cache ){
+			
+			file_tree_cache.put( id, index );
+		}
+		
+		return( index );
+	}
+	
 	private String
 	getAZMode()
 	{
@@ -0,0 +1,102 @@
+/*
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.aelitis.azureus.plugins.xmwebui.test;
+
+import java.util.List;
+import java.util.Map;
+
+import com.aelitis.azureus.plugins.xmwebui.TorrentChangeTracker;
+import com.biglybt.core.tracker.server.impl.tcp.TRTrackerServerTCP;
+
+/**
+ * Checks that "torrent-changes-wait" replies before the tracker web server's request
+ * time limit kills the connection, and that a change cuts the wait short
+ */
+
+public class
+ChangeWaitTester
+{
+	public static void
+	main(
+		String[]	args )
+
+		throws Exception
+	{
+		long	limit = TRTrackerServerTCP.PROCESSING_GET_LIMIT;
+
+		final TorrentChangeTracker	tracker = new TorrentChangeTracker();
+
+		long	seq = ((Long)tracker.waitForChanges( 0, 0, 0, null ).get( "seq" )).longValue();
+
+			// nothing changes, client asks for longer than we allow
+
+		long	start = System.currentTimeMillis();
+
+		Map	result = tracker.waitForChanges( seq, 60*1000, 0, null );
+
+		long	elapsed = System.currentTimeMillis() - start;
+
+		check( "idle wait capped at " + TorrentChangeTracker.MAX_WAIT + "ms, took " + elapsed + "ms", elapsed >= TorrentChangeTracker.MAX_WAIT - 100 && elapsed < TorrentChangeTracker.MAX_WAIT + 1000 );
+
+		check( "idle wait ends before request limit of " + limit + "ms", limit <= 0 || elapsed < limit );
+
+		check( "idle wait reports no changes", result.get( "reset" ) == null && ((List)result.get( "ids" )).isEmpty());
+
+			// change arrives part way through
+
+		new Thread()
+		{
+			@Override
+			public void
+			run()
+			{
+				try{
+					Thread.sleep( 500 );
+
+				}catch( InterruptedException e ){
+				}
+
+				tracker.torrentChanged( 42 );
+			}
+		}.start();
+
+		start = System.currentTimeMillis();
+
+		result = tracker.waitForChanges( seq, 60*1000, 0, null );
+
+		elapsed = System.currentTimeMillis() - start;
+
+		check( "change ends wait early, took " + elapsed + "ms", elapsed < TorrentChangeTracker.MAX_WAIT/2 );
+
+		check( "change reported", ((List)result.get( "ids" )).contains( 42L ));
+
+		System.out.println( "All passed" );
+	}
+
+	private static void
+	check(
+		String		test,
+		boolean		ok )
+	{
+		System.out.println(( ok?"ok:     ":"FAILED: " ) + test );
+
+		if ( !ok ){
+
+			throw( new RuntimeException( "Failed: " + test ));
+		}
+	}
+}
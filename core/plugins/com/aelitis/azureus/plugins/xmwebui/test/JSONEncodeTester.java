@@ -0,0 +1,161 @@
+/*
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.aelitis.azureus.plugins.xmwebui.test;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import com.biglybt.util.JSONUtils;
+
+/**
+ * Times gzipping a large torrent-get reply the old way (JSONObject tree -> String -> bytes -> gzip)
+ * against streaming it with JSONUtils.encodeToJSON( Map, Writer ), after checking both produce
+ * the same JSON. Arguments: [torrents] [files per torrent]
+ */
+
+public class
+JSONEncodeTester
+{
+	public static void
+	main(
+		String[]	args )
+
+		throws Exception
+	{
+		int	num_torrents	= args.length>0?Integer.parseInt( args[0] ):2000;
+		int	num_files		= args.length>1?Integer.parseInt( args[1] ):50;
+
+		Map<String,Object>	reply = buildReply( num_torrents, num_files );
+
+			// key order can differ as the JSONObject copy rehashes, so compare parsed
+
+		StringWriter sw = new StringWriter();
+
+		JSONUtils.encodeToJSON( reply, sw );
+
+		if ( !JSONUtils.decodeJSON( JSONUtils.encodeToJSON( reply )).equals( JSONUtils.decodeJSON( sw.toString()))){
+
+			throw( new RuntimeException( "Streamed output differs" ));
+		}
+
+		int	rounds = 20;
+
+		for ( int pass=0;pass<2;pass++){	// first pass warms up
+
+			long[]	times = new long[2];
+			int[]	sizes = new int[2];
+
+			for ( int r=0;r<rounds;r++){
+
+				for ( int mode=0;mode<2;mode++){
+
+					long	start = System.nanoTime();
+
+					ByteArrayOutputStream	baos = new ByteArrayOutputStream();
+					GZIPOutputStream		gzip = new GZIPOutputStream( baos );
+
+					if ( mode == 0 ){
+
+						gzip.write( JSONUtils.encodeToJSON( reply ).getBytes( "UTF-8" ));
+
+					}else{
+
+						Writer writer = new BufferedWriter( new OutputStreamWriter( gzip, "UTF-8" ), 8192 );
+
+						JSONUtils.encodeToJSON( reply, writer );
+
+						writer.flush();
+					}
+
+					gzip.finish();
+
+					times[mode] += System.nanoTime() - start;
+					sizes[mode] = baos.size();
+				}
+			}
+
+			if ( pass == 1 ){
+
+				System.out.println( num_torrents + " torrents x " + num_files + " files, " + sizes[1] + " bytes gzipped" );
+				System.out.println( "  string: " + times[0]/rounds/1000 + "us per reply" );
+				System.out.println( "  stream: " + times[1]/rounds/1000 + "us per reply" );
+			}
+		}
+	}
+
+	private static Map<String,Object>
+	buildReply(
+		int		num_torrents,
+		int		num_files )
+	{
+		Random	random = new Random( 0 );
+
+		List<Object>	torrents = new ArrayList<>();
+
+		for ( int i=0;i<num_torrents;i++){
+
+			Map<String,Object> torrent = new HashMap<>();
+
+			torrent.put( "id", (long)i );
+			torrent.put( "name", "Some Torrent Name \"" + i + "\" [1080p]/é" );
+			torrent.put( "hashString", Long.toHexString( random.nextLong()) + Long.toHexString( random.nextLong()));
+			torrent.put( "status", 4L );
+			torrent.put( "percentDone", random.nextDouble());
+			torrent.put( "rateDownload", (long)random.nextInt( 1000000 ));
+			torrent.put( "rateUpload", (long)random.nextInt( 100000 ));
+			torrent.put( "totalSize", random.nextLong() & 0xffffffffffL );
+			torrent.put( "isFinished", Boolean.FALSE );
+			torrent.put( "errorString", "" );
+			torrent.put( "downloadDir", "/home/user/Downloads/torrents" );
+
+			List<Object>	files = new ArrayList<>();
+
+			for ( int j=0;j<num_files;j++){
+
+				Map<String,Object> file = new HashMap<>();
+
+				file.put( "name", "folder/sub folder/file " + j + ".mkv" );
+				file.put( "length", random.nextLong() & 0xffffffffL );
+				file.put( "bytesCompleted", random.nextLong() & 0xffffffffL );
+
+				files.add( file );
+			}
+
+			torrent.put( "files", files );
+			torrent.put( "priorities", new long[num_files] );
+			torrent.put( "wanted", new boolean[num_files] );
+
+			torrents.add( torrent );
+		}
+
+		Map<String,Object>	arguments = new HashMap<>();
+
+		arguments.put( "torrents", torrents );
+
+		Map<String,Object>	reply = new HashMap<>();
+
+		reply.put( "arguments", arguments );
+		reply.put( "result", "success" );
+
+		return( reply );
+	}
+}
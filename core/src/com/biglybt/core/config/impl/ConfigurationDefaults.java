@@ -571,6 +571,7 @@ public class ConfigurationDefaults {
     def.put( "diskmanager.perf.cache.notsmallerthan", new Long(1024));	// 1024 K
     def.put( "diskmanager.perf.read.maxthreads", new Long(32));
     def.put( "diskmanager.perf.read.maxmb", new Long(5));
+    def.put( "diskmanager.perf.read.mmap.budget.mb", new Long(1024));
     def.put( "diskmanager.perf.write.maxthreads", new Long(32));
     def.put( "diskmanager.perf.write.maxmb", new Long(5));
     def.put( "diskmanager.perf.cache.trace", FALSE);
@@ -581,9 +582,16 @@ public class ConfigurationDefaults {
     def.put( "diskmanager.perf.write.aggregate.enable", FALSE );
     def.put( "diskmanager.perf.write.aggregate.request.limit", ZERO );
     def.put( "diskmanager.perf.write.aggregate.byte.limit", ZERO );
+    def.put( "diskmanager.perf.write.coalesce.enable", FALSE );
+    def.put( "diskmanager.perf.write.coalesce.delay.ms", new Long(50) );
+    def.put( "diskmanager.perf.write.coalesce.run.kb", new Long(1024) );
+    def.put( "diskmanager.perf.write.coalesce.max.mb", new Long(8) );
     def.put( "diskmanager.perf.checking.read.priority", FALSE );
     def.put( "diskmanager.perf.checking.fully.async", FALSE );
     def.put( "diskmanager.perf.queue.torrent.bias", TRUE );
+    def.put( "diskmanager.perf.scheduler.enable", FALSE );
+    def.put( "diskmanager.perf.scheduler.device.threads", new Long(2) );
+    def.put( "diskmanager.perf.scheduler.autotune", TRUE );
 
     	// Peer control
 
@@ -618,6 +626,7 @@ public class ConfigurationDefaults {
     def.put( "network.tcp.read.select.min.time", ZERO );
     def.put( "network.tcp.write.select.time", new Long(25));
     def.put( "network.tcp.write.select.min.time", ZERO );
+    def.put( "network.tcp.write.sendfile", FALSE );
     def.put( "network.tcp.connect.select.time", new Long( 100 ));
     def.put( "network.tcp.connect.select.min.time", ZERO );
 
@@ -629,6 +638,7 @@ public class ConfigurationDefaults {
     def.put( "network.control.read.aggressive", FALSE );
     def.put( "network.control.read.processor.count", new Long(1));
     def.put( "network.control.write.processor.count", new Long(1));
+    def.put( "network.control.sharded", FALSE );
     def.put( "peermanager.schedule.time", new Long(100));
     def.put( "enable_small_osx_fonts", TRUE );
     def.put( "Play Download Finished Announcement", FALSE);
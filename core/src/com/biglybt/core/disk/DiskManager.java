@@ -25,6 +25,7 @@ import java.io.File;
 
 import com.biglybt.core.disk.impl.piecemapper.DMPieceList;
 import com.biglybt.core.disk.impl.piecemapper.DMPieceMap;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.torrent.TOTorrent;
 import com.biglybt.core.util.DirectByteBuffer;
 import com.biglybt.core.util.IndentWriter;
@@ -128,6 +129,16 @@ DiskManager
 		DiskManagerReadRequest 			request,
 		DiskManagerReadRequestListener 	listener );
 
+		/**
+		 * Describes the request's data as a region of the underlying file(s) so it can be sent
+		 * without being read into memory first
+		 * @return null if not possible for this request (e.g. non-linear storage)
+		 */
+
+	public OutgoingFileRegion
+	createFileRegion(
+		DiskManagerReadRequest 			request );
+
 	public boolean
 	hasOutstandingReadRequestForPiece(
 		int		piece_number );
@@ -124,6 +124,13 @@ DiskManagerFileInfoImpl
 		return( diskManager.getCacheMode());
 	}
 
+	@Override
+	public boolean
+	isMappedReadEnabled()
+	{
+		return( diskManager.getDownloadState().getBooleanParameter( DownloadManagerState.PARAM_MMAP_READS ));
+	}
+
   @Override
   public void
   flushCache()
@@ -56,6 +56,7 @@ import com.biglybt.core.internat.LocaleUtilDecoder;
 import com.biglybt.core.internat.LocaleUtilEncodingException;
 import com.biglybt.core.internat.MessageText;
 import com.biglybt.core.logging.*;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.torrent.TOTorrent;
 import com.biglybt.core.torrent.TOTorrentException;
 import com.biglybt.core.torrent.TOTorrentFile;
@@ -1435,6 +1436,14 @@ DiskManagerImpl
         reader.readBlock( request, listener );
     }
 
+    @Override
+    public OutgoingFileRegion
+    createFileRegion(
+        DiskManagerReadRequest request )
+    {
+        return( reader.createFileRegion( request ));
+    }
+
 	@Override
 	public boolean
 	hasOutstandingReadRequestForPiece(
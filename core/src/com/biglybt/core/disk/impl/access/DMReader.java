@@ -21,6 +21,7 @@ package com.biglybt.core.disk.impl.access;
 
 import com.biglybt.core.disk.DiskManagerReadRequest;
 import com.biglybt.core.disk.DiskManagerReadRequestListener;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.util.DirectByteBuffer;
 
 
@@ -55,6 +56,15 @@ DMReader
 		DiskManagerReadRequest 			request,
 		DiskManagerReadRequestListener 	listener );
 
+		/**
+		 * @return region to send the request's data directly from file, null if any of the
+		 * underlying files aren't linear
+		 */
+
+	public OutgoingFileRegion
+	createFileRegion(
+		DiskManagerReadRequest 			request );
+
 	public boolean
 	hasOutstandingReadRequestForPiece(
 		int		piece_number );
@@ -31,6 +31,7 @@ import com.biglybt.core.disk.impl.DiskManagerRecheckInstance;
 import com.biglybt.core.disk.impl.access.DMChecker;
 import com.biglybt.core.disk.impl.piecemapper.DMPieceList;
 import com.biglybt.core.disk.impl.piecemapper.DMPieceMapEntry;
+import com.biglybt.core.diskmanager.access.DiskAccessRequestListener;
 import com.biglybt.core.diskmanager.cache.CacheFile;
 import com.biglybt.core.logging.LogEvent;
 import com.biglybt.core.logging.LogIDs;
@@ -910,7 +911,14 @@ DMCheckerImpl
 					public int
 					getPriority()
 					{
-						return( checking_read_priority?0:-1 );
+						if ( checking_read_priority ){
+
+							return( 0 );
+						}
+
+							// rechecks shouldn't hold up normal I/O
+
+						return( request.isLowPriority()?DiskAccessRequestListener.PRIORITY_BACKGROUND:DiskAccessRequestListener.PRIORITY_NORMAL );
 					}
 
 					@Override
@@ -19,6 +19,9 @@
 
 package com.biglybt.core.disk.impl.access.impl;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 
 import com.biglybt.core.disk.DiskManagerReadRequest;
@@ -34,6 +37,7 @@ import com.biglybt.core.diskmanager.cache.CacheFile;
 import com.biglybt.core.logging.LogEvent;
 import com.biglybt.core.logging.LogIDs;
 import com.biglybt.core.logging.Logger;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.util.*;
 
 /**
@@ -327,55 +331,7 @@ DMReaderImpl
 				return;
 			}
 
-			long previousFilesLength = 0;
-
-			int currentFile = 0;
-
-			long fileOffset = pieceList.get(0).getOffset();
-
-			while (currentFile < pieceList.size() && pieceList.getCumulativeLengthToPiece(currentFile) < offset) {
-
-				previousFilesLength = pieceList.getCumulativeLengthToPiece(currentFile);
-
-				currentFile++;
-
-				fileOffset = 0;
-			}
-
-				// update the offset (we're in the middle of a file)
-
-			fileOffset += offset - previousFilesLength;
-
-			List	chunks = new ArrayList();
-
-			int	buffer_position = 0;
-
-			while ( buffer_position < length && currentFile < pieceList.size()) {
-
-				DMPieceMapEntry map_entry = pieceList.get( currentFile );
-
-				int	length_available = map_entry.getLength() - (int)( fileOffset - map_entry.getOffset());
-
-					//explicitly limit the read size to the proper length, rather than relying on the underlying file being correctly-sized
-					//see long DMWriterAndCheckerImpl::checkPiece note
-
-				int entry_read_limit = buffer_position + length_available;
-
-					// now bring down to the required read length if this is shorter than this
-					// chunk of data
-
-				entry_read_limit = Math.min( length, entry_read_limit );
-
-					// this chunk denotes a read up to buffer offset "entry_read_limit"
-
-				chunks.add( new Object[]{ map_entry.getFile().getCacheFile(), new Long(fileOffset), new Integer( entry_read_limit )});
-
-				buffer_position = entry_read_limit;
-
-				currentFile++;
-
-				fileOffset = 0;
-			}
+			List<Object[]>	chunks = getChunks( pieceList, offset, length );
 
 			if ( chunks.size() == 0 ){
 
@@ -495,6 +451,317 @@ DMReaderImpl
 		}
 	}
 
+		/**
+		 * Splits a read of the piece list into per-file chunks of {CacheFile, Long file offset,
+		 * Integer buffer position the chunk ends at}
+		 */
+
+	protected List<Object[]>
+	getChunks(
+		DMPieceList		pieceList,
+		int				offset,
+		int				length )
+	{
+		long previousFilesLength = 0;
+
+		int currentFile = 0;
+
+		long fileOffset = pieceList.get(0).getOffset();
+
+		while (currentFile < pieceList.size() && pieceList.getCumulativeLengthToPiece(currentFile) < offset) {
+
+			previousFilesLength = pieceList.getCumulativeLengthToPiece(currentFile);
+
+			currentFile++;
+
+			fileOffset = 0;
+		}
+
+			// update the offset (we're in the middle of a file)
+
+		fileOffset += offset - previousFilesLength;
+
+		List<Object[]>	chunks = new ArrayList<>();
+
+		int	buffer_position = 0;
+
+		while ( buffer_position < length && currentFile < pieceList.size()) {
+
+			DMPieceMapEntry map_entry = pieceList.get( currentFile );
+
+			int	length_available = map_entry.getLength() - (int)( fileOffset - map_entry.getOffset());
+
+				//explicitly limit the read size to the proper length, rather than relying on the underlying file being correctly-sized
+				//see long DMWriterAndCheckerImpl::checkPiece note
+
+			int entry_read_limit = buffer_position + length_available;
+
+				// now bring down to the required read length if this is shorter than this
+				// chunk of data
+
+			entry_read_limit = Math.min( length, entry_read_limit );
+
+				// this chunk denotes a read up to buffer offset "entry_read_limit"
+
+			chunks.add( new Object[]{ map_entry.getFile().getCacheFile(), new Long(fileOffset), new Integer( entry_read_limit )});
+
+			buffer_position = entry_read_limit;
+
+			currentFile++;
+
+			fileOffset = 0;
+		}
+
+		return( chunks );
+	}
+
+	@Override
+	public OutgoingFileRegion
+	createFileRegion(
+		DiskManagerReadRequest	request )
+	{
+		try{
+			int	length = request.getLength();
+
+			DMPieceList pieceList = disk_manager.getPieceList( request.getPieceNumber());
+
+			if ( pieceList.size() == 0 ){
+
+				return( null );
+			}
+
+			List<Object[]>	chunks = getChunks( pieceList, request.getOffset(), length );
+
+			if ( chunks.size() == 0 || ((Integer)chunks.get( chunks.size()-1 )[2]).intValue() != length ){
+
+				return( null );
+			}
+
+			for ( int i=0;i<chunks.size();i++){
+
+				CacheFile	file = (CacheFile)chunks.get(i)[0];
+
+					// compact/reordered storage doesn't map file offsets directly
+
+				if ( file.getStorageType() != CacheFile.CT_LINEAR ){
+
+					return( null );
+				}
+			}
+
+			return( new fileRegion( chunks, length ));
+
+		}catch( Throwable e ){
+
+			Debug.out( e );
+
+			return( null );
+		}
+	}
+
+	protected class
+	fileRegion
+		implements OutgoingFileRegion
+	{
+		private final CacheFile[]	files;
+		private final long[]		file_offsets;
+		private final int[]			chunk_ends;
+		private final int			length;
+
+		private int				position;
+		private int				chunk_index;
+
+		private volatile boolean	destroyed;
+
+		protected
+		fileRegion(
+			List<Object[]>	chunks,
+			int			_length )
+		{
+			int	num = chunks.size();
+
+			files			= new CacheFile[num];
+			file_offsets	= new long[num];
+			chunk_ends		= new int[num];
+
+			for ( int i=0;i<num;i++){
+
+				Object[]	chunk = chunks.get(i);
+
+				files[i]		= (CacheFile)chunk[0];
+				file_offsets[i]	= ((Long)chunk[1]).longValue();
+				chunk_ends[i]	= ((Integer)chunk[2]).intValue();
+			}
+
+			length	= _length;
+		}
+
+		@Override
+		public long
+		getLength()
+		{
+			return( length );
+		}
+
+		@Override
+		public long
+		getRemaining()
+		{
+			return( length - position );
+		}
+
+		private long
+		getFileOffset(
+			int		index,
+			int		pos )
+		{
+			int	chunk_start = index==0?0:chunk_ends[index-1];
+
+			return( file_offsets[index] + pos - chunk_start );
+		}
+
+		@Override
+		public long
+		transferTo(
+			WritableByteChannel		channel,
+			long					max )
+
+			throws IOException
+		{
+			checkDestroyed();
+
+			long	total = 0;
+
+			while( position < length && total < max ){
+
+				int	index = chunk_index;
+
+				int	len = (int)Math.min( chunk_ends[index] - position, max - total );
+
+				long	written;
+
+				try{
+					written = files[index].transferTo( channel, getFileOffset( index, position ), len );
+
+				}catch( Throwable e ){
+
+						// can't tell a socket failure from a disk one here so just fail the
+						// connection, a broken file will show up on the next buffered read
+
+					throw( new IOException( "Transfer failed - " + Debug.getNestedExceptionMessage( e ), e ));
+				}
+
+				if ( written > 0 ){
+
+					total_read_bytes 	+= written;
+					total_read_ops		++;
+				}
+
+				advance( written );
+
+				total += written;
+
+				if ( written < len ){
+
+					break;
+				}
+			}
+
+			return( total );
+		}
+
+		@Override
+		public void
+		peek(
+			ByteBuffer		target )
+
+			throws IOException
+		{
+			checkDestroyed();
+
+			int	pos		= position;
+			int	index	= chunk_index;
+
+			int	end = Math.min( length, pos + target.remaining());
+
+			while( pos < end ){
+
+				int	len = Math.min( chunk_ends[index], end ) - pos;
+
+				ByteBuffer	slice = target.slice();
+
+				slice.limit( len );
+
+				try{
+					files[index].read( new DirectByteBuffer( slice ), getFileOffset( index, pos ), CacheFile.CP_READ_CACHE );
+
+				}catch( Throwable e ){
+
+					throw( failed( e ));
+				}
+
+				total_read_bytes 	+= len;
+				total_read_ops		++;
+
+				target.position( target.position() + len );
+
+				pos += len;
+
+				if ( pos == chunk_ends[index] ){
+
+					index++;
+				}
+			}
+		}
+
+		@Override
+		public void
+		advance(
+			long		bytes )
+		{
+			position += (int)bytes;
+
+			while( chunk_index < chunk_ends.length - 1 && position >= chunk_ends[chunk_index] ){
+
+				chunk_index++;
+			}
+		}
+
+		@Override
+		public void
+		destroy()
+		{
+			destroyed = true;
+		}
+
+		private void
+		checkDestroyed()
+
+			throws IOException
+		{
+			if ( destroyed ){
+
+				throw( new IOException( "File region has been destroyed" ));
+			}
+
+			if ( stopped ){
+
+				throw( new IOException( "Disk reader has been stopped" ));
+			}
+		}
+
+		private IOException
+		failed(
+			Throwable	cause )
+		{
+			disk_manager.setFailed( "Disk read error - " + Debug.getNestedExceptionMessage(cause));
+
+			Debug.printStackTrace( cause );
+
+			return( new IOException( "Disk read error - " + Debug.getNestedExceptionMessage( cause )));
+		}
+	}
+
 	protected class
 	requestDispatcher
 		implements DiskAccessRequestListener
@@ -502,7 +769,7 @@ DMReaderImpl
 		private final DiskManagerReadRequest			dm_request;
 		final DiskManagerReadRequestListener	listener;
 		private final DirectByteBuffer				buffer;
-		private final List							chunks;
+		private final List<Object[]>				chunks;
 
 		private final int	buffer_length;
 
@@ -514,7 +781,7 @@ DMReaderImpl
 			DiskManagerReadRequest			_request,
 			DiskManagerReadRequestListener	_listener,
 			DirectByteBuffer				_buffer,
-			List							_chunks )
+			List<Object[]>					_chunks )
 		{
 			dm_request	= _request;
 			listener	= _listener;
@@ -526,7 +793,7 @@ DMReaderImpl
 
 			for (int i=0;i<chunks.size();i++){
 
-				Object[]	entry = (Object[])chunks.get(i);
+				Object[]	entry = chunks.get(i);
 
 				String	str2 = entry[0] + "/" + entry[1] +"/" + entry[2];
 
@@ -644,7 +911,7 @@ DMReaderImpl
 		doRequest(
 			DiskAccessRequestListener	l )
 		{
-			Object[]	stuff = (Object[])chunks.get( chunk_index++ );
+			Object[]	stuff = chunks.get( chunk_index++ );
 
 			if ( chunk_index > 0 ){
 
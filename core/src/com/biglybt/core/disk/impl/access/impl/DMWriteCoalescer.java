@@ -0,0 +1,542 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ */
+
+package com.biglybt.core.disk.impl.access.impl;
+
+import java.util.*;
+
+import com.biglybt.core.config.COConfigurationManager;
+import com.biglybt.core.config.ParameterListener;
+import com.biglybt.core.disk.impl.DiskManagerFileInfoImpl;
+import com.biglybt.core.diskmanager.access.DiskAccessController;
+import com.biglybt.core.diskmanager.access.DiskAccessRequest;
+import com.biglybt.core.diskmanager.access.DiskAccessRequestListener;
+import com.biglybt.core.diskmanager.cache.CacheFileManagerException;
+import com.biglybt.core.stats.CoreStats;
+import com.biglybt.core.stats.CoreStatsProvider;
+import com.biglybt.core.util.*;
+import com.biglybt.core.util.Timer;
+
+/**
+ * Holds block writes back for a short time so that runs of adjacent blocks for a file
+ * (typically a piece's worth arriving from a peer) are written with a single gathered
+ * write rather than one per block.
+ * <p/>
+ * A run is written when it reaches the run size limit, when its oldest block has waited
+ * for the delay, or when the data held across all downloads exceeds the memory limit.
+ */
+
+class
+DMWriteCoalescer
+{
+	private static final int	MAX_RUN_BLOCKS	= 256;
+
+	static volatile boolean	enabled;
+	static volatile long	max_delay;
+	static volatile int		max_run_bytes;
+	static volatile long	max_held_bytes;
+
+	private static final AEMonitor	class_mon	= new AEMonitor( "DMWriteCoalescer:class" );
+
+	private static long		held_bytes;
+
+	private static long		total_blocks;
+	private static long		total_writes;
+	private static long		total_bytes;
+
+		// flushes can block on the disk queue's space allowance so keep them off shared timers
+
+	private static final Timer	timer = new Timer( "DMWriteCoalescer" );
+
+	static{
+		COConfigurationManager.addAndFireParameterListeners(
+			new String[]{
+				"diskmanager.perf.write.coalesce.enable",
+				"diskmanager.perf.write.coalesce.delay.ms",
+				"diskmanager.perf.write.coalesce.run.kb",
+				"diskmanager.perf.write.coalesce.max.mb" },
+			new ParameterListener()
+			{
+				@Override
+				public void
+				parameterChanged(
+					String		name )
+				{
+					enabled			= COConfigurationManager.getBooleanParameter( "diskmanager.perf.write.coalesce.enable" );
+					max_delay		= Math.max( 1, COConfigurationManager.getLongParameter( "diskmanager.perf.write.coalesce.delay.ms" ));
+					max_run_bytes	= (int)Math.max( 16, COConfigurationManager.getLongParameter( "diskmanager.perf.write.coalesce.run.kb" ))*1024;
+					max_held_bytes	= Math.max( 1, COConfigurationManager.getLongParameter( "diskmanager.perf.write.coalesce.max.mb" ))*1024*1024;
+				}
+			});
+
+		Set<String>	types = new HashSet<>();
+
+		types.add( CoreStats.ST_DISK_WRITE_COALESCE_QUEUE_BYTES );
+		types.add( CoreStats.ST_DISK_WRITE_COALESCE_BLOCKS );
+		types.add( CoreStats.ST_DISK_WRITE_COALESCE_WRITES );
+		types.add( CoreStats.ST_DISK_WRITE_COALESCE_BYTES );
+		types.add( CoreStats.ST_DISK_WRITE_COALESCE_AVERAGE_SIZE );
+		types.add( CoreStats.ST_DISK_WRITE_COALESCE_SAVED );
+
+		CoreStats.registerProvider(
+			types,
+			new CoreStatsProvider()
+			{
+				@Override
+				public void
+				updateStats(
+					Set<String>				types,
+					Map<String,Object>		values )
+				{
+					long	queued;
+					long	blocks;
+					long	writes;
+					long	bytes;
+
+					try{
+						class_mon.enter();
+
+						queued	= held_bytes;
+						blocks	= total_blocks;
+						writes	= total_writes;
+						bytes	= total_bytes;
+
+					}finally{
+
+						class_mon.exit();
+					}
+
+					if ( types.contains( CoreStats.ST_DISK_WRITE_COALESCE_QUEUE_BYTES )){
+
+						values.put( CoreStats.ST_DISK_WRITE_COALESCE_QUEUE_BYTES, new Long( queued ));
+					}
+
+					if ( types.contains( CoreStats.ST_DISK_WRITE_COALESCE_BLOCKS )){
+
+						values.put( CoreStats.ST_DISK_WRITE_COALESCE_BLOCKS, new Long( blocks ));
+					}
+
+					if ( types.contains( CoreStats.ST_DISK_WRITE_COALESCE_WRITES )){
+
+						values.put( CoreStats.ST_DISK_WRITE_COALESCE_WRITES, new Long( writes ));
+					}
+
+					if ( types.contains( CoreStats.ST_DISK_WRITE_COALESCE_BYTES )){
+
+						values.put( CoreStats.ST_DISK_WRITE_COALESCE_BYTES, new Long( bytes ));
+					}
+
+					if ( types.contains( CoreStats.ST_DISK_WRITE_COALESCE_AVERAGE_SIZE )){
+
+						values.put( CoreStats.ST_DISK_WRITE_COALESCE_AVERAGE_SIZE, new Long( writes==0?0:bytes/writes ));
+					}
+
+					if ( types.contains( CoreStats.ST_DISK_WRITE_COALESCE_SAVED )){
+
+						values.put( CoreStats.ST_DISK_WRITE_COALESCE_SAVED, new Long( blocks - writes ));
+					}
+				}
+			});
+	}
+
+	static boolean
+	isEnabled()
+	{
+		return( enabled );
+	}
+
+	private final DiskAccessController		disk_access;
+
+		// runs keyed on the file offset they end at so the next block can find its run
+
+	private final Map<DiskManagerFileInfoImpl,Map<Long,run>>	runs = new HashMap<>();
+
+	private int			run_count;
+	private boolean		timer_pending;
+
+	DMWriteCoalescer(
+		DiskAccessController	_disk_access )
+	{
+		disk_access	= _disk_access;
+	}
+
+		/**
+		 * Takes ownership of the buffer, the listener is informed when the block has been written
+		 */
+
+	void
+	queueWrite(
+		DiskManagerFileInfoImpl		file,
+		long						offset,
+		DirectByteBuffer			buffer,
+		DiskAccessRequestListener	listener )
+	{
+		int	size = buffer.remaining( DirectByteBuffer.SS_DW );
+
+		List<run>	to_write = null;
+
+		boolean	over_memory;
+
+		try{
+			class_mon.enter();
+
+			held_bytes += size;
+
+			over_memory = held_bytes > max_held_bytes;
+
+		}finally{
+
+			class_mon.exit();
+		}
+
+		boolean	schedule = false;
+
+		synchronized( this ){
+
+			Map<Long,run>	file_runs = runs.get( file );
+
+			if ( file_runs == null ){
+
+				file_runs = new HashMap<>();
+
+				runs.put( file, file_runs );
+			}
+
+			run	r = file_runs.remove( offset );
+
+			if ( r == null ){
+
+				r = new run( file, offset );
+
+				run_count++;
+			}
+
+			r.add( buffer, size, listener );
+
+			if ( r.bytes >= max_run_bytes || r.blocks.size() >= MAX_RUN_BLOCKS ){
+
+				to_write = new ArrayList<>( 1 );
+
+				to_write.add( r );
+
+				run_count--;
+
+				if ( file_runs.isEmpty()){
+
+					runs.remove( file );
+				}
+			}else{
+
+				file_runs.put( offset + size, r );
+			}
+
+			if ( over_memory ){
+
+				to_write = removeRuns( to_write, -1 );
+			}
+
+			if ( run_count > 0 && !timer_pending ){
+
+				timer_pending	= true;
+				schedule		= true;
+			}
+		}
+
+		if ( schedule ){
+
+			schedule( max_delay );
+		}
+
+		write( to_write );
+	}
+
+		/**
+		 * Writes everything held, e.g. on stop
+		 */
+
+	void
+	flush()
+	{
+		List<run>	to_write;
+
+		synchronized( this ){
+
+			to_write = removeRuns( null, -1 );
+		}
+
+		write( to_write );
+	}
+
+	private void
+	schedule(
+		long		delay )
+	{
+		timer.addEvent(
+			SystemTime.getOffsetTime( delay ),
+			new TimerEventPerformer()
+			{
+				@Override
+				public void
+				perform(
+					TimerEvent	event )
+				{
+					long	now = SystemTime.getMonotonousTime();
+
+					List<run>	to_write;
+
+					long	next_delay = -1;
+
+					synchronized( DMWriteCoalescer.this ){
+
+						to_write = removeRuns( null, now - max_delay );
+
+						if ( run_count > 0 ){
+
+							long	oldest = now;
+
+							for ( Map<Long,run> file_runs: runs.values()){
+
+								for ( run r: file_runs.values()){
+
+									oldest = Math.min( oldest, r.start_time );
+								}
+							}
+
+							next_delay = Math.max( 1, oldest + max_delay - now );
+
+						}else{
+
+							timer_pending = false;
+						}
+					}
+
+					if ( next_delay >= 0 ){
+
+						schedule( next_delay );
+					}
+
+					write( to_write );
+				}
+			});
+	}
+
+		/**
+		 * removes runs started before the given time, all if -1. Monitor held
+		 */
+
+	private List<run>
+	removeRuns(
+		List<run>	result,
+		long		started_before )
+	{
+		Iterator<Map<Long,run>>	file_it = runs.values().iterator();
+
+		while( file_it.hasNext()){
+
+			Map<Long,run>	file_runs = file_it.next();
+
+			Iterator<run>	run_it = file_runs.values().iterator();
+
+			while( run_it.hasNext()){
+
+				run	r = run_it.next();
+
+				if ( started_before == -1 || r.start_time <= started_before ){
+
+					run_it.remove();
+
+					run_count--;
+
+					if ( result == null ){
+
+						result = new ArrayList<>();
+					}
+
+					result.add( r );
+				}
+			}
+
+			if ( file_runs.isEmpty()){
+
+				file_it.remove();
+			}
+		}
+
+		return( result );
+	}
+
+	private void
+	write(
+		List<run>	to_write )
+	{
+		if ( to_write == null ){
+
+			return;
+		}
+
+		for ( run r: to_write ){
+
+			try{
+				class_mon.enter();
+
+				held_bytes -= r.bytes;
+
+				total_blocks	+= r.blocks.size();
+				total_writes	+= 1;
+				total_bytes		+= r.bytes;
+
+			}finally{
+
+				class_mon.exit();
+			}
+
+			r.write();
+		}
+	}
+
+	private class
+	run
+		implements DiskAccessRequestListener
+	{
+		final DiskManagerFileInfoImpl			file;
+		final long								offset;
+		final long								start_time	= SystemTime.getMonotonousTime();
+
+		final List<DirectByteBuffer>			blocks		= new ArrayList<>();
+		final List<DiskAccessRequestListener>	listeners	= new ArrayList<>();
+		final List<Integer>						sizes		= new ArrayList<>();
+
+		int		bytes;
+
+		run(
+			DiskManagerFileInfoImpl		_file,
+			long						_offset )
+		{
+			file	= _file;
+			offset	= _offset;
+		}
+
+		void
+		add(
+			DirectByteBuffer			buffer,
+			int							size,
+			DiskAccessRequestListener	listener )
+		{
+			blocks.add( buffer );
+			sizes.add( size );
+			listeners.add( listener );
+
+			bytes += size;
+		}
+
+		void
+		write()
+		{
+			try{
+				if ( blocks.size() == 1 ){
+
+					disk_access.queueWriteRequest( file.getCacheFile(), offset, blocks.get(0), true, this );
+
+				}else{
+
+					disk_access.queueWriteRequest(
+						file.getCacheFile(),
+						offset,
+						blocks.toArray( new DirectByteBuffer[ blocks.size()]),
+						true,
+						this );
+				}
+			}catch( Throwable e ){
+
+				requestFailed( null, e );
+			}
+		}
+
+		@Override
+		public void
+		requestComplete(
+			DiskAccessRequest	request )
+		{
+			complete( request, listeners.size());
+		}
+
+		private void
+		complete(
+			DiskAccessRequest	request,
+			int					num )
+		{
+			long	pos = offset;
+
+			for ( int i=0;i<num;i++){
+
+				int	size = sizes.get( i );
+
+				listeners.get( i ).requestComplete( request );
+
+				file.dataWritten( pos, size );
+
+				pos += size;
+			}
+		}
+
+		@Override
+		public void
+		requestCancelled(
+			DiskAccessRequest	request )
+		{
+			for ( DiskAccessRequestListener l: listeners ){
+
+				l.requestCancelled( request );
+			}
+		}
+
+		@Override
+		public void
+		requestFailed(
+			DiskAccessRequest	request,
+			Throwable			cause )
+		{
+				// blocks before the failure point have been written and their buffers taken
+
+			int	fail_index = 0;
+
+			if ( cause instanceof CacheFileManagerException ){
+
+				fail_index = Math.min( ((CacheFileManagerException)cause).getFailIndex(), listeners.size());
+			}
+
+			complete( request, fail_index );
+
+			for ( int i=fail_index;i<listeners.size();i++){
+
+				listeners.get( i ).requestFailed( request, cause );
+			}
+		}
+
+		@Override
+		public int
+		getPriority()
+		{
+			return( -1 );
+		}
+
+		@Override
+		public void
+		requestExecuted(
+			long	bytes )
+		{
+		}
+	}
+}
@@ -52,6 +52,7 @@ DMWriterImpl
 
 	final DiskManagerHelper		disk_manager;
 	final DiskAccessController	disk_access;
+	final DMWriteCoalescer		coalescer;
 
 	int				async_writes;
 	final Set				write_requests		= new HashSet();
@@ -74,6 +75,7 @@ DMWriterImpl
 	{
 		disk_manager	= _disk_manager;
 		disk_access		= disk_manager.getDiskAccessController();
+		coalescer		= new DMWriteCoalescer( disk_access );
 
 		pieceLength		= disk_manager.getPieceLength();
 		totalLength		= disk_manager.getTotalLength();
@@ -127,6 +129,10 @@ DMWriterImpl
 			this_mon.exit();
 		}
 
+			// anything held back for coalescing has to go now
+
+		coalescer.flush();
+
 			// wait for writes
 
 		long	log_time 		= SystemTime.getCurrentTime();
@@ -713,6 +719,15 @@ DMWriterImpl
 
 			boolean	handover_buffer	= chunk_index == chunks.size();
 
+			if ( handover_buffer && DMWriteCoalescer.isEnabled()){
+
+					// completion (and the file's dataWritten) is reported by the coalescer
+
+				coalescer.queueWrite( file, ((Long)stuff[1]).longValue(), buffer, l );
+
+				return;
+			}
+
 			DiskAccessRequestListener	delegate_listener =
 				new DiskAccessRequestListener()
 				{
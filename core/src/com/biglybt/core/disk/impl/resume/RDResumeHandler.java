@@ -30,6 +30,7 @@ import com.biglybt.core.disk.impl.DiskManagerRecheckInstance;
 import com.biglybt.core.disk.impl.access.DMChecker;
 import com.biglybt.core.disk.impl.piecemapper.DMPieceList;
 import com.biglybt.core.disk.impl.piecemapper.DMPieceMapEntry;
+import com.biglybt.core.diskmanager.access.DiskAccessRequestListener;
 import com.biglybt.core.diskmanager.cache.CacheFileManagerException;
 import com.biglybt.core.download.DownloadManager;
 import com.biglybt.core.download.DownloadManagerState;
@@ -39,6 +40,7 @@ import com.biglybt.core.logging.Logger;
 import com.biglybt.core.torrent.TOTorrent;
 import com.biglybt.core.util.AESemaphore;
 import com.biglybt.core.util.ByteArrayHashMap;
+import com.biglybt.core.util.ConcurrentHasher;
 import com.biglybt.core.util.Debug;
 import com.biglybt.core.util.DirectByteBuffer;
 
@@ -59,6 +61,11 @@ RDResumeHandler
 		}
 	}
 
+		// pieces read ahead of the hashing during a recheck are bounded by this many bytes
+		// (but always at least 2 so reading and hashing overlap)
+
+	private static final int		RECHECK_READ_AHEAD_BYTES	= 32*1024*1024;
+
 	private static final byte		PIECE_NOT_DONE			= 0;
 	private static final byte		PIECE_DONE				= 1;
 	private static final byte		PIECE_RECHECK_REQUIRED	= 2;
@@ -143,7 +150,16 @@ RDResumeHandler
 
 		int overall_piece_size = disk_manager.getPieceLength();
 
-        final AESemaphore	 run_sem = new AESemaphore( "RDResumeHandler::checkAllPieces:runsem", overall_piece_size>32*1024*1024?1:2 );
+			// keep enough pieces in flight for every hashing thread to have one queued behind
+			// the reads, within the read-ahead memory budget
+
+		int	read_ahead = Math.min(
+							ConcurrentHasher.getSingleton().getThreadCount() + 1,
+							RECHECK_READ_AHEAD_BYTES / Math.max( 1, overall_piece_size ));
+
+		read_ahead = overall_piece_size>RECHECK_READ_AHEAD_BYTES?1:Math.max( 2, read_ahead );
+
+        final AESemaphore	 run_sem = new AESemaphore( "RDResumeHandler::checkAllPieces:runsem", read_ahead );
 
         final List<DiskManagerCheckRequest>	failed_pieces = new ArrayList<>();
 
@@ -762,7 +778,7 @@ RDResumeHandler
 										public int
 										getPriority()
 										{
-											return( -1 );
+											return( DiskAccessRequestListener.PRIORITY_BACKGROUND );
 										}
 
 										@Override
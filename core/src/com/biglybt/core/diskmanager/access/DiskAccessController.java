@@ -41,6 +41,18 @@ DiskAccessController
 		boolean						free_buffer,
 		DiskAccessRequestListener	listener );
 
+		/**
+		 * Gathered write of contiguous buffers as a single request
+		 */
+
+	public DiskAccessRequest
+	queueWriteRequest(
+		CacheFile					file,
+		long						offset,
+		DirectByteBuffer[]			buffers,
+		boolean						free_buffers,
+		DiskAccessRequestListener	listener );
+
 	public DiskAccessControllerStats
 	getStats();
 
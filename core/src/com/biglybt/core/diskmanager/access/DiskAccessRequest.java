@@ -25,6 +25,15 @@ import com.biglybt.core.util.DirectByteBuffer;
 public interface
 DiskAccessRequest
 {
+		// scheduling classes, most urgent first
+
+	public static final int	CLASS_REALTIME		= 0;	// explicitly prioritised, e.g. streaming
+	public static final int	CLASS_WRITE			= 1;	// downloaded data
+	public static final int	CLASS_READ			= 2;	// reads for uploading
+	public static final int	CLASS_BACKGROUND	= 3;	// rechecks
+
+	public static final int	CLASS_COUNT			= 4;
+
 	public CacheFile
 	getFile();
 
@@ -40,6 +49,9 @@ DiskAccessRequest
 	public int
 	getPriority();
 
+	public int
+	getRequestClass();
+
 	public void
 	cancel();
 }
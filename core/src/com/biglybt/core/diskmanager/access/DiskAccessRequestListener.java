@@ -22,6 +22,9 @@ package com.biglybt.core.diskmanager.access;
 public interface
 DiskAccessRequestListener
 {
+	public static final int	PRIORITY_NORMAL		= -1;
+	public static final int	PRIORITY_BACKGROUND	= -2;		// e.g. rechecking, can wait behind everything else
+
 	public void
 	requestComplete(
 		DiskAccessRequest	request );
@@ -35,6 +38,11 @@ DiskAccessRequestListener
 		DiskAccessRequest	request,
 		Throwable			cause );
 
+		/**
+		 * Requests with priority >= 0 are serviced before others, higher first
+		 * @return priority or one of PRIORITY_NORMAL/PRIORITY_BACKGROUND
+		 */
+
 	public int
 	getPriority();
 
@@ -31,11 +31,14 @@ import com.biglybt.core.diskmanager.access.DiskAccessRequestListener;
 import com.biglybt.core.diskmanager.cache.CacheFile;
 import com.biglybt.core.stats.CoreStats;
 import com.biglybt.core.stats.CoreStatsProvider;
+import com.biglybt.core.util.AEDiagnostics;
+import com.biglybt.core.util.AEDiagnosticsEvidenceGenerator;
 import com.biglybt.core.util.DirectByteBuffer;
+import com.biglybt.core.util.IndentWriter;
 
 public class
 DiskAccessControllerImpl
-	implements DiskAccessController, CoreStatsProvider
+	implements DiskAccessController, CoreStatsProvider, AEDiagnosticsEvidenceGenerator
 {
 	final DiskAccessControllerInstance	read_dispatcher;
 	final DiskAccessControllerInstance	write_dispatcher;
@@ -99,6 +102,43 @@ DiskAccessControllerImpl
 		types.add( CoreStats.ST_DISK_WRITE_IO_TIME );
 
 		CoreStats.registerProvider( types, this );
+
+		AEDiagnostics.addEvidenceGenerator( this );
+	}
+
+	@Override
+	public void
+	generate(
+		IndentWriter		writer )
+	{
+		writer.println( "Disk Access" );
+
+		try{
+			writer.indent();
+
+			for ( DiskAccessControllerInstance inst: new DiskAccessControllerInstance[]{ read_dispatcher, write_dispatcher }){
+
+				writer.println( inst.getString());
+
+				try{
+					writer.indent();
+
+					writer.println( "latency (log2 ms buckets): " + inst.getLatencyString());
+
+					for ( String device: inst.getDeviceStrings()){
+
+						writer.println( device );
+					}
+
+				}finally{
+
+					writer.exdent();
+				}
+			}
+		}finally{
+
+			writer.exdent();
+		}
 	}
 
 	@Override
@@ -261,6 +301,28 @@ DiskAccessControllerImpl
 		return( request );
 	}
 
+	@Override
+	public DiskAccessRequest
+	queueWriteRequest(
+		CacheFile					file,
+		long						offset,
+		DirectByteBuffer[]			buffers,
+		boolean						free_buffers,
+		DiskAccessRequestListener	listener )
+	{
+		DiskAccessRequestImpl	request =
+			new DiskAccessRequestImpl(
+					file,
+					offset,
+					buffers,
+					listener,
+					free_buffers?DiskAccessRequestImpl.OP_WRITE_AND_FREE:DiskAccessRequestImpl.OP_WRITE );
+
+		write_dispatcher.queueRequest( request );
+
+		return( request );
+	}
+
 	@Override
 	public DiskAccessControllerStats
 	getStats()
@@ -19,9 +19,12 @@
 
 package com.biglybt.core.diskmanager.access.impl;
 
+import java.io.File;
+import java.lang.reflect.Method;
 import java.util.*;
 
 import com.biglybt.core.config.COConfigurationManager;
+import com.biglybt.core.diskmanager.access.DiskAccessRequest;
 import com.biglybt.core.diskmanager.cache.CacheFile;
 import com.biglybt.core.torrent.TOTorrent;
 import com.biglybt.core.util.*;
@@ -37,6 +40,12 @@ DiskAccessControllerInstance
 
 	final boolean		invert_threads	= !COConfigurationManager.getBooleanParameter( "diskmanager.perf.queue.torrent.bias" );
 
+		// when scheduling requests are queued per device rather than per torrent, see DiskAccessScheduler
+
+	final boolean		scheduling		= COConfigurationManager.getBooleanParameter( "diskmanager.perf.scheduler.enable" );
+	final int			device_threads	= Math.max( 1, COConfigurationManager.getIntParameter( "diskmanager.perf.scheduler.device.threads" ));
+	final boolean		auto_tune		= scheduling && COConfigurationManager.getBooleanParameter( "diskmanager.perf.scheduler.autotune" );
+
 	final int	max_threads;
 	private int	max_mb_queued;
 
@@ -62,6 +71,44 @@ DiskAccessControllerInstance
 
 	private final Map			torrent_dispatcher_map	= new HashMap();
 
+	private final Map<Object,requestDispatcher>	device_dispatcher_map	= new HashMap<>();
+
+	private static final int	DEVICE_CACHE_TIMEOUT	= 10*60*1000;
+
+	private static final Map<File,Object[]>		device_cache	= new HashMap<>();
+
+	private static final Method		get_file_store;
+	private static final Method		to_path;
+
+	static{
+		Method	gfs	= null;
+		Method	tp	= null;
+
+		try{
+				// FileStore is minSDK 26 on Android
+
+			gfs	= Class.forName( "java.nio.file.Files" ).getMethod( "getFileStore", Class.forName( "java.nio.file.Path" ));
+			tp	= File.class.getMethod( "toPath" );
+
+		}catch( Throwable e ){
+		}
+
+		get_file_store	= gfs;
+		to_path			= tp;
+	}
+
+		// request latency (queued to complete) per request class, bucket i holds times
+		// in [2^(i-1),2^i) ms and the last bucket everything above
+
+	private static final int	LATENCY_BUCKETS	= 16;
+
+	private final long[][]		latency_histogram	= new long[DiskAccessRequest.CLASS_COUNT][LATENCY_BUCKETS];
+
+	private static final int	TUNE_PERIOD				= 10*1000;
+	private static final int	TUNE_MIN_IOS			= 20;
+	private static final int	TUNE_BLOCK_SIZE			= 16*1024;
+	private static final int	TUNE_MAX_READ_AHEAD		= 1024*1024;
+
 	private static final int REQUEST_NUM_LOG_CHUNK 		= 100;
 	private static final int REQUEST_BYTE_LOG_CHUNK 	= 1024*1024;
 
@@ -99,10 +146,43 @@ DiskAccessControllerInstance
 		max_mb_sem 			= new groupSemaphore( max_mb_queued );
 		max_threads			= _max_threads;
 
-		dispatchers	= new requestDispatcher[invert_threads?1:max_threads];
+		if ( scheduling ){
 
-		for (int i=0;i<dispatchers.length;i++){
-			dispatchers[i]	= new requestDispatcher(i);
+			dispatchers = new requestDispatcher[0];
+
+			if ( auto_tune ){
+
+				SimpleTimer.addPeriodicEvent(
+					"DiskAccessControllerInstance:tune",
+					TUNE_PERIOD,
+					new TimerEventPerformer()
+					{
+						@Override
+						public void
+						perform(
+							TimerEvent	event )
+						{
+							List<requestDispatcher>	devices;
+
+							synchronized( device_dispatcher_map ){
+
+								devices = new ArrayList<>( device_dispatcher_map.values());
+							}
+
+							for ( requestDispatcher d: devices ){
+
+								d.tune();
+							}
+						}
+					});
+			}
+		}else{
+
+			dispatchers	= new requestDispatcher[invert_threads?1:max_threads];
+
+			for (int i=0;i<dispatchers.length;i++){
+				dispatchers[i]	= new requestDispatcher( i, invert_threads?max_threads:1, new fifoQueue(), invert_threads );
+			}
 		}
 	}
 
@@ -184,7 +264,24 @@ DiskAccessControllerInstance
 	{
 		requestDispatcher	dispatcher;
 
-		if ( dispatchers.length == 1 ){
+		if ( scheduling ){
+
+			Object	device = getDevice( request.getFile());
+
+			synchronized( device_dispatcher_map ){
+
+				dispatcher = device_dispatcher_map.get( device );
+
+				if ( dispatcher == null ){
+
+					dispatcher = new requestDispatcher( device_dispatcher_map.size(), device_threads, new DiskAccessScheduler(), false );
+
+					dispatcher.setDevice( device );
+
+					device_dispatcher_map.put( device, dispatcher );
+				}
+			}
+		}else if ( dispatchers.length == 1 ){
 
 			dispatcher = dispatchers[0];
 
@@ -262,6 +359,154 @@ DiskAccessControllerInstance
 		dispatcher.queue( request );
 	}
 
+		/**
+		 * Identifies the storage device the file is on so that requests for files sharing a
+		 * device are scheduled together. Falls back to a single device if this can't be determined.
+		 */
+
+	private static Object
+	getDevice(
+		CacheFile	file )
+	{
+		if ( get_file_store == null ){
+
+			return( "" );
+		}
+
+		File	dir = file.getLinkedFile().getParentFile();
+
+		if ( dir == null ){
+
+			return( "" );
+		}
+
+		long	now = SystemTime.getMonotonousTime();
+
+		synchronized( device_cache ){
+
+			Object[]	entry = device_cache.get( dir );
+
+			if ( entry != null && now - (Long)entry[1] < DEVICE_CACHE_TIMEOUT ){
+
+				return( entry[0] );
+			}
+
+			if ( device_cache.size() > 1024 ){
+
+				device_cache.clear();
+			}
+		}
+
+		Object	device = "";
+
+			// file may not have been created yet
+
+		File	existing = dir;
+
+		while( existing != null && !existing.exists()){
+
+			existing = existing.getParentFile();
+		}
+
+		if ( existing != null ){
+
+			try{
+				device = get_file_store.invoke( null, to_path.invoke( existing ));
+
+			}catch( Throwable e ){
+			}
+		}
+
+		synchronized( device_cache ){
+
+			device_cache.put( dir, new Object[]{ device, now });
+		}
+
+		return( device );
+	}
+
+	protected void
+	requestComplete(
+		DiskAccessRequestImpl	request,
+		long					now )
+	{
+		long	elapsed = now - request.getQueueTime();
+
+		int	bucket = elapsed<=0?0:Math.min( LATENCY_BUCKETS-1, 64 - Long.numberOfLeadingZeros( elapsed ));
+
+			// not synchronized, they're only stats
+
+		latency_histogram[request.getRequestClass()][bucket]++;
+	}
+
+	protected long[][]
+	getLatencyHistogram()
+	{
+		long[][]	result = new long[latency_histogram.length][];
+
+		for ( int i=0;i<result.length;i++){
+
+			result[i] = latency_histogram[i].clone();
+		}
+
+		return( result );
+	}
+
+	protected String
+	getLatencyString()
+	{
+		String[]	class_names = { "realtime", "write", "read", "background" };
+
+		StringBuilder	sb = new StringBuilder();
+
+		for ( int i=0;i<latency_histogram.length;i++){
+
+			long[]	buckets = latency_histogram[i];
+
+			long	total = 0;
+
+			for ( long b: buckets ){
+
+				total += b;
+			}
+
+			if ( total == 0 ){
+
+				continue;
+			}
+
+			if ( sb.length() > 0 ){
+
+				sb.append( "; " );
+			}
+
+			sb.append( class_names[i] ).append( "=" ).append( total ).append( ":" );
+
+			int	last = buckets.length - 1;
+
+			while( buckets[last] == 0 ){
+
+				last--;
+			}
+
+			for ( int j=0;j<=last;j++){
+
+				sb.append( j==0?"":"," ).append( buckets[j] );
+			}
+		}
+
+		return( sb.length()==0?"none":sb.toString());
+	}
+
+	protected int
+	getDeviceCount()
+	{
+		synchronized( device_dispatcher_map ){
+
+			return( device_dispatcher_map.size());
+		}
+	}
+
 	protected void
 	getSpaceAllowance(
 		DiskAccessRequestImpl	request )
@@ -348,17 +593,152 @@ DiskAccessControllerInstance
 			",q_req=" + requests_queued +
 			",t_req=" + total_requests +
 			",t_byte=" + DisplayFormatters.formatByteCountToKiBEtc( total_bytes ) +
-			",io=" + io_count );
+			",io=" + io_count +
+			(scheduling?(",devices=" + getDeviceCount()):""));
+	}
+
+	protected List<String>
+	getDeviceStrings()
+	{
+		List<requestDispatcher>	devices;
+
+		synchronized( device_dispatcher_map ){
+
+			devices = new ArrayList<>( device_dispatcher_map.values());
+		}
+
+		List<String>	result = new ArrayList<>( devices.size());
+
+		for ( requestDispatcher d: devices ){
+
+			result.add( d.getString());
+		}
+
+		return( result );
+	}
+
+		/**
+		 * Queue of pending requests for a dispatcher, all access synchronized on the queue
+		 */
+
+	protected interface
+	requestQueue
+	{
+		public void
+		add(
+			DiskAccessRequestImpl	request );
+
+			/**
+			 * @return the next request to serve, removed from the queue, or null if empty
+			 */
+
+		public DiskAccessRequestImpl
+		next();
+
+		public boolean
+		remove(
+			DiskAccessRequestImpl	request );
+
+		public int
+		size();
+	}
+
+		/**
+		 * Arrival order except that requests with priority >= 0 go ahead of lower priority ones
+		 */
+
+	protected static class
+	fifoQueue
+		implements requestQueue
+	{
+		private final LinkedList<DiskAccessRequestImpl>	requests = new LinkedList<>();
+
+		@Override
+		public void
+		add(
+			DiskAccessRequestImpl	request )
+		{
+			request.setQueued( SystemTime.getMonotonousTime(), 0 );
+
+			int	priority = request.getPriority();
+
+			if ( priority >= 0 ){
+
+				int	pos = 0;
+
+				for (Iterator<DiskAccessRequestImpl> it = requests.iterator();it.hasNext();){
+
+					DiskAccessRequestImpl	r = it.next();
+
+					if ( r.getPriority() < priority ){
+
+						requests.add( pos, request );
+
+						return;
+					}
+
+					pos++;
+				}
+			}
+
+			requests.add( request );
+		}
+
+		@Override
+		public DiskAccessRequestImpl
+		next()
+		{
+			return( requests.poll());
+		}
+
+		@Override
+		public boolean
+		remove(
+			DiskAccessRequestImpl	request )
+		{
+			return( requests.remove( request ));
+		}
+
+		@Override
+		public int
+		size()
+		{
+			return( requests.size());
+		}
 	}
 
 	protected class
 	requestDispatcher
 	{
 		private final int			index;
-		final AEThread2[]	threads		= new AEThread2[invert_threads?max_threads:1];
+		final AEThread2[]	threads;
 		int			active_threads;
 
-		final LinkedList	requests 	= new LinkedList();
+		final requestQueue	requests;
+		final boolean		use_schedule_sem;
+
+		final boolean		aggregate;
+		volatile int		agg_request_limit;
+		volatile int		agg_byte_limit;
+
+			// auto-tuning state, only used for device dispatchers. Concurrency is hill-climbed
+			// on throughput while requests are backing up, and the maximum contiguous I/O
+			// (aggregation, acting as read-ahead for queued reads) grows for devices where
+			// each I/O is slow - seeking disks and network mounts - and shrinks where it is fast
+
+		private Object		device;
+		volatile int		thread_limit;
+		private int			tune_direction	= 1;
+		private long		last_throughput;
+		private long		last_tune		= SystemTime.getMonotonousTime();
+
+		long				tune_bytes;
+		long				tune_ios;
+		long				tune_io_time;
+		long				tune_queued;
+		long				tune_backlogged;
+
+		private String		last_tune_result	= "";
 
 		final Map			request_map	= new HashMap();
 		private long		last_request_map_tidy;
@@ -371,9 +751,130 @@ DiskAccessControllerInstance
 
 		protected
 		requestDispatcher(
-			int	_index )
+			int				_index,
+			int				_threads,
+			requestQueue	_requests,
+			boolean			_use_schedule_sem )
+		{
+			index				= _index;
+			requests			= _requests;
+			use_schedule_sem	= _use_schedule_sem;
+
+			if ( auto_tune ){
+
+				threads				= new AEThread2[Math.max( _threads, max_threads )];
+				agg_request_limit	= Math.max( 4, aggregation_request_limit );
+				agg_byte_limit		= Math.max( 64*1024, aggregation_byte_limit );
+
+			}else{
+
+				threads				= new AEThread2[_threads];
+				agg_request_limit	= aggregation_request_limit;
+				agg_byte_limit		= aggregation_byte_limit;
+			}
+
+				// tuning only adjusts the limits, aggregation stays as the user configured it
+
+			aggregate = enable_aggregation;
+
+			thread_limit = _threads;
+		}
+
+		protected void
+		setDevice(
+			Object		_device )
 		{
-			index	= _index;
+			device	= _device;
+		}
+
+		protected void
+		tune()
+		{
+			long	now = SystemTime.getMonotonousTime();
+
+			long	elapsed = now - last_tune;
+
+			long	bytes;
+			long	ios;
+			long	io_time;
+			long	queued;
+			long	backlogged;
+
+			synchronized( requests ){
+
+				bytes		= tune_bytes;
+				ios			= tune_ios;
+				io_time		= tune_io_time;
+				queued		= tune_queued;
+				backlogged	= tune_backlogged;
+
+				tune_bytes = tune_ios = tune_io_time = tune_queued = tune_backlogged = 0;
+			}
+
+			last_tune = now;
+
+			if ( ios < TUNE_MIN_IOS || elapsed <= 0 ){
+
+					// not enough going on to learn anything
+
+				return;
+			}
+
+			long	throughput	= bytes*1000/elapsed;
+			long	io_micros	= io_time/ios/1000;
+			int		backlog		= queued==0?0:(int)( backlogged*100/queued );
+
+			int	threads_now = thread_limit;
+
+			if ( backlog >= 25 ){
+
+					// keep going while it helps, back off when it doesn't
+
+				if ( throughput < last_throughput + last_throughput/20 ){
+
+					tune_direction = -tune_direction;
+				}
+
+				thread_limit = Math.max( 1, Math.min( threads.length, threads_now + tune_direction ));
+			}
+
+			last_throughput = throughput;
+
+			if ( aggregate ){
+
+				int	read_ahead = agg_byte_limit;
+
+				if ( io_micros > 8000 ){
+
+					read_ahead = Math.min( TUNE_MAX_READ_AHEAD, read_ahead*2 );
+
+				}else if ( io_micros < 1000 ){
+
+					read_ahead = Math.max( Math.max( 64*1024, aggregation_byte_limit ), read_ahead/2 );
+				}
+
+				agg_byte_limit		= read_ahead;
+				agg_request_limit	= Math.max( Math.max( 4, aggregation_request_limit ), read_ahead/TUNE_BLOCK_SIZE );
+			}
+
+			last_tune_result =
+				"rate=" + DisplayFormatters.formatByteCountToKiBEtcPerSec( throughput ) +
+				",io=" + io_micros + "us" +
+				",backlog=" + backlog + "%";
+		}
+
+		protected String
+		getString()
+		{
+			return(
+				( device==null?"default":String.valueOf( device )) +
+				": threads=" + thread_limit + "/" + active_threads +
+				( aggregate?
+					( ",depth=" + agg_request_limit +
+					  ",read_ahead=" + DisplayFormatters.formatByteCountToKiBEtc( agg_byte_limit )):
+					",agg=false" ) +
+				",queued=" + requests.size() +
+				( last_tune_result.length()==0?"":( "," + last_tune_result )));
 		}
 
 		protected void
@@ -426,37 +927,19 @@ DiskAccessControllerInstance
 
 					total_bytes	+= request.getSize();
 
-					boolean	added = false;
-
-					int	priority = request.getPriority();
-
-					if ( priority >= 0 ){
-
-						int	pos = 0;
+					if ( auto_tune ){
 
-						for (Iterator it = requests.iterator();it.hasNext();){
+						tune_queued++;
 
-							DiskAccessRequestImpl	r = (DiskAccessRequestImpl)it.next();
+						if ( requests.size() >= thread_limit ){
 
-							if ( r.getPriority() < priority ){
-
-								requests.add( pos, request );
-
-								added = true;
-
-								break;
-							}
-
-							pos++;
+							tune_backlogged++;
 						}
 					}
 
-					if ( !added ){
+					requests.add( request );
 
-						requests.add( request );
-					}
-
-					if ( enable_aggregation ){
+					if ( aggregate ){
 
 						Map	m = (Map)request_map.get( request.getFile());
 
@@ -504,6 +987,26 @@ DiskAccessControllerInstance
 			}
 		}
 
+		protected void
+		ioComplete(
+			long						elapsed,
+			DiskAccessRequestImpl[]		done )
+		{
+			long	bytes = 0;
+
+			for ( DiskAccessRequestImpl r: done ){
+
+				bytes += r.getSize();
+			}
+
+			synchronized( requests ){
+
+				tune_ios++;
+				tune_io_time	+= elapsed;
+				tune_bytes		+= bytes;
+			}
+		}
+
 		protected long
 		getLastRequestTime()
 		{
@@ -528,7 +1031,7 @@ DiskAccessControllerInstance
 		{
 				// requests monitor held
 
-			if ( active_threads < threads.length && ( active_threads == 0 || requests.size() > 32 )){
+			if ( active_threads < thread_limit && ( active_threads == 0 || requests.size() > ( auto_tune?active_threads:32 ))){
 
 				for (int i=0;i<threads.length;i++){
 
@@ -549,11 +1052,28 @@ DiskAccessControllerInstance
 
 									while( true ){
 
+										if ( auto_tune && active_threads > thread_limit ){
+
+											synchronized( requests ){
+
+												if ( active_threads > thread_limit ){
+
+														// tuned down
+
+													threads[thread_index] = null;
+
+													active_threads--;
+
+													break;
+												}
+											}
+										}
+
 										DiskAccessRequestImpl	request		= null;
 										List					aggregated 	= null;
 
 										try{
-											if ( invert_threads ){
+											if ( use_schedule_sem ){
 
 												schedule_sem.reserve();
 											}
@@ -562,9 +1082,9 @@ DiskAccessControllerInstance
 
 												synchronized( requests ){
 
-													request = (DiskAccessRequestImpl)requests.remove(0);
+													request = requests.next();
 
-													if ( enable_aggregation ){
+													if ( aggregate ){
 
 														CacheFile	file = request.getFile();
 
@@ -627,7 +1147,7 @@ DiskAccessControllerInstance
 
 																	aggregated_bytes += next.getSize();
 
-																	if ( aggregated.size() > aggregation_request_limit || aggregated_bytes >= aggregation_byte_limit ){
+																	if ( aggregated.size() > agg_request_limit || aggregated_bytes >= agg_byte_limit ){
 
 																		break;
 																	}
@@ -660,7 +1180,7 @@ DiskAccessControllerInstance
 											}
 										}finally{
 
-											if ( invert_threads ){
+											if ( use_schedule_sem ){
 
 												schedule_sem.release();
 											}
@@ -686,12 +1206,21 @@ DiskAccessControllerInstance
 
 													io_count++;
 
+													long	now = SystemTime.getMonotonousTime();
+
+													if ( auto_tune ){
+
+														ioComplete( io_end - io_start, requests );
+													}
+
 													for (int i=0;i<requests.length;i++){
 
 														DiskAccessRequestImpl	r = requests[i];
 
 														total_aggregated_bytes += r.getSize();
 
+														requestComplete( r, now );
+
 														releaseSpaceAllowance( r );
 													}
 												}
@@ -708,8 +1237,15 @@ DiskAccessControllerInstance
 
 													io_count++;
 
+													if ( auto_tune ){
+
+														ioComplete( io_end - io_start, new DiskAccessRequestImpl[]{ request });
+													}
+
 													total_single_bytes += request.getSize();
 
+													requestComplete( request, SystemTime.getMonotonousTime());
+
 													releaseSpaceAllowance( request );
 												}
 
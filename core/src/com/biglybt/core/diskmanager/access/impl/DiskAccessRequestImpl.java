@@ -39,11 +39,16 @@ DiskAccessRequestImpl
 	private final CacheFile					file;
 	private final long						offset;
 	private final DirectByteBuffer			buffer;
+	private final DirectByteBuffer[]		buffers;		// gathered write, null otherwise
 	private final DiskAccessRequestListener	listener;
 	private final short						op;
 	private final short						cache_policy;
 
 	private final int							size;
+	private final int							request_class;
+
+	private long				queue_time;
+	private long				queue_seq;
 
 	private volatile boolean	cancelled;
 
@@ -59,11 +64,65 @@ DiskAccessRequestImpl
 		file			= _file;
 		offset			= _offset;
 		buffer			= _buffer;
+		buffers			= null;
 		listener		= _listener;
 		op				= _op;
 		cache_policy	= _cache_policy;
 
 		size = buffer.remaining( DirectByteBuffer.SS_FILE );
+
+		request_class = deriveClass();
+	}
+
+	protected
+	DiskAccessRequestImpl(
+		CacheFile					_file,
+		long						_offset,
+		DirectByteBuffer[]			_buffers,
+		DiskAccessRequestListener	_listener,
+		short						_op )
+	{
+		file			= _file;
+		offset			= _offset;
+		buffer			= _buffers[0];
+		buffers			= _buffers;
+		listener		= _listener;
+		op				= _op;
+		cache_policy	= CacheFile.CP_NONE;
+
+		int	total = 0;
+
+		for ( DirectByteBuffer b: buffers ){
+
+			total += b.remaining( DirectByteBuffer.SS_FILE );
+		}
+
+		size = total;
+
+		request_class = deriveClass();
+	}
+
+	private int
+	deriveClass()
+	{
+		int	priority = listener.getPriority();
+
+		if ( priority >= 0 ){
+
+			return( CLASS_REALTIME );
+
+		}else if ( op != OP_READ ){
+
+			return( CLASS_WRITE );
+
+		}else if ( priority == DiskAccessRequestListener.PRIORITY_BACKGROUND ){
+
+			return( CLASS_BACKGROUND );
+
+		}else{
+
+			return( CLASS_READ );
+		}
 	}
 
 	@Override
@@ -86,7 +145,17 @@ DiskAccessRequestImpl
 		//System.out.println( "DiskReq:" + Thread.currentThread().getName() + ": " + op + " - " + offset );
 
 		try{
-			if ( op == OP_READ ){
+			if ( buffers != null ){
+
+				if ( op == OP_WRITE ){
+
+					file.write( buffers, offset );
+
+				}else{
+
+					file.writeAndHandoverBuffers( buffers, offset );
+				}
+			}else if ( op == OP_READ ){
 
 				file.read( buffer, offset, cache_policy );
 
@@ -113,7 +182,7 @@ DiskAccessRequestImpl
 	canBeAggregatedWith(
 		DiskAccessRequestImpl	other )
 	{
-		return( op == other.getOperation() && cache_policy == other.getCachePolicy());
+		return( buffers == null && other.buffers == null && op == other.getOperation() && cache_policy == other.getCachePolicy());
 	}
 
 	protected static void
@@ -261,6 +330,34 @@ DiskAccessRequestImpl
 		return( listener.getPriority());
 	}
 
+	@Override
+	public int
+	getRequestClass()
+	{
+		return( request_class );
+	}
+
+	protected void
+	setQueued(
+		long		time,
+		long		seq )
+	{
+		queue_time	= time;
+		queue_seq	= seq;
+	}
+
+	protected long
+	getQueueTime()
+	{
+		return( queue_time );
+	}
+
+	protected long
+	getQueueSequence()
+	{
+		return( queue_seq );
+	}
+
 	protected DiskAccessRequestListener
 	getListener()
 	{
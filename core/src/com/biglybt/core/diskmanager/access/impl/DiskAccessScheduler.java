@@ -0,0 +1,275 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ */
+
+package com.biglybt.core.diskmanager.access.impl;
+
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.biglybt.core.diskmanager.access.DiskAccessRequest;
+import com.biglybt.core.util.SystemTime;
+
+/**
+ * Request queue for a single device. Requests are split by class (see DiskAccessRequest.CLASS_*)
+ * and, within a class, served in file/offset order sweeping upwards from the last position
+ * served (C-SCAN) to cut down on seeking. Each class has a deadline - once the oldest request of
+ * a class has waited longer than this it is served next regardless, so background work can't
+ * be starved indefinitely by a steady stream of more urgent requests.
+ * <p/>
+ * Not thread safe, callers synchronize on the queue.
+ */
+
+class
+DiskAccessScheduler
+	implements DiskAccessControllerInstance.requestQueue
+{
+	private static final long[]	DEADLINES = { 50, 500, 1000, 10000 };
+
+	private static final Comparator<position>	elevator_order =
+		new Comparator<position>()
+		{
+			@Override
+			public int
+			compare(
+				position	p1,
+				position	p2 )
+			{
+				if ( p1.file != p2.file ){
+
+					return( p1.file < p2.file?-1:1 );
+				}
+
+				if ( p1.offset != p2.offset ){
+
+					return( p1.offset < p2.offset?-1:1 );
+				}
+
+				return( Long.compare( p1.seq, p2.seq ));
+			}
+		};
+
+		// realtime requests are ordered by priority, not position, so re-use the slots
+
+	private static final Comparator<position>	priority_order =
+		new Comparator<position>()
+		{
+			@Override
+			public int
+			compare(
+				position	p1,
+				position	p2 )
+			{
+				if ( p1.offset != p2.offset ){
+
+					return( p1.offset > p2.offset?-1:1 );
+				}
+
+				return( Long.compare( p1.seq, p2.seq ));
+			}
+		};
+
+	private final LinkedHashSet<DiskAccessRequestImpl>[]				arrivals;
+	private final TreeMap<position,DiskAccessRequestImpl>[]			sorted;
+
+	private long	next_seq;
+	private int		size;
+
+	private int		last_file;
+	private long	last_offset;
+
+	private long	deadline_misses;
+
+	@SuppressWarnings("unchecked")
+	protected
+	DiskAccessScheduler()
+	{
+		arrivals	= new LinkedHashSet[DiskAccessRequest.CLASS_COUNT];
+		sorted		= new TreeMap[DiskAccessRequest.CLASS_COUNT];
+
+		for ( int i=0;i<DiskAccessRequest.CLASS_COUNT;i++){
+
+			arrivals[i]	= new LinkedHashSet<>();
+			sorted[i]	= new TreeMap<>( i==DiskAccessRequest.CLASS_REALTIME?priority_order:elevator_order );
+		}
+	}
+
+	@Override
+	public void
+	add(
+		DiskAccessRequestImpl	request )
+	{
+		int	cla = request.getRequestClass();
+
+		request.setQueued( SystemTime.getMonotonousTime(), next_seq++ );
+
+		arrivals[cla].add( request );
+
+		sorted[cla].put( getPosition( request ), request );
+
+		size++;
+	}
+
+	@Override
+	public DiskAccessRequestImpl
+	next()
+	{
+		if ( size == 0 ){
+
+			return( null );
+		}
+
+		long	now = SystemTime.getMonotonousTime();
+
+			// overdue requests first, most urgent class first
+
+		for ( int i=DiskAccessRequest.CLASS_WRITE;i<DiskAccessRequest.CLASS_COUNT;i++){
+
+			LinkedHashSet<DiskAccessRequestImpl>	a = arrivals[i];
+
+			if ( !a.isEmpty()){
+
+				DiskAccessRequestImpl	oldest = a.iterator().next();
+
+				if ( now - oldest.getQueueTime() > DEADLINES[i] ){
+
+					deadline_misses++;
+
+					remove( oldest );
+
+					served( oldest );
+
+					return( oldest );
+				}
+			}
+		}
+
+		TreeMap<position,DiskAccessRequestImpl>	realtime = sorted[DiskAccessRequest.CLASS_REALTIME];
+
+		if ( !realtime.isEmpty()){
+
+			DiskAccessRequestImpl	request = realtime.firstEntry().getValue();
+
+			remove( request );
+
+			return( request );
+		}
+
+		for ( int i=DiskAccessRequest.CLASS_WRITE;i<DiskAccessRequest.CLASS_COUNT;i++){
+
+			TreeMap<position,DiskAccessRequestImpl>	s = sorted[i];
+
+			if ( !s.isEmpty()){
+
+					// carry on up from where we are, wrapping back to the start when there's nothing above
+
+				Map.Entry<position,DiskAccessRequestImpl> entry = s.ceilingEntry( new position( last_file, last_offset, Long.MIN_VALUE ));
+
+				if ( entry == null ){
+
+					entry = s.firstEntry();
+				}
+
+				DiskAccessRequestImpl	request = entry.getValue();
+
+				remove( request );
+
+				served( request );
+
+				return( request );
+			}
+		}
+
+		return( null );
+	}
+
+	@Override
+	public boolean
+	remove(
+		DiskAccessRequestImpl	request )
+	{
+		int	cla = request.getRequestClass();
+
+		if ( !arrivals[cla].remove( request )){
+
+			return( false );
+		}
+
+		if ( sorted[cla].remove( getPosition( request )) == null ){
+
+				// priority changed while queued
+
+			sorted[cla].values().remove( request );
+		}
+
+		size--;
+
+		return( true );
+	}
+
+	@Override
+	public int
+	size()
+	{
+		return( size );
+	}
+
+	protected long
+	getDeadlineMisses()
+	{
+		return( deadline_misses );
+	}
+
+	private void
+	served(
+		DiskAccessRequestImpl	request )
+	{
+		last_file	= System.identityHashCode( request.getFile());
+		last_offset	= request.getOffset() + request.getSize();
+	}
+
+	private static position
+	getPosition(
+		DiskAccessRequestImpl	request )
+	{
+		if ( request.getRequestClass() == DiskAccessRequest.CLASS_REALTIME ){
+
+			return( new position( 0, request.getPriority(), request.getQueueSequence()));
+
+		}else{
+
+			return( new position( System.identityHashCode( request.getFile()), request.getOffset(), request.getQueueSequence()));
+		}
+	}
+
+	private static final class
+	position
+	{
+		final int	file;
+		final long	offset;
+		final long	seq;
+
+		position(
+			int		_file,
+			long	_offset,
+			long	_seq )
+		{
+			file	= _file;
+			offset	= _offset;
+			seq		= _seq;
+		}
+	}
+}
@@ -20,6 +20,7 @@
 package com.biglybt.core.diskmanager.cache;
 
 import java.io.File;
+import java.nio.channels.WritableByteChannel;
 
 import com.biglybt.core.torrent.TOTorrentFile;
 import com.biglybt.core.util.DirectByteBuffer;
@@ -47,6 +48,13 @@ CacheFile
 	public TOTorrentFile
 	getTorrentFile();
 
+		/**
+		 * Where the data currently lives (after any linking)
+		 */
+
+	public File
+	getLinkedFile();
+
 	public boolean
 	exists();
 
@@ -122,6 +130,20 @@ CacheFile
 
 		throws CacheFileManagerException;
 
+		/**
+		 * Sends file data directly to a channel, bypassing the cache (any dirty cached
+		 * data in the range is flushed first). Only supported for CT_LINEAR files
+		 * @return bytes transferred, can be less than requested
+		 */
+
+	public long
+	transferTo(
+		WritableByteChannel	target,
+		long				offset,
+		long				length )
+
+		throws CacheFileManagerException;
+
 	public void
 	write(
 		DirectByteBuffer	buffer,
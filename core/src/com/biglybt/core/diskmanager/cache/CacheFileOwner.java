@@ -46,4 +46,10 @@ CacheFileOwner
 
 	public int
 	getCacheMode();
+
+	public default boolean
+	isMappedReadEnabled()
+	{
+		return( false );
+	}
 }
@@ -48,6 +48,10 @@ CacheEntry
 	protected int				entry_type;
 	protected int				usage_count;
 
+		// set when the entry is added to the cache
+
+	protected CacheSegment		segment;
+
 	/**
 	 * Constructs a dummy cache entry used to search in a Set
 	 * @param offset
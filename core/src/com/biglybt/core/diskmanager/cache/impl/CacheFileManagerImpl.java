@@ -26,6 +26,7 @@ package com.biglybt.core.diskmanager.cache.impl;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.biglybt.core.config.COConfigurationManager;
 import com.biglybt.core.diskmanager.cache.*;
@@ -121,22 +122,25 @@ CacheFileManagerImpl
 
 		// access order
 
-	protected final LinkedHashMap		cache_entries = new LinkedHashMap(1024, 0.75f, true );
+		// cache entries are kept per torrent so that hits don't contend across torrents and
+		// a torrent using more than its share of the cache has its own entries evicted first
+
+	protected final Map<TOTorrent,CacheSegment>	cache_segments = new HashMap<>();
 
 	protected CacheFileManagerStatsImpl	stats;
 
 
 	protected final Map	torrent_to_cache_file_map	= new LightHashMap();
 
-	protected long				cache_bytes_written;
-	protected long				cache_bytes_read;
-	protected long				file_bytes_written;
-	protected long				file_bytes_read;
+	protected final AtomicLong		cache_bytes_written	= new AtomicLong();
+	protected final AtomicLong		cache_bytes_read	= new AtomicLong();
+	protected final AtomicLong		file_bytes_written	= new AtomicLong();
+	protected final AtomicLong		file_bytes_read		= new AtomicLong();
 
-	protected long				cache_read_count;
-	protected long				cache_write_count;
-	protected long				file_read_count;
-	protected long				file_write_count;
+	protected final AtomicLong		cache_read_count	= new AtomicLong();
+	protected final AtomicLong		cache_write_count	= new AtomicLong();
+	protected final AtomicLong		file_read_count		= new AtomicLong();
+	protected final AtomicLong		file_write_count	= new AtomicLong();
 
 	protected final AEMonitor			this_mon	= new AEMonitor( "CacheFileManager" );
 
@@ -268,6 +272,12 @@ CacheFileManagerImpl
 						{
 							return( owner.getCacheFileControlFileDir( ));
 						}
+						@Override
+						public boolean
+						isMappedReadEnabled()
+						{
+							return( owner.isMappedReadEnabled());
+						}
 					}, file, fm_type );
 
 			TOTorrentFile	tf = owner.getCacheFileTorrentFile();
@@ -379,7 +389,7 @@ CacheFileManagerImpl
 
 				}else{
 
-					oldest_entry = (CacheEntry)cache_entries.keySet().iterator().next();
+					oldest_entry = selectVictim( file );
 				}
 			}finally{
 
@@ -429,8 +439,7 @@ CacheFileManagerImpl
 					try{
 						this_mon.enter();
 
-						if (	cache_entries.size() > 0 &&
-								(CacheEntry)cache_entries.keySet().iterator().next() == oldest_entry ){
+						if ( oldest_entry.segment.contains( oldest_entry )){
 
 								// hmm, something wrong with cache as the flush should have got rid
 								// of at least the oldest entry
@@ -459,6 +468,67 @@ CacheFileManagerImpl
 		return( entry );
 	}
 
+	private static TOTorrent
+	getTorrent(
+		CacheFileWithCache		file )
+	{
+		TOTorrentFile	tf = file.getTorrentFile();
+
+		return( tf==null?null:tf.getTorrent());
+	}
+
+		/**
+		 * Picks the entry to flush out when the cache is full. A torrent that is using more than
+		 * its share (cache size / number of torrents with cached data) loses its own oldest entry,
+		 * otherwise the oldest entry of the torrents that are over their share goes. This stops
+		 * one busy torrent evicting everything else.
+		 * Called with the monitor held
+		 */
+
+	private CacheEntry
+	selectVictim(
+		CacheFileWithCache	file )
+	{
+		long	share = cache_size / Math.max( 1, cache_segments.size());
+
+		CacheSegment	own = cache_segments.get( getTorrent( file ));
+
+		if ( own != null && own.getUsed() >= share ){
+
+			CacheEntry	oldest = own.getOldest();
+
+			if ( oldest != null ){
+
+				return( oldest );
+			}
+		}
+
+		CacheEntry	victim			= null;
+		boolean		victim_over		= false;
+
+		for ( CacheSegment segment: cache_segments.values()){
+
+			CacheEntry	oldest = segment.getOldest();
+
+			if ( oldest == null ){
+
+				continue;
+			}
+
+			boolean	over = segment.getUsed() >= share;
+
+			if ( 	victim == null ||
+					( over && !victim_over ) ||
+					( over == victim_over && oldest.getLastUsed() < victim.getLastUsed())){
+
+				victim		= oldest;
+				victim_over	= over;
+			}
+		}
+
+		return( victim );
+	}
+
 	protected void
 	cacheStatsAndCleaner()
 	{
@@ -501,13 +571,9 @@ CacheFileManagerImpl
 								updated_cache_files	= null;
 							}
 
-							if ( cache_entries.size() > 0 ){
-
-								Iterator it = cache_entries.keySet().iterator();
+							for ( CacheSegment segment: cache_segments.values()){
 
-								while( it.hasNext()){
-
-									CacheEntry	entry = (CacheEntry)it.next();
+								for ( CacheEntry entry: segment.getEntries()){
 
 									// System.out.println( "oldest entry = " + ( now - entry.getLastUsed()));
 
@@ -583,7 +649,20 @@ CacheFileManagerImpl
 
 				// 	System.out.println( "Total cache space = " + cache_space_free );
 
-			cache_entries.put( new_entry, new_entry );
+			TOTorrent	torrent = getTorrent( new_entry.getFile());
+
+			CacheSegment	segment = cache_segments.get( torrent );
+
+			if ( segment == null ){
+
+				segment = new CacheSegment();
+
+				cache_segments.put( torrent, segment );
+			}
+
+			new_entry.segment = segment;
+
+			segment.add( new_entry );
 
 			if ( DEBUG ){
 
@@ -593,11 +672,14 @@ CacheFileManagerImpl
 
 				int		my_count = 0;
 
-				Iterator it = cache_entries.keySet().iterator();
+				List<CacheEntry>	all_entries = new ArrayList<>();
+
+				for ( CacheSegment seg: cache_segments.values()){
 
-				while( it.hasNext()){
+					all_entries.addAll( seg.getEntries());
+				}
 
-					CacheEntry	entry = (CacheEntry)it.next();
+				for ( CacheEntry entry: all_entries ){
 
 					total_cache_size	+= entry.getLength();
 
@@ -641,24 +723,15 @@ CacheFileManagerImpl
 
 		throws CacheFileManagerException
 	{
-		try{
-			this_mon.enter();
+			// only the entry's segment is locked, hits don't go near the manager monitor
 
-				// note that the "get" operation update the MRU in cache_entries
+		CacheSegment	segment = entry.segment;
 
-			if ( cache_entries.get( entry ) == null ){
+		if ( segment == null || !segment.touch( entry )){
 
-				Debug.out( "Cache inconsistency: entry missing on usage" );
+			Debug.out( "Cache inconsistency: entry missing on usage" );
 
-				throw( new CacheFileManagerException( null, "Cache inconsistency: entry missing on usage"));
-
-			}else{
-
-				entry.used();
-			}
-		}finally{
-
-			this_mon.exit();
+			throw( new CacheFileManagerException( null, "Cache inconsistency: entry missing on usage"));
 		}
 	}
 
@@ -675,13 +748,20 @@ CacheFileManagerImpl
 
 			cache_space_free	+= entry.getLength();
 
-			if ( cache_entries.remove( entry ) == null ){
+			CacheSegment	segment = entry.segment;
+
+			if ( segment == null || !segment.remove( entry )){
 
 				Debug.out( "Cache inconsistency: entry missing on removal" );
 
 				throw( new CacheFileManagerException( null, "Cache inconsistency: entry missing on removal"));
 			}
 
+			if ( segment.isEmpty()){
+
+				cache_segments.values().remove( segment );
+			}
+
 			/*
 			if ( 	entry.getType() == CacheEntry.CT_READ_AHEAD ){
 
@@ -726,115 +806,84 @@ CacheFileManagerImpl
 	cacheBytesWritten(
 		long		num )
 	{
-		try{
-			this_mon.enter();
-
-			cache_bytes_written	+= num;
-
-			cache_write_count++;
+		cache_bytes_written.addAndGet( num );
 
-		}finally{
-
-			this_mon.exit();
-		}
+		cache_write_count.incrementAndGet();
 	}
 
 	protected void
 	cacheBytesRead(
 		int		num )
 	{
-		try{
-			this_mon.enter();
-
-			cache_bytes_read	+= num;
-
-			cache_read_count++;
-
-		}finally{
+		cache_bytes_read.addAndGet( num );
 
-			this_mon.exit();
-		}
+		cache_read_count.incrementAndGet();
 	}
 
 	protected void
 	fileBytesWritten(
 		long	num )
 	{
-		try{
-			this_mon.enter();
-
-			file_bytes_written	+= num;
+		file_bytes_written.addAndGet( num );
 
-			file_write_count++;
-
-		}finally{
-
-			this_mon.exit();
-		}
+		file_write_count.incrementAndGet();
 	}
 
 	protected void
 	fileBytesRead(
 		int		num )
 	{
-		try{
-			this_mon.enter();
-
-			file_bytes_read	+= num;
-
-			file_read_count++;
-		}finally{
+		file_bytes_read.addAndGet( num );
 
-			this_mon.exit();
-		}
+		file_read_count.incrementAndGet();
 	}
 
 	protected long
 	getBytesWrittenToCache()
 	{
-		return( cache_bytes_written );
+		return( cache_bytes_written.get());
 	}
 
 	protected long
 	getBytesWrittenToFile()
 	{
-		return( file_bytes_written );
+		return( file_bytes_written.get());
 	}
 
 	protected long
 	getBytesReadFromCache()
 	{
-		return( cache_bytes_read );
+		return( cache_bytes_read.get());
 	}
 
 	protected long
 	getBytesReadFromFile()
 	{
-		return( file_bytes_read );
+		return( file_bytes_read.get());
 	}
 
 	public long
 	getCacheReadCount()
 	{
-		return( cache_read_count );
+		return( cache_read_count.get());
 	}
 
 	public long
 	getCacheWriteCount()
 	{
-		return( cache_write_count );
+		return( cache_write_count.get());
 	}
 
 	public long
 	getFileReadCount()
 	{
-		return( file_read_count );
+		return( file_read_count.get());
 	}
 
 	public long
 	getFileWriteCount()
 	{
-		return( file_write_count );
+		return( file_write_count.get());
 	}
 
 	protected void
@@ -975,15 +1024,22 @@ CacheFileManagerImpl
 			try{
 				this_mon.enter();
 
-				it = new ArrayList( cache_entries.keySet()).iterator();
+				List<CacheEntry>	all_entries = new ArrayList<>();
+
+				for ( CacheSegment segment: cache_segments.values()){
+
+					all_entries.addAll( segment.getEntries());
+				}
+
+				it = all_entries.iterator();
+
+				writer.println( "Entries = " + all_entries.size() + ", torrents = " + cache_segments.size());
 
 			}finally{
 
 				this_mon.exit();
 			}
 
-			writer.println( "Entries = " + cache_entries.size());
-
 			Set	files = new HashSet();
 
 			while( it.hasNext()){
@@ -25,6 +25,7 @@ package com.biglybt.core.diskmanager.cache.impl;
  */
 
 import java.io.File;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 
 import com.biglybt.core.config.COConfigurationManager;
@@ -182,6 +183,13 @@ CacheFileWithCache
 		return( torrent_file );
 	}
 
+	@Override
+	public File
+	getLinkedFile()
+	{
+		return( file.getLinkedFile());
+	}
+
 	protected void
 	updateStats()
 	{
@@ -1618,6 +1626,36 @@ CacheFileWithCache
 		readCache( buffer, position, false, !read_cache );
 	}
 
+	@Override
+	public long
+	transferTo(
+		WritableByteChannel	target,
+		long				position,
+		long				length )
+
+		throws CacheFileManagerException
+	{
+			// data still in the write cache isn't on disk yet
+
+		flushCache( position, length, false, -1, 0, -1 );
+
+		try{
+			long	written = getFMFile().transferTo( target, position, length );
+
+			manager.fileBytesRead((int)written );
+
+			bytes_read += written;
+
+			return( written );
+
+		}catch( FMFileManagerException e ){
+
+			manager.rethrow(this,e);
+
+			return( 0 );
+		}
+	}
+
 	@Override
 	public void
 	write(
@@ -25,6 +25,7 @@ package com.biglybt.core.diskmanager.cache.impl;
  */
 
 import java.io.File;
+import java.nio.channels.WritableByteChannel;
 
 import com.biglybt.core.diskmanager.cache.CacheFile;
 import com.biglybt.core.diskmanager.cache.CacheFileManagerException;
@@ -64,6 +65,13 @@ CacheFileWithoutCache
 		return( torrent_file );
 	}
 
+	@Override
+	public File
+	getLinkedFile()
+	{
+		return( file.getLinkedFile());
+	}
+
 	@Override
 	public boolean
 	exists()
@@ -267,6 +275,32 @@ CacheFileWithoutCache
 		}
 	}
 
+	@Override
+	public long
+	transferTo(
+		WritableByteChannel	target,
+		long				position,
+		long				length )
+
+		throws CacheFileManagerException
+	{
+		try{
+			long	written = file.transferTo( target, position, length );
+
+			manager.fileBytesRead((int)written );
+
+			bytes_read += written;
+
+			return( written );
+
+		}catch( FMFileManagerException e ){
+
+			manager.rethrow(this,e);
+
+			return( 0 );
+		}
+	}
+
 	@Override
 	public void
 	write(
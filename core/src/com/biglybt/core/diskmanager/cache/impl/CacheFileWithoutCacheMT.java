@@ -21,6 +21,7 @@
 package com.biglybt.core.diskmanager.cache.impl;
 
 import java.io.File;
+import java.nio.channels.WritableByteChannel;
 
 import com.biglybt.core.diskmanager.cache.CacheFile;
 import com.biglybt.core.diskmanager.cache.CacheFileManagerException;
@@ -71,6 +72,13 @@ CacheFileWithoutCacheMT
 		return( torrent_file );
 	}
 
+	@Override
+	public File
+	getLinkedFile()
+	{
+		return( base_file.getLinkedFile());
+	}
+
 	@Override
 	public boolean
 	exists()
@@ -528,6 +536,40 @@ CacheFileWithoutCacheMT
 		}
 	}
 
+	@Override
+	public long
+	transferTo(
+		WritableByteChannel	target,
+		long				position,
+		long				length )
+
+		throws CacheFileManagerException
+	{
+		FMFile file = null;
+
+		try{
+			file	= getFile();
+
+			long	written = file.transferTo( target, position, length );
+
+			manager.fileBytesRead((int)written );
+
+			bytes_read += written;
+
+			return( written );
+
+		}catch( FMFileManagerException e ){
+
+			manager.rethrow(this,e);
+
+			return( 0 );
+
+		}finally{
+
+			releaseFile( file );
+		}
+	}
+
 	@Override
 	public void
 	write(
@@ -0,0 +1,114 @@
+/*
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.biglybt.core.diskmanager.cache.impl;
+
+import java.util.*;
+
+/**
+ * The cache entries of one torrent (or of files without a torrent) in LRU order. Each
+ * segment has its own lock so that cache hits on different torrents don't contend, and
+ * the manager can pick eviction victims per torrent to enforce a fair share of the cache.
+ * <p/>
+ * The segment lock is always taken last, never while calling out.
+ */
+
+class
+CacheSegment
+{
+	private final LinkedHashMap<CacheEntry,CacheEntry>	entries = new LinkedHashMap<>(64, 0.75f, true );
+
+	private long	used;
+
+	synchronized void
+	add(
+		CacheEntry		entry )
+	{
+		entries.put( entry, entry );
+
+		used += entry.getLength();
+	}
+
+		/**
+		 * @return false if the entry isn't in this segment
+		 */
+
+	synchronized boolean
+	touch(
+		CacheEntry		entry )
+	{
+			// note that the "get" operation updates the MRU order
+
+		if ( entries.get( entry ) == null ){
+
+			return( false );
+		}
+
+		entry.used();
+
+		return( true );
+	}
+
+	synchronized boolean
+	remove(
+		CacheEntry		entry )
+	{
+		if ( entries.remove( entry ) == null ){
+
+			return( false );
+		}
+
+		used -= entry.getLength();
+
+		return( true );
+	}
+
+	synchronized boolean
+	contains(
+		CacheEntry		entry )
+	{
+		return( entries.containsKey( entry ));
+	}
+
+	synchronized CacheEntry
+	getOldest()
+	{
+		if ( entries.isEmpty()){
+
+			return( null );
+		}
+
+		return( entries.keySet().iterator().next());
+	}
+
+	synchronized long
+	getUsed()
+	{
+		return( used );
+	}
+
+	synchronized boolean
+	isEmpty()
+	{
+		return( entries.isEmpty());
+	}
+
+	synchronized List<CacheEntry>
+	getEntries()
+	{
+		return( new ArrayList<>( entries.keySet()));
+	}
+}
@@ -26,6 +26,7 @@ package com.biglybt.core.diskmanager.file;
  */
 
 import java.io.File;
+import java.nio.channels.WritableByteChannel;
 
 import com.biglybt.core.util.DirectByteBuffer;
 import com.biglybt.core.util.FileUtil;
@@ -51,6 +52,9 @@ FMFile
 	public FMFileOwner
 	getOwner();
 
+	public File
+	getLinkedFile();
+
 	public void
 	moveFile(
 		File						new_file,
@@ -120,6 +124,21 @@ FMFile
 
 		throws FMFileManagerException;
 
+		/**
+		 * Sends file data straight to a channel (sendfile) without it passing through the JVM.
+		 * Only supported for linear storage, others throw. May transfer less than requested
+		 * if the target can't accept more
+		 * @return bytes transferred
+		 */
+
+	public long
+	transferTo(
+		WritableByteChannel	target,
+		long				offset,
+		long				length )
+
+		throws FMFileManagerException;
+
 	public void
 	write(
 		DirectByteBuffer	buffer,
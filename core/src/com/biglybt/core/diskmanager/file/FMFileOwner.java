@@ -39,4 +39,14 @@ FMFileOwner
 
 	public File
 	getControlFileDir( );
+
+		/**
+		 * Whether reads of the file, while open read-only, may be served from memory mappings
+		 */
+
+	public default boolean
+	isMappedReadEnabled()
+	{
+		return( false );
+	}
 }
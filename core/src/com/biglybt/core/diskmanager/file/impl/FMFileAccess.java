@@ -32,6 +32,11 @@ FMFileAccess
 
 		throws FMFileManagerException;
 
+	public void
+	aboutToClose()
+
+		throws FMFileManagerException;
+
 	public long
 	getLength(
 		RandomAccessFile		raf )
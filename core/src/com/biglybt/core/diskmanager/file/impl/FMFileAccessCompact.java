@@ -164,6 +164,15 @@ FMFileAccessCompact
 		delegate.aboutToOpen();
 	}
 
+	@Override
+	public void
+	aboutToClose()
+
+		throws FMFileManagerException
+	{
+		delegate.aboutToClose();
+	}
+
 	@Override
 	public long
 	getLength(
@@ -80,7 +80,7 @@ FMFileAccessController
 
 			if ( _target_type == FMFile.FT_LINEAR ){
 
-				file_access = new FMFileAccessLinear( owner );
+				file_access = createLinearAccess();
 
 			}else{
 
@@ -121,7 +121,7 @@ FMFileAccessController
 
 			if ( type == FMFile.FT_LINEAR ){
 
-				file_access = new FMFileAccessLinear( owner );
+				file_access = createLinearAccess();
 
 			}else if ( type == FMFile.FT_COMPACT ){
 
@@ -146,6 +146,19 @@ FMFileAccessController
 		}
 	}
 
+	private FMFileAccess
+	createLinearAccess()
+	{
+		FMFileAccessLinear	linear = new FMFileAccessLinear( owner );
+
+		if ( owner.getOwner().isMappedReadEnabled()){
+
+			return( new FMFileAccessMapped( linear ));
+		}
+
+		return( linear );
+	}
+
 	protected void
 	convert(
 		int					target_type )
@@ -182,7 +195,7 @@ FMFileAccessController
 
 			if ( target_type == FMFile.FT_LINEAR ){
 
-				target_access = new FMFileAccessLinear( owner );
+				target_access = createLinearAccess();
 
 			}else{
 
@@ -318,7 +331,7 @@ FMFileAccessController
 						// handling this (marking file requiring recheck)
 
 					type		= FMFile.FT_LINEAR;
-					file_access = new FMFileAccessLinear( owner );
+					file_access = createLinearAccess();
 				}
 
 				if ( type == FMFile.FT_LINEAR ){
@@ -400,6 +413,15 @@ FMFileAccessController
 		file_access.aboutToOpen();
 	}
 
+	@Override
+	public void
+	aboutToClose()
+
+		throws FMFileManagerException
+	{
+		file_access.aboutToClose();
+	}
+
 	@Override
 	public long
 	getLength(
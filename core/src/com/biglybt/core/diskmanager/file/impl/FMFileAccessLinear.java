@@ -62,6 +62,14 @@ FMFileAccessLinear
 	{
 	}
 
+	@Override
+	public void
+	aboutToClose()
+
+		throws FMFileManagerException
+	{
+	}
+
 	@Override
 	public long
 	getLength(
@@ -0,0 +1,583 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ */
+
+package com.biglybt.core.diskmanager.file.impl;
+
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.biglybt.core.config.COConfigurationManager;
+import com.biglybt.core.config.ParameterListener;
+import com.biglybt.core.diskmanager.file.FMFile;
+import com.biglybt.core.diskmanager.file.FMFileManagerException;
+import com.biglybt.core.util.*;
+
+/**
+ * Linear access that serves reads from memory mapped windows of the file while it is open
+ * read-only (i.e. complete and seeding) so that reads the page cache can satisfy don't cost
+ * a system call each. Windows are mapped on demand and unmapped least-recently-used first
+ * when the mapped total across all files exceeds the configured address space budget.
+ * <p/>
+ * Writes, reads beyond the mapped data and anything while the file is open for writing
+ * go to the linear access as normal.
+ */
+
+public class
+FMFileAccessMapped
+	implements FMFileAccess
+{
+	private static final long	WINDOW_SIZE	= 16*1024*1024;
+
+	private static final AEMonitor			class_mon		= new AEMonitor( "FMFileAccessMapped" );
+
+	private static final List<mappedWindow>	mapped_windows	= new ArrayList<>();
+
+	private static long				mapped_bytes;
+	private static volatile long	budget;
+
+	private static final Object		cleaner_target;
+	private static final Method		cleaner_method;
+	private static final Method		cleaner_clean;
+
+	static{
+		COConfigurationManager.addAndFireParameterListener(
+			"diskmanager.perf.read.mmap.budget.mb",
+			new ParameterListener()
+			{
+				@Override
+				public void
+				parameterChanged(
+					String		name )
+				{
+					long	mb = COConfigurationManager.getLongParameter( name );
+
+						// 32 bit JVMs don't have the address space to spare
+
+					if ( !Constants.is64Bit ){
+
+						mb = Math.min( mb, 128 );
+					}
+
+					budget = Math.max( 0, mb )*1024*1024;
+				}
+			});
+
+			// mappings are otherwise only released when the buffer is garbage collected, which
+			// doesn't bound the address space used and leaves the file locked on Windows
+
+		Object	target	= null;
+		Method	method	= null;
+		Method	clean	= null;
+
+		try{
+			Class<?>	unsafe_class = Class.forName( "sun.misc.Unsafe" );
+
+			method = unsafe_class.getMethod( "invokeCleaner", ByteBuffer.class );
+
+			Field	f = unsafe_class.getDeclaredField( "theUnsafe" );
+
+			f.setAccessible( true );
+
+			target = f.get( null );
+
+		}catch( Throwable e ){
+
+				// pre Java 9
+
+			target	= null;
+			method	= null;
+
+			try{
+				method	= Class.forName( "sun.nio.ch.DirectBuffer" ).getMethod( "cleaner" );
+				clean	= Class.forName( "sun.misc.Cleaner" ).getMethod( "clean" );
+
+			}catch( Throwable f ){
+
+				method	= null;
+				clean	= null;
+			}
+		}
+
+		cleaner_target	= target;
+		cleaner_method	= method;
+		cleaner_clean	= clean;
+	}
+
+	private static void
+	unmap(
+		MappedByteBuffer	buffer )
+	{
+		try{
+			if ( cleaner_target != null ){
+
+				cleaner_method.invoke( cleaner_target, buffer );
+
+			}else if ( cleaner_method != null ){
+
+				Object cleaner = cleaner_method.invoke( buffer );
+
+				if ( cleaner != null ){
+
+					cleaner_clean.invoke( cleaner );
+				}
+			}
+		}catch( Throwable e ){
+
+				// left for the garbage collector
+
+			Debug.printStackTrace( e );
+		}
+	}
+
+	private final FMFileAccessLinear			delegate;
+
+		// only touched with the file's monitor held, as are all FMFileAccess operations
+
+	private final Map<Long,mappedWindow>		windows = new HashMap<>();
+
+	protected
+	FMFileAccessMapped(
+		FMFileAccessLinear		_delegate )
+	{
+		delegate	= _delegate;
+	}
+
+	@Override
+	public void
+	aboutToOpen()
+
+		throws FMFileManagerException
+	{
+		unmapAll();
+
+		delegate.aboutToOpen();
+	}
+
+	@Override
+	public void
+	aboutToClose()
+
+		throws FMFileManagerException
+	{
+		unmapAll();
+
+		delegate.aboutToClose();
+	}
+
+	@Override
+	public long
+	getLength(
+		RandomAccessFile		raf )
+
+		throws FMFileManagerException
+	{
+		return( delegate.getLength( raf ));
+	}
+
+	@Override
+	public void
+	setLength(
+		RandomAccessFile		raf,
+		long					length )
+
+		throws FMFileManagerException
+	{
+			// accessing a mapping beyond the end of a truncated file faults
+
+		unmapAll();
+
+		delegate.setLength( raf, length );
+	}
+
+	@Override
+	public void
+	read(
+		RandomAccessFile	raf,
+		DirectByteBuffer[]	buffers,
+		long				offset )
+
+		throws FMFileManagerException
+	{
+		if ( raf == null || budget == 0 || getFile().getAccessMode() != FMFile.FM_READ ){
+
+			delegate.read( raf, buffers, offset );
+
+			return;
+		}
+
+		FileChannel fc = raf.getChannel();
+
+		if ( !fc.isOpen()){
+
+			delegate.read( raf, buffers, offset );
+
+			return;
+		}
+
+		AEThread2.setDebug( getFile());
+
+		int[]	original_positions = new int[buffers.length];
+
+		for ( int i=0;i<buffers.length;i++){
+
+			original_positions[i] = buffers[i].position( DirectByteBuffer.SS_FILE );
+		}
+
+		boolean	mapped = true;
+
+		try{
+			long	position = offset;
+
+			for ( int i=0;i<buffers.length && mapped;i++){
+
+				ByteBuffer	bb = buffers[i].getBuffer( DirectByteBuffer.SS_FILE );
+
+				while( bb.hasRemaining()){
+
+					int	done = readWindow( fc, bb, position );
+
+					if ( done <= 0 ){
+
+						mapped = false;
+
+						break;
+					}
+
+					position += done;
+				}
+			}
+		}catch( Throwable e ){
+
+				// mapping failed or the file changed underneath us
+
+			Debug.out( "Mapped read failed: " + getString(), e );
+
+			unmapAll();
+
+			mapped = false;
+		}
+
+		if ( !mapped ){
+
+				// past the end of the file or unmappable, leave the linear access to deal with it
+
+			for ( int i=0;i<buffers.length;i++){
+
+				buffers[i].position( DirectByteBuffer.SS_FILE, original_positions[i] );
+			}
+
+			delegate.read( raf, buffers, offset );
+		}
+	}
+
+	private int
+	readWindow(
+		FileChannel		fc,
+		ByteBuffer		target,
+		long			position )
+
+		throws Exception
+	{
+		long	index	= position / WINDOW_SIZE;
+		int		offset	= (int)( position - index*WINDOW_SIZE );
+
+		mappedWindow	window = windows.get( index );
+
+		if ( window != null ){
+
+			int	done = window.copy( target, offset );
+
+			if ( done > 0 ){
+
+				return( done );
+			}
+		}
+
+			// not mapped, evicted, or the file has grown since it was mapped
+
+		window = map( fc, index, offset );
+
+		if ( window == null ){
+
+			return( -1 );
+		}
+
+		return( window.copy( target, offset ));
+	}
+
+	private mappedWindow
+	map(
+		FileChannel		fc,
+		long			index,
+		int				offset )
+
+		throws Exception
+	{
+		long	start	= index*WINDOW_SIZE;
+		long	length	= Math.min( WINDOW_SIZE, fc.size() - start );
+
+		if ( length <= offset ){
+
+			return( null );
+		}
+
+		MappedByteBuffer	buffer = fc.map( MapMode.READ_ONLY, start, length );
+
+		mappedWindow	window = windows.get( index );
+
+		if ( window == null ){
+
+			window = new mappedWindow();
+
+			windows.put( index, window );
+		}
+
+		MappedByteBuffer	old;
+
+		List<MappedByteBuffer>	evicted = null;
+
+		try{
+			class_mon.enter();
+
+			old = window.setBuffer( buffer );
+
+			mapped_bytes += length - ( old==null?0:old.capacity());
+
+			if ( !window.listed ){
+
+				window.listed = true;
+
+				mapped_windows.add( window );
+			}
+
+			while( mapped_bytes > budget && mapped_windows.size() > 1 ){
+
+				mappedWindow	lru = null;
+
+				for ( mappedWindow w: mapped_windows ){
+
+					if ( w != window && ( lru == null || w.last_used < lru.last_used )){
+
+						lru = w;
+					}
+				}
+
+				MappedByteBuffer	b = lru.setBuffer( null );
+
+				lru.listed = false;
+
+				mapped_windows.remove( lru );
+
+				if ( b != null ){
+
+					mapped_bytes -= b.capacity();
+
+					if ( evicted == null ){
+
+						evicted = new ArrayList<>();
+					}
+
+					evicted.add( b );
+				}
+			}
+		}finally{
+
+			class_mon.exit();
+		}
+
+		if ( old != null ){
+
+			unmap( old );
+		}
+
+		if ( evicted != null ){
+
+			for ( MappedByteBuffer b: evicted ){
+
+				unmap( b );
+			}
+		}
+
+		return( window );
+	}
+
+	private void
+	unmapAll()
+	{
+		if ( windows.isEmpty()){
+
+			return;
+		}
+
+		List<MappedByteBuffer>	released = new ArrayList<>();
+
+		try{
+			class_mon.enter();
+
+			for ( mappedWindow window: windows.values()){
+
+				MappedByteBuffer	b = window.setBuffer( null );
+
+				if ( window.listed ){
+
+					window.listed = false;
+
+					mapped_windows.remove( window );
+				}
+
+				if ( b != null ){
+
+					mapped_bytes -= b.capacity();
+
+					released.add( b );
+				}
+			}
+		}finally{
+
+			class_mon.exit();
+		}
+
+		windows.clear();
+
+		for ( MappedByteBuffer b: released ){
+
+			unmap( b );
+		}
+	}
+
+	@Override
+	public void
+	write(
+		RandomAccessFile		raf,
+		DirectByteBuffer[]		buffers,
+		long					position )
+
+		throws FMFileManagerException
+	{
+			// shouldn't be mapped as writing requires a reopen, but be sure
+
+		unmapAll();
+
+		delegate.write( raf, buffers, position );
+	}
+
+	@Override
+	public void
+	flush()
+
+		throws FMFileManagerException
+	{
+		delegate.flush();
+	}
+
+	@Override
+	public boolean
+	isPieceCompleteProcessingNeeded(
+		int					piece_number )
+	{
+		return( delegate.isPieceCompleteProcessingNeeded( piece_number ));
+	}
+
+	@Override
+	public void
+	setPieceComplete(
+		RandomAccessFile	raf,
+		int					piece_number,
+		DirectByteBuffer	piece_data )
+
+		throws FMFileManagerException
+	{
+		delegate.setPieceComplete( raf, piece_number, piece_data );
+	}
+
+	@Override
+	public FMFileImpl
+	getFile()
+	{
+		return( delegate.getFile());
+	}
+
+	@Override
+	public String
+	getString()
+	{
+		return( "mapped(" + windows.size() + "):" + delegate.getString());
+	}
+
+		/**
+		 * The buffer can be released by another file's eviction at any time, so is only
+		 * accessed with the window's lock held. Lock order is class_mon then window.
+		 */
+
+	private static final class
+	mappedWindow
+	{
+		private MappedByteBuffer	buffer;
+
+		private volatile long		last_used;
+
+		private boolean				listed;		// class_mon
+
+		synchronized MappedByteBuffer
+		setBuffer(
+			MappedByteBuffer	_buffer )
+		{
+			MappedByteBuffer	old = buffer;
+
+			buffer		= _buffer;
+			last_used	= SystemTime.getMonotonousTime();
+
+			return( old );
+		}
+
+		synchronized int
+		copy(
+			ByteBuffer		target,
+			int				offset )
+		{
+			if ( buffer == null ){
+
+				return( -1 );
+			}
+
+			int	len = Math.min( buffer.capacity() - offset, target.remaining());
+
+			if ( len <= 0 ){
+
+				return( -1 );
+			}
+
+			ByteBuffer	slice = buffer.duplicate();
+
+			slice.limit( offset + len );
+			slice.position( offset );
+
+			target.put( slice );
+
+			last_used = SystemTime.getMonotonousTime();
+
+			return( len );
+		}
+	}
+}
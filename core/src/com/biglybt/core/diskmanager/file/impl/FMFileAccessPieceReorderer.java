@@ -194,6 +194,15 @@ FMFileAccessPieceReorderer
 		}
 	}
 
+	@Override
+	public void
+	aboutToClose()
+
+		throws FMFileManagerException
+	{
+		delegate.aboutToClose();
+	}
+
 	@Override
 	public long
 	getLength(
@@ -28,6 +28,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 
 import com.biglybt.core.config.COConfigurationManager;
@@ -284,7 +286,8 @@ FMFileImpl
 		access_mode	= mode;
 	}
 
-	protected File
+	@Override
+	public File
 	getLinkedFile()
 	{
 		return( linked_file );
@@ -667,6 +670,14 @@ FMFileImpl
 			}
 		}else{
 
+			try{
+				file_access.aboutToClose();
+
+			}catch( FMFileManagerException e ){
+
+				Debug.printStackTrace( e );
+			}
+
 			try{
 				raf.close();
 
@@ -773,6 +784,50 @@ FMFileImpl
 		}
 	}
 
+	protected long
+	transferToSupport(
+		WritableByteChannel	target,
+		long				offset,
+		long				length )
+
+		throws FMFileManagerException
+	{
+		if ( getStorageType() != FT_LINEAR ){
+
+			throw( new FMFileManagerException( "transferTo: not supported for storage type " + getStorageType()));
+		}
+
+		if ( raf == null ){
+
+			throw( new FMFileManagerException( "transferTo: raf is null" ));
+		}
+
+		AEThread2.setDebug( this );
+
+		try{
+			FileChannel	fc = raf.getChannel();
+
+			long	written = fc.transferTo( offset, length, target );
+
+			if ( written == 0 && length > 0 && offset >= fc.size()){
+
+					// transferTo returns 0 rather than failing past EOF, don't let the caller spin
+
+				throw( new FMFileManagerException( "transferTo: offset " + offset + " beyond end of file" ));
+			}
+
+			return( written );
+
+		}catch( FMFileManagerException e ){
+
+			throw( e );
+
+		}catch( Throwable e ){
+
+			throw( new FMFileManagerException( "transferTo fails", e ));
+		}
+	}
+
 	protected void
 	writeSupport(
 		DirectByteBuffer		buffer,
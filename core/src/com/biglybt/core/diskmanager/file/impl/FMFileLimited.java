@@ -28,6 +28,7 @@ package com.biglybt.core.diskmanager.file.impl;
 //import java.nio.ByteBuffer;
 
 import java.io.File;
+import java.nio.channels.WritableByteChannel;
 
 import com.biglybt.core.diskmanager.file.FMFile;
 import com.biglybt.core.diskmanager.file.FMFileManagerException;
@@ -251,6 +252,28 @@ FMFileLimited
 		}
 	}
 
+	@Override
+	public long
+	transferTo(
+		WritableByteChannel	target,
+		long				offset,
+		long				length )
+
+		throws FMFileManagerException
+	{
+		try{
+			this_mon.enter();
+
+			ensureOpen( "FMFileLimited:transferTo" );
+
+			return( transferToSupport( target, offset, length ));
+
+		}finally{
+
+			this_mon.exit();
+		}
+	}
+
 	@Override
 	public void
 	read(
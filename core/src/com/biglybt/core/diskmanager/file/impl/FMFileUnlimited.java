@@ -26,6 +26,7 @@ package com.biglybt.core.diskmanager.file.impl;
  */
 
 import java.io.File;
+import java.nio.channels.WritableByteChannel;
 
 import com.biglybt.core.diskmanager.file.FMFile;
 import com.biglybt.core.diskmanager.file.FMFileManagerException;
@@ -223,6 +224,28 @@ FMFileUnlimited
 		}
 	}
 
+	@Override
+	public long
+	transferTo(
+		WritableByteChannel	target,
+		long				offset,
+		long				length )
+
+		throws FMFileManagerException
+	{
+		try{
+			this_mon.enter();
+
+			ensureOpen( "FMFileUnlimited:transferTo" );
+
+			return( transferToSupport( target, offset, length ));
+
+		}finally{
+
+			this_mon.exit();
+		}
+	}
+
 
 	@Override
 	public void
@@ -131,6 +131,7 @@ DownloadManagerState
 	public static final String	PARAM_UPLOAD_PRIORITY					= "up.pri";
 	public static final String	PARAM_MIN_SHARE_RATIO					= "sr.min";		// in thousandths - 1000 = sr of 1.0
 	public static final String	PARAM_MAX_SHARE_RATIO					= "sr.max";		// in thousandths - 1000 = sr of 1.0
+	public static final String	PARAM_MMAP_READS						= "file.mmap.reads";	// serve seeding reads from memory mapped files
 
 	public static final int DEFAULT_MAX_UPLOADS		= 4;
 	public static final int MIN_MAX_UPLOADS			= 2;
@@ -155,6 +156,7 @@ DownloadManagerState
 		{ PARAM_UPLOAD_PRIORITY, 					new Integer( DEFAULT_UPLOAD_PRIORITY ) },
 		{ PARAM_MIN_SHARE_RATIO, 					new Integer( 0 ) },
 		{ PARAM_MAX_SHARE_RATIO, 					new Integer( 0 ) },
+		{ PARAM_MMAP_READS,							Boolean.FALSE },
 	};
 
 	public static final int	TRANSIENT_FLAG_FRIEND_FP	= 0x00000001;
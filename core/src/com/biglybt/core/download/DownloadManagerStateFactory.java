@@ -20,6 +20,7 @@
 package com.biglybt.core.download;
 
 import java.io.File;
+import java.util.List;
 
 import com.biglybt.core.config.COConfigurationManager;
 import com.biglybt.core.config.ParameterListener;
@@ -70,6 +71,20 @@ DownloadManagerStateFactory
 		DownloadManagerStateImpl.loadGlobalStateCache();
 	}
 
+	public static int
+	prefetchStates(
+		List<byte[]>	hashes,
+		int				threads )
+	{
+		return( DownloadManagerStateImpl.prefetchStates( hashes, threads ));
+	}
+
+	public static int
+	getPrefetchedStateCount()
+	{
+		return( DownloadManagerStateImpl.getPrefetchedStateCount());
+	}
+
 	public static void
 	saveGlobalStateCache()
 	{
@@ -40,6 +40,7 @@ import com.biglybt.core.logging.Logger;
 import com.biglybt.core.networkmanager.LimitedRateGroup;
 import com.biglybt.core.networkmanager.NetworkConnection;
 import com.biglybt.core.networkmanager.NetworkManager;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.impl.tcp.TCPNetworkManager;
 import com.biglybt.core.peer.*;
 import com.biglybt.core.peermanager.PeerManager;
@@ -1661,6 +1662,17 @@ DownloadManagerController
 		getDiskManager().enqueueReadRequest( request, listener );
 	}
 
+	@Override
+	public OutgoingFileRegion
+	createFileRegion(
+		PEPeer							peer,
+		DiskManagerReadRequest 			request )
+	{
+		DiskManager	dm = getDiskManager();
+
+		return( dm==null?null:dm.createFileRegion( request ));
+	}
+
 	@Override
 	public boolean
 	activateRequest(
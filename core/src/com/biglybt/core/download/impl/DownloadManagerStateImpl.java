@@ -240,6 +240,8 @@ DownloadManagerStateImpl
 	private static final Map					global_state_cache			= new HashMap();
 	private static final ArrayList			global_state_cache_wrappers	= new ArrayList();
 
+	private static volatile DownloadManagerStatePrefetcher	state_prefetcher;
+
 	private static final CopyOnWriteMap<String,CopyOnWriteList<DownloadManagerStateAttributeListener>> global_listeners_read_map_cow  = new CopyOnWriteMap<>();
 	private static final CopyOnWriteMap<String,CopyOnWriteList<DownloadManagerStateAttributeListener>> global_listeners_write_map_cow = new CopyOnWriteMap<>();
 
@@ -399,7 +401,17 @@ DownloadManagerStateImpl
 
 					}else{
 
-						saved_state = TorrentUtils.readDelegateFromFile( saved_file, discard_pieces );
+						DownloadManagerStatePrefetcher prefetcher = state_prefetcher;
+
+						if ( prefetcher != null ){
+
+							saved_state = prefetcher.take( torrent_hash );
+						}
+
+						if ( saved_state == null ){
+
+							saved_state = TorrentUtils.readDelegateFromFile( saved_file, discard_pieces );
+						}
 					}
 
 				}catch( Throwable e ){
@@ -619,9 +631,56 @@ DownloadManagerStateImpl
 		}
 	}
 
+		/**
+		 * Starts reading the state files of the given downloads, in the order that they'll
+		 * be loaded, on background threads. Those covered by the global state cache are skipped.
+		 * Prefetching stops when the global state cache is discarded.
+		 * @return number of state files queued for reading
+		 */
+
+	public static int
+	prefetchStates(
+		List<byte[]>	hashes,
+		int				threads )
+	{
+		Set<HashWrapper> cached = new HashSet<>( global_state_cache.keySet());
+
+			// getDownloadState discards pieces once there are more than 32 states
+
+		DownloadManagerStatePrefetcher prefetcher = new DownloadManagerStatePrefetcher( hashes, 33, cached );
+
+		int	queued = prefetcher.getQueuedCount();
+
+		if ( queued > 0 ){
+
+			state_prefetcher = prefetcher;
+
+			prefetcher.start( threads );
+		}
+
+		return( queued );
+	}
+
+	public static int
+	getPrefetchedStateCount()
+	{
+		DownloadManagerStatePrefetcher prefetcher = state_prefetcher;
+
+		return( prefetcher==null?0:prefetcher.getPrefetchedCount());
+	}
+
 	public static void
 	discardGlobalStateCache()
 	{
+		DownloadManagerStatePrefetcher prefetcher = state_prefetcher;
+
+		if ( prefetcher != null ){
+
+			prefetcher.cancel();
+
+			state_prefetcher = null;
+		}
+
 		getGlobalStateFile().delete();
 
 		for ( int i=0;i<global_state_cache_wrappers.size();i++){
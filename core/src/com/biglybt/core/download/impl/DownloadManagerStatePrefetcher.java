@@ -0,0 +1,274 @@
+/*
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.biglybt.core.download.impl;
+
+import java.io.File;
+import java.util.*;
+
+import com.biglybt.core.util.AEThread2;
+import com.biglybt.core.util.HashWrapper;
+import com.biglybt.core.util.TorrentUtils;
+
+/**
+ * Reads download state files on a small pool of threads ahead of the (sequential)
+ * creation of download managers at startup, so that their decoding overlaps
+ * rather than happening one after another.
+ * <p/>
+ * Readers stay at most {@link #MAX_READ_AHEAD} entries ahead of the consumer. The
+ * consumer never waits for an entry that hasn't been started - it just reads it
+ * itself - so entries that are never asked for can't stall anything.
+ */
+
+class
+DownloadManagerStatePrefetcher
+{
+	private static final int MAX_READ_AHEAD	= 256;
+
+	private static final int ST_PENDING	= 0;
+	private static final int ST_READING	= 1;
+	private static final int ST_DONE	= 2;
+	private static final int ST_TAKEN	= 3;
+
+	private final List<Entry>				entries	= new ArrayList<>();
+	private final Map<HashWrapper,Entry>	entry_map	= new HashMap<>();
+
+	private int			next_entry;
+	private int			consumed_index;
+	private boolean		cancelled;
+
+	private int			prefetched;
+
+		/**
+		 * @param hashes		in the order they will be asked for, null entries are skipped
+		 * @param discard_from	index from which pieces are discarded after reading, as done
+		 * 						by DownloadManagerStateImpl when lots of states are loaded
+		 * @param exclude		hashes that don't need reading (e.g. already in the global state cache)
+		 */
+
+	DownloadManagerStatePrefetcher(
+		List<byte[]>		hashes,
+		int					discard_from,
+		Set<HashWrapper>	exclude )
+	{
+		for ( int i=0;i<hashes.size();i++){
+
+			byte[] hash = hashes.get(i);
+
+			if ( hash == null ){
+
+				continue;
+			}
+
+			HashWrapper hw = new HashWrapper( hash );
+
+			if ( exclude.contains( hw ) || entry_map.containsKey( hw )){
+
+				continue;
+			}
+
+			Entry entry = new Entry( i, hash, i >= discard_from );
+
+			entries.add( entry );
+
+			entry_map.put( hw, entry );
+		}
+	}
+
+	int
+	getQueuedCount()
+	{
+		return( entries.size());
+	}
+
+	synchronized int
+	getPrefetchedCount()
+	{
+		return( prefetched );
+	}
+
+	void
+	start(
+		int		threads )
+	{
+		threads = Math.min( threads, entries.size());
+
+		for ( int i=0;i<threads;i++){
+
+			new AEThread2( "DownloadManagerState:prefetch" )
+			{
+				@Override
+				public void
+				run()
+				{
+					prefetch();
+				}
+			}.start();
+		}
+	}
+
+	private void
+	prefetch()
+	{
+		while( true ){
+
+			Entry	entry;
+
+			synchronized( this ){
+
+				while( true ){
+
+					if ( cancelled || next_entry >= entries.size()){
+
+						return;
+					}
+
+					entry = entries.get( next_entry );
+
+					if ( entry.state != ST_PENDING ){
+
+						next_entry++;
+
+						continue;
+					}
+
+					if ( entry.index - consumed_index > MAX_READ_AHEAD ){
+
+						try{
+							wait();
+
+						}catch( InterruptedException e ){
+
+							return;
+						}
+
+						continue;
+					}
+
+					next_entry++;
+
+					entry.state = ST_READING;
+
+					break;
+				}
+			}
+
+			TorrentUtils.ExtendedTorrent	result = null;
+
+			try{
+				File	saved_file = DownloadManagerStateImpl.getStateFile( entry.hash );
+
+				if ( saved_file.exists()){
+
+					result = TorrentUtils.readDelegateFromFile( saved_file, entry.discard_pieces );
+				}
+			}catch( Throwable e ){
+
+					// leave it to the consumer to read again and report
+			}
+
+			synchronized( this ){
+
+				entry.result	= result;
+				entry.state		= ST_DONE;
+
+				if ( result != null ){
+
+					prefetched++;
+				}
+
+				notifyAll();
+			}
+		}
+	}
+
+		/**
+		 * @return the state read in advance or null if the caller should read it itself
+		 */
+
+	synchronized TorrentUtils.ExtendedTorrent
+	take(
+		byte[]		hash )
+	{
+		Entry entry = entry_map.remove( new HashWrapper( hash ));
+
+		if ( entry == null ){
+
+			return( null );
+		}
+
+		if ( entry.index > consumed_index ){
+
+			consumed_index = entry.index;
+
+			notifyAll();
+		}
+
+		while( entry.state == ST_READING ){
+
+			try{
+				wait();
+
+			}catch( InterruptedException e ){
+
+				return( null );
+			}
+		}
+
+		TorrentUtils.ExtendedTorrent result = entry.result;
+
+		entry.result	= null;
+		entry.state		= ST_TAKEN;
+
+		return( result );
+	}
+
+	synchronized void
+	cancel()
+	{
+		cancelled = true;
+
+		for ( Entry entry: entries ){
+
+			entry.result = null;
+		}
+
+		entry_map.clear();
+
+		notifyAll();
+	}
+
+	private static class
+	Entry
+	{
+		final int		index;
+		final byte[]	hash;
+		final boolean	discard_pieces;
+
+		int								state	= ST_PENDING;
+		TorrentUtils.ExtendedTorrent	result;
+
+		Entry(
+			int			_index,
+			byte[]		_hash,
+			boolean		_discard_pieces )
+		{
+			index			= _index;
+			hash			= _hash;
+			discard_pieces	= _discard_pieces;
+		}
+	}
+}
@@ -0,0 +1,528 @@
+/*
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details ( see the LICENSE file ).
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+package com.biglybt.core.global.impl;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+import com.biglybt.core.util.*;
+
+/**
+ * Persists the global download list. The full list is kept in a resilient config file
+ * (downloads.config) as before, but saves only append the downloads that have changed
+ * since the last save to a journal (downloads.config.journal). The journal is folded
+ * back into the config file once it grows too large.
+ * <p/>
+ * Journal records are [length][bencoded map][crc32] so that a torn write at the end
+ * of the journal is detected and ignored. The config file records the generation of
+ * the journal that belongs to it and a journal with any other generation is ignored,
+ * so a crash part way through compaction can't replay old records over newer state.
+ */
+
+class
+GlobalManagerDownloadsStore
+{
+	private static final String	KEY_DOWNLOADS		= "downloads";
+	private static final String	KEY_PAUSE_DATA		= "pause_data";
+	private static final String	KEY_JOURNAL_GEN		= "journal_gen";
+
+	private static final String	KEY_GEN				= "gen";
+	private static final String	KEY_HASH			= "h";
+	private static final String	KEY_DOWNLOAD		= "d";
+	private static final String	KEY_REMOVED			= "r";
+	private static final String	KEY_PAUSE			= "p";
+
+	private static final int	MIN_COMPACT_SIZE	= 256*1024;
+
+	private final String		file_name;
+	private final File			journal_file;
+
+	private long				generation;
+	private long				journal_size;
+	private long				base_size;
+	private boolean				compact_required	= true;
+
+		// digests of what is currently persisted, keyed by torrent hash
+
+	private final Map<HashWrapper,HashWrapper>	saved_digests	= new HashMap<>();
+	private HashWrapper							saved_pause_digest;
+
+	GlobalManagerDownloadsStore(
+		String		_file_name )
+	{
+		file_name		= _file_name;
+		journal_file	= FileUtil.getUserFile( file_name + ".journal" );
+	}
+
+		/**
+		 * @return the download list as it would have been read from the config file
+		 */
+
+	Map
+	load()
+	{
+		Map	map = FileUtil.readResilientConfigFile( file_name );
+
+		Long	l_gen = (Long)map.remove( KEY_JOURNAL_GEN );
+
+		generation = l_gen==null?0:l_gen.longValue();
+
+		List<Map>	downloads = (List<Map>)map.get( KEY_DOWNLOADS );
+
+		if ( downloads == null ){
+
+				// pre 2.0.3.0 format or nothing saved yet, the journal can't apply
+
+			return( map );
+		}
+
+		compact_required = !replayJournal( map, downloads );
+
+		if ( !compact_required ){
+
+			base_size = FileUtil.getUserFile( file_name ).length();
+
+				// baseline for working out what subsequent saves need to write
+
+			try{
+				for ( Map download: downloads ){
+
+					byte[]	hash = (byte[])download.get( "torrent_hash" );
+
+					if ( hash != null ){
+
+						saved_digests.put( new HashWrapper( hash ), digest( download ));
+					}
+				}
+
+				List	pause_data = (List)map.get( KEY_PAUSE_DATA );
+
+				saved_pause_digest = pause_data==null?null:digest( pause_data );
+
+			}catch( Throwable e ){
+
+				Debug.out( e );
+
+				compact_required = true;
+			}
+		}
+
+		return( map );
+	}
+
+		/**
+		 * Applies the journal to the downloads read from the config file
+		 * @return false if the journal was unusable and the next save should rewrite everything
+		 */
+
+	private boolean
+	replayJournal(
+		Map			map,
+		List<Map>	downloads )
+	{
+		journal_size = 0;
+
+		if ( !journal_file.exists()){
+
+			return( false );
+		}
+
+		List<Map>	records = new ArrayList<>();
+
+		long	valid_length = readJournal( records );
+
+		if ( records.isEmpty()){
+
+			return( false );
+		}
+
+		Long	journal_gen = (Long)records.get(0).get( KEY_GEN );
+
+		if ( journal_gen == null || journal_gen.longValue() != generation ){
+
+				// left over from before the last compaction
+
+			return( false );
+		}
+
+		Map<HashWrapper,Integer>	index = new HashMap<>();
+
+		for ( int i=0;i<downloads.size();i++){
+
+			byte[] hash = (byte[])downloads.get(i).get( "torrent_hash" );
+
+			if ( hash != null ){
+
+				index.put( new HashWrapper( hash ), i );
+			}
+		}
+
+		boolean	removed = false;
+
+		for ( int i=1;i<records.size();i++){
+
+			Map record = records.get(i);
+
+			if ( record.containsKey( KEY_PAUSE )){
+
+				List pause_data = (List)record.get( KEY_PAUSE );
+
+				if ( pause_data.isEmpty()){
+
+					map.remove( KEY_PAUSE_DATA );
+
+				}else{
+
+					map.put( KEY_PAUSE_DATA, pause_data );
+				}
+
+				continue;
+			}
+
+			HashWrapper	hash = new HashWrapper((byte[])record.get( KEY_HASH ));
+
+			Integer	pos = index.get( hash );
+
+			if ( record.containsKey( KEY_REMOVED )){
+
+				if ( pos != null ){
+
+					downloads.set( pos, null );
+
+					index.remove( hash );
+
+					removed = true;
+				}
+			}else{
+
+				Map download = (Map)record.get( KEY_DOWNLOAD );
+
+				if ( pos == null ){
+
+					index.put( hash, downloads.size());
+
+					downloads.add( download );
+
+				}else{
+
+					downloads.set( pos, download );
+				}
+			}
+		}
+
+		if ( removed ){
+
+			downloads.removeAll( Collections.singleton( null ));
+		}
+
+		journal_size = valid_length;
+
+			// a torn tail would have later records appended after it, rewrite instead
+
+		return( valid_length == journal_file.length());
+	}
+
+	private long
+	readJournal(
+		List<Map>	records )
+	{
+		long	valid_length = 0;
+
+		try{
+			DataInputStream	dis = new DataInputStream( new BufferedInputStream( new FileInputStream( journal_file )));
+
+			try{
+				CRC32	crc = new CRC32();
+
+				while( true ){
+
+					int	len;
+
+					try{
+						len = dis.readInt();
+
+					}catch( EOFException e ){
+
+						break;
+					}
+
+					if ( len <= 0 || len > BDecoder.MAX_BYTE_ARRAY_SIZE ){
+
+						break;
+					}
+
+					byte[]	bytes = new byte[len];
+
+					dis.readFully( bytes );
+
+					int	record_crc = dis.readInt();
+
+					crc.reset();
+
+					crc.update( bytes );
+
+					if ((int)crc.getValue() != record_crc ){
+
+						break;
+					}
+
+					records.add( BDecoder.decode( bytes ));
+
+					valid_length += len + 8;
+				}
+			}finally{
+
+				dis.close();
+			}
+		}catch( EOFException e ){
+
+			// torn write, ignore the partial record
+
+		}catch( Throwable e ){
+
+			Debug.out( "Failed to read " + journal_file, e );
+		}
+
+		return( valid_length );
+	}
+
+	void
+	save(
+		List<Map>	downloads,
+		List		pause_data )
+	{
+		try{
+			List<Map>	records = new ArrayList<>();
+
+			Map<HashWrapper,HashWrapper>	digests = new HashMap<>();
+
+			for ( Map download: downloads ){
+
+				byte[]	hash = (byte[])download.get( "torrent_hash" );
+
+				if ( hash == null ){
+
+						// can't be journalled, keep it in the config file
+
+					compact_required = true;
+
+					continue;
+				}
+
+				HashWrapper	hw		= new HashWrapper( hash );
+				HashWrapper	digest	= digest( download );
+
+				digests.put( hw, digest );
+
+				if ( !digest.equals( saved_digests.get( hw ))){
+
+					Map	record = new HashMap();
+
+					record.put( KEY_HASH, hash );
+					record.put( KEY_DOWNLOAD, download );
+
+					records.add( record );
+				}
+			}
+
+			for ( HashWrapper hw: saved_digests.keySet()){
+
+				if ( !digests.containsKey( hw )){
+
+					Map	record = new HashMap();
+
+					record.put( KEY_HASH, hw.getBytes());
+					record.put( KEY_REMOVED, 1L );
+
+					records.add( record );
+				}
+			}
+
+			HashWrapper	pause_digest = pause_data==null?null:digest( pause_data );
+
+			if ( !Objects.equals( pause_digest, saved_pause_digest )){
+
+				Map	record = new HashMap();
+
+				record.put( KEY_PAUSE, pause_data==null?new ArrayList():pause_data );
+
+				records.add( record );
+			}
+
+			if ( !compact_required ){
+
+				if ( records.isEmpty()){
+
+					return;
+				}
+
+				List<byte[]>	encoded = new ArrayList<>( records.size());
+
+				long	size = 0;
+
+				for ( Map record: records ){
+
+					byte[] bytes = BEncoder.encode( record );
+
+					encoded.add( bytes );
+
+					size += bytes.length + 8;
+				}
+
+				if ( journal_size + size <= Math.max( MIN_COMPACT_SIZE, base_size/2 )){
+
+					if ( appendJournal( encoded, false )){
+
+						journal_size += size;
+
+						saved_digests.clear();
+						saved_digests.putAll( digests );
+
+						saved_pause_digest	= pause_digest;
+
+						return;
+					}
+				}
+			}
+
+			compact( downloads, pause_data, digests, pause_digest );
+
+		}catch( Throwable e ){
+
+			Debug.out( e );
+
+			compact_required = true;
+		}
+	}
+
+	private void
+	compact(
+		List<Map>						downloads,
+		List							pause_data,
+		Map<HashWrapper,HashWrapper>	digests,
+		HashWrapper						pause_digest )
+
+		throws IOException
+	{
+		long	new_generation = generation + 1;
+
+		Map map = new HashMap();
+
+		map.put( KEY_DOWNLOADS, downloads );
+
+		if ( pause_data != null ){
+
+			map.put( KEY_PAUSE_DATA, pause_data );
+		}
+
+		map.put( KEY_JOURNAL_GEN, new_generation );
+
+		if ( !FileUtil.writeResilientConfigFileWithResult( file_name, map )){
+
+				// old journal still matches the old config file, try again next time
+
+			compact_required = true;
+
+			return;
+		}
+
+		generation	= new_generation;
+		base_size	= FileUtil.getUserFile( file_name ).length();
+
+		Map	header = new HashMap();
+
+		header.put( KEY_GEN, generation );
+
+		List<byte[]>	encoded = new ArrayList<>(1);
+
+		encoded.add( BEncoder.encode( header ));
+
+		if ( appendJournal( encoded, true )){
+
+			journal_size		= encoded.get(0).length + 8;
+			compact_required	= false;
+
+		}else{
+
+			journal_file.delete();
+
+			compact_required	= true;
+		}
+
+		saved_digests.clear();
+		saved_digests.putAll( digests );
+
+		saved_pause_digest	= pause_digest;
+	}
+
+	private boolean
+	appendJournal(
+		List<byte[]>	records,
+		boolean			truncate )
+	{
+		try{
+			FileOutputStream	fos = new FileOutputStream( journal_file, !truncate );
+
+			try{
+				DataOutputStream	dos = new DataOutputStream( new BufferedOutputStream( fos ));
+
+				CRC32	crc = new CRC32();
+
+				for ( byte[] bytes: records ){
+
+					crc.reset();
+
+					crc.update( bytes );
+
+					dos.writeInt( bytes.length );
+					dos.write( bytes );
+					dos.writeInt((int)crc.getValue());
+				}
+
+				dos.flush();
+
+				fos.getFD().sync();
+
+			}finally{
+
+				fos.close();
+			}
+
+			return( true );
+
+		}catch( Throwable e ){
+
+			Debug.out( "Failed to write " + journal_file, e );
+
+			return( false );
+		}
+	}
+
+	private static HashWrapper
+	digest(
+		Object		o )
+
+		throws IOException
+	{
+		Map	m = new HashMap();
+
+		m.put( "v", o );
+
+		return( new HashWrapper( new SHA1Simple().calculateHash( BEncoder.encode( m ))));
+	}
+}
@@ -248,6 +248,8 @@ public class GlobalManagerImpl
 	private volatile boolean	destroyed;
 	volatile long		needsSavingCozStateChanged;
 
+	private final GlobalManagerDownloadsStore	downloads_store = new GlobalManagerDownloadsStore( "downloads.config" );
+
 	private boolean seeding_only_mode 				= false;
 	private boolean potentially_seeding_only_mode	= false;
 
@@ -2282,9 +2284,20 @@ public class GlobalManagerImpl
 	  }
 
 
+	  long	start_time = SystemTime.getMonotonousTime();
+
+	  	// startup phase timings, reported once loading is done
+
+	  long	time_state_cache	= 0;
+	  long	time_config			= 0;
+	  long	time_create			= 0;
+	  int	prefetch_queued		= 0;
+
 	  try{
 		  DownloadManagerStateFactory.loadGlobalStateCache();
 
+		  time_state_cache = SystemTime.getMonotonousTime() - start_time;
+
 		  int triggerOnCount = 2;
 		  ArrayList<DownloadManager> downloadsAdded = new ArrayList<>();
 		  lastListenerUpdate = 0;
@@ -2293,7 +2306,7 @@ public class GlobalManagerImpl
 				  progress_listener.reportCurrentTask(MessageText.getString("splash.loadingTorrents"));
 			  }
 
-			  Map map = FileUtil.readResilientConfigFile("downloads.config");
+			  Map map = downloads_store.load();
 
 			  ArrayList pause_data = (ArrayList)map.get( "pause_data" );
 
@@ -2313,6 +2326,26 @@ public class GlobalManagerImpl
 				  iter = downloads.iterator();
 				  nbDownloads = downloads.size();
 			  }
+
+			  time_config = SystemTime.getMonotonousTime() - start_time - time_state_cache;
+
+			  	// read the state files of downloads not in the global state cache on a few threads
+			  	// while the download managers are created (in order) below
+
+			  List<byte[]>	prefetch_hashes = new ArrayList<>( nbDownloads );
+
+			  for ( Object o: downloads==null?map.values():downloads ){
+
+				  prefetch_hashes.add( o instanceof Map?(byte[])((Map)o).get( "torrent_hash" ):null );
+			  }
+
+			  prefetch_queued =
+				  DownloadManagerStateFactory.prefetchStates(
+					prefetch_hashes,
+					Math.max( 2, Math.min( 4, Runtime.getRuntime().availableProcessors())));
+
+			  long create_start = SystemTime.getMonotonousTime();
+
 			  int currentDownload = 0;
 			  while (iter.hasNext()) {
 				  currentDownload++;
@@ -2368,6 +2401,8 @@ public class GlobalManagerImpl
 				  }
 			  }
 
+			  time_create = SystemTime.getMonotonousTime() - create_start;
+
 			  // This is set to true by default, but once the downloads have been loaded, we have no reason to ever
 			  // to do this check again - we only want to do it once to upgrade the state of existing downloads
 			  // created before this code was around.
@@ -2402,7 +2437,14 @@ public class GlobalManagerImpl
 			  // Someone could have mucked with the config file and set weird positions,
 			  // so fix them up.
 			  fixUpDownloadManagerPositions();
-			  Logger.log(new LogEvent(LOGID, "Loaded " + managers_list_cow.length + " torrents"));
+
+			  long time_total = SystemTime.getMonotonousTime() - start_time;
+
+			  Logger.log(new LogEvent(LOGID, "Loaded " + managers_list_cow.length + " torrents in " + time_total + "ms" +
+					  " (state cache=" + time_state_cache + "ms" +
+					  ", downloads.config=" + time_config + "ms" +
+					  ", download managers=" + time_create + "ms, prefetched " + DownloadManagerStateFactory.getPrefetchedStateCount() + "/" + prefetch_queued + " states" +
+					  ", other=" + ( time_total - time_state_cache - time_config - time_create ) + "ms)" ));
 
 		  }catch( Throwable e ){
 			  // there's been problems with corrupted download files stopping AZ from starting
@@ -2482,8 +2524,6 @@ public class GlobalManagerImpl
 			  Logger.log(new LogEvent(LOGID, "Saving Download List ("	+ managers_temp.length + " items)"));
 		  }
 
-		  Map map = new HashMap();
-
 		  List<Map> list = new ArrayList<>(managers_temp.length);
 
 		  for ( DownloadManager dm: managers_temp ){
@@ -2493,12 +2533,12 @@ public class GlobalManagerImpl
 			  list.add(dmMap);
 		  }
 
-		  map.put("downloads", list);
+		  ArrayList pause_data = null;
 
 		  //save pause/resume state
 		  try {  paused_list_mon.enter();
 		  if( !paused_list.isEmpty() ) {
-			  ArrayList pause_data = new ArrayList();
+			  pause_data = new ArrayList();
 			  for( int i=0; i < paused_list.size(); i++ ) {
 				  Object[] data = (Object[])paused_list.get(i);
 
@@ -2512,13 +2552,12 @@ public class GlobalManagerImpl
 
 				  pause_data.add( m );
 			  }
-			  map.put( "pause_data", pause_data );
 		  }
 		  }
 		  finally {  paused_list_mon.exit();  }
 
 
-		  FileUtil.writeResilientConfigFile("downloads.config", map );
+		  downloads_store.save( list, pause_data );
 	  }
   }
 
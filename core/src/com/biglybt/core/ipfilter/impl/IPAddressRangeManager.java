@@ -35,7 +35,6 @@ import com.biglybt.core.logging.LogIDs;
 import com.biglybt.core.logging.Logger;
 import com.biglybt.core.tracker.protocol.PRHelpers;
 import com.biglybt.core.util.AEMonitor;
-import com.biglybt.core.util.Debug;
 import com.biglybt.core.util.SystemTime;
 import com.biglybt.core.util.UnresolvableHostManager;
 
@@ -48,10 +47,13 @@ IPAddressRangeManager
 
 	protected long		total_span;
 
-	protected boolean	rebuild_required;
+	protected volatile boolean	rebuild_required;
 	protected long		last_rebuild_time;
 
-	protected IpRange[] mergedRanges = new IpRange[0];
+		// lookups run against an immutable snapshot that is replaced wholesale on rebuild so
+		// they don't need this_mon - every incoming connection and PEX peer gets checked
+
+	private volatile rangeTable	table = new rangeTable( new IpRange[0], new int[0], new int[0] );
 
 	protected final AEMonitor	this_mon	= new AEMonitor( "IPAddressRangeManager" );
 
@@ -105,26 +107,18 @@ IPAddressRangeManager
 			return( null );
 		}
 
-		try{
-			this_mon.enter();
-
-			long address_long = addressToInt( ip );
-
-			if ( address_long < 0 ){
+		long address_long = addressToInt( ip );
 
-				address_long += 0x100000000L;
-			}
+		if ( address_long < 0 ){
 
-			Object res = isInRange( address_long );
+			address_long += 0x100000000L;
+		}
 
-			// LGLogger.log( "IPAddressRangeManager: checking '" + ip + "' against " + entries.size() + "/" + merged_entries.length + " -> " + res );
+		Object res = isInRange( address_long );
 
-			return( res );
+		// LGLogger.log( "IPAddressRangeManager: checking '" + ip + "' against " + entries.size() + " -> " + res );
 
-		}finally{
-
-			this_mon.exit();
-		}
+		return( res );
 	}
 
 	public Object
@@ -138,126 +132,30 @@ IPAddressRangeManager
 			return( null );
 		}
 
-		try{
-			this_mon.enter();
-
-			long address_long = addressToInt( ip );
-
-			if ( address_long < 0 ){
+		long address_long = addressToInt( ip );
 
-				address_long += 0x100000000L;
-			}
+		if ( address_long < 0 ){
 
-			Object res = isInRange( address_long );
+			address_long += 0x100000000L;
+		}
 
-			// LGLogger.log( "IPAddressRangeManager: checking '" + ip + "' against " + entries.size() + "/" + merged_entries.length + " -> " + res );
+		Object res = isInRange( address_long );
 
-			return( res );
+		// LGLogger.log( "IPAddressRangeManager: checking '" + ip + "' against " + entries.size() + " -> " + res );
 
-		}finally{
-
-			this_mon.exit();
-		}
+		return( res );
 	}
 
 	protected Object
 	isInRange(
 		long	address_long )
 	{
-		try{
-			this_mon.enter();
+		if ( rebuild_required ){
 
 			checkRebuild();
-
-			if ( mergedRanges.length == 0 ){
-
-				return( null );
-			}
-
-				// assisted binary chop
-
-			int	bottom 	= 0;
-			int	top		= mergedRanges.length-1;
-
-			int	current	= -1;
-
-			while( top >= 0 && bottom < mergedRanges.length && bottom <= top){
-
-				current = (bottom+top)/2;
-
-				IpRange	e = mergedRanges[current];
-
-				long	this_start 	= e.getStartIpLong();
-				long 	this_end	= e.getMergedEndLong();
-
-				if ( address_long == this_start ){
-
-					break;
-
-				}else if ( address_long > this_start ){
-
-					if ( address_long <= this_end ){
-
-						break;
-					}
-
-						// lies to the right of this entry
-
-					bottom	= current + 1;
-
-				}else if ( address_long == this_end ){
-
-					break;
-
-				}else{
-					// < this_end
-
-					if ( address_long >= this_start ){
-
-						break;
-					}
-
-					top = current - 1;
-				}
-			}
-
-			if ( top >= 0 && bottom < mergedRanges.length && bottom <= top ){
-
-				IpRange	e = mergedRanges[current];
-
-				if ( address_long <= e.getEndIpLong()){
-
-					return( e );
-				}
-
-				IpRange[]	merged = e.getMergedEntries();
-
-				if ( merged == null ){
-
-					Debug.out( "IPAddressRangeManager: inconsistent merged details - no entries" );
-
-					return( null );
-				}
-
-				for (int i=0;i<merged.length;i++){
-
-					IpRange	me = merged[i];
-
-					if ( me.getStartIpLong() <= address_long && me.getEndIpLong() >= address_long ){
-
-						return( me );
-					}
-				}
-
-				Debug.out( "IPAddressRangeManager: inconsistent merged details - entry not found" );
-			}
-
-			return( null );
-
-		}finally{
-
-			this_mon.exit();
 		}
+
+		return( table.lookup( address_long ));
 	}
 
 	protected int
@@ -324,11 +222,6 @@ IPAddressRangeManager
 
 		entries.toArray(ents);
 
-		for (int i=0;i<ents.length;i++){
-
-			ents[i].resetMergeInfo();
-		}
-
 			// sort based on start address
 
 		Arrays.sort(
@@ -352,82 +245,93 @@ IPAddressRangeManager
 				}
 			});
 
-			// now merge overlapping ranges
+			// now merge overlapping ranges. Within a merged run we only need to keep the
+			// entries that push the run's end further out - anything else lies wholly inside
+			// an earlier one. What's left has strictly increasing starts and ends so a single
+			// binary chop on start finds the only candidate for an address
 
-		List me = new ArrayList( ents.length );
+		IpRange[]	ranges 	= new IpRange[ents.length];
+		int[]		starts	= new int[ents.length];
+		int[]		ends	= new int[ents.length];
 
-		for (int i=0;i<ents.length;i++){
-
-			IpRange	entry = ents[i];
+		int		num			= 0;
+		long	span		= 0;
 
-			if ( entry.getMerged()){
+		long	run_start	= -1;
+		long	run_end		= -1;
 
-				continue;
-			}
+		for (int i=0;i<ents.length;i++){
 
-			me.add( entry );
+			IpRange	entry = ents[i];
 
-			int	pos = i+1;
+			long	start 	= entry.getStartIpLong();
+			long	end		= entry.getEndIpLong();
 
-			while( pos < ents.length ){
+			if ( start < 0 || end < start ){
 
-				long	end_pos = entry.getMergedEndLong();
+				continue;	// invalid
+			}
 
-				IpRange	e2 = ents[pos++];
+			if ( run_start >= 0 && start <= run_end ){
 
-				if (!e2.getMerged()){
+				if ( end <= run_end ){
 
-					if ( end_pos >= e2.getStartIpLong()){
+					continue;
+				}
 
-						e2.setMerged();
+				run_end	= end;
 
-						if ( e2.getEndIpLong() > end_pos ){
+			}else{
 
-							entry.setMergedEnd( e2.getEndIpLong() );
+				if ( run_start >= 0 ){
 
-							entry.addMergedEntry( e2 );
-						}
-					}else{
+						// span is inclusive
 
-						break;
-					}
+					span += ( run_end - run_start ) + 1;
 				}
-			}
-		}
 
-		/*
-		for (int i=0;i<ents.length;i++){
+				run_start	= start;
+				run_end		= end;
+			}
 
-			entry	e = ents[i];
+			ranges[num]	= entry;
+			starts[num]	= toKey( start );
+			ends[num]	= toKey( end );
 
-			System.out.println( Long.toHexString(e.getStart()) + " - " + Long.toHexString(e.getEnd()) + ": " + e.getMerged() + "/" + Long.toHexString(e.getMergedEnd()));
+			num++;
 		}
-		*/
 
-		mergedRanges = new IpRange[me.size()];
+		if ( run_start >= 0 ){
 
-		me.toArray( mergedRanges );
-
-		total_span	= 0;
-
-		for (int i=0;i<mergedRanges.length;i++){
+			span += ( run_end - run_start ) + 1;
+		}
 
-			IpRange	e = mergedRanges[i];
+		if ( num < ents.length ){
 
-				// span is inclusive
+			ranges	= Arrays.copyOf( ranges, num );
+			starts	= Arrays.copyOf( starts, num );
+			ends	= Arrays.copyOf( ends, num );
+		}
 
-			long	span = ( e.getMergedEndLong() - e.getStartIpLong()) + 1;
+		table	= new rangeTable( ranges, starts, ends );
 
-			total_span	+= span;
-		}
-			//	System.out.println( "non_merged = " + merged_entries.length );
+		total_span	= span;
 
 		if (Logger.isEnabled())
 			Logger.log(new LogEvent(LOGID, "IPAddressRangeManager: rebuilding "
-					+ entries.size() + " entries ends"));
+					+ entries.size() + " entries ends (" + num + " searchable)"));
 
 	}
 
+		// addresses are unsigned, flip the top bit so that signed int comparison orders them correctly
+
+	private static int
+	toKey(
+		long	address )
+	{
+		return( ((int)address) ^ Integer.MIN_VALUE );
+	}
+
 	/**
 	 * @param diff
 	 * @return
@@ -457,7 +361,7 @@ IPAddressRangeManager
 	main(
 		String[]	args )
 	{
-		IPAddressRangeManager manager = new IPAddressRangeManager();
+		final IPAddressRangeManager manager = new IPAddressRangeManager();
 
 		/*
 		Object[] testBlockIPs1 = {
@@ -511,9 +415,20 @@ IPAddressRangeManager
 		System.out.println( "Total span = " + manager.getTotalSpan());
 		*/
 
-		Random r = new Random();
+		int	num_ranges	= args.length>0?Integer.parseInt( args[0] ):1000000;
+		int	num_lookups	= args.length>1?Integer.parseInt( args[1] ):10000000;
+
+		Random r = new Random( 0 );
 
-		for (int i=0;i<1000000;i++){
+		Runtime	rt = Runtime.getRuntime();
+
+		System.gc();
+
+		long	mem_before	= rt.totalMemory() - rt.freeMemory();
+
+		long	load_start = System.nanoTime();
+
+		for (int i=0;i<num_ranges;i++){
 
 			int	ip1 	= r.nextInt( 0x0fffffff );
 
@@ -525,6 +440,20 @@ IPAddressRangeManager
 			manager.addRange( new IpRangeImpl("test_" + i, start, end, true ));
 		}
 
+		long	load_end = System.nanoTime();
+
+		manager.rebuild();
+
+		long	build_end = System.nanoTime();
+
+		System.gc();
+
+		long	mem_after	= rt.totalMemory() - rt.freeMemory();
+
+		System.out.println(
+			num_ranges + " ranges: load=" + (load_end-load_start)/1000000 + "ms, rebuild=" + (build_end-load_end)/1000000 +
+			"ms, searchable=" + manager.table.size() + ", heap=" + (mem_after-mem_before)/(1024*1024) + "MB, span=" + manager.getTotalSpan());
+
 		/*
 		for (int i=0;i<100000;i++){
 
@@ -535,28 +464,65 @@ IPAddressRangeManager
 		}
 		*/
 
-		int	num 	= 0;
-		int	hits	= 0;
+		for ( int threads: new int[]{ 1, Runtime.getRuntime().availableProcessors()}){
 
+			final int	lookups	= num_lookups / threads;
 
-		while(true){
+			final int[]	hits = new int[threads];
 
-			if ( num % 1000 == 0 ){
+			Thread[]	workers = new Thread[threads];
 
-				System.out.println( num + "/" + hits );
+			for ( int t=0;t<threads;t++){
 
+				final int	index = t;
+
+				workers[t] =
+					new Thread()
+					{
+						@Override
+						public void
+						run()
+						{
+							Random	tr = new Random( index );
+
+							for (int i=0;i<lookups;i++){
+
+								long	ip = tr.nextInt() & 0xffffffffL;
+
+								if ( manager.isInRange( ip ) != null ){
+
+									hits[index]++;
+								}
+							}
+						}
+					};
 			}
 
-			num++;
+			long	lookup_start = System.nanoTime();
+
+			for ( Thread t: workers ){
+
+				t.start();
+			}
 
-			int	ip 	= r.nextInt();
+			int	total_hits = 0;
 
-			Object	res = manager.isInRange( ip );
+			for ( int t=0;t<threads;t++){
 
-			if ( res != null ){
+				try{
+					workers[t].join();
 
-				hits++;
+				}catch( InterruptedException e ){
+				}
+
+				total_hits += hits[t];
 			}
+
+			long	elapsed = System.nanoTime() - lookup_start;
+
+			System.out.println(
+				threads + " thread(s): " + (long)lookups*threads + " lookups, " + total_hits + " hits, " +
+				(long)((double)lookups*threads*1000000000/elapsed) + " lookups/sec" );
 		}
 	}
 
@@ -579,4 +545,61 @@ IPAddressRangeManager
 			this_mon.exit();
 		}
 	}
+
+	private static final class
+	rangeTable
+	{
+		private final IpRange[]	ranges;
+		private final int[]		starts;
+		private final int[]		ends;
+
+		rangeTable(
+			IpRange[]	_ranges,
+			int[]		_starts,
+			int[]		_ends )
+		{
+			ranges	= _ranges;
+			starts	= _starts;
+			ends	= _ends;
+		}
+
+		int
+		size()
+		{
+			return( ranges.length );
+		}
+
+		IpRange
+		lookup(
+			long	address_long )
+		{
+			int	key = toKey( address_long );
+
+				// find the last entry starting at or below the address
+
+			int	bottom 	= 0;
+			int	top		= starts.length-1;
+
+			while( bottom <= top ){
+
+				int	current = ( bottom + top ) >>> 1;
+
+				if ( starts[current] <= key ){
+
+					bottom = current + 1;
+
+				}else{
+
+					top = current - 1;
+				}
+			}
+
+			if ( top >= 0 && ends[top] >= key ){
+
+				return( ranges[top] );
+			}
+
+			return( null );
+		}
+	}
 }
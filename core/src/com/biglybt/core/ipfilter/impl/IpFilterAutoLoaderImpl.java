@@ -76,9 +76,13 @@ public class IpFilterAutoLoaderImpl
 	 * @param fin
 	 * @throws Exception
 	 *
+	 * @param cache records the parsed ranges
+	 * @return true if the whole file was read
+	 *
 	 * @since 3.0.1.5
 	 */
-	private void loadDATFilters(InputStream fin) {
+	private boolean loadDATFilters(InputStream fin, IpRangeCache cache) {
+		boolean complete = false;
 		try {
 			class_mon.enter();
 
@@ -196,7 +200,11 @@ public class IpFilterAutoLoaderImpl
 					ipRange.setAddedToRangeList(true);
 
 					new_ipRanges.add(ipRange);
+
+					cache.add(description, ipRange);
 				}
+
+				complete = numConsecutiveUnknowns < 1000;
 			} catch (IOException e) {
 				Debug.out(e);
 			} finally {
@@ -227,6 +235,8 @@ public class IpFilterAutoLoaderImpl
 
 			class_mon.exit();
 		}
+
+		return complete;
 	}
 
 	private int getP2BFileVersion(InputStream is) {
@@ -315,6 +325,19 @@ public class IpFilterAutoLoaderImpl
 					}
 				}
 
+				// skip parsing if it's the same file as last time
+
+				File sourceFile = filtersFile;
+				File cacheFile = FileUtil.getUserFile("ipfilter.cache");
+
+				if (IpRangeCache.load(cacheFile, sourceFile, new_ipRanges)) {
+					Logger.log(new LogEvent(LOGID, "Loaded " + new_ipRanges.size()
+							+ " ranges from " + cacheFile));
+					return;
+				}
+
+				IpRangeCache cache = new IpRangeCache();
+
 				fin = new FileInputStream(filtersFile);
 				bin = new BufferedInputStream(fin, 16384);
 
@@ -355,7 +378,9 @@ public class IpFilterAutoLoaderImpl
 
 				if (p2bVersion < 1 || p2bVersion > 3) {
 					bin.reset();
-					loadDATFilters(bin);
+					if (loadDATFilters(bin, cache)) {
+						cache.save(cacheFile, sourceFile);
+					}
 					return;
 				}
 
@@ -384,6 +409,8 @@ public class IpFilterAutoLoaderImpl
 						ipRange.setAddedToRangeList(true);
 
 						new_ipRanges.add(ipRange);
+
+						cache.add(description, ipRange);
 					}
 				} else { // version 3
 					int read = bin.read(ipBytes);
@@ -429,8 +456,12 @@ public class IpFilterAutoLoaderImpl
 						ipRange.setAddedToRangeList(true);
 
 						new_ipRanges.add(ipRange);
+
+						cache.add(description, ipRange);
 					}
 				}
+
+				cache.save(cacheFile, sourceFile);
 			} catch (IOException e) {
 				Debug.out(e);
 			} finally {
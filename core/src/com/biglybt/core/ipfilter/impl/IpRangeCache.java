@@ -0,0 +1,257 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ */
+
+package com.biglybt.core.ipfilter.impl;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.biglybt.core.util.Debug;
+
+/**
+ * Binary snapshot of the ranges parsed from an auto-loaded filter file, so that
+ * subsequent loads of an unchanged file skip decompressing and parsing the text.
+ * The snapshot records the source file's path, size and modification time and is
+ * ignored if any of them differ. Descriptions are stored once each and referenced
+ * by index.
+ */
+class IpRangeCache
+{
+	private static final int MAGIC = 0x49504643; // IPFC
+
+	private static final int VERSION = 1;
+
+	private static final int MAX_DESC_CHARS = 1024;
+
+	private final Map<String, Integer> descIndex = new HashMap<>();
+
+	private String[] descs = new String[256];
+
+	private int numDescs;
+
+	private int[] ranges = new int[3 * 1024];
+
+	private int numRanges;
+
+	/**
+	 * Records a parsed range, invalid ones are skipped as they never make it into
+	 * the filter
+	 */
+	void add(String description, IpRangeImpl range) {
+		long start = range.getStartIpLong();
+		long end = range.getEndIpLong();
+
+		if (start < 0 || end < start) {
+			return;
+		}
+
+		if (description == null) {
+			description = "";
+		} else if (description.length() > MAX_DESC_CHARS) {
+			description = description.substring(0, MAX_DESC_CHARS);
+		}
+
+		Integer idx = descIndex.get(description);
+
+		if (idx == null) {
+			if (numDescs == descs.length) {
+				descs = Arrays.copyOf(descs, numDescs * 2);
+			}
+			idx = numDescs;
+			descs[numDescs++] = description;
+			descIndex.put(description, idx);
+		}
+
+		if (numRanges * 3 == ranges.length) {
+			ranges = Arrays.copyOf(ranges, ranges.length * 2);
+		}
+
+		int pos = numRanges * 3;
+		ranges[pos] = idx;
+		ranges[pos + 1] = (int) start;
+		ranges[pos + 2] = (int) end;
+		numRanges++;
+	}
+
+	void save(File cacheFile, File sourceFile) {
+		File tempFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+
+		DataOutputStream dos = null;
+		try {
+			dos = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(tempFile), 65536));
+
+			dos.writeInt(MAGIC);
+			dos.writeInt(VERSION);
+			writeString(dos, sourceFile.getAbsolutePath());
+			dos.writeLong(sourceFile.length());
+			dos.writeLong(sourceFile.lastModified());
+
+			dos.writeInt(numDescs);
+			for (int i = 0; i < numDescs; i++) {
+				writeString(dos, descs[i]);
+			}
+
+			dos.writeInt(numRanges);
+			for (int i = 0; i < numRanges * 3; i++) {
+				dos.writeInt(ranges[i]);
+			}
+
+			dos.close();
+			dos = null;
+
+			cacheFile.delete();
+
+			if (!tempFile.renameTo(cacheFile)) {
+				tempFile.delete();
+			}
+		} catch (IOException e) {
+			Debug.out(e);
+
+			tempFile.delete();
+		} finally {
+			if (dos != null) {
+				try {
+					dos.close();
+				} catch (Throwable e) {
+				}
+				tempFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Fills ipRanges from the snapshot if it was made from the given source file
+	 *
+	 * @return false if there's no usable snapshot, ipRanges is left untouched
+	 */
+	static boolean load(File cacheFile, File sourceFile, List ipRanges) {
+		if (!cacheFile.exists()) {
+			return false;
+		}
+
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(cacheFile, "r");
+
+			FileChannel channel = raf.getChannel();
+
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				return false;
+			}
+
+			// read rather than map, a mapping holds the file open (blocking delete and
+			// rename on Windows) until the buffer happens to be garbage collected
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0) {
+					return false;
+				}
+			}
+
+			buffer.flip();
+
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				return false;
+			}
+
+			if (!readString(buffer).equals(sourceFile.getAbsolutePath())
+					|| buffer.getLong() != sourceFile.length()
+					|| buffer.getLong() != sourceFile.lastModified()) {
+				return false;
+			}
+
+			int numDescs = buffer.getInt();
+
+			if (numDescs < 0 || numDescs > buffer.remaining() / 4) {
+				return false;
+			}
+
+			String[] descs = new String[numDescs];
+			for (int i = 0; i < descs.length; i++) {
+				descs[i] = readString(buffer);
+			}
+
+			int num = buffer.getInt();
+
+			if (buffer.remaining() != num * 12L) {
+				return false;
+			}
+
+			IpRangeImpl[] loaded = new IpRangeImpl[num];
+
+			for (int i = 0; i < num; i++) {
+				int descIdx = buffer.getInt();
+				int startIp = buffer.getInt();
+				int endIp = buffer.getInt();
+
+				String description = descIdx >= 0 && descIdx < descs.length
+						? descs[descIdx] : "";
+
+				IpRangeImpl ipRange = new IpRangeImpl(description, startIp, endIp, true);
+
+				ipRange.setAddedToRangeList(true);
+
+				loaded[i] = ipRange;
+			}
+
+			ipRanges.addAll(Arrays.asList(loaded));
+
+			return true;
+
+		} catch (BufferUnderflowException e) {
+			// truncated, just reparse
+		} catch (IOException e) {
+			Debug.out(e);
+		} finally {
+			if (raf != null) {
+				try {
+					raf.close();
+				} catch (Throwable e) {
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private static void writeString(DataOutputStream dos, String str)
+			throws IOException {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		dos.writeInt(bytes.length);
+		dos.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int len = buffer.getInt();
+		if (len < 0 || len > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		byte[] bytes = new byte[len];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -51,13 +51,6 @@ public class IpRangeImpl implements IpRange
 
 	private Object descRef = null;
 
-	// Merging stuff
-	private final static byte FLAG_MERGED = 0x4;
-
-	private int merged_end;
-
-	private IpRange[] my_merged_entries;
-
 	public IpRangeImpl(String _description, String _startIp, String _endIp,
 			boolean _sessionOnly) {
 		if (_sessionOnly) {
@@ -332,57 +325,4 @@ public class IpRangeImpl implements IpRange
 	protected void setDescRef(Object descRef) {
 		this.descRef = descRef;
 	}
-
-	@Override
-	public long getMergedEndLong() {
-		return (merged_end < 0 ? (merged_end + 0x100000000L) : merged_end);
-	}
-
-	@Override
-	public IpRange[] getMergedEntries() {
-		return (my_merged_entries);
-	}
-
-	@Override
-	public void resetMergeInfo() {
-		flags &= ~FLAG_MERGED;
-
-		if ((flags & FLAG_INVALID_END) == 0) {
-			merged_end = ipEnd;
-		}
-	}
-
-	@Override
-	public boolean getMerged() {
-		return (flags & FLAG_MERGED) != 0;
-	}
-
-	@Override
-	public void setMerged() {
-		flags |= FLAG_MERGED;
-	}
-
-	@Override
-	public void setMergedEnd(long endIpLong) {
-		merged_end = (int) (endIpLong >= 0x100000000L ? endIpLong - 0x100000000L
-				: endIpLong);
-	}
-
-	@Override
-	public void addMergedEntry(IpRange e2) {
-		if (my_merged_entries == null) {
-
-			my_merged_entries = new IpRange[] { e2 };
-
-		} else {
-
-			IpRange[] x = new IpRange[my_merged_entries.length + 1];
-
-			System.arraycopy(my_merged_entries, 0, x, 0, my_merged_entries.length);
-
-			x[x.length - 1] = e2;
-
-			my_merged_entries = x;
-		}
-	}
 }
@@ -34,6 +34,7 @@ import com.biglybt.core.diskmanager.cache.CacheFileOwner;
 import com.biglybt.core.download.DownloadManagerState;
 import com.biglybt.core.internat.LocaleTorrentUtil;
 import com.biglybt.core.internat.LocaleUtilDecoder;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.torrent.TOTorrent;
 import com.biglybt.core.torrent.TOTorrentException;
 import com.biglybt.core.util.ByteFormatter;
@@ -353,6 +354,14 @@ LWSDiskManager
 		reader.readBlock( request, listener );
 	}
 
+	@Override
+	public OutgoingFileRegion
+	createFileRegion(
+		DiskManagerReadRequest 			request )
+	{
+		return( reader.createFileRegion( request ));
+	}
+
 	@Override
 	public DiskManagerCheckRequest
 	createCheckRequest(
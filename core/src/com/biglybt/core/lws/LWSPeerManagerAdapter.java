@@ -28,6 +28,7 @@ import com.biglybt.core.disk.DiskManagerReadRequest;
 import com.biglybt.core.disk.DiskManagerReadRequestListener;
 import com.biglybt.core.logging.LogRelation;
 import com.biglybt.core.networkmanager.NetworkManager;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.impl.tcp.TCPNetworkManager;
 import com.biglybt.core.peer.PEPeer;
 import com.biglybt.core.peer.PEPeerManagerAdapter;
@@ -440,6 +441,15 @@ LWSPeerManagerAdapter
 		lws.enqueueReadRequest( peer, request, listener );
 	}
 
+	@Override
+	public OutgoingFileRegion
+	createFileRegion(
+		PEPeer							peer,
+		DiskManagerReadRequest 			request )
+	{
+		return( lws.createFileRegion( peer, request ));
+	}
+
 	@Override
 	public int getPosition()
 	{
@@ -33,6 +33,7 @@ import com.biglybt.core.logging.LogRelation;
 import com.biglybt.core.logging.Logger;
 import com.biglybt.core.networkmanager.NetworkConnection;
 import com.biglybt.core.networkmanager.NetworkManager;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.impl.tcp.TCPNetworkManager;
 import com.biglybt.core.peer.PEPeer;
 import com.biglybt.core.peer.PEPeerManager;
@@ -744,6 +745,21 @@ LightWeightSeed
 		}
 	}
 
+	public OutgoingFileRegion
+	createFileRegion(
+		PEPeer							peer,
+		DiskManagerReadRequest 			request )
+	{
+		LWSDiskManager	dm = disk_manager;
+
+		if ( dm == null ){
+
+			return( null );
+		}
+
+		return( dm.createFileRegion( request ));
+	}
+
 	public void
 	remove()
 	{
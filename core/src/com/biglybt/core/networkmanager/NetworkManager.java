@@ -145,9 +145,19 @@ public class NetworkManager {
   private final List<WriteController> 	write_controllers;
   private final List<ReadController> 	read_controllers;
 
+  	// sharded: at least a read and write processor per core (and a selector per core, see
+  	// TCPNetworkManager) with entities spread over them by load rather than by partition
+
+  private static final boolean	SHARDED = COConfigurationManager.getBooleanParameter( "network.control.sharded" );
+
   {
 	 int	num_read = COConfigurationManager.getIntParameter( "network.control.read.processor.count" );
 
+	 if ( SHARDED ){
+
+		 num_read = Math.max( num_read, Runtime.getRuntime().availableProcessors());
+	 }
+
 	 read_controllers = new ArrayList<>(num_read);
 
 	 for (int i=0;i<num_read;i++){
@@ -157,6 +167,11 @@ public class NetworkManager {
 
 	 int	num_write = COConfigurationManager.getIntParameter( "network.control.write.processor.count" );
 
+	 if ( SHARDED ){
+
+		 num_write = Math.max( num_write, Runtime.getRuntime().availableProcessors());
+	 }
+
 	 write_controllers = new ArrayList<>(num_write);
 
 	 for (int i=0;i<num_write;i++){
@@ -165,6 +180,11 @@ public class NetworkManager {
 	 }
   }
 
+  public static boolean
+  isSharded()
+  {
+	  return( SHARDED );
+  }
 
   public List<WriteController>
   getWriteControllers()
@@ -476,7 +496,21 @@ public class NetworkManager {
    * @param entity to add
    */
   public void addWriteEntity( RateControlledEntity entity, int partition_id ) {
-	  if ( write_controllers.size() == 1 || partition_id < 0 ){
+	  if ( SHARDED && write_controllers.size() > 1 ){
+
+		  WriteController	least = null;
+
+		  for ( WriteController controller: write_controllers ){
+
+			  if ( least == null || controller.getEntityCount() < least.getEntityCount()){
+
+				  least = controller;
+			  }
+		  }
+
+		  least.addWriteEntity( entity );
+
+	  }else if ( write_controllers.size() == 1 || partition_id < 0 ){
 
 		  write_controllers.get(0).addWriteEntity(entity);
 
@@ -509,7 +543,21 @@ public class NetworkManager {
    * @param entity to add
    */
   public void addReadEntity( RateControlledEntity entity, int partition_id ) {
-	  if ( read_controllers.size() == 1 || partition_id < 0 ){
+	  if ( SHARDED && read_controllers.size() > 1 ){
+
+		  ReadController	least = null;
+
+		  for ( ReadController controller: read_controllers ){
+
+			  if ( least == null || controller.getEntityCount() < least.getEntityCount()){
+
+				  least = controller;
+			  }
+		  }
+
+		  least.addReadEntity( entity );
+
+	  }else if ( read_controllers.size() == 1 || partition_id < 0 ){
 
 		  read_controllers.get(0).addReadEntity(entity);
 
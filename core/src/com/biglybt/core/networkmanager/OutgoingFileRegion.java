@@ -0,0 +1,66 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ */
+
+package com.biglybt.core.networkmanager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Message payload that is still on disk, sent by the transport straight from the file
+ * (sendfile style) rather than being read into a buffer first. The region has a current
+ * position that is advanced as data is sent.
+ */
+
+public interface
+OutgoingFileRegion
+{
+	public long
+	getLength();
+
+	public long
+	getRemaining();
+
+		/**
+		 * Sends up to max bytes from the current position to the channel and advances
+		 * @return bytes sent, can be less than requested if the channel is full
+		 */
+
+	public long
+	transferTo(
+		WritableByteChannel		channel,
+		long					max )
+
+		throws IOException;
+
+		/**
+		 * Reads data from the current position into the target's remaining space without
+		 * advancing, for transports that can't send directly from the file
+		 */
+
+	public void
+	peek(
+		ByteBuffer		target )
+
+		throws IOException;
+
+	public void
+	advance(
+		long		bytes );
+
+	public void
+	destroy();
+}
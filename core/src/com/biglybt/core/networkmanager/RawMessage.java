@@ -40,6 +40,13 @@ public interface RawMessage extends Message {
    */
   public DirectByteBuffer[] getRawData();
 
+  /**
+   * Get the part of the payload that follows the raw data but is still on disk, to be
+   * sent straight from the file by the transport.
+   * @return file region; null if all the data is in the raw buffers
+   */
+  public default OutgoingFileRegion getFileRegion() {  return null;  }
+
   /**
    * Get the message's queue priority.
    * @return priority
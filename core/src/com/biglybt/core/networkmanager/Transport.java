@@ -22,6 +22,9 @@ package com.biglybt.core.networkmanager;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import com.biglybt.core.util.DirectByteBuffer;
+import com.biglybt.core.util.DirectByteBufferPool;
+
 /**
  * Represents a peer Transport connection (eg. a network socket).
  */
@@ -80,6 +83,41 @@ Transport
    */
   public long write( ByteBuffer[] buffers, int array_offset, int length ) throws IOException;
 
+  /**
+   * Write file region data to the transport, advancing the region by the amount written.
+   * Transports that can hand file data straight to the socket override this, the default
+   * reads it into a temporary buffer and goes through write().
+   * @param region to send from
+   * @param max maximum number of bytes to write
+   * @return number of bytes written
+   * @throws IOException on write or file read error
+   */
+  public default long transferFrom( OutgoingFileRegion region, long max ) throws IOException {
+    int len = (int)Math.min( Math.min( max, region.getRemaining() ), 64*1024 );
+
+    if( len <= 0 )  return 0;
+
+    DirectByteBuffer buffer = DirectByteBufferPool.getBuffer( DirectByteBuffer.AL_DM_READ, len );
+
+    try{
+      ByteBuffer bb = buffer.getBuffer( DirectByteBuffer.SS_NET );
+
+      region.peek( bb );
+
+      bb.flip();
+
+      long written = write( new ByteBuffer[]{ bb }, 0, 1 );
+
+      region.advance( written );
+
+      return written;
+
+    }finally{
+
+      buffer.returnToPool();
+    }
+  }
+
 
 
   /**
@@ -252,7 +252,7 @@ NetworkAdminHTTPProxyImpl
 								}
 							}
 
-							TCPNetworkManager.getSingleton().getReadSelector().register(
+							TCPNetworkManager.getSingleton().getReadSelector( transport.getSocketChannel()).register(
 								transport.getSocketChannel(),
 								new VirtualChannelSelector.VirtualSelectorListener()
 								{
@@ -361,7 +361,7 @@ NetworkAdminHTTPProxyImpl
 
 											 }else{
 
-												TCPNetworkManager.getSingleton().getReadSelector().resumeSelects( transport.getSocketChannel() );
+												TCPNetworkManager.getSingleton().getReadSelector( transport.getSocketChannel() ).resumeSelects( transport.getSocketChannel() );
 											}
 
 											 return( true );
@@ -29,6 +29,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 
 import com.biglybt.core.networkmanager.NetworkManager;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.OutgoingMessageQueue;
 import com.biglybt.core.networkmanager.RawMessage;
 import com.biglybt.core.networkmanager.Transport;
@@ -276,11 +277,7 @@ OutgoingMessageQueueImpl
 	      }
 	      queue.add( pos, rmesg );
 
-	      DirectByteBuffer[] payload = rmesg.getRawData();
-	      int	remaining = 0;
-	      for( int j=0; j < payload.length; j++ ) {
-	    	  remaining += payload[j].remaining(DirectByteBuffer.SS_NET);
-	      }
+	      int	remaining = getRemaining( rmesg );
 	      total_size += remaining;
 	      if ( rmesg.getType() == Message.TYPE_DATA_PAYLOAD ){
 	    	  total_data_size += remaining;
@@ -314,6 +311,20 @@ OutgoingMessageQueueImpl
 
 
 
+  private static int getRemaining( RawMessage msg ) {
+    DirectByteBuffer[] payload = msg.getRawData();
+    int remaining = 0;
+    for( int i=0; i < payload.length; i++ ) {
+      remaining += payload[i].remaining(DirectByteBuffer.SS_NET);
+    }
+    OutgoingFileRegion region = msg.getFileRegion();
+    if( region != null ) {
+      remaining += (int)region.getRemaining();
+    }
+    return remaining;
+  }
+
+
   /**
    * Remove all messages of the given types from the queue.
    * NOTE: Allows for manual listener notification at some later time,
@@ -342,11 +353,7 @@ OutgoingMessageQueueImpl
           if( same_type && msg.getRawData()[0].position(DirectByteBuffer.SS_NET) == 0 ) {   //dont remove a half-sent message
             if( msg == urgent_message ) urgent_message = null;
 
-            DirectByteBuffer[] payload = msg.getRawData();
-            int remaining = 0;
-            for( int x=0; x < payload.length; x++ ) {
-            	remaining += payload[x].remaining(DirectByteBuffer.SS_NET);
-            }
+            int remaining = getRemaining( msg );
             total_size -= remaining;
             if ( msg.getType() == Message.TYPE_DATA_PAYLOAD ){
             	total_data_size -= remaining;
@@ -430,11 +437,7 @@ OutgoingMessageQueueImpl
           if( raw.getRawData()[0].position(DirectByteBuffer.SS_NET) == 0 ) {  //dont remove a half-sent message
             if( raw == urgent_message ) urgent_message = null;
 
-            DirectByteBuffer[] payload = raw.getRawData();
-            int remaining = 0;
-            for( int x=0; x < payload.length; x++ ) {
-            	remaining += payload[x].remaining(DirectByteBuffer.SS_NET);
-            }
+            int remaining = getRemaining( raw );
             total_size -= remaining;
             if ( raw.getType() == Message.TYPE_DATA_PAYLOAD ){
             	total_data_size -= remaining;
@@ -556,6 +559,9 @@ OutgoingMessageQueueImpl
 			  int total_sofar_excluding_free 	= 0;
 			  int total_to_write				= 0;
 
+			  RawMessage	region_message	= null;
+			  int			region_to_write	= 0;
+
 outer:
 			  for( Iterator<RawMessage> i = queue.iterator(); i.hasNext(); ){
 
@@ -605,6 +611,26 @@ outer:
 						  buffer_limit 		= new_buffer_limit;
 					  }
 				  }
+
+				  OutgoingFileRegion region = message.getFileRegion();
+
+				  if ( region != null ){
+
+						// the rest of the message goes straight from file once its buffers are
+						// out, nothing after it can be gathered into the same write
+
+					  region_message	= message;
+					  region_to_write	= (int)region.getRemaining();
+
+					  total_to_write += region_to_write;
+
+					  if ( !msg_is_free ){
+
+						  total_sofar_excluding_free += region_to_write;
+					  }
+
+					  break;
+				  }
 			  }
 
 			  ByteBuffer last_buff = (ByteBuffer)raw_buffers[buffer_count - 1 ];
@@ -615,7 +641,16 @@ outer:
 
 				  int reduce_by = total_sofar_excluding_free - max_bytes;
 
-				  last_buff.limit( orig_last_limit - reduce_by );
+				  if ( region_message != null ){
+
+						// gathering stops before the budget is used up so the excess is all in the region
+
+					  region_to_write -= reduce_by;
+
+				  }else{
+
+					  last_buff.limit( orig_last_limit - reduce_by );
+				  }
 
 				  total_to_write -= reduce_by;
 			  }
@@ -627,10 +662,32 @@ outer:
 				  return( new int[2] );
 			  }
 
-			  transport.write( raw_buffers, 0, buffer_count );
+			  if ( total_to_write > region_to_write ){
+
+				  transport.write( raw_buffers, 0, buffer_count );
+			  }
 
 			  last_buff.limit( orig_last_limit );
 
+			  int region_written = 0;
+
+			  if ( region_message != null && region_to_write > 0 && !last_buff.hasRemaining()){
+
+				  region_written = (int)transport.transferFrom( region_message.getFileRegion(), region_to_write );
+
+				  total_size -= region_written;
+
+				  if ( region_message.getType() == Message.TYPE_DATA_PAYLOAD ){
+
+					  total_data_size 	-= region_written;
+					  data_written		+= region_written;
+
+				  }else{
+
+					  protocol_written	+= region_written;
+				  }
+			  }
+
 			  int pos = 0;
 			  boolean stop = false;
 
@@ -674,6 +731,31 @@ outer:
 							  }
 						  }
 
+						  OutgoingFileRegion region = msg.getFileRegion();
+
+						  if( region != null ) {
+							  message_size += (int)region.getLength();
+						  }
+
+						  percent_complete = (written * 100) / message_size;
+
+						  break;
+					  }
+					  else if( x == payloads.length - 1 && msg.getFileRegion() != null && msg.getFileRegion().getRemaining() > 0 ) {
+						  stop = true;  //buffers are out but the file region isn't done yet
+
+						  OutgoingFileRegion region = msg.getFileRegion();
+
+						  int message_size = (int)region.getLength();
+						  int written = (int)( region.getLength() - region.getRemaining());
+
+						  for( int i=0; i < payloads.length; i++ ) {
+							  int limit = payloads[i].getBuffer( DirectByteBuffer.SS_NET ).limit();
+
+							  message_size += limit;
+							  written += limit;
+						  }
+
 						  percent_complete = (written * 100) / message_size;
 
 						  break;
@@ -19,6 +19,7 @@
 
 package com.biglybt.core.networkmanager.impl;
 
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.RawMessage;
 import com.biglybt.core.peermanager.messaging.Message;
 import com.biglybt.core.peermanager.messaging.MessageException;
@@ -36,6 +37,7 @@ public class RawMessageImpl implements RawMessage {
   private final int priority;
   private boolean is_no_delay;
   private final Message[] to_remove;
+  private final OutgoingFileRegion file_region;
 
 
 
@@ -52,8 +54,27 @@ public class RawMessageImpl implements RawMessage {
                             int _priority,
                             boolean _is_no_delay,
                             Message[] _to_remove ) {
+    this( source, raw_payload, null, _priority, _is_no_delay, _to_remove );
+  }
+
+  /**
+   * Create a new raw message whose data ends with a region sent directly from file.
+   * @param source original message
+   * @param raw_payload headers + original message data held in memory
+   * @param _file_region remaining data, sent after the raw payload
+   * @param priority in queue
+   * @param is_no_delay is an urgent message
+   * @param to_remove message types to auto-remove upon queue
+   */
+  public RawMessageImpl( Message source,
+                            DirectByteBuffer[] raw_payload,
+                            OutgoingFileRegion _file_region,
+                            int _priority,
+                            boolean _is_no_delay,
+                            Message[] _to_remove ) {
     this.message = source;
     this.payload = raw_payload;
+    this.file_region = _file_region;
     this.priority = _priority;
     this.is_no_delay = _is_no_delay;
     this.to_remove = _to_remove;
@@ -93,6 +114,9 @@ public class RawMessageImpl implements RawMessage {
   @Override
   public DirectByteBuffer[] getRawData() {  return payload;  }
 
+  @Override
+  public OutgoingFileRegion getFileRegion() {  return file_region;  }
+
   @Override
   public int getPriority() {  return priority;  }
 
@@ -118,6 +142,10 @@ public class RawMessageImpl implements RawMessage {
     for( int i=0; i < payload.length; i++ ) {
       payload[i].returnToPool();
     }
+
+    if( file_region != null ) {
+      file_region.destroy();
+    }
   }
 
 
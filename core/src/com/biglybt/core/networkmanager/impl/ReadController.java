@@ -402,13 +402,16 @@ public class ReadController implements CoreStatsProvider, AEDiagnosticsEvidenceG
    */
   public void removeReadEntity( RateControlledEntity entity ) {
     try {  entities_mon.enter();
+      //when there are several controllers every one is asked, don't copy unless it's ours
       if( entity.getPriority() == RateControlledEntity.PRIORITY_HIGH ) {
-        //copy-on-write
-        ArrayList<RateControlledEntity> high_new = new ArrayList<>(high_priority_entities);
-        high_new.remove( entity );
-        high_priority_entities = high_new;
+        if( high_priority_entities.contains( entity ) ) {
+          //copy-on-write
+          ArrayList<RateControlledEntity> high_new = new ArrayList<>(high_priority_entities);
+          high_new.remove( entity );
+          high_priority_entities = high_new;
+        }
       }
-      else {
+      else if( normal_priority_entities.contains( entity ) ) {
         //copy-on-write
         ArrayList<RateControlledEntity> norm_new = new ArrayList<>(normal_priority_entities);
         norm_new.remove( entity );
@@ -26,10 +26,6 @@ import java.security.spec.AlgorithmParameterSpec;
 import javax.crypto.Cipher;
 import javax.crypto.spec.SecretKeySpec;
 
-import org.gudy.bouncycastle.crypto.CipherParameters;
-import org.gudy.bouncycastle.crypto.engines.RC4Engine;
-import org.gudy.bouncycastle.crypto.params.KeyParameter;
-
 import com.biglybt.core.util.Debug;
 
 public class
@@ -37,8 +33,8 @@ TransportCipher
 {
 	private static boolean	internal_rc4	= true;	// force internal as we want 160 bit and JCE no supports it
 
-	private Cipher		cipher;
-	private RC4Engine	rc4_engine;
+	private Cipher				cipher;
+	private TransportCipherRC4	rc4_engine;
 
 	public
 	TransportCipher(
@@ -78,22 +74,21 @@ TransportCipher
 
 	    	if ( internal_rc4 ){
 
-	    		rc4_engine	= new RC4Engine();
-
-	    		CipherParameters	params = new KeyParameter(key_spec.getEncoded());
-
-	    		rc4_engine.init( mode == Cipher.ENCRYPT_MODE, params );
+	    		rc4_engine	= new TransportCipherRC4( key_spec.getEncoded());
 	    	}
 
 	    	//System.out.println( "RC4 key: " + ByteFormatter.encodeString( key_spec.getEncoded()));
 
     			// skip first 1024 bytes of stream to protected against a Fluhrer, Mantin and Shamir attack
 
-	    	byte[]	temp = new byte[1024];
+	    	if ( rc4_engine != null ){
+
+	    		rc4_engine.skip( 1024 );
 
-	    	temp = update( temp );
+	    	}else{
 
-	    	//System.out.println( "RC4: first discard = " + ByteFormatter.encodeString( temp, 0, 4 ));
+	    		update( new byte[1024] );
+	    	}
 	    }else{
 
 	    	cipher = Cipher.getInstance( algorithm );
@@ -131,12 +126,18 @@ TransportCipher
 
 			result = new byte[length];
 
-			rc4_engine.processBytes( data, offset, length, result, 0 );
+			rc4_engine.process( data, offset, length, result, 0 );
 		}
 
 		return( result );
    	}
 
+		/**
+		 * Crypts the source's remaining bytes into the target. Source and target can be
+		 * views of the same memory to crypt in place, in which case they must start at the
+		 * same offset.
+		 */
+
 	protected void
 	update(
 		ByteBuffer	source_buffer,
@@ -145,33 +146,14 @@ TransportCipher
 		throws IOException
 	{
 		try{
-			// TODO: 1.5 supports update( ByteBuffer, ByteBuffer )
-
-			byte[]	source_bytes;
-			int		offset;
-			int		length	= source_buffer.remaining();
-
-			if ( source_buffer.hasArray()){
+			if ( rc4_engine != null ){
 
-				source_bytes 	= source_buffer.array();
+				rc4_engine.process( source_buffer, target_buffer );
 
-				offset			= source_buffer.arrayOffset() + source_buffer.position();
+			}else if ( source_buffer.hasRemaining()){
 
-			}else{
-
-				source_bytes 	= new byte[length];
-
-				offset			= 0;
-
-				source_buffer.get( source_bytes );
+				cipher.update( source_buffer, target_buffer );
 			}
-
-			byte[]	target_bytes = update( source_bytes, offset, length );
-
-			source_buffer.position( source_buffer.limit());
-
-			target_buffer.put( target_bytes );
-
 		}catch( Throwable e ){
 
 			throw( new IOException( Debug.getNestedExceptionMessage( e )));
@@ -0,0 +1,346 @@
+/*
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ *
+ */
+
+package com.biglybt.core.networkmanager.impl;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import org.gudy.bouncycastle.crypto.engines.RC4Engine;
+import org.gudy.bouncycastle.crypto.params.KeyParameter;
+
+/**
+ * RC4 keystream that works directly on (direct or heap) ByteBuffers without allocating,
+ * so crypting network data doesn't create garbage per buffer as RC4Engine use did.
+ * Source and target may be the same memory (crypting in place) as long as they start
+ * at the same offset.
+ * <p/>
+ * Produces the same stream as RC4Engine, encrypting and decrypting are the same thing.
+ */
+
+final class
+TransportCipherRC4
+{
+	private static final int	SCRATCH_SIZE	= 4096;
+
+		// per thread rather than per cipher, there are two ciphers for every crypted connection
+
+	private static final ThreadLocal<byte[]>	scratch =
+		new ThreadLocal<byte[]>()
+		{
+			@Override
+			protected byte[]
+			initialValue()
+			{
+				return( new byte[SCRATCH_SIZE] );
+			}
+		};
+
+	private final int[]		state	= new int[256];
+
+	private int				x;
+	private int				y;
+
+	TransportCipherRC4(
+		byte[]		key )
+	{
+		for ( int i=0;i<256;i++){
+
+			state[i] = i;
+		}
+
+		int	j = 0;
+
+		for ( int i=0;i<256;i++){
+
+			int	s = state[i];
+
+			j = ( j + s + ( key[ i % key.length ] & 0xff )) & 0xff;
+
+			state[i] = state[j];
+			state[j] = s;
+		}
+	}
+
+	void
+	process(
+		byte[]		in,
+		int			in_offset,
+		int			length,
+		byte[]		out,
+		int			out_offset )
+	{
+		final int[]	s = state;
+
+		int	x = this.x;
+		int	y = this.y;
+
+		for ( int i=0;i<length;i++){
+
+			x = ( x + 1 ) & 0xff;
+
+			int	sx = s[x];
+
+			y = ( y + sx ) & 0xff;
+
+			int	sy = s[y];
+
+			s[x] = sy;
+			s[y] = sx;
+
+			out[out_offset+i] = (byte)( in[in_offset+i] ^ s[( sx + sy ) & 0xff] );
+		}
+
+		this.x = x;
+		this.y = y;
+	}
+
+		/**
+		 * Crypts the source's remaining bytes into the target, advancing both positions
+		 * @throws BufferOverflowException if the target hasn't room, nothing is consumed
+		 */
+
+	void
+	process(
+		ByteBuffer	source,
+		ByteBuffer	target )
+	{
+		int	length = source.remaining();
+
+		if ( target.remaining() < length ){
+
+			throw( new BufferOverflowException());
+		}
+
+		int	source_pos	= source.position();
+		int	target_pos	= target.position();
+
+		if ( source.hasArray() && target.hasArray() && !target.isReadOnly()){
+
+			process(
+				source.array(), source.arrayOffset() + source_pos, length,
+				target.array(), target.arrayOffset() + target_pos );
+
+		}else{
+
+				// bulk copies are an order of magnitude faster than the cipher, crypting a
+				// chunk at a time in a reused array beats any per byte/long buffer access
+
+			ByteBuffer	source_view	= source.duplicate();
+			ByteBuffer	target_view	= target.duplicate();
+
+			byte[]	chunk = scratch.get();
+
+			int	done = 0;
+
+			while( done < length ){
+
+				int	len = Math.min( SCRATCH_SIZE, length - done );
+
+				source_view.limit( source_pos + done + len );
+				source_view.position( source_pos + done );
+
+				source_view.get( chunk, 0, len );
+
+				process( chunk, 0, len, chunk, 0 );
+
+				target_view.position( target_pos + done );
+
+				target_view.put( chunk, 0, len );
+
+				done += len;
+			}
+		}
+
+		source.position( source_pos + length );
+		target.position( target_pos + length );
+	}
+
+		/**
+		 * Discards keystream
+		 */
+
+	void
+	skip(
+		int		length )
+	{
+		final int[]	s = state;
+
+		int	x = this.x;
+		int	y = this.y;
+
+		for ( int i=0;i<length;i++){
+
+			x = ( x + 1 ) & 0xff;
+
+			int	sx = s[x];
+
+			y = ( y + sx ) & 0xff;
+
+			s[x] = s[y];
+			s[y] = sx;
+		}
+
+		this.x = x;
+		this.y = y;
+	}
+
+		/**
+		 * Stream crypto throughput on one thread (i.e. per core) against a plain copy of the
+		 * same buffers, which is what an unencrypted connection costs, e.g.
+		 *
+		 *   java com.biglybt.core.networkmanager.impl.TransportCipherRC4 [buffer size KB] [MB per run]
+		 */
+
+	public static void
+	main(
+		String[]	args )
+
+		throws Exception
+	{
+		int		buffer_size	= ( args.length > 0?Integer.parseInt( args[0] ):16 )*1024;
+		long	mb_per_run	= args.length > 1?Long.parseLong( args[1] ):512;
+
+		final int	loops = (int)Math.max( 1, ( mb_per_run*1024*1024 )/buffer_size );
+
+		byte[]	key = new byte[20];
+
+		for ( int i=0;i<key.length;i++){
+
+			key[i] = (byte)( i*7 );
+		}
+
+		ByteBuffer	direct_source	= ByteBuffer.allocateDirect( buffer_size );
+		ByteBuffer	direct_target	= ByteBuffer.allocateDirect( buffer_size );
+		byte[]		heap_source		= new byte[buffer_size];
+		byte[]		heap_target		= new byte[buffer_size];
+
+		for ( int i=0;i<buffer_size;i++){
+
+			direct_source.put( i, (byte)( i*31 ));
+
+			heap_source[i] = (byte)( i*31 );
+		}
+
+		System.out.println( "buffer=" + (buffer_size/1024) + "KB, " + mb_per_run + "MB per run, single thread" );
+
+		for ( int run=0;run<2;run++){
+
+				// first run is warm up for the JIT
+
+			boolean	report = run == 1;
+
+			long	start = System.nanoTime();
+
+			for ( int i=0;i<loops;i++){
+
+				direct_source.clear();
+				direct_target.clear();
+
+				direct_target.put( direct_source );
+			}
+
+			report( report, "plain copy (direct)", start, loops, buffer_size );
+
+			RC4Engine	engine = new RC4Engine();
+
+			engine.init( true, new KeyParameter( key ));
+
+			start = System.nanoTime();
+
+			for ( int i=0;i<loops;i++){
+
+					// what TransportCipher used to do for direct buffers
+
+				direct_source.clear();
+				direct_target.clear();
+
+				byte[]	temp = new byte[buffer_size];
+
+				direct_source.get( temp );
+
+				byte[]	result = new byte[buffer_size];
+
+				engine.processBytes( temp, 0, buffer_size, result, 0 );
+
+				direct_target.put( result );
+			}
+
+			report( report, "RC4Engine via byte[] (direct)", start, loops, buffer_size );
+
+			start = System.nanoTime();
+
+			for ( int i=0;i<loops;i++){
+
+				engine.processBytes( heap_source, 0, buffer_size, heap_target, 0 );
+			}
+
+			report( report, "RC4Engine (heap)", start, loops, buffer_size );
+
+			TransportCipherRC4	rc4 = new TransportCipherRC4( key );
+
+			start = System.nanoTime();
+
+			for ( int i=0;i<loops;i++){
+
+				direct_source.clear();
+				direct_target.clear();
+
+				rc4.process( direct_source, direct_target );
+			}
+
+			report( report, "RC4 (direct)", start, loops, buffer_size );
+
+			start = System.nanoTime();
+
+			for ( int i=0;i<loops;i++){
+
+				direct_target.clear();
+
+				ByteBuffer	in_place = direct_target.duplicate();
+
+				rc4.process( in_place, direct_target );
+			}
+
+			report( report, "RC4 in place (direct)", start, loops, buffer_size );
+
+			start = System.nanoTime();
+
+			for ( int i=0;i<loops;i++){
+
+				rc4.process( heap_source, 0, buffer_size, heap_target, 0 );
+			}
+
+			report( report, "RC4 (heap)", start, loops, buffer_size );
+		}
+	}
+
+	private static void
+	report(
+		boolean		report,
+		String		name,
+		long		start,
+		int			loops,
+		int			buffer_size )
+	{
+		if ( report ){
+
+			double	secs	= ( System.nanoTime() - start )/1000000000.0;
+			double	mbs		= ((double)loops*buffer_size )/(1024*1024)/secs;
+
+			System.out.println( "    " + name + ": " + (long)mbs + " MB/s" );
+		}
+	}
+}
@@ -23,6 +23,8 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
+
 
 public interface
 TransportHelper
@@ -64,6 +66,21 @@ TransportHelper
 
     	throws IOException;
 
+    	/**
+    	 * Sends file data directly to the underlying channel without copying it through a buffer
+    	 * @return bytes sent or -1 if not supported (or not currently possible) for this helper
+    	 */
+
+    public default long
+    transferFrom(
+    	OutgoingFileRegion	region,
+    	long				max )
+
+    	throws IOException
+    {
+    	return( -1 );
+    }
+
     public int
     read(
     	ByteBuffer buffer )
@@ -31,6 +31,10 @@ public abstract class
 TransportHelperFilterStream
 	implements TransportHelperFilter
 {
+		// most crypted in one go, anything beyond is left for the next write
+
+	private static final int	MAX_CRYPT_BATCH	= 64*1024;
+
 	private final TransportHelper		transport;
 
 	private DirectByteBuffer	write_buffer_pending_db;
@@ -136,117 +140,118 @@ TransportHelperFilterStream
 
 					// skip "written" bytes in the source
 
-				int skip = written;
+				skip( buffers, array_offset, length, written );
+			}
 
-				for (int i=array_offset;i<array_offset+length;i++){
+				// if write came up short or we've filled the source buffer then we can't do
+				// any more
 
-					ByteBuffer	source_buffer = buffers[i];
+			if ( total_written < pending_writable || total_written == max_writable ){
 
-					int	position 	= source_buffer.position();
-					int	limit		= source_buffer.limit();
+				return( total_written );
+			}
+		}
 
-					int	size = limit - position;
+			// problem - we must only crypt stuff once and when crypted it *has*
+			// to be sent (else the stream will get out of sync).
+			// so we crypt as much as we'll send in one go into a single buffer, which
+			// also means one write for a whole set of (typically small) message buffers
 
-					if ( size <= skip ){
+		long	remaining	= getRemaining( buffers, array_offset, length );
+		int		to_crypt	= (int)Math.min( remaining, MAX_CRYPT_BATCH );
 
-						source_buffer.position( limit );
+		if ( to_crypt == 0 ){
 
-						skip	-= size;
+			return( total_written );
+		}
 
-					}else{
+		DirectByteBuffer	target_buffer_db = DirectByteBufferPool.getBuffer( DirectByteBuffer.AL_NET_CRYPT, to_crypt );
 
-						source_buffer.position( position + skip );
+		try{
+			ByteBuffer	target_buffer = target_buffer_db.getBuffer( DirectByteBuffer.SS_NET );
 
-						skip	= 0;
+			int[]	positions = new int[length];
 
-						break;
-					}
-				}
+			for (int i=array_offset;i<array_offset+length;i++){
 
-				if ( skip != 0 ){
+				ByteBuffer	source_buffer = buffers[i];
 
-					throw( new IOException( "skip inconsistent - " + skip ));
-				}
-			}
+				int	position 	= source_buffer.position();
+				int	limit		= source_buffer.limit();
 
-				// if write came up short or we've filled the source buffer then we can't do
-				// any more
+				positions[i-array_offset] = position;
 
-			if ( total_written < pending_writable || total_written == max_writable ){
+				int	space = to_crypt - target_buffer.position();
 
-				return( total_written );
-			}
-		}
+				if ( space == 0 ){
 
-			// problem - we must only crypt stuff once and when crypted it *has*
-			// to be sent (else the stream will get out of sync).
-			// so we have to turn this into single buffer operations
+					break;
+				}
 
-		for (int i=array_offset;i<array_offset+length;i++){
+				if ( limit - position > space ){
 
-			ByteBuffer	source_buffer = buffers[i];
+					source_buffer.limit( position + space );
 
-			int	position 	= source_buffer.position();
-			int	limit		= source_buffer.limit();
+					try{
+						cryptoOut( source_buffer, target_buffer );
 
-			int	size = limit - position;
+					}finally{
 
-			if ( size == 0 ){
+						source_buffer.limit( limit );
+					}
+				}else if ( limit > position ){
 
-				continue;
+					cryptoOut( source_buffer, target_buffer );
+				}
 			}
 
-			DirectByteBuffer	target_buffer_db = DirectByteBufferPool.getBuffer( DirectByteBuffer.AL_NET_CRYPT,  size );
+			int	crypted = target_buffer.position();
 
-			try{
-				ByteBuffer	target_buffer = target_buffer_db.getBuffer( DirectByteBuffer.SS_NET );
+			target_buffer.flip();
 
-				cryptoOut( source_buffer, target_buffer );
+				// rewind the sources and move them on by what actually gets sent
 
-				target_buffer.position( 0 );
-
-				boolean	partial_write = false;
+			for (int i=array_offset;i<array_offset+length;i++){
 
-				for (int j=i+1;j<array_offset+length;j++){
+				ByteBuffer	source_buffer = buffers[i];
 
-					if ( buffers[j].hasRemaining()){
+				if ( source_buffer.position() != positions[i-array_offset] ){
 
-						partial_write = true;
-					}
+					source_buffer.position( positions[i-array_offset] );
 				}
+			}
 
-				int	written = transport.write( target_buffer, partial_write );
+			boolean	partial_write = remaining > crypted;
 
-				total_written += written;
+			int	written = transport.write( target_buffer, partial_write );
 
-				source_buffer.position( position + written );
+			skip( buffers, array_offset, length, written );
 
-				if ( written < size ){
+			total_written += written;
 
-					write_buffer_pending_db	= target_buffer_db;
+			if ( written < crypted ){
 
-					target_buffer_db	= null;
+				write_buffer_pending_db	= target_buffer_db;
 
-					if ( written == 0 ){
+				target_buffer_db	= null;
 
-							// we gotta pretend at least 1 byte was written to
-							// guarantee that the caller writes the rest
+				if ( written == 0 ){
 
-						write_buffer_pending_byte = ByteBuffer.wrap(new byte[]{target_buffer.get()});
+						// we gotta pretend at least 1 byte was written to
+						// guarantee that the caller writes the rest
 
-						source_buffer.get();
+					write_buffer_pending_byte = ByteBuffer.wrap(new byte[]{target_buffer.get()});
 
-						total_written++;
-					}
+					skip( buffers, array_offset, length, 1 );
 
-					break;
+					total_written++;
 				}
-			}finally{
+			}
+		}finally{
 
-				if ( target_buffer_db != null ){
+			if ( target_buffer_db != null ){
 
-					target_buffer_db.returnToPool();
-				}
+				target_buffer_db.returnToPool();
 			}
 		}
 
@@ -264,64 +269,99 @@ TransportHelperFilterStream
 
 		throws IOException
 	{
-		int	total_read	= 0;
+			// read straight into the caller's buffers and decrypt what arrived in place
 
-		DirectByteBuffer[]	copy_db = new DirectByteBuffer[buffers.length];
-		ByteBuffer[]		copy	= new ByteBuffer[buffers.length];
+		int[]	positions = new int[length];
+
+		for (int i=array_offset;i<array_offset+length;i++){
+
+			positions[i-array_offset] = buffers[i].position();
+		}
+
+		long	total_read = transport.read( buffers, array_offset, length );
+
+		if ( total_read > 0 ){
 
-		try{
 			for (int i=array_offset;i<array_offset+length;i++){
 
 				ByteBuffer	buffer = buffers[i];
 
-				int	size = buffer.remaining();
+				int	start	= positions[i-array_offset];
+				int	end		= buffer.position();
+
+				if ( end > start ){
 
-				if ( size > 0 ){
+					ByteBuffer	source_buffer	= buffer.duplicate();
+					ByteBuffer	target_buffer	= buffer.duplicate();
 
-					copy_db[i]	= DirectByteBufferPool.getBuffer( DirectByteBuffer.AL_NET_CRYPT, size );
+					source_buffer.limit( end );
+					source_buffer.position( start );
 
-					copy[i]	= copy_db[i].getBuffer( DirectByteBuffer.SS_NET );
-				}else{
+					target_buffer.limit( end );
+					target_buffer.position( start );
 
-					copy[i] = ByteBuffer.allocate(0);
+					cryptoIn( source_buffer, target_buffer );
 				}
 			}
+		}
 
-			total_read += transport.read( copy, array_offset, length );
+		// System.out.println( "...read " + total_read );
 
-			for (int i=array_offset;i<array_offset+length;i++){
+		return( total_read );
+	}
+
+	private static long
+	getRemaining(
+		ByteBuffer[] 	buffers,
+		int 			array_offset,
+		int 			length )
+	{
+		long	remaining = 0;
 
-				ByteBuffer	source_buffer	= copy[i];
+		for (int i=array_offset;i<array_offset+length;i++){
 
-				if ( source_buffer != null ){
+			remaining += buffers[i].remaining();
+		}
 
-					ByteBuffer	target_buffer 	= buffers[i];
+		return( remaining );
+	}
 
-					int	source_position	= source_buffer.position();
+	private static void
+	skip(
+		ByteBuffer[] 	buffers,
+		int 			array_offset,
+		int 			length,
+		int				skip )
 
-					if ( source_position > 0 ){
+		throws IOException
+	{
+		for (int i=array_offset;i<array_offset+length && skip > 0;i++){
 
-						source_buffer.flip();
+			ByteBuffer	source_buffer = buffers[i];
 
-						cryptoIn( source_buffer, target_buffer );
-					}
-				}
-			}
+			int	position 	= source_buffer.position();
+			int	limit		= source_buffer.limit();
 
-			// System.out.println( "...read " + total_read );
+			int	size = limit - position;
 
-			return( total_read );
+			if ( size <= skip ){
 
-		}finally{
+				source_buffer.position( limit );
 
-			for (int i=0;i<copy_db.length;i++){
+				skip	-= size;
 
-				if ( copy_db[i] != null ){
+			}else{
 
-					copy_db[i].returnToPool();
-				}
+				source_buffer.position( position + skip );
+
+				skip	= 0;
 			}
 		}
+
+		if ( skip != 0 ){
+
+			throw( new IOException( "skip inconsistent - " + skip ));
+		}
 	}
 
 	@Override
@@ -339,6 +379,11 @@ TransportHelperFilterStream
 
 		throws IOException;
 
+		/**
+		 * Source and target may be views of the same memory, starting at the same offset,
+		 * when decrypting in place
+		 */
+
 	protected abstract void
 	cryptoIn(
 		ByteBuffer	source_buffer,
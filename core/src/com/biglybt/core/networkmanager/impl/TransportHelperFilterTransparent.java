@@ -22,6 +22,8 @@ package com.biglybt.core.networkmanager.impl;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
+
 
 public class
 TransportHelperFilterTransparent
@@ -84,6 +86,16 @@ TransportHelperFilterTransparent
 		return( transport.write( buffer, partial_write ));
 	}
 
+	public long
+	transferFrom(
+		OutgoingFileRegion	region,
+		long				max )
+
+		throws IOException
+	{
+		return( transport.transferFrom( region, max ));
+	}
+
 	@Override
 	public long
 	read(
@@ -24,6 +24,7 @@ import java.nio.ByteBuffer;
 
 import com.biglybt.core.networkmanager.EventWaiter;
 import com.biglybt.core.networkmanager.NetworkConnection;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.Transport;
 import com.biglybt.core.networkmanager.TransportStartpoint;
 import com.biglybt.core.util.AEDiagnostics;
@@ -305,6 +306,40 @@ TransportImpl
 	  	return written;
 	}
 
+	@Override
+	public long
+	transferFrom(
+		OutgoingFileRegion	region,
+		long				max )
+
+		throws IOException
+	{
+	  	if ( write_select_failure != null ){
+
+	  		throw new IOException( "write_select_failure: " + write_select_failure.getMessage() );
+	  	}
+
+	  	if ( filter == null )  return 0;
+
+	  	if ( filter instanceof TransportHelperFilterTransparent ){
+
+	  		long written = ((TransportHelperFilterTransparent)filter).transferFrom( region, max );
+
+	  		if ( written >= 0 ){
+
+	  			if ( stats != null )  stats.bytesWritten( (int)written );
+
+	  			if ( written < 1 )  requestWriteSelect();
+
+	  			return written;
+	  		}
+	  	}
+
+	  		// crypted or otherwise filtered, the data has to pass through memory
+
+	  	return( Transport.super.transferFrom( region, max ));
+	}
+
 	  /**
 	   * Read data from the transport into the given buffers.
 	   * NOTE: Works like ScatteringByteChannel.
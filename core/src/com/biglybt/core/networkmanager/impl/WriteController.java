@@ -808,9 +808,11 @@ public class WriteController implements CoreStatsProvider, AEDiagnosticsEvidence
     try {  entities_mon.enter();
       if( entity.getPriority() == RateControlledEntity.PRIORITY_HIGH ) {
         //copy-on-write
-        ArrayList high_new = new ArrayList( high_priority_entities );
-        high_new.remove( entity );
-        high_priority_entities = high_new;
+        if ( high_priority_entities.contains( entity )){
+	        ArrayList high_new = new ArrayList( high_priority_entities );
+	        high_new.remove( entity );
+	        high_priority_entities = high_new;
+        }
       }
       else {
         //copy-on-write
@@ -818,7 +820,7 @@ public class WriteController implements CoreStatsProvider, AEDiagnosticsEvidence
 	        ArrayList boosted_new = new ArrayList( boosted_priority_entities );
 	        boosted_new.remove( entity );
 	        boosted_priority_entities = boosted_new;
-    	}else{
+    	}else if ( normal_priority_entities.contains( entity )){
 	        ArrayList norm_new = new ArrayList( normal_priority_entities );
 	        norm_new.remove( entity );
 	        normal_priority_entities = norm_new;
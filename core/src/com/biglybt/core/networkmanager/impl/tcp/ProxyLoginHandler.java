@@ -206,26 +206,26 @@ public class ProxyLoginHandler {
     	sendMessage( data[0] );  //send initial handshake to get things started
 
       //register for read ops
-    	TCPNetworkManager.getSingleton().getReadSelector().register( proxy_connection.getSocketChannel(), new VirtualChannelSelector.VirtualSelectorListener() {
+    	TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).register( proxy_connection.getSocketChannel(), new VirtualChannelSelector.VirtualSelectorListener() {
         @Override
         public boolean selectSuccess(VirtualChannelSelector selector, SocketChannel sc, Object attachment ) {
           try {
             int result = readMessage( data[1] );
 
             if( result == READ_DONE ) {
-            	TCPNetworkManager.getSingleton().getReadSelector().cancel( proxy_connection.getSocketChannel() );
+            	TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).cancel( proxy_connection.getSocketChannel() );
               parseSocks4Reply( data[1] );  //will throw exception on error
               proxy_listener.connectSuccess();
             }
             else {
-            	TCPNetworkManager.getSingleton().getReadSelector().resumeSelects( proxy_connection.getSocketChannel() );  //resume read ops
+            	TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).resumeSelects( proxy_connection.getSocketChannel() );  //resume read ops
             }
 
             return( result != READ_NO_PROGRESS );
           }
           catch( Throwable t ) {
           	//Debug.out( t );
-        	  TCPNetworkManager.getSingleton().getReadSelector().cancel( proxy_connection.getSocketChannel() );
+        	  TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).cancel( proxy_connection.getSocketChannel() );
             proxy_listener.connectFailure( t );
             return false;
           }
@@ -234,7 +234,7 @@ public class ProxyLoginHandler {
         @Override
         public void selectFailure(VirtualChannelSelector selector, SocketChannel sc, Object attachment, Throwable msg ) {
           //Debug.out( msg );
-          TCPNetworkManager.getSingleton().getReadSelector().cancel( proxy_connection.getSocketChannel() );
+          TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).cancel( proxy_connection.getSocketChannel() );
           proxy_listener.connectFailure( msg );
         }
       }, null );
@@ -243,7 +243,7 @@ public class ProxyLoginHandler {
       //Debug.out( t );
       SocketChannel chan = proxy_connection.getSocketChannel();
       if ( chan != null ){
-    	  TCPNetworkManager.getSingleton().getReadSelector().cancel( chan );
+    	  TCPNetworkManager.getSingleton().getReadSelector( chan ).cancel( chan );
       }
       proxy_listener.connectFailure( t );
     }
@@ -262,7 +262,7 @@ public class ProxyLoginHandler {
       sendMessage( (ByteBuffer)data.get(0) );  //send initial handshake to get things started
 
       //register for read ops
-      TCPNetworkManager.getSingleton().getReadSelector().register( proxy_connection.getSocketChannel(), new VirtualChannelSelector.VirtualSelectorListener() {
+      TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).register( proxy_connection.getSocketChannel(), new VirtualChannelSelector.VirtualSelectorListener() {
         @Override
         public boolean selectSuccess(VirtualChannelSelector selector, SocketChannel sc, Object attachment ) {
           try {
@@ -272,7 +272,7 @@ public class ProxyLoginHandler {
               boolean done = parseSocks5Reply( (ByteBuffer)data.get(1) );  //will throw exception on error
 
               if( done ) {
-            	  TCPNetworkManager.getSingleton().getReadSelector().cancel( proxy_connection.getSocketChannel() );
+            	  TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).cancel( proxy_connection.getSocketChannel() );
                 proxy_listener.connectSuccess();
               }
               else {
@@ -281,18 +281,18 @@ public class ProxyLoginHandler {
                 data.set( 1, raw[1] );
 
                 if( raw[0] != null )  sendMessage( raw[0] );
-                TCPNetworkManager.getSingleton().getReadSelector().resumeSelects( proxy_connection.getSocketChannel() );  //resume read ops
+                TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).resumeSelects( proxy_connection.getSocketChannel() );  //resume read ops
               }
             }
             else {
-            	TCPNetworkManager.getSingleton().getReadSelector().resumeSelects( proxy_connection.getSocketChannel() );  //resume read ops
+            	TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).resumeSelects( proxy_connection.getSocketChannel() );  //resume read ops
             }
 
             return( result != READ_NO_PROGRESS );
           }
           catch( Throwable t ) {
             //Debug.out( t );
-        	  TCPNetworkManager.getSingleton().getReadSelector().cancel( proxy_connection.getSocketChannel() );
+        	  TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).cancel( proxy_connection.getSocketChannel() );
             proxy_listener.connectFailure( t );
             return false;
           }
@@ -301,7 +301,7 @@ public class ProxyLoginHandler {
         @Override
         public void selectFailure(VirtualChannelSelector selector, SocketChannel sc, Object attachment, Throwable msg ) {
           //Debug.out( msg );
-          TCPNetworkManager.getSingleton().getReadSelector().cancel( proxy_connection.getSocketChannel() );
+          TCPNetworkManager.getSingleton().getReadSelector( proxy_connection.getSocketChannel() ).cancel( proxy_connection.getSocketChannel() );
           proxy_listener.connectFailure( msg );
         }
       }, null );
@@ -310,7 +310,7 @@ public class ProxyLoginHandler {
       //Debug.out( t );
       SocketChannel chan = proxy_connection.getSocketChannel();
       if ( chan != null ){
-    	  TCPNetworkManager.getSingleton().getReadSelector().cancel( chan );
+    	  TCPNetworkManager.getSingleton().getReadSelector( chan ).cancel( chan );
       }
       proxy_listener.connectFailure( t );
     }
@@ -21,6 +21,7 @@ package com.biglybt.core.networkmanager.impl.tcp;
 
 
 import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -119,10 +120,11 @@ TCPNetworkManager
 	    if( tcp_mss_size < 512 )  tcp_mss_size = 512;
 	}
 
-	final VirtualChannelSelector read_selector 	=
-			new VirtualChannelSelector( "TCP network manager", VirtualChannelSelector.OP_READ, true );
-	final VirtualChannelSelector write_selector =
-			new VirtualChannelSelector( "TCP network manager", VirtualChannelSelector.OP_WRITE, true );
+		// sharded mode has a read and write selector per core, a channel always uses the
+		// same one (picked by its identity hash) so register/pause/resume/cancel agree
+
+	private final VirtualChannelSelector[] read_selectors;
+	private final VirtualChannelSelector[] write_selectors;
 
 	private final TCPConnectionManager connect_disconnect_manager = new TCPConnectionManager();
 
@@ -168,10 +170,36 @@ TCPNetworkManager
 				}
 			});
 
-		   //start read selector processing
+		int	num_selectors = 1;
+
+		if ( COConfigurationManager.getBooleanParameter( "network.control.sharded" )){
+
+			num_selectors = Runtime.getRuntime().availableProcessors();
+		}
+
+		read_selectors	= new VirtualChannelSelector[num_selectors];
+		write_selectors	= new VirtualChannelSelector[num_selectors];
+
+		for ( int i=0;i<num_selectors;i++){
+
+			String	suffix = i==0?"":( " " + i );
 
-		AEThread2 read_selector_thread =
-	    	new AEThread2( "ReadController:ReadSelector", true )
+			read_selectors[i] 	= new VirtualChannelSelector( "TCP network manager", VirtualChannelSelector.OP_READ, true );
+			write_selectors[i] 	= new VirtualChannelSelector( "TCP network manager", VirtualChannelSelector.OP_WRITE, true );
+
+			startSelector( read_selectors[i], "ReadController:ReadSelector" + suffix, true );
+			startSelector( write_selectors[i], "WriteController:WriteSelector" + suffix, false );
+		}
+	}
+
+	private void
+	startSelector(
+		final VirtualChannelSelector	selector,
+		final String					name,
+		final boolean					is_read )
+	{
+		AEThread2 selector_thread =
+	    	new AEThread2( name, true )
 	    	{
 		    	@Override
 			    public void
@@ -179,18 +207,21 @@ TCPNetworkManager
 		    	{
 		    		while( true ) {
 
+		    			int	loop_time 		= is_read?READ_SELECT_LOOP_TIME:WRITE_SELECT_LOOP_TIME;
+		    			int	min_loop_time	= is_read?READ_SELECT_MIN_LOOP_TIME:WRITE_SELECT_MIN_LOOP_TIME;
+
 		    			try{
-		    				if ( READ_SELECT_MIN_LOOP_TIME > 0 ){
+		    				if ( min_loop_time > 0 ){
 
 		    					long	start = SystemTime.getHighPrecisionCounter();
 
-		    					read_selector.select( READ_SELECT_LOOP_TIME );
+		    					selector.select( loop_time );
 
 		    					long duration = SystemTime.getHighPrecisionCounter() - start;
 
 		    					duration = duration/1000000;
 
-		    					long	sleep = READ_SELECT_MIN_LOOP_TIME - duration;
+		    					long	sleep = min_loop_time - duration;
 
 		    					if ( sleep > 0 ){
 
@@ -202,75 +233,32 @@ TCPNetworkManager
 		    					}
 		    				}else{
 
-			    				read_selector.select( READ_SELECT_LOOP_TIME );
+		    					selector.select( loop_time );
 		    				}
 
-			    			read_select_count++;
+		    				if ( is_read ){
+
+		    					read_select_count++;
 
+		    				}else{
+
+		    					write_select_count++;
+		    				}
 		    			}catch( Throwable t ) {
 
 		    					// filter out the boring ones
 
 		    				if (!( t instanceof CancelledKeyException )){
 
-		    					Debug.out( "readSelectorLoop() EXCEPTION: ", t );
+		    					Debug.out( name + " loop EXCEPTION: ", t );
 		    				}
 		    			}
 		    		}
 		    	}
 	    	};
 
-	    read_selector_thread.setPriority( Thread.MAX_PRIORITY - 2 );
-	    read_selector_thread.start();
-
-	    	//start write selector processing
-
-	    AEThread2 write_selector_thread =
-	    	new AEThread2( "WriteController:WriteSelector", true )
-	    	{
-		    	@Override
-			    public void
-		    	run()
-		    	{
-		    	    while( true ){
-
-		    	    	try{
-		    	    		if ( WRITE_SELECT_MIN_LOOP_TIME > 0 ){
-
-		    					long	start = SystemTime.getHighPrecisionCounter();
-
-		    					write_selector.select( WRITE_SELECT_LOOP_TIME );
-
-		    					long duration = SystemTime.getHighPrecisionCounter() - start;
-
-		    					duration = duration/1000000;
-
-		    					long	sleep = WRITE_SELECT_MIN_LOOP_TIME - duration;
-
-		    					if ( sleep > 0 ){
-
-		    						try{
-		    							Thread.sleep( sleep );
-
-		    						}catch( Throwable e ){
-		    						}
-		    					}
-		    	    		}else{
-
-		    	    			write_selector.select( WRITE_SELECT_LOOP_TIME );
-
-		    	    			write_select_count++;
-		    	    		}
-		    	    	}catch( Throwable t ) {
-
-		    	    		Debug.out( "writeSelectorLoop() EXCEPTION: ", t );
-		    	    	}
-		  		    }
-		    	}
-	    	};
-
-	    write_selector_thread.setPriority( Thread.MAX_PRIORITY - 2 );
-	    write_selector_thread.start();
+	    selector_thread.setPriority( Thread.MAX_PRIORITY - 2 );
+	    selector_thread.start();
 	}
 
 	public IncomingSocketChannelManager
@@ -294,15 +282,29 @@ TCPNetworkManager
 	 * Get the virtual selector used for socket channel read readiness.
 	 * @return read readiness selector
 	 */
-	public VirtualChannelSelector getReadSelector() {  return read_selector;  }
+	public VirtualChannelSelector getReadSelector( SocketChannel channel ) {  return read_selectors[getSelectorIndex( channel )];  }
 
 
 	/**
 	 * Get the virtual selector used for socket channel write readiness.
 	 * @return write readiness selector
 	 */
-	public VirtualChannelSelector getWriteSelector() {  return write_selector;  }
+	public VirtualChannelSelector getWriteSelector( SocketChannel channel ) {  return write_selectors[getSelectorIndex( channel )];  }
+
 
+	private int
+	getSelectorIndex(
+		SocketChannel	channel )
+	{
+		int	num = read_selectors.length;
+
+		if ( num == 1 ){
+
+			return( 0 );
+		}
+
+		return(( System.identityHashCode( channel ) & 0x7fffffff ) % num );
+	}
 
 	public boolean
 	isDefaultTCPListenerEnabled()
@@ -30,6 +30,7 @@ import java.util.Random;
 
 import com.biglybt.core.logging.LogAlert;
 import com.biglybt.core.logging.Logger;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.VirtualChannelSelector;
 import com.biglybt.core.networkmanager.VirtualChannelSelector.VirtualSelectorListener;
 import com.biglybt.core.networkmanager.impl.TransportHelper;
@@ -332,6 +333,38 @@ TCPTransportHelper
 		return written_sofar;
 	}
 
+	@Override
+	public long
+	transferFrom(
+		OutgoingFileRegion	region,
+		long				max )
+
+		throws IOException
+	{
+		if ( channel == null ){
+
+			Debug.out( "channel == null" );
+
+			return 0;
+		}
+
+			// retained partial writes and scattered handshakes are dealt with by the buffer path
+
+		if ( delayed_write != null || remainingBytesToScatter > 0 ){
+
+			return( -1 );
+		}
+
+		long	written = region.transferTo( channel, max );
+
+		if ( trace ){
+
+			TimeFormatter.milliTrace( "tcp: transfer " + written );
+		}
+
+		return( written );
+	}
+
 	private static final Random rnd = new Random();
 
 	private int channelWrite(ByteBuffer buf) throws IOException
@@ -461,7 +494,7 @@ TCPTransportHelper
 		final selectListener		listener,
 		Object						attachment )
 	{
-		TCPNetworkManager.getSingleton().getReadSelector().register(
+		TCPNetworkManager.getSingleton().getReadSelector( channel ).register(
 				channel,
 				new VirtualSelectorListener()
 				{
@@ -495,7 +528,7 @@ TCPTransportHelper
 		final selectListener		listener,
 		Object						attachment )
 	{
-		TCPNetworkManager.getSingleton().getWriteSelector().register(
+		TCPNetworkManager.getSingleton().getWriteSelector( channel ).register(
 				channel,
 				new VirtualSelectorListener()
 				{
@@ -531,7 +564,7 @@ TCPTransportHelper
 	public void
 	cancelReadSelects()
 	{
-		TCPNetworkManager.getSingleton().getReadSelector().cancel( channel );
+		TCPNetworkManager.getSingleton().getReadSelector( channel ).cancel( channel );
 	}
 
 	@Override
@@ -542,14 +575,14 @@ TCPTransportHelper
 			TimeFormatter.milliTrace( "tcp: cancel write selects" );
 		}
 
-		TCPNetworkManager.getSingleton().getWriteSelector().cancel( channel );
+		TCPNetworkManager.getSingleton().getWriteSelector( channel ).cancel( channel );
 	}
 
 	@Override
 	public void
 	resumeReadSelects()
 	{
-		TCPNetworkManager.getSingleton().getReadSelector().resumeSelects( channel );
+		TCPNetworkManager.getSingleton().getReadSelector( channel ).resumeSelects( channel );
 	}
 
 	@Override
@@ -560,14 +593,14 @@ TCPTransportHelper
 			TimeFormatter.milliTrace( "tcp: resume write selects" );
 		}
 
-		TCPNetworkManager.getSingleton().getWriteSelector().resumeSelects( channel );
+		TCPNetworkManager.getSingleton().getWriteSelector( channel ).resumeSelects( channel );
 	}
 
 	@Override
 	public void
 	pauseReadSelects()
 	{
-		TCPNetworkManager.getSingleton().getReadSelector().pauseSelects( channel );
+		TCPNetworkManager.getSingleton().getReadSelector( channel ).pauseSelects( channel );
 	}
 
 	@Override
@@ -578,7 +611,7 @@ TCPTransportHelper
 			TimeFormatter.milliTrace( "tcp: pause write selects" );
 		}
 
-		TCPNetworkManager.getSingleton().getWriteSelector().pauseSelects( channel );
+		TCPNetworkManager.getSingleton().getWriteSelector( channel ).pauseSelects( channel );
 	}
 
 	@Override
@@ -594,8 +627,8 @@ TCPTransportHelper
 	{
 		closed = true;
 
-		TCPNetworkManager.getSingleton().getReadSelector().cancel( channel );
-		TCPNetworkManager.getSingleton().getWriteSelector().cancel( channel );
+		TCPNetworkManager.getSingleton().getReadSelector( channel ).cancel( channel );
+		TCPNetworkManager.getSingleton().getWriteSelector( channel ).cancel( channel );
 		TCPNetworkManager.getSingleton().getConnectDisconnectManager().closeConnection( channel );
 	}
 
@@ -23,6 +23,7 @@ import java.util.Map;
 
 import com.biglybt.core.disk.DiskManagerReadRequest;
 import com.biglybt.core.disk.DiskManagerReadRequestListener;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.logging.LogRelation;
 import com.biglybt.core.peermanager.PeerManagerRegistration;
 import com.biglybt.core.tracker.client.TRTrackerScraperResponse;
@@ -174,6 +175,15 @@ PEPeerManagerAdapter
 		DiskManagerReadRequest 			request,
 		DiskManagerReadRequestListener 	listener );
 
+		/**
+		 * @return a region to send the request's data straight from file, null if unavailable
+		 */
+
+	public OutgoingFileRegion
+	createFileRegion(
+		PEPeer							peer,
+		DiskManagerReadRequest 			request );
+
 	public LogRelation
 	getLogRelation();
 
@@ -1383,7 +1383,7 @@ implements PEPeerTransport
 
 						// relative seed if peer doesn't have the piece, we already have it or we don't need it
 
-					couldBeSeed &= !peerHavePieces.flags[i] || dmPieces[i].isDone() || !dmPieces[i].isNeeded();
+					couldBeSeed &= !peerHavePieces.get(i) || dmPieces[i].isDone() || !dmPieces[i].isNeeded();
 
 					if (!couldBeSeed){
 
@@ -1398,7 +1398,7 @@ implements PEPeerTransport
 
 						// relative seed if we don't have the piece or we have it and the peer has it too
 
-					couldBeSeed &= !(dmPieces[i].isDone()) || peerHavePieces.flags[i];
+					couldBeSeed &= !(dmPieces[i].isDone()) || peerHavePieces.get(i);
 
 					if( !couldBeSeed ){
 
@@ -1543,7 +1543,7 @@ implements PEPeerTransport
 		if ( current_peer_state != TRANSFERING || pieceNumber == manager.getHiddenPiece()) return;
 		//only force if the other peer doesn't have this piece and is not yet interested or we;ve disabled
 		// aggregation
-		final boolean force =!other_peer_interested_in_me &&peerHavePieces !=null &&!peerHavePieces.flags[pieceNumber];
+		final boolean force =!other_peer_interested_in_me &&peerHavePieces !=null &&!peerHavePieces.get(pieceNumber);
 
 		outgoing_have_message_aggregator.queueHaveMessage( pieceNumber, force || have_aggregation_disabled );
 		checkInterested();
@@ -1595,6 +1595,31 @@ implements PEPeerTransport
 					{
 						peer_stats.diskReadComplete( bytes );
 					}
+
+					@Override
+					public boolean
+					isFileRegionSupported()
+					{
+						if ( !isTCP()){
+
+							return( false );
+						}
+
+						Transport	transport = connection.getTransport();
+
+						if ( transport == null || transport.isEncrypted()){
+
+							return( false );
+						}
+
+							// other encoders (http, plugins) expect the piece data in memory
+
+						MessageStreamEncoder encoder = connection.getOutgoingMessageQueue().getEncoder();
+
+						return( 	encoder instanceof BTMessageEncoder ||
+									encoder instanceof LTMessageEncoder ||
+									encoder instanceof AZMessageEncoder );
+					}
 			},
 			other_peer_piece_version);
 		}
@@ -1656,9 +1681,9 @@ implements PEPeerTransport
 
 						// check individually if don't have all
 
-					for (int i = peerHavePieces.start; i <= peerHavePieces.end; i++ ){
+					for (int i = peerHavePieces.nextSetBit( peerHavePieces.start ); i >= 0; i = peerHavePieces.nextSetBit( i+1 )){
 
-						if ( peerHavePieces.flags[i] && diskManager.isInteresting(i)){
+						if ( diskManager.isInteresting(i)){
 
 							is_interesting = true;
 
@@ -1955,7 +1980,7 @@ implements PEPeerTransport
 	public boolean isPieceAvailable(int pieceNumber)
 	{
 		if (peerHavePieces !=null)
-			return peerHavePieces.flags[pieceNumber];
+			return peerHavePieces.get(pieceNumber);
 		return false;
 	}
 
@@ -3265,17 +3290,10 @@ implements PEPeerTransport
 					tempHavePieces =peerHavePieces;
 					removeAvailability();
 				}
-				for (int i =0; i <nbPieces; i++)
+				tempHavePieces.setBitfield(dataf);
+				for (int i =tempHavePieces.nextSetBit(0); i >=0; i =tempHavePieces.nextSetBit(i +1))
 				{
-					final int index =i /8;
-					final int bit =7 -(i %8);
-					final byte bData =dataf[index];
-					final byte b =(byte) (bData >>bit);
-					if ((b &0x01) ==1)
-					{
-						tempHavePieces.set(i);
-						manager.updateSuperSeedPiece(this,i);
-					}
+					manager.updateSuperSeedPiece(this,i);
 				}
 
 				bitfield.destroy();
@@ -3416,7 +3434,7 @@ implements PEPeerTransport
 		if (peerHavePieces ==null)
 			peerHavePieces =new BitFlags(nbPieces);
 
-		if (!peerHavePieces.flags[pieceNumber])
+		if (!peerHavePieces.get(pieceNumber))
 		{
 			if (!interested_in_other_peer &&diskManager.isInteresting(pieceNumber)&&!is_download_disabled)
 			{
@@ -3470,7 +3488,7 @@ implements PEPeerTransport
 	            return;
 	        }
 
-	        if ( !peerHavePieces.flags[pieceNumber]){
+	        if ( !peerHavePieces.get(pieceNumber)){
 
 	        	new_have	= true;
 
@@ -3512,12 +3530,12 @@ implements PEPeerTransport
     protected long
     getBytesDownloaded()
     {
-		if (peerHavePieces ==null ||peerHavePieces.flags.length ==0)
+		if (peerHavePieces ==null ||peerHavePieces.size() ==0)
 			return 0;
 
 		final long	total_done;
 
-		if ( peerHavePieces.flags[nbPieces-1] ){
+		if ( peerHavePieces.get(nbPieces-1) ){
 
 			total_done = ((long)(peerHavePieces.nbSet -1) *diskManager.getPieceLength()) +diskManager.getPieceLength( nbPieces -1 );
 
@@ -4118,7 +4136,7 @@ implements PEPeerTransport
 
 				int	piece_number = pieces[i][0];
 
-				if ( !flags.flags[ piece_number ] ){
+				if ( !flags.get( piece_number ) ){
 
 					sendAllowFast( piece_number );
 				}
@@ -22,6 +22,7 @@ package com.biglybt.core.peermanager.messaging.azureus;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.RawMessage;
 import com.biglybt.core.networkmanager.impl.RawMessageImpl;
 import com.biglybt.core.peermanager.messaging.Message;
@@ -178,6 +179,12 @@ public class AZMessageFactory {
       payload_size += payload[i].remaining( bss );
     }
 
+    OutgoingFileRegion region = base_message instanceof BTPiece ? ((BTPiece)base_message).getFileRegion() : null;
+
+    if( region != null ) {
+      payload_size += (int)region.getRemaining();
+    }
+
     //create and fill header buffer
 
     DirectByteBuffer header;
@@ -252,7 +259,7 @@ public class AZMessageFactory {
     LegacyData ld = (LegacyData)legacy_data.get( message_id );  //determine if a legacy BT message
 
     if( ld != null ) {  //legacy message, use pre-configured values
-      return new RawMessageImpl( base_message, raw_buffs, ld.priority, ld.is_no_delay, ld.to_remove );
+      return new RawMessageImpl( base_message, raw_buffs, region, ld.priority, ld.is_no_delay, ld.to_remove );
     }
 
     	// these should really be properties of the message...
@@ -278,7 +285,7 @@ public class AZMessageFactory {
     	priority = base_message.getType() == Message.TYPE_DATA_PAYLOAD ? RawMessage.PRIORITY_LOW : RawMessage.PRIORITY_NORMAL;
     }
 
-    return new RawMessageImpl( base_message, raw_buffs, priority, no_delay, null );
+    return new RawMessageImpl( base_message, raw_buffs, region, priority, no_delay, null );
   }
 
 
@@ -24,6 +24,7 @@ import java.util.HashMap;
 import com.biglybt.core.logging.LogEvent;
 import com.biglybt.core.logging.LogIDs;
 import com.biglybt.core.logging.Logger;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.RawMessage;
 import com.biglybt.core.networkmanager.impl.RawMessageImpl;
 import com.biglybt.core.peermanager.messaging.Message;
@@ -249,6 +250,12 @@ public class BTMessageFactory {
       payload_size += payload[i].remaining( DirectByteBuffer.SS_MSG );
     }
 
+    OutgoingFileRegion region = base_message instanceof BTPiece ? ((BTPiece)base_message).getFileRegion() : null;
+
+    if( region != null ) {
+      payload_size += (int)region.getRemaining();
+    }
+
     DirectByteBuffer header = DirectByteBufferPool.getBuffer( DirectByteBuffer.AL_MSG_BT_HEADER, 5 );
     header.putInt( DirectByteBuffer.SS_MSG, 1 + payload_size );
     header.put( DirectByteBuffer.SS_MSG, ld.bt_id );
@@ -258,7 +265,7 @@ public class BTMessageFactory {
     raw_buffs[0] = header;
     System.arraycopy(payload, 0, raw_buffs, 1, payload.length);
 
-    return new RawMessageImpl( base_message, raw_buffs, ld.priority, ld.is_no_delay, ld.to_remove );
+    return new RawMessageImpl( base_message, raw_buffs, region, ld.priority, ld.is_no_delay, ld.to_remove );
   }
 
 
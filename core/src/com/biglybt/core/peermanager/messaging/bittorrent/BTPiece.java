@@ -20,6 +20,7 @@
 package com.biglybt.core.peermanager.messaging.bittorrent;
 
 
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.peermanager.messaging.Message;
 import com.biglybt.core.peermanager.messaging.MessageException;
 import com.biglybt.core.util.DirectByteBuffer;
@@ -31,7 +32,8 @@ import com.biglybt.core.util.DirectByteBufferPool;
  */
 public class BTPiece implements BTMessage {
   private final byte version;
-  private final DirectByteBuffer[] buffer = new DirectByteBuffer[ 2 ];
+  private final DirectByteBuffer[] buffer;
+  private final OutgoingFileRegion file_region;
   private String description;
 
   private final int piece_number;
@@ -43,17 +45,34 @@ public class BTPiece implements BTMessage {
     this.piece_number = piece_number;
     this.piece_offset = piece_offset;
     this.piece_length = data == null ? 0 : data.remaining( DirectByteBuffer.SS_MSG );
+    this.buffer = new DirectByteBuffer[ 2 ];
+    this.file_region = null;
     buffer[1] = data;
     this.version = version;
   }
 
+  /**
+   * Piece whose block data is left on disk and sent directly from the file, only the
+   * header is held in memory so getData() returns just that.
+   */
+  public BTPiece( int piece_number, int piece_offset, byte version, OutgoingFileRegion region ) {
+    this.piece_number = piece_number;
+    this.piece_offset = piece_offset;
+    this.piece_length = (int)region.getLength();
+    this.buffer = new DirectByteBuffer[ 1 ];
+    this.file_region = region;
+    this.version = version;
+  }
+
 
 
   public int getPieceNumber() {  return piece_number;  }
 
   public int getPieceOffset() {  return piece_offset;  }
 
-  public DirectByteBuffer getPieceData() {  return buffer[1];  }
+  public DirectByteBuffer getPieceData() {  return file_region == null ? buffer[1] : null;  }
+
+  public OutgoingFileRegion getFileRegion() {  return file_region;  }
 
 
 
@@ -125,6 +144,10 @@ public class BTPiece implements BTMessage {
   @Override
   public void destroy() {
     if( buffer[0] != null ) buffer[0].returnToPool();
-    if( buffer[1] != null ) buffer[1].returnToPool();
+    if( file_region != null ) {
+      file_region.destroy();
+    }else if( buffer[1] != null ) {
+      buffer[1].returnToPool();
+    }
   }
 }
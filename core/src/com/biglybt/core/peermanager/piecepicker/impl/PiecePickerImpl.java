@@ -196,6 +196,8 @@ implements PiecePicker
 
 	/** the priority for starting each piece/base priority for resuming */
 	private int[]				startPriorities;
+	/** the pieces with a start priority >= 0, i.e. the ones worth looking at when picking */
+	private BitFlags			startWanted;
 
 	protected volatile boolean	hasNeededUndonePiece;
 	protected volatile long		neededUndonePieceChange;
@@ -511,11 +513,7 @@ implements PiecePicker
 				final BitFlags peerHavePieces =peer.getAvailable();
 				if (peerHavePieces !=null &&peerHavePieces.nbSet >0)
 				{
-					for (j =peerHavePieces.start; j <=peerHavePieces.end; j++)
-					{
-						if (peerHavePieces.flags[j])
-							++newAvailability[j];
-					}
+					peerHavePieces.addTo(newAvailability);
 				}
 			}
 		}
@@ -1497,6 +1495,14 @@ implements PiecePicker
 			neededUndonePieceChange++;
 		}
 
+		final BitFlags newWanted =new BitFlags(nbPieces);
+		for (int i =0; i <nbPieces; i++)
+		{
+			if (newPriorities[i] >=0)
+				newWanted.set(i);
+		}
+
+		startWanted =newWanted;
 		startPriorities =newPriorities;
 	}
 
@@ -1706,7 +1712,7 @@ implements PiecePicker
 
 				long piece_rta = provider_piece_rtas[i];
 
-				if ( peerHavePieces.flags[i] && startPriorities[i] == PRIORITY_REALTIME && piece_rta > 0 ){
+				if ( peerHavePieces.get(i) && startPriorities[i] == PRIORITY_REALTIME && piece_rta > 0 ){
 
 					final DiskManagerPiece dmPiece =dmPieces[i];
 
@@ -2005,7 +2011,7 @@ implements PiecePicker
 
 					if ( peerReserved != null && peerReserved.equals( pt.getIp())){
 
-						if ( peerHavePieces.flags[reservedPieceNumber] &&pePiece.isRequestable()){
+						if ( peerHavePieces.get(reservedPieceNumber) &&pePiece.isRequestable()){
 
 							return reservedPieceNumber;
 						}else{
@@ -2094,11 +2100,15 @@ implements PiecePicker
 
 			// Try to continue a piece already loaded, according to priority
 
-        for (i =startI; i <=endI; i++){
+        	// skip straight to the pieces the peer has that we want
+
+        final BitFlags	wanted = startWanted ==null ?peerHavePieces :startWanted;
+
+        for (i =peerHavePieces.nextSetBitAnd(wanted, startI); i >=0 && i <=endI; i =peerHavePieces.nextSetBitAnd(wanted, i +1)){
 
         		// is the piece available from this peer?
 
-        	if ( peerHavePieces.flags[i]){
+        	if ( peerHavePieces.get(i)){
 
         		priority = startPriorities[i];
 
@@ -2370,15 +2380,12 @@ implements PiecePicker
 
 		// figure out the piece number of that selected bitflag
 		int foundNb =-1;
-		for (int i =startI; i <=startCandidates.end &&i >=startCandidates.start; i +=direction)
+		for (int i =startI; i >=0 &&i <=startCandidates.end &&i >=startCandidates.start;
+			i =direction ==1 ?startCandidates.nextSetBit(i +1) :startCandidates.previousSetBit(i -1))
 		{
-			// is piece flagged
-			if (startCandidates.flags[i])
-			{
-				foundNb++;
-				if (foundNb >=targetNb)
-					return i;
-			}
+			foundNb++;
+			if (foundNb >=targetNb)
+				return i;
 		}
 		return -1;
 	}
@@ -3211,12 +3218,7 @@ implements PiecePicker
 			if ( availabilityAsynch == null ){
 				availabilityAsynch = (int[])availability.clone();
 			}
-			for (int i =peerHavePieces.start; i <=peerHavePieces.end; i++)
-			{
-				if ( peerHavePieces.flags[i] ){
-					++availabilityAsynch[i];
-				}
-			}
+			peerHavePieces.addTo(availabilityAsynch);
 			availabilityChange++;
 			} finally {availabilityMon.exit();}
 		}
@@ -3237,15 +3239,12 @@ implements PiecePicker
 			{
 				availabilityAsynch = (int[])availability.clone();
 			}
-			for (int i =peerHavePieces.start; i <=peerHavePieces.end; i++)
+			for (int i =peerHavePieces.nextSetBit(peerHavePieces.start); i >=0; i =peerHavePieces.nextSetBit(i +1))
 			{
-				if (peerHavePieces.flags[i])
-				{
-					if (availabilityAsynch[i] >(dmPieces[i].isDone() ?1 :0))
-						--availabilityAsynch[i];
-					else
-						availabilityDrift++;
-				}
+				if (availabilityAsynch[i] >(dmPieces[i].isDone() ?1 :0))
+					--availabilityAsynch[i];
+				else
+					availabilityDrift++;
 			}
 			availabilityChange++;
 			} finally {availabilityMon.exit();}
@@ -29,6 +29,10 @@ import com.biglybt.core.util.HashCodeUtils;
  * Originaly designed as a boolean array to correspond to the pieces in a torrent,
  * for example to show which pieces are; downloading, high priority, rarest, available, or whatever.
  * This class is subject to experimentation, although the important uses of the class must NOT be broken.
+ * <p>
+ * The flags are packed 64 to a long so that a peer's piece set for a large torrent is an eighth of
+ * the size it was as a boolean[], and so that combining sets and scanning for set flags can work a
+ * word at a time.
  */
 public class BitFlags
     implements Cloneable
@@ -41,23 +45,29 @@ public class BitFlags
     public int          end;
     /** how many bits are set */
 	public int			nbSet;
-    /** The array of bit flags */
-	public final boolean[]	flags;
+
+    /** The bit flags, bit (i &amp; 63) of word (i &gt;&gt; 6) is flag i */
+	private final long[]	words;
+	private final int		length;
+
+    /** getFlags() result, dropped whenever a flag is set or cleared */
+	private boolean[]		flags_cache;
 
 	public BitFlags(final int count)
 	{
         start =count;
         end =0;
         nbSet =0;
-		flags =new boolean[count];
+        length =count;
+		words =new long[(count +63) >>>6];
 	}
 
 	public BitFlags(final boolean[]	_flags )
 	{
-        start =_flags.length;
-		flags	= _flags;
-		for (int i=0;i<flags.length;i++){
-			if ( flags[i]){
+		this(_flags.length);
+		for (int i=0;i<_flags.length;i++){
+			if ( _flags[i]){
+				words[i >>>6] |=1L <<i;
 				nbSet++;
 				if ( i < start ){
 					start = i;
@@ -73,7 +83,8 @@ public class BitFlags
         start =other.start;
         end =other.end;
         nbSet =other.nbSet;
-        flags =(boolean[])other.flags.clone();
+        length =other.length;
+        words =other.words.clone();
     }
 
     @Override
@@ -84,7 +95,7 @@ public class BitFlags
 
     public int hashCode()
     {
-        int result =HashCodeUtils.hashMore(0, flags);
+        int result =Arrays.hashCode(words);
         result =HashCodeUtils.hashMore(result, nbSet);
         result =HashCodeUtils.hashMore(result, end);
         return HashCodeUtils.hashMore(result, start);
@@ -101,33 +112,48 @@ public class BitFlags
             return false;
         if (this.nbSet !=other.nbSet)
             return false;
-        if (this.flags ==null &&other.flags ==null)
-            return true;
-        if (this.flags ==null ||other.flags ==null)
-            return false;
-        if (this.flags.length !=other.flags.length)
+        if (this.length !=other.length)
             return false;
-        for (int i =0; i <this.flags.length; i++)
-        {
-            if (this.flags[i] ^ other.flags[i])
-                return false;
-        }
-
-        return true;
+        return Arrays.equals(this.words, other.words);
     }
 
-    /** You can read flags.length instead (but please don't modify it)
+    /**
      * @return the number of elements in this array
      */
     public int size()
     {
-        return flags.length;
+        return length;
+    }
+
+    public boolean get(final int i)
+    {
+        if (i <0 ||i >=length)
+            throw new ArrayIndexOutOfBoundsException(i);
+        return (words[i >>>6] &(1L <<i)) !=0;
+    }
+
+    /**
+     * @return the flags as a boolean array, shared between calls until the flags next change
+     * so callers mustn't modify it
+     */
+    public boolean[] getFlags()
+    {
+        boolean[] result =flags_cache;
+        if (result ==null)
+        {
+            result =new boolean[length];
+            for (int i =nextSetBit(0); i >=0; i =nextSetBit(i +1))
+                result[i] =true;
+            flags_cache =result;
+        }
+        return result;
     }
 
 	public void clear()
 	{
-		Arrays.fill(flags, false);
-		start =flags.length;
+		Arrays.fill(words, 0);
+		flags_cache =null;
+		start =length;
 		end =0;
 		nbSet =0;
 	}
@@ -135,7 +161,8 @@ public class BitFlags
     /** for setting a flag that is already known to be the first true flag */
 	public void setStart(final int i)
 	{
-		flags[i] =true;
+		words[i >>>6] |=1L <<i;
+		flags_cache =null;
 		nbSet++;
 		start =i;
 	}
@@ -143,9 +170,14 @@ public class BitFlags
     /** for setting a flag that is not known to be the first or last, or not */
 	public void set(final int i)
 	{
-		if (!flags[i])
+		final int w =i >>>6;
+		final long mask =1L <<i;
+		if ((words[w] &mask) ==0)
 		{
-			flags[i] =true;
+			if (i >=length)
+				throw new ArrayIndexOutOfBoundsException(i);
+			words[w] |=mask;
+			flags_cache =null;
 			nbSet++;
 			if (start >i)
 				start =i;
@@ -157,7 +189,8 @@ public class BitFlags
     /** this is for setting a flag that is already known to be the last true flag */
 	public void setEnd(final int i)
 	{
-		flags[i] =true;
+		words[i >>>6] |=1L <<i;
+		flags_cache =null;
 		nbSet++;
 		end =i;
 	}
@@ -165,61 +198,267 @@ public class BitFlags
     /** clears the array then sets the given flag */
 	public void setOnly(final int i)
 	{
-        if (start <flags.length)
-            Arrays.fill(flags, start, end, false);
+        if (start <length)
+            Arrays.fill(words, start >>>6, (end >>>6) +1, 0);
 		nbSet =1;
 		start =i;
 		end =i;
-		flags[i] =true;
+		words[i >>>6] |=1L <<i;
+		flags_cache =null;
 	}
 
 	public void setAll()
 	{
+		if (length ==0)
+			return;
 		start =0;
-		end =flags.length -1;
-		Arrays.fill(flags, true);
-		nbSet =flags.length;
+		end =length -1;
+		Arrays.fill(words, -1L);
+		words[words.length -1] =-1L >>>(-length &63);
+		flags_cache =null;
+		nbSet =length;
+	}
+
+    /**
+     * Sets the flags that are set in a bitfield in the BitTorrent wire format (highest bit of the
+     * first byte is flag 0), leaving others as they are
+     * @param bitfield at least (size() +7) /8 bytes
+     */
+	public void setBitfield(final byte[] bitfield)
+	{
+		for (int w =0; w <words.length; w++)
+		{
+			long word =0;
+			final int base =w <<3;
+			final int bytes =Math.min(8, bitfield.length -base);
+			for (int b =0; b <bytes; b++)
+				word |=(long)(Integer.reverse(bitfield[base +b] &0xff) >>>24) <<(b <<3);
+			words[w] |=word;
+		}
+		if (words.length >0)
+			words[words.length -1] &=-1L >>>(-length &63);
+		flags_cache =null;
+		recount();
+	}
+
+	private void recount()
+	{
+		int count =0;
+		for (int w =0; w <words.length; w++)
+			count +=Long.bitCount(words[w]);
+		nbSet =count;
+		if (count ==0)
+		{
+			start =length;
+			end =0;
+		} else
+		{
+			start =nextSetBit(0);
+			end =previousSetBit(length -1);
+		}
+	}
+
+    /**
+     * @return the index of the first set flag at or after from, -1 if none
+     */
+	public int nextSetBit(final int from)
+	{
+		if (from >=length)
+			return -1;
+		int w =from >>>6;
+		long word =words[w] &(-1L <<from);
+		while (true)
+		{
+			if (word !=0)
+				return (w <<6) +Long.numberOfTrailingZeros(word);
+			if (++w ==words.length)
+				return -1;
+			word =words[w];
+		}
+	}
+
+    /**
+     * @return the index of the first flag at or after from that is set in both this and the other, -1 if none
+     */
+	public int nextSetBitAnd(final BitFlags other, final int from)
+	{
+		if (from >=length)
+			return -1;
+		int w =from >>>6;
+		long word =words[w] &other.words[w] &(-1L <<from);
+		while (true)
+		{
+			if (word !=0)
+				return (w <<6) +Long.numberOfTrailingZeros(word);
+			if (++w ==words.length)
+				return -1;
+			word =words[w] &other.words[w];
+		}
+	}
+
+    /**
+     * @return the index of the last set flag at or before from, -1 if none
+     */
+	public int previousSetBit(final int from)
+	{
+		if (from <0)
+			return -1;
+		int w =Math.min(from, length -1) >>>6;
+		long word =words[w] &(-1L >>>(63 -(Math.min(from, length -1) &63)));
+		while (true)
+		{
+			if (word !=0)
+				return (w <<6) +63 -Long.numberOfLeadingZeros(word);
+			if (w-- ==0)
+				return -1;
+			word =words[w];
+		}
 	}
 
 	/**
-	 * Experimental.  Returns a new BitFlags with flags set as the logical AND of both BitFlags.
+	 * Returns a new BitFlags with flags set as the logical AND of both BitFlags.
      * The length of both must be the same.
 	 * @param other BitFlags to be ANDed with this BitFlags. Must not be null.
 	 * @return new BitFlags representing the logical AND of the two
 	 */
 	public BitFlags and(final BitFlags other)
 	{
-		final BitFlags result =new BitFlags(flags.length);
+		final BitFlags result =new BitFlags(length);
 		if (this.nbSet >0 &&other.nbSet >0)
 		{
-            // setup outer union bounds
-			int i =this.start >other.start ?this.start :other.start;
-			final int endI =this.end <other.end ?this.end :other.end;
-            // find the first common set bit
-			for (; i <=endI; i++)
+            // only the words in the overlap of both set ranges can contribute
+			final int from =Math.max(this.start, other.start) >>>6;
+			final int to =Math.min(this.end, other.end) >>>6;
+			for (int w =from; w <=to; w++)
+				result.words[w] =this.words[w] &other.words[w];
+			result.recount();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a new BitFlags with the flags set in this BitFlags but not in the other.
+     * The length of both must be the same.
+	 * @param other BitFlags to be removed from this BitFlags. Must not be null.
+	 * @return new BitFlags representing this AND NOT other
+	 */
+	public BitFlags andNot(final BitFlags other)
+	{
+		final BitFlags result =new BitFlags(length);
+		if (this.nbSet >0)
+		{
+			for (int w =this.start >>>6; w <=this.end >>>6; w++)
+				result.words[w] =this.words[w] &~other.words[w];
+			result.recount();
+		}
+		return result;
+	}
+
+    /**
+     * @return the number of flags set in both this and the other BitFlags, without creating a new one
+     */
+	public int countAnd(final BitFlags other)
+	{
+		if (this.nbSet ==0 ||other.nbSet ==0)
+			return 0;
+		final int from =Math.max(this.start, other.start) >>>6;
+		final int to =Math.min(this.end, other.end) >>>6;
+		int count =0;
+		for (int w =from; w <=to; w++)
+			count +=Long.bitCount(this.words[w] &other.words[w]);
+		return count;
+	}
+
+	/**
+	 * Adds one to counts[i] for every flag i that is set, as for adding a peer's pieces to availability.
+	 */
+	public void addTo(final int[] counts)
+	{
+		if (nbSet ==0)
+			return;
+		for (int w =start >>>6; w <=end >>>6; w++)
+		{
+			long word =words[w];
+			final int base =w <<6;
+			while (word !=0)
 			{
-				if (this.flags[i] &&other.flags[i])
-				{
-                    result.flags[i] =true;
-                    result.nbSet++;
-                    result.start =i;
-					break;
-				}
+				counts[base +Long.numberOfTrailingZeros(word)]++;
+				word &=word -1;
+			}
+		}
+	}
+
+	/**
+	 * Availability update and rarest-first selection timings for a large torrent, both scanning
+	 * flag by flag as before the flags were packed and a word at a time
+	 */
+	public static void main(String[] args)
+	{
+		final int pieces =100000;
+		final int peers =500;
+		final java.util.Random random =new java.util.Random(0);
+		final BitFlags[] have =new BitFlags[peers];
+		for (int p =0; p <peers; p++)
+		{
+			have[p] =new BitFlags(pieces);
+			final int density =random.nextInt(100);
+			for (int i =0; i <pieces; i++)
+				if (random.nextInt(100) <density)
+					have[p].set(i);
+		}
+		final BitFlags needed =new BitFlags(pieces);
+		for (int i =0; i <pieces; i++)
+			if (random.nextInt(4) !=0)
+				needed.set(i);
+
+		for (int run =0; run <5; run++)
+		{
+			final int[] availability =new int[pieces];
+			long t =System.nanoTime();
+			for (int p =0; p <peers; p++)
+			{
+				final BitFlags bf =have[p];
+				for (int i =bf.start; i <=bf.end; i++)
+					if (bf.get(i))
+						availability[i]++;
 			}
-            // find any remaining common bits
-			for (; i <=endI; i++)
+			final long scalarAdd =System.nanoTime() -t;
+
+			Arrays.fill(availability, 0);
+			t =System.nanoTime();
+			for (int p =0; p <peers; p++)
+				have[p].addTo(availability);
+			final long wordAdd =System.nanoTime() -t;
+
+			int found =0;
+			t =System.nanoTime();
+			for (int p =0; p <peers; p++)
 			{
-				if (this.flags[i] &&other.flags[i])
-				{
-                    result.flags[i] =true;
-                    result.nbSet++;
-                    result.end =i;
-				}
+				final BitFlags bf =have[p];
+				int min =Integer.MAX_VALUE;
+				for (int i =bf.start; i <=bf.end; i++)
+					if (bf.get(i) &&needed.get(i) &&availability[i] <min)
+						min =availability[i];
+				found +=min ==Integer.MAX_VALUE ?0 :1;
 			}
-            if (result.end <result.start)
-                result.end =result.start;
+			final long scalarRarest =System.nanoTime() -t;
+
+			t =System.nanoTime();
+			for (int p =0; p <peers; p++)
+			{
+				final BitFlags candidates =have[p].and(needed);
+				int min =Integer.MAX_VALUE;
+				for (int i =candidates.nextSetBit(0); i >=0; i =candidates.nextSetBit(i +1))
+					if (availability[i] <min)
+						min =availability[i];
+				found -=min ==Integer.MAX_VALUE ?0 :1;
+			}
+			final long wordRarest =System.nanoTime() -t;
+
+			System.out.println(
+				"availability: per flag=" +scalarAdd /1000000 +"ms, per word=" +wordAdd /1000000 +"ms" +
+				"; rarest: per flag=" +scalarRarest /1000000 +"ms, per word=" +wordRarest /1000000 +"ms" +
+				(found ==0 ?"" :" MISMATCH"));
 		}
-		return result;
 	}
-
 }
@@ -21,8 +21,11 @@ package com.biglybt.core.peermanager.utils;
 
 import java.util.*;
 
+import com.biglybt.core.config.COConfigurationManager;
+import com.biglybt.core.config.ParameterListener;
 import com.biglybt.core.disk.DiskManagerReadRequest;
 import com.biglybt.core.disk.DiskManagerReadRequestListener;
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.networkmanager.OutgoingMessageQueue;
 import com.biglybt.core.peer.PEPeer;
 import com.biglybt.core.peermanager.messaging.Message;
@@ -42,6 +45,27 @@ import com.biglybt.core.util.DirectByteBuffer;
  * does, before passing the messages onto the outgoing message queue for transmission.
  */
 public class OutgoingBTPieceMessageHandler {
+	private static boolean	send_from_file;
+
+	static{
+			// sends unencrypted piece data straight from file (sendfile) without reading it into a buffer.
+			// the file read then happens on the network write thread rather than a disk thread, which
+			// is cheap when the data is in the OS page cache but can stall writes when it isn't
+
+		COConfigurationManager.addAndFireParameterListener(
+			"network.tcp.write.sendfile",
+			new ParameterListener()
+			{
+				@Override
+				public void
+				parameterChanged(
+					String	name )
+				{
+					send_from_file = COConfigurationManager.getBooleanParameter( name );
+				}
+			});
+	}
+
   private final PEPeer					peer;
   private final OutgoingMessageQueue 	outgoing_message_queue;
   private 		byte					piece_version;
@@ -386,12 +410,60 @@ public class OutgoingBTPieceMessageHandler {
 	*/
 
     if ( to_submit != null ){
+    	boolean	use_regions = send_from_file && adapter.isFileRegionSupported();
+
     	for (int i=0;i<to_submit.size();i++){
-    		peer.getManager().getAdapter().enqueueReadRequest( peer, (DiskManagerReadRequest)to_submit.get(i), read_req_listener );
+    		DiskManagerReadRequest dmr = (DiskManagerReadRequest)to_submit.get(i);
+
+    		if ( use_regions ){
+
+    			OutgoingFileRegion region = peer.getManager().getAdapter().createFileRegion( peer, dmr );
+
+    			if ( region != null ){
+
+    				queueFileRegion( dmr, region );
+
+    				continue;
+    			}
+    		}
+
+    		peer.getManager().getAdapter().enqueueReadRequest( peer, dmr, read_req_listener );
     	}
     }
   }
 
+  	/**
+  	 * Equivalent of a completed read for data that will be sent straight from file
+  	 */
+
+  private void
+  queueFileRegion(
+	DiskManagerReadRequest	request,
+	OutgoingFileRegion		region )
+  {
+	  try{
+		  lock_mon.enter();
+
+		  if( !loading_messages.contains( request ) || destroyed ) { //was canceled
+			  region.destroy();
+			  return;
+		  }
+		  loading_messages.remove( request );
+
+		  BTPiece msg = new BTPiece( request.getPieceNumber(), request.getOffset(), piece_version, region );
+		  queued_messages.put( msg, request );
+
+		  outgoing_message_queue.addMessage( msg, true );
+	  }
+	  finally{
+		  lock_mon.exit();
+	  }
+
+	  adapter.diskRequestCompleted( request.getLength());
+
+	  outgoing_message_queue.doListenerNotifications();
+  }
+
   /**
 	 * Get a list of piece numbers being requested
 	 *
@@ -26,4 +26,12 @@ OutgoingBTPieceMessageHandlerAdapter
 	public void
 	diskRequestCompleted(
 		long		bytes );
+
+		/**
+		 * @return true if piece data can be handed to the connection as a file region rather
+		 * than being read into memory (i.e. a plain TCP transport with a BT/AZ encoder)
+		 */
+
+	public boolean
+	isFileRegionSupported();
 }
@@ -59,6 +59,12 @@ CoreStats
 	public static final String ST_DISK_WRITE_BYTES_MULTIPLE		= "disk.write.bytes.multiple";
 	public static final String ST_DISK_WRITE_IO_TIME			= "disk.write.io.time";
 	public static final String ST_DISK_WRITE_IO_COUNT			= "disk.write.io.count";
+	public static final String ST_DISK_WRITE_COALESCE_QUEUE_BYTES	= "disk.write.coalesce.queue.bytes";
+	public static final String ST_DISK_WRITE_COALESCE_BLOCKS		= "disk.write.coalesce.blocks";
+	public static final String ST_DISK_WRITE_COALESCE_WRITES		= "disk.write.coalesce.writes";
+	public static final String ST_DISK_WRITE_COALESCE_BYTES			= "disk.write.coalesce.bytes";
+	public static final String ST_DISK_WRITE_COALESCE_AVERAGE_SIZE	= "disk.write.coalesce.average.size";	// bytes per write
+	public static final String ST_DISK_WRITE_COALESCE_SAVED			= "disk.write.coalesce.saved";			// writes avoided
 
 		// NETWORK
 
@@ -158,6 +164,12 @@ CoreStats
 		{ ST_DISK_WRITE_BYTES_MULTIPLE,				CUMULATIVE },
 		{ ST_DISK_WRITE_IO_TIME,					CUMULATIVE },
 		{ ST_DISK_WRITE_IO_COUNT,					CUMULATIVE },
+		{ ST_DISK_WRITE_COALESCE_QUEUE_BYTES,		POINT },
+		{ ST_DISK_WRITE_COALESCE_BLOCKS,			CUMULATIVE },
+		{ ST_DISK_WRITE_COALESCE_WRITES,			CUMULATIVE },
+		{ ST_DISK_WRITE_COALESCE_BYTES,				CUMULATIVE },
+		{ ST_DISK_WRITE_COALESCE_AVERAGE_SIZE,		POINT },
+		{ ST_DISK_WRITE_COALESCE_SAVED,				CUMULATIVE },
 
 		{ ST_NET_WRITE_CONTROL_WAIT_COUNT,			CUMULATIVE },
 		{ ST_NET_WRITE_CONTROL_P_COUNT,				CUMULATIVE },
@@ -20,10 +20,21 @@
  */
 package com.biglybt.core.tracker.client.impl.bt;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.biglybt.core.tracker.protocol.udp.PRUDPPacketTracker;
+import com.biglybt.core.tracker.server.TRTrackerServer;
+import com.biglybt.core.tracker.server.TRTrackerServerFactory;
 import com.biglybt.core.util.Constants;
 
 /**
@@ -46,13 +57,139 @@ public class TrackerLoadTester {
   }
 
   public static void main(String args[]) {
+    if(args.length > 0 && args[0].equals("-local")) {
+      localLoadTest(args);
+      return;
+    }
     if(args.length < 2) return;
     int nbTorrents = Integer.parseInt(args[0]);
     int nbClientsPerTorrent = Integer.parseInt(args[1]);
     new TrackerLoadTester(nbTorrents,nbClientsPerTorrent);
   }
 
+  /**
+   * Starts TCP and UDP tracker servers in this VM and hammers a few swarms with concurrent
+   * announces over each, reporting announces per second.
+   * Arguments: -local [threads] [torrents] [peersPerTorrent] [announcesPerThread]
+   */
+  private static void localLoadTest(String args[]) {
+    final int nbThreads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+    final int nbTorrents = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+    final int nbPeers = args.length > 3 ? Integer.parseInt(args[3]) : 2000;
+    final int nbAnnounces = args.length > 4 ? Integer.parseInt(args[4]) : 2000;
+
+    TRTrackerServer tcpServer = null;
+    TRTrackerServer udpServer = null;
+    try {
+      tcpServer = TRTrackerServerFactory.create(TRTrackerServerFactory.PR_TCP, 16969, false, false);
+      udpServer = TRTrackerServerFactory.create(TRTrackerServerFactory.PR_UDP, 16970, false, false);
+
+      final byte[][] hashes = new byte[nbTorrents][];
+      for(int i = 0 ; i < nbTorrents ; i++) {
+        hashes[i] = generateHash(1000 + i);
+        tcpServer.permit("load test", hashes[i], true);
+        udpServer.permit("load test", hashes[i], true);
+      }
+
+      final String tcpUrl = "http://127.0.0.1:" + tcpServer.getPort() + "/announce";
+      final int udpPort = udpServer.getPort();
+
+      for(int protocol = 0 ; protocol < 2 ; protocol++) {
+        final boolean udp = protocol == 1;
+        final AtomicLong failures = new AtomicLong();
+        Thread[] threads = new Thread[nbThreads];
+        for(int t = 0 ; t < nbThreads ; t++) {
+          final int seed = t;
+          threads[t] = new Thread() {
+            @Override
+            public void run() {
+              Random random = new Random(seed);
+              DatagramSocket socket = null;
+              try {
+                if(udp) {
+                  socket = new DatagramSocket();
+                  socket.setSoTimeout(5000);
+                }
+                for(int i = 0 ; i < nbAnnounces ; i++) {
+                  int peer = random.nextInt(nbPeers);
+                  byte[] hash = hashes[random.nextInt(nbTorrents)];
+                  // separate peer ids per protocol as udp announces carry a key, tcp ones here don't
+                  byte[] peerId = generateHash(udp ? nbPeers + peer : peer);
+                  boolean ok = udp
+                    ? announceUDP(socket, udpPort, hash, peerId, 20000 + peer)
+                    : announce(tcpUrl, hash, peerId, 20000 + peer, false);
+                  if(!ok) failures.incrementAndGet();
+                }
+              } catch(Exception e) {
+                e.printStackTrace();
+              } finally {
+                if(socket != null) socket.close();
+              }
+            }
+          };
+        }
+        long start = System.nanoTime();
+        for(Thread thread : threads) thread.start();
+        for(Thread thread : threads) thread.join();
+        long elapsed = System.nanoTime() - start;
+        long total = (long)nbThreads * nbAnnounces;
+        System.out.println((udp ? "UDP" : "TCP") + ": " + nbThreads + " threads, " + total + " announces over "
+          + nbTorrents + " torrents of " + nbPeers + " peers in " + elapsed / 1000000 + "ms = "
+          + (long)(total * 1000000000.0 / elapsed) + " announces/sec, " + failures.get() + " failed");
+      }
+    } catch(Exception e) {
+      e.printStackTrace();
+    } finally {
+      if(tcpServer != null) tcpServer.close();
+      if(udpServer != null) udpServer.close();
+    }
+  }
+
+  private static boolean announceUDP(DatagramSocket socket, int port, byte[] hash, byte[] peerId, int peerPort) throws Exception {
+    InetAddress address = InetAddress.getByName("127.0.0.1");
+    byte[] reply = new byte[8192];
+
+    ByteBuffer connect = ByteBuffer.allocate(16);
+    connect.putLong(PRUDPPacketTracker.INITIAL_CONNECTION_ID);
+    connect.putInt(PRUDPPacketTracker.ACT_REQUEST_CONNECT);
+    connect.putInt(1);
+    socket.send(new DatagramPacket(connect.array(), 16, address, port));
+
+    DatagramPacket packet = new DatagramPacket(reply, reply.length);
+    socket.receive(packet);
+    ByteBuffer in = ByteBuffer.wrap(reply, 0, packet.getLength());
+    if(packet.getLength() < 16 || in.getInt() != PRUDPPacketTracker.ACT_REPLY_CONNECT) return false;
+    in.getInt();
+    long connectionId = in.getLong();
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream(98);
+    DataOutputStream os = new DataOutputStream(baos);
+    os.writeLong(connectionId);
+    os.writeInt(PRUDPPacketTracker.ACT_REQUEST_ANNOUNCE);
+    os.writeInt(2);
+    os.write(hash);
+    os.write(peerId);
+    os.writeLong(0);
+    os.writeLong(0);
+    os.writeLong(0);
+    os.writeInt(0);
+    os.writeInt(0);
+    os.writeInt(0);
+    os.writeInt(50);
+    os.writeShort(peerPort);
+    byte[] announce = baos.toByteArray();
+    socket.send(new DatagramPacket(announce, announce.length, address, port));
+
+    packet = new DatagramPacket(reply, reply.length);
+    socket.receive(packet);
+    return packet.getLength() >= 8 && ByteBuffer.wrap(reply).getInt() == PRUDPPacketTracker.ACT_REPLY_ANNOUNCE;
+  }
+
   private void announce(String trackerURL,byte[] hash,byte[] peerId,int port) {
+    announce(trackerURL, hash, peerId, port, true);
+  }
+
+  private static boolean announce(String trackerURL,byte[] hash,byte[] peerId,int port,boolean report) {
     try {
       String strUrl = trackerURL
       	+ "?info_hash=" + URLEncoder.encode(new String(hash, Constants.BYTE_ENCODING), Constants.BYTE_ENCODING).replaceAll("\\+", "%20")
@@ -64,12 +201,18 @@ public class TrackerLoadTester {
       URLConnection con = url.openConnection();
       con.connect();
       con.getContent();
+      return true;
     } catch(Exception e) {
-      e.printStackTrace();
+      if(report) e.printStackTrace();
+      return false;
     }
   }
 
   private byte[] generate20BytesHash(int iter) {
+    return generateHash(iter);
+  }
+
+  private static byte[] generateHash(int iter) {
     byte[] result = new byte[20];
     int pos = 0;
     while(iter > 0) {
@@ -25,9 +25,8 @@ package com.biglybt.core.util;
  */
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
+import java.security.MessageDigest;
+import java.util.*;
 
 import com.biglybt.core.config.COConfigurationManager;
 import com.biglybt.core.config.ParameterListener;
@@ -35,6 +34,153 @@ import com.biglybt.core.config.ParameterListener;
 public class
 ConcurrentHasher
 {
+		/**
+		 * Creates the per-thread digest instances used to hash requests. Each hashing
+		 * thread keeps one digest per factory so they don't need to be thread safe.
+		 */
+
+	public interface
+	DigestFactory
+	{
+		public String
+		getName();
+
+		public Digest
+		create();
+	}
+
+	public interface
+	Digest
+	{
+			/**
+			 * @return the hash of the buffer's remaining bytes, the buffer's position is unchanged
+			 */
+
+		public byte[]
+		calculateHash(
+			ByteBuffer		buffer );
+	}
+
+	public static final DigestFactory	SHA1_LEGACY_FACTORY =
+		new DigestFactory()
+		{
+			@Override
+			public String
+			getName()
+			{
+				return( "SHA1Hasher" );
+			}
+
+			@Override
+			public Digest
+			create()
+			{
+				final SHA1Hasher hasher = new SHA1Hasher();
+
+				return(
+					new Digest()
+					{
+						@Override
+						public byte[]
+						calculateHash(
+							ByteBuffer		buffer )
+						{
+							return( hasher.calculateHash( buffer ));
+						}
+					});
+			}
+		};
+
+		// the JDK's SHA-1 is intrinsified on most current JVMs and CPUs (SHA-NI, ARMv8 crypto)
+		// and is usually much faster than our own implementation. "az.hasher.legacy.sha1=1"
+		// switches back for comparison
+
+	public static final DigestFactory	SHA1_FACTORY;
+
+	static{
+		DigestFactory	factory = null;
+
+		if ( !System.getProperty( "az.hasher.legacy.sha1", "0" ).equals( "1" )){
+
+			try{
+				factory = getMessageDigestFactory( "SHA-1" );
+
+				byte[]	test = "ConcurrentHasher".getBytes( "UTF-8" );
+
+				if ( !Arrays.equals(
+						factory.create().calculateHash( ByteBuffer.wrap( test )),
+						new SHA1Hasher().calculateHash( test ))){
+
+					Debug.out( "JDK SHA-1 result mismatch, using SHA1Hasher" );
+
+					factory = null;
+				}
+			}catch( Throwable e ){
+
+				factory = null;
+			}
+		}
+
+		SHA1_FACTORY = factory==null?SHA1_LEGACY_FACTORY:factory;
+	}
+
+		/**
+		 * @param algorithm	a java.security.MessageDigest algorithm name, e.g. "SHA-256"
+		 * @throws Exception if the algorithm isn't available
+		 */
+
+	public static DigestFactory
+	getMessageDigestFactory(
+		final String		algorithm )
+
+		throws Exception
+	{
+		MessageDigest.getInstance( algorithm );
+
+		return(
+			new DigestFactory()
+			{
+				@Override
+				public String
+				getName()
+				{
+					return( algorithm );
+				}
+
+				@Override
+				public Digest
+				create()
+				{
+					final MessageDigest md;
+
+					try{
+						md = MessageDigest.getInstance( algorithm );
+
+					}catch( Throwable e ){
+
+						throw( new RuntimeException( e ));
+					}
+
+					return(
+						new Digest()
+						{
+							@Override
+							public byte[]
+							calculateHash(
+								ByteBuffer		buffer )
+							{
+								md.reset();
+
+									// hash a duplicate to leave the caller's position alone
+
+								md.update( buffer.duplicate());
+
+								return( md.digest());
+							}
+						});
+				}
+			});
+	}
 
 	protected static final ConcurrentHasher		singleton	= new ConcurrentHasher();
 
@@ -42,8 +188,6 @@ ConcurrentHasher
 
 	protected final List<ConcurrentHasherRequest>				requests		= new LinkedList<>();
 
-	protected final List<SHA1Hasher>	hashers			= new ArrayList<>();
-
 	protected final AESemaphore		request_sem		= new AESemaphore("ConcHashReqQ");
 	protected final AESemaphore		scheduler_sem	= new AESemaphore("ConcHashSched");
 
@@ -91,107 +235,108 @@ ConcurrentHasher
 			processor_num	= 1;
 		}
 
-			// one more that proc num seems to improve performance ;)
+			// one hashing thread per core, pulling from a single queue. Pieces are uniform,
+			// independent units of work so this balances as well as work stealing would.
+			// Allow a second request per core to be queued so that callers (disk reads)
+			// can keep running ahead while every thread is busy hashing
 
-		for (int i=0;i<processor_num + 1;i++){
+		for (int i=0;i<processor_num*2;i++){
 
 			scheduler_sem.release();
 		}
 
-		final ThreadPool pool	= new ThreadPool( "ConcurrentHasher", 64 );
+		for (int i=0;i<processor_num;i++){
 
-		new AEThread2("ConcurrentHasher:scheduler", true )
-		{
-			@Override
-			public void
-			run()
+			new AEThread2("ConcurrentHasher:worker", true )
 			{
-				while(true){
+				@Override
+				public void
+				run()
+				{
+					Map<DigestFactory,Digest>	digests = new HashMap<>();
 
-						// get a request to run
+					while(true){
 
-					request_sem.reserve();
+						request_sem.reserve();
 
-						// now extract the request
+						ConcurrentHasherRequest	req;
 
-					final ConcurrentHasherRequest	req;
-					final SHA1Hasher				hasher;
+						try{
+							requests_mon.enter();
 
-					try{
-						requests_mon.enter();
+							req	= requests.remove(0);
 
-						req	= requests.remove(0);
+						}finally{
 
-						if ( hashers.size() == 0 ){
+							requests_mon.exit();
+						}
 
-							hasher = new SHA1Hasher();
+						try{
+							DigestFactory	factory = req.getDigestFactory();
 
-						}else{
+							Digest	digest = digests.get( factory );
 
-							hasher	= hashers.remove( hashers.size()-1 );
-						}
-					}finally{
+							if ( digest == null ){
 
-						requests_mon.exit();
-					}
+								digest = factory.create();
 
-					pool.run(
-							new AERunnable()
-							{
-								@Override
-								public void
-								runSupport()
-								{
-									try{
-										req.run( hasher );
+								digests.put( factory, digest );
+							}
 
-									}finally{
-										try{
-											requests_mon.enter();
+							req.run( digest );
 
-											hashers.add( hasher );
+						}catch( Throwable e ){
 
-										}finally{
+							Debug.out( e );
 
-											requests_mon.exit();
-										}
+							req.cancel();
 
-										if ( friendly_hashing && req.isLowPriority()){
+						}finally{
 
-											try{
-												int	size = req.getSize();
+							if ( friendly_hashing && req.isLowPriority()){
 
-													// pieces can be several MB so delay based on size
+								try{
+									int	size = req.getSize();
 
-												final int max = 250;
-												final int min = 50;
+										// pieces can be several MB so delay based on size
 
-												size = size/1024;	// in K
+									final int max = 250;
+									final int min = 50;
 
-												size = size/8;
+									size = size/1024;	// in K
 
-													// 4MB -> 500
-													// 1MB -> 125
+									size = size/8;
 
-												size = Math.min( size, max );
-												size = Math.max( size, min );
+										// 4MB -> 500
+										// 1MB -> 125
 
-												Thread.sleep( size );
+									size = Math.min( size, max );
+									size = Math.max( size, min );
 
-											}catch( Throwable e ){
+									Thread.sleep( size );
 
-												Debug.printStackTrace( e );
-											}
-										}
+								}catch( Throwable e ){
 
-										scheduler_sem.release();
-									}
+									Debug.printStackTrace( e );
 								}
-							});
+							}
 
+							scheduler_sem.release();
+						}
+					}
 				}
-			}
-		}.start();
+			}.start();
+		}
+	}
+
+		/**
+		 * @return the number of requests that are hashed in parallel
+		 */
+
+	public int
+	getThreadCount()
+	{
+		return( processor_num );
 	}
 
 		/**
@@ -221,14 +366,19 @@ ConcurrentHasher
 		ConcurrentHasherRequestListener		listener,
 		boolean								low_priorty )
 	{
-		final ConcurrentHasherRequest	req = new ConcurrentHasherRequest( this, buffer, listener, low_priorty );
-
-			// get permission to run a request
+		return( addRequest( buffer, listener, low_priorty, SHA1_FACTORY ));
+	}
 
+	public ConcurrentHasherRequest
+	addRequest(
+		ByteBuffer							buffer,
+		ConcurrentHasherRequestListener		listener,
+		boolean								low_priorty,
+		DigestFactory						digest_factory )
+	{
+		final ConcurrentHasherRequest	req = new ConcurrentHasherRequest( this, buffer, listener, low_priorty, digest_factory );
 
-		// test code to force synchronous checking
-		//SHA1Hasher	hasher = new SHA1Hasher();
-		//req.run( hasher );
+			// get permission to run a request
 
 		scheduler_sem.reserve();
 
@@ -247,45 +397,98 @@ ConcurrentHasher
 		return( req );
 	}
 
+		/**
+		 * Hashing throughput benchmark, reports MB/s overall and per thread for each digest
+		 * with 1 thread up to one per core, e.g.
+		 *
+		 *   java com.biglybt.core.util.ConcurrentHasher [piece size KB] [MB per thread] [algorithm...]
+		 */
+
 	public static void
 	main(
 		String[]	args )
+
+		throws Exception
 	{
-		/*
-		final ConcurrentHasher	hasher = ConcurrentHasher.getSingleton();
+		int		piece_size	= ( args.length > 0?Integer.parseInt( args[0] ):1024 )*1024;
+		long	mb_per_run	= args.length > 1?Long.parseLong( args[1] ):512;
 
-		int		threads			= 1;
+		List<DigestFactory>	factories = new ArrayList<>();
 
-		final long	buffer_size		= 128*1024;
-		final long	loop			= 1024;
+		factories.add( SHA1_LEGACY_FACTORY );
+		factories.add( getMessageDigestFactory( "SHA-1" ));
 
-		for (int i=0;i<threads;i++){
+		for ( int i=2;i<args.length;i++){
 
-			new Thread()
-			{
-				public void
-				run()
-				{
-					// SHA1Hasher sha1_hasher = new SHA1Hasher();
+			factories.add( getMessageDigestFactory( args[i] ));
+		}
 
-					long	start = System.currentTimeMillis();
-					//ByteBuffer	buffer = ByteBuffer.allocate((int)buffer_size);
+		int cores = Runtime.getRuntime().availableProcessors();
 
-					for (int j=0;j<loop;j++){
+		final ByteBuffer	buffer = ByteBuffer.allocateDirect( piece_size );
 
+		for ( int i=0;i<piece_size;i++){
 
-						//sha1_hasher.calculateHash( buffer );
-						//ConcurrentHasherRequest req = hasher.addRequest( buffer );
-					}
+			buffer.put((byte)( i*31 ));
+		}
+
+		buffer.flip();
+
+		final int	loops = (int)Math.max( 1, ( mb_per_run*1024*1024 )/piece_size );
+
+		System.out.println( "cores=" + cores + ", piece=" + (piece_size/1024) + "KB, " + mb_per_run + "MB per thread" );
+
+		for ( final DigestFactory factory: factories ){
+
+				// warm up so the JIT has compiled (and intrinsified) the digest
+
+			Digest	warm = factory.create();
+
+			for ( int i=0;i<Math.min( loops, 64 );i++){
+
+				warm.calculateHash( buffer );
+			}
 
-					long	elapsed = System.currentTimeMillis() - start;
+			for ( int threads=1;threads<=cores;threads=threads==cores?cores+1:Math.min( cores, threads*2 )){
 
-					System.out.println(
-							"elapsed = " + elapsed + ", " +
-							((loop*buffer_size*1000)/elapsed) + " B/sec" );
+				Thread[]	workers = new Thread[threads];
+
+				long	start = System.nanoTime();
+
+				for ( int t=0;t<threads;t++){
+
+					workers[t] =
+						new Thread()
+						{
+							@Override
+							public void
+							run()
+							{
+								Digest		digest	= factory.create();
+								ByteBuffer	b		= buffer.duplicate();
+
+								for ( int j=0;j<loops;j++){
+
+									digest.calculateHash( b );
+								}
+							}
+						};
+
+					workers[t].start();
 				}
-			}.start();
+
+				for ( Thread t: workers ){
+
+					t.join();
+				}
+
+				double	secs	= ( System.nanoTime() - start )/1000000000.0;
+				double	mbs		= ((double)loops*piece_size*threads )/(1024*1024)/secs;
+
+				System.out.println(
+					"    " + factory.getName() + ": threads=" + threads +
+					", " + (long)mbs + " MB/s, " + (long)( mbs/threads ) + " MB/s per core" );
+			}
 		}
-		*/
 	}
 }
@@ -38,6 +38,7 @@ ConcurrentHasherRequest
 	private byte[]								result;
 	private boolean								cancelled;
 	private final boolean								low_priority;
+	private final ConcurrentHasher.DigestFactory		digest_factory;
 
 	private final AESemaphore	sem = new AESemaphore("ConcHashRequest");
 
@@ -46,11 +47,13 @@ ConcurrentHasherRequest
 		ConcurrentHasher					_concurrent_hasher,
 		ByteBuffer							_buffer,
 		ConcurrentHasherRequestListener		_listener,
-		boolean								_low_priorty )
+		boolean								_low_priorty,
+		ConcurrentHasher.DigestFactory		_digest_factory )
 	{
 		buffer				= _buffer;
 		listener			= _listener;
 		low_priority		= _low_priorty;
+		digest_factory		= _digest_factory;
 
 		size				= buffer.limit() - buffer.position();
 	}
@@ -121,9 +124,15 @@ ConcurrentHasherRequest
 		return( low_priority );
 	}
 
+	public ConcurrentHasher.DigestFactory
+	getDigestFactory()
+	{
+		return( digest_factory );
+	}
+
 	protected void
 	run(
-		SHA1Hasher	hasher )
+		ConcurrentHasher.Digest		hasher )
 	{
 		if ( !cancelled ){
 
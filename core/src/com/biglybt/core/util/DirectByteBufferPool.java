@@ -57,4 +57,13 @@ DirectByteBufferPool
 	protected abstract void
 	returnBufferSupport(
 		DirectByteBuffer	buffer );
+
+	public static void
+	main(
+		String[]	args )
+
+		throws Exception
+	{
+		DirectByteBufferPoolReal.benchmark( args );
+	}
 }
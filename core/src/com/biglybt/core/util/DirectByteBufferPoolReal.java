@@ -20,9 +20,11 @@
 
 package com.biglybt.core.util;
 
+import java.lang.ref.WeakReference;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.biglybt.core.config.COConfigurationManager;
 import com.biglybt.core.disk.DiskManager;
@@ -35,6 +37,7 @@ import com.biglybt.core.logging.Logger;
 public class
 DirectByteBufferPoolReal
 	extends DirectByteBufferPool
+	implements AEDiagnosticsEvidenceGenerator
 {
 	private static final boolean disable_gc = System.getProperty( "az.disable.explicit.gc", "0" ).equals( "1" );
 
@@ -77,8 +80,22 @@ DirectByteBufferPoolReal
 
 	public static final int MAX_SIZE = BigInteger.valueOf(2).pow(END_POWER).intValue();
 
+		// optional per-thread 'magazines' in front of the shared pools. each thread keeps a few free
+		// buffers of each size so that most gets and returns don't touch the shared pools and their
+		// locks at all. misses refill, and overflows spill, half a magazine at a time
+
+	private static final boolean	USE_MAGAZINES			= System.getProperty( "az.dbb.pool.magazines", "0" ).equals( "1" );
+
+	private static final int		MAGAZINE_BYTES			= 64*1024;	// per size, per thread
+	private static final int		MAGAZINE_MAX_ENTRIES	= 16;
+	private static final int		SLICE_MAGAZINE_ENTRIES	= 32;
+
 	private static final DirectByteBufferPoolReal pool = new DirectByteBufferPoolReal();
 
+	static{
+		AEDiagnostics.addEvidenceGenerator( pool );
+	}
+
 
 	private final Map buffersMap = new LinkedHashMap(END_POWER - START_POWER + 1);
 
@@ -131,6 +148,42 @@ DirectByteBufferPoolReal
 	private long bytesIn = 0;
 	private long bytesOut = 0;
 
+	private final AtomicLong depotAccesses = new AtomicLong();
+
+	private int[]			pool_sizes;
+	private ArrayList[]		pool_lists;
+	private int[]			magazine_caps;
+
+	private final List<WeakReference<Magazines>>	magazine_registry = new ArrayList<>();
+
+	private final ThreadLocal<Magazines>	magazines =
+		new ThreadLocal<Magazines>()
+		{
+			@Override
+			protected Magazines
+			initialValue()
+			{
+				Magazines mags = new Magazines( magazine_caps );
+
+				synchronized( magazine_registry ){
+
+					Iterator<WeakReference<Magazines>> it = magazine_registry.iterator();
+
+					while( it.hasNext()){
+
+						if ( it.next().get() == null ){
+
+							it.remove();
+						}
+					}
+
+					magazine_registry.add( new WeakReference<>( mags ));
+				}
+
+				return( mags );
+			}
+		};
+
 
 	protected
 	DirectByteBufferPoolReal()
@@ -153,11 +206,19 @@ DirectByteBufferPoolReal
 	    list.toArray( sizes );
 	    Arrays.sort( sizes);
 
+	    pool_sizes		= new int[sizes.length];
+	    pool_lists		= new ArrayList[sizes.length];
+	    magazine_caps	= new int[sizes.length];
+
 	    for (int i=0;i<sizes.length;i++){
 
 	    	ArrayList bufferPool = new ArrayList();
 
 	    	buffersMap.put(sizes[i], bufferPool);
+
+	    	pool_sizes[i]		= sizes[i];
+	    	pool_lists[i]		= bufferPool;
+	    	magazine_caps[i]	= Math.min( MAGAZINE_MAX_ENTRIES, MAGAZINE_BYTES/sizes[i] );
 	    }
 
 	    //initiate periodic timer to check free memory usage
@@ -265,7 +326,7 @@ DirectByteBufferPoolReal
 
 		}else{
 
-			ByteBuffer	buff = null;
+			ByteBuffer	buff = USE_MAGAZINES?getMagazineBuffer( _length ):null;
 
 			Integer reqVal = new Integer(_length);
 
@@ -273,7 +334,7 @@ DirectByteBufferPoolReal
 
 			Iterator it = buffersMap.keySet().iterator();
 
-			while (it.hasNext()) {
+			while ( buff == null && it.hasNext()) {
 
 				Integer keyVal = (Integer)it.next();
 
@@ -287,6 +348,8 @@ DirectByteBufferPoolReal
 
 						synchronized ( poolsLock ) {
 
+							depotAccesses.incrementAndGet();
+
 							// make sure we don't remove a buffer when running compaction
 							// if there are no free buffers in the pool, create a new one.
 							// otherwise use one from the pool
@@ -444,10 +507,17 @@ DirectByteBufferPoolReal
 
 		    if (bufferPool != null) {
 
+		      if ( USE_MAGAZINES && returnMagazineBuffer( buff )){
+
+		    	  return;
+		      }
+
 				//no need to sync around 'poolsLock', as adding during compaction is ok
 
 		      synchronized ( bufferPool ){
 
+		        depotAccesses.incrementAndGet();
+
 		        bufferPool.add(buff);
 		      }
 		    }else{
@@ -458,6 +528,194 @@ DirectByteBufferPoolReal
 	}
 
 
+	private ByteBuffer
+	getMagazineBuffer(
+		int		_length )
+	{
+		int	index = getPoolIndex( _length );
+
+		if ( index == -1 ){
+
+			return( null );
+		}
+
+		Magazines	mags = magazines.get();
+
+		ByteBuffer	buff = mags.pop( index );
+
+		if ( buff != null ){
+
+			mags.hits++;
+
+			return( buff );
+		}
+
+		mags.misses++;
+
+		ArrayList	bufferPool	= pool_lists[index];
+		int			refill		= Math.max( 1, magazine_caps[index]/2 );
+
+		synchronized( poolsLock ){
+
+			depotAccesses.incrementAndGet();
+
+			synchronized( bufferPool ){
+
+				int	num = Math.min( refill, bufferPool.size());
+
+				for ( int i=0;i<num;i++){
+
+					ByteBuffer b = (ByteBuffer)bufferPool.remove( bufferPool.size() - 1 );
+
+					if ( buff == null ){
+
+						buff = b;
+
+					}else{
+
+						mags.push( index, b );
+					}
+				}
+			}
+
+			if ( buff == null ){
+
+				buff = allocateNewBuffer( pool_sizes[index] );
+			}
+		}
+
+		return( buff );
+	}
+
+		/**
+		 * @return false if the buffer wasn't taken and should be returned to the shared pool
+		 */
+
+	private boolean
+	returnMagazineBuffer(
+		ByteBuffer	buff )
+	{
+		int	index = Arrays.binarySearch( pool_sizes, buff.capacity());
+
+		if ( index < 0 || magazine_caps[index] == 0 ){
+
+			return( false );
+		}
+
+		Magazines	mags = magazines.get();
+
+		if ( mags.push( index, buff )){
+
+			return( true );
+		}
+
+		ArrayList	bufferPool	= pool_lists[index];
+		int			spill		= Math.max( 1, magazine_caps[index]/2 );
+
+		synchronized( bufferPool ){
+
+			depotAccesses.incrementAndGet();
+
+			bufferPool.add( buff );
+
+			for ( int i=0;i<spill;i++){
+
+				ByteBuffer b = mags.pop( index );
+
+				if ( b == null ){
+
+					break;	// drained under us
+				}
+
+				bufferPool.add( b );
+			}
+		}
+
+		return( true );
+	}
+
+	private int
+	getPoolIndex(
+		int		_length )
+	{
+		for ( int i=0;i<pool_sizes.length;i++){
+
+			if ( _length <= pool_sizes[i] ){
+
+				return( i );
+			}
+		}
+
+		return( -1 );
+	}
+
+	private List<Magazines>
+	getMagazines()
+	{
+		List<Magazines>	result = new ArrayList<>();
+
+		synchronized( magazine_registry ){
+
+			Iterator<WeakReference<Magazines>> it = magazine_registry.iterator();
+
+			while( it.hasNext()){
+
+				Magazines mags = it.next().get();
+
+				if ( mags == null ){
+
+					it.remove();
+
+				}else{
+
+					result.add( mags );
+				}
+			}
+		}
+
+		return( result );
+	}
+
+		/**
+		 * Moves everything held in thread magazines, including those of threads that have
+		 * died but not yet been collected, back to the shared pools so that compaction
+		 * can see (and free) it
+		 */
+
+	private void
+	drainMagazines()
+	{
+		if ( !USE_MAGAZINES ){
+
+			return;
+		}
+
+		for ( Magazines mags: getMagazines()){
+
+				// same lock order as the get/return paths: shared pool, then magazine
+
+			for ( int i=0;i<pool_lists.length;i++){
+
+				ArrayList	bufferPool = pool_lists[i];
+
+				synchronized( bufferPool ){
+
+					mags.drain( i, bufferPool );
+				}
+			}
+
+			for ( int i=0;i<slice_entries.length;i++){
+
+				List	my_slice_entries = slice_entries[i];
+
+				synchronized( my_slice_entries ){
+
+					mags.drainSlices( i, my_slice_entries );
+				}
+			}
+		}
+	}
+
   /**
    * Clears the free buffer pools so that currently
    * unused buffers can be garbage collected.
@@ -491,6 +749,8 @@ DirectByteBufferPoolReal
    */
   private void compactBuffers() {
 
+	  drainMagazines();
+
 	  nonsliecd: synchronized (poolsLock)
 		{
 			long freeSize = bytesFree();
@@ -543,6 +803,13 @@ DirectByteBufferPoolReal
         bytesUsed += keyVal.intValue() * bufferPool.size();
       }
     }
+
+    if ( USE_MAGAZINES ){
+      for ( Magazines mags: getMagazines()){
+        bytesUsed += mags.getBufferBytes();
+      }
+    }
+
     return bytesUsed;
   }
 
@@ -789,10 +1056,30 @@ DirectByteBufferPoolReal
 	{
 		int	slice_index = getSliceIndex( _length );
 
+		Magazines	mags = null;
+
+		if ( USE_MAGAZINES ){
+
+			mags = magazines.get();
+
+			sliceBuffer	sb = mags.popSlice( slice_index );
+
+			if ( sb != null ){
+
+				mags.hits++;
+
+				return( new sliceDBB( _allocator, sb ));
+			}
+
+			mags.misses++;
+		}
+
 		List		my_slice_entries 	= slice_entries[slice_index];
 
 		synchronized( my_slice_entries ){
 
+			depotAccesses.incrementAndGet();
+
 			boolean[]	my_allocs			= slice_allocs[slice_index];
 
 			sliceBuffer	sb = null;
@@ -803,6 +1090,16 @@ DirectByteBufferPoolReal
 
 				slice_use_count[slice_index]++;
 
+				if ( mags != null ){
+
+					int	num = Math.min( SLICE_MAGAZINE_ENTRIES/2, my_slice_entries.size());
+
+					for ( int i=0;i<num;i++){
+
+						mags.pushSlice( slice_index, (sliceBuffer)my_slice_entries.remove(0));
+					}
+				}
+
 			}else{
 
 					// find a free slot
@@ -878,11 +1175,42 @@ DirectByteBufferPoolReal
 
 			int	slice_index = getSliceIndex( ddb.getBufferInternal().capacity());
 
+			sliceBuffer	sb = ((sliceDBB)ddb).getSliceBuffer();
+
+			Magazines	mags = null;
+
+			if ( USE_MAGAZINES ){
+
+				mags = magazines.get();
+
+				if ( mags.pushSlice( slice_index, sb )){
+
+					return;
+				}
+			}
+
 			List		my_slice_entries 	= slice_entries[slice_index];
 
 			synchronized( my_slice_entries ){
 
-				my_slice_entries.add( 0, ((sliceDBB)ddb).getSliceBuffer());
+				depotAccesses.incrementAndGet();
+
+				my_slice_entries.add( 0, sb );
+
+				if ( mags != null ){
+
+					for ( int i=0;i<SLICE_MAGAZINE_ENTRIES/2;i++){
+
+						sliceBuffer s = mags.popSlice( slice_index );
+
+						if ( s == null ){
+
+							break;	// drained under us
+						}
+
+						my_slice_entries.add( 0, s );
+					}
+				}
 			}
 		}
 	}
@@ -890,6 +1218,8 @@ DirectByteBufferPoolReal
   	private void
 	compactSlices()
 	{
+		drainMagazines();
+
 			// we don't maintain the buffers in sorted order as this is too costly. however, we
 			// always allocate and free from the start of the free list, so unused buffer space
 			// will be at the end of the list. we periodically sort this list into allocate block
@@ -1075,6 +1405,312 @@ DirectByteBufferPoolReal
 		}
 	}
 
+	@Override
+	public void
+	generate(
+		IndentWriter		writer )
+	{
+		writer.println( "DirectByteBuffer Pool" );
+
+		try{
+			writer.indent();
+
+			writer.println( "given=" + DisplayFormatters.formatByteCountToKiBEtc( bytesOut ) + ", returned=" + DisplayFormatters.formatByteCountToKiBEtc( bytesIn ) + ", free=" + DisplayFormatters.formatByteCountToKiBEtc( bytesFree()) + ", shared pool accesses=" + depotAccesses.get());
+
+			if ( USE_MAGAZINES ){
+
+				long	hits		= 0;
+				long	misses		= 0;
+				long	retained	= 0;
+				int		threads		= 0;
+
+				synchronized( magazine_registry ){
+
+					for ( WeakReference<Magazines> ref: magazine_registry ){
+
+						Magazines mags = ref.get();
+
+						if ( mags != null ){
+
+							threads++;
+
+							hits		+= mags.hits;
+							misses		+= mags.misses;
+							retained	+= mags.retained;
+						}
+					}
+				}
+
+				long	total = hits + misses;
+
+				writer.println(
+					"magazines: threads=" + threads + ", hits=" + hits + ", misses=" + misses +
+					", hit rate=" + ( total==0?0:( hits*100/total )) + "%, retained=" + DisplayFormatters.formatByteCountToKiBEtc( retained ));
+			}
+		}finally{
+
+			writer.exdent();
+		}
+	}
+
+		/**
+		 * Churns buffers from several threads and reports the time taken and how often the
+		 * shared pools were hit. Run once with and once without -Daz.dbb.pool.magazines=1
+		 * to compare. Started via DirectByteBufferPool.main so that the classes initialise in
+		 * their normal order
+		 */
+
+	static void
+	benchmark(
+		String[]	args )
+
+		throws Exception
+	{
+		final int	threads		= args.length>0?Integer.parseInt( args[0] ):8;
+		final int	iterations	= args.length>1?Integer.parseInt( args[1] ):1000000;
+
+		final int[]	sizes = { 64, 256, 1024, 4096, DiskManager.BLOCK_SIZE + 13, 32*1024 };
+
+		System.out.println( "magazines=" + USE_MAGAZINES + ", threads=" + threads + ", iterations=" + iterations );
+
+		for ( int run=0;run<3;run++){
+
+			long	accesses_before = pool.depotAccesses.get();
+
+			Thread[]	workers = new Thread[threads];
+
+			for ( int t=0;t<threads;t++){
+
+				final int seed = t;
+
+				workers[t] =
+					new Thread()
+					{
+						@Override
+						public void
+						run()
+						{
+							DirectByteBuffer[]	held = new DirectByteBuffer[4];
+
+							for ( int i=0;i<iterations;i++){
+
+								int	slot = i%held.length;
+
+								if ( held[slot] != null ){
+
+									held[slot].returnToPool();
+								}
+
+								held[slot] = getBuffer( DirectByteBuffer.AL_OTHER, sizes[(i+seed)%sizes.length] );
+							}
+
+							for ( DirectByteBuffer b: held ){
+
+								b.returnToPool();
+							}
+						}
+					};
+			}
+
+			long	start = System.nanoTime();
+
+			for ( Thread w: workers ){
+
+				w.start();
+			}
+
+			for ( Thread w: workers ){
+
+				w.join();
+			}
+
+			long	elapsed = ( System.nanoTime() - start )/1000000;
+
+			long	held_before = 0;
+
+			for ( Magazines mags: pool.getMagazines()){
+
+				held_before += mags.retained;
+			}
+
+			pool.drainMagazines();
+
+			long	held_after = 0;
+
+			for ( Magazines mags: pool.getMagazines()){
+
+				held_after += mags.retained;
+			}
+
+			System.out.println(
+				"run " + run + ": " + elapsed + "ms, shared pool accesses=" + ( pool.depotAccesses.get() - accesses_before ) +
+				", held by magazines=" + held_before + " (" + held_after + " after drain), free=" + pool.bytesFree());
+
+			if ( held_after != 0 ){
+
+				throw( new RuntimeException( "magazines not drained" ));
+			}
+		}
+	}
+
+		/**
+		 * A thread's free buffers. Only the owning thread pushes and pops, but compaction
+		 * drains them from the timer thread, hence the (uncontended) synchronization
+		 */
+
+	private static class
+	Magazines
+	{
+		private final ByteBuffer[][]	buffers;
+		private final int[]				buffer_counts;
+
+		private final sliceBuffer[][]	slices;
+		private final int[]				slice_counts;
+
+		long	hits;
+		long	misses;
+		long	retained;
+
+		Magazines(
+			int[]		caps )
+		{
+			buffers			= new ByteBuffer[caps.length][];
+			buffer_counts	= new int[caps.length];
+
+			for ( int i=0;i<caps.length;i++){
+
+				buffers[i] = new ByteBuffer[caps[i]];
+			}
+
+			slices			= new sliceBuffer[SLICE_ENTRY_SIZES.length][SLICE_MAGAZINE_ENTRIES];
+			slice_counts	= new int[SLICE_ENTRY_SIZES.length];
+		}
+
+		synchronized ByteBuffer
+		pop(
+			int		index )
+		{
+			int	count = buffer_counts[index];
+
+			if ( count == 0 ){
+
+				return( null );
+			}
+
+			count--;
+
+			ByteBuffer	buff = buffers[index][count];
+
+			buffers[index][count]	= null;
+			buffer_counts[index]	= count;
+
+			retained -= buff.capacity();
+
+			return( buff );
+		}
+
+		synchronized boolean
+		push(
+			int			index,
+			ByteBuffer	buff )
+		{
+			int	count = buffer_counts[index];
+
+			if ( count == buffers[index].length ){
+
+				return( false );
+			}
+
+			buffers[index][count]	= buff;
+			buffer_counts[index]	= count + 1;
+
+			retained += buff.capacity();
+
+			return( true );
+		}
+
+		synchronized sliceBuffer
+		popSlice(
+			int		index )
+		{
+			int	count = slice_counts[index];
+
+			if ( count == 0 ){
+
+				return( null );
+			}
+
+			count--;
+
+			sliceBuffer	sb = slices[index][count];
+
+			slices[index][count]	= null;
+			slice_counts[index]		= count;
+
+			retained -= SLICE_ENTRY_SIZES[index];
+
+			return( sb );
+		}
+
+		synchronized boolean
+		pushSlice(
+			int				index,
+			sliceBuffer		sb )
+		{
+			int	count = slice_counts[index];
+
+			if ( count == SLICE_MAGAZINE_ENTRIES ){
+
+				return( false );
+			}
+
+			slices[index][count]	= sb;
+			slice_counts[index]		= count + 1;
+
+			retained += SLICE_ENTRY_SIZES[index];
+
+			return( true );
+		}
+
+		synchronized void
+		drain(
+			int			index,
+			List		target )
+		{
+			while( buffer_counts[index] > 0 ){
+
+				target.add( pop( index ));
+			}
+		}
+
+		synchronized void
+		drainSlices(
+			int			index,
+			List		target )
+		{
+			while( slice_counts[index] > 0 ){
+
+				target.add( 0, popSlice( index ));
+			}
+		}
+
+		synchronized long
+		getBufferBytes()
+		{
+			long	total = 0;
+
+			for ( int i=0;i<buffers.length;i++){
+
+				for ( int j=0;j<buffer_counts[i];j++){
+
+					total += buffers[i][j].capacity();
+				}
+			}
+
+			return( total );
+		}
+	}
+
   	private static class
 	myInteger
   	{
@@ -19,8 +19,10 @@
 
 package com.biglybt.pif.messaging.bittorrent;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import com.biglybt.core.networkmanager.OutgoingFileRegion;
 import com.biglybt.core.peermanager.messaging.bittorrent.BTPiece;
 import com.biglybt.core.util.DirectByteBuffer;
 import com.biglybt.pifimpl.local.messaging.MessageAdapter;
@@ -31,6 +33,7 @@ import com.biglybt.pifimpl.local.messaging.MessageAdapter;
  */
 public class BTMessagePiece extends MessageAdapter {
   private final BTPiece piece;
+  private ByteBuffer region_data;
 
   protected BTMessagePiece( com.biglybt.core.peermanager.messaging.Message core_msg ) {
     super( core_msg );
@@ -42,6 +45,35 @@ public class BTMessagePiece extends MessageAdapter {
 
   public int getPieceOffset() {  return piece.getPieceOffset();  }
 
-  public ByteBuffer getPieceData() {  return piece.getPieceData().getBuffer( DirectByteBuffer.SS_EXTERNAL );  }
+  /**
+   * For pieces being sent straight from the file the data is read into a heap buffer on
+   * first call, changes to it are not sent.
+   */
+  public ByteBuffer getPieceData() {
+    OutgoingFileRegion region = piece.getFileRegion();
+
+    if( region == null ) {
+      return piece.getPieceData().getBuffer( DirectByteBuffer.SS_EXTERNAL );
+    }
+
+    synchronized( this ) {
+      if( region_data == null ) {
+        ByteBuffer data = ByteBuffer.allocate( (int)region.getRemaining() );
+
+        try {
+          region.peek( data );
+        }
+        catch( IOException e ) {
+          throw new RuntimeException( "Failed to read piece data for " + piece.getDescription(), e );
+        }
+
+        data.flip();
+
+        region_data = data;
+      }
+
+      return region_data.duplicate();
+    }
+  }
 
 }
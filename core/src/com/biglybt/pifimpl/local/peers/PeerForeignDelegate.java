@@ -72,7 +72,11 @@ PeerForeignDelegate
 	private int[]	reserved_pieces	= null;
 	private int		consecutive_no_requests;
 
-	private BitFlags	bit_flags;
+	private BitFlags			bit_flags;
+	private boolean[]			bit_flags_source;
+	private volatile boolean	bit_flags_stale;
+
+	private final PeerListener2	availability_listener;
 
 	private boolean		priority_connection;
 
@@ -100,6 +104,28 @@ PeerForeignDelegate
 
 		network_connection = new PeerForeignNetworkConnection( this, foreign );
 
+			// foreign peers announce availability changes, which may be made to the array they
+			// return in place, so use them to know when to rebuild our copy
+
+		availability_listener =
+			new PeerListener2()
+			{
+				@Override
+				public void
+				eventOccurred(
+					PeerEvent	event )
+				{
+					int	type = event.getType();
+
+					if ( type == PeerEvent.ET_ADD_AVAILABILITY || type == PeerEvent.ET_REMOVE_AVAILABILITY ){
+
+						bit_flags_stale = true;
+					}
+				}
+			};
+
+		foreign.addListener( availability_listener );
+
 		network_connection.addRateLimiter( pm.getUploadLimitedRateGroup(), true );
 		network_connection.addRateLimiter( pm.getDownloadLimitedRateGroup(), false );
 
@@ -274,6 +300,8 @@ PeerForeignDelegate
 
 		}finally{
 
+			foreign.removeListener( availability_listener );
+
 			stop();
 		}
 	}
@@ -566,9 +594,12 @@ PeerForeignDelegate
 
 		if ( flags != null ){
 
-			if ( bit_flags == null || bit_flags.flags != flags ){
+			if ( bit_flags == null || bit_flags_source != flags || bit_flags_stale ){
+
+				bit_flags_stale	= false;
 
-				bit_flags = new BitFlags( flags );
+				bit_flags			= new BitFlags( flags );
+				bit_flags_source	= flags;
 			}
 		}
 
@@ -205,7 +205,7 @@ PeerImpl
 		if ( bf == null ){
 			return( null );
 		}
-		return( bf.flags );
+		return( bf.getFlags());
 	}
 
 	@Override
@@ -664,13 +664,13 @@ PeerImpl
 				@Override
 				public void addAvailability(final PEPeer peer, BitFlags peerHavePieces)
 				{
-					fireEvent( PeerEvent.ET_ADD_AVAILABILITY,peerHavePieces.flags );
+					fireEvent( PeerEvent.ET_ADD_AVAILABILITY,peerHavePieces );
 				}
 
 				@Override
 				public void removeAvailability(final PEPeer peer, BitFlags peerHavePieces)
 				{
-					fireEvent( PeerEvent.ET_REMOVE_AVAILABILITY,peerHavePieces.flags );
+					fireEvent( PeerEvent.ET_REMOVE_AVAILABILITY,peerHavePieces );
 				}
 				protected void
 				fireEvent(
@@ -684,7 +684,17 @@ PeerImpl
 								@Override
 								public int getType(){ return( type );}
 								@Override
-								public Object getData(){ return( data );}
+								public Object getData()
+								{
+										// availability is only turned into a boolean[] if a listener asks for it
+
+									if ( data instanceof BitFlags ){
+
+										return(((BitFlags)data).getFlags());
+									}
+
+									return( data );
+								}
 							});
 					}catch( Throwable e ){
 
@@ -17,7 +17,9 @@
 
 package com.biglybt.util;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.util.*;
 
 import org.gudy.bouncycastle.util.encoders.Base64;
@@ -108,6 +110,18 @@ public class JSONUtils
 		return( sb.toString());
 	}
 
+	/**
+	 * Encodes a map as JSON directly to a writer, without building the
+	 * intermediate {@link JSONObject} tree or result String.
+	 * <p>
+	 * Output is the same as {@link #encodeToJSON(Map)}.  Wrap unbuffered
+	 * streams in a BufferedWriter, as this writes a character at a time.
+	 */
+	public static void encodeToJSON(Map<?,?> map, Writer writer)
+			throws IOException {
+		writeMap(writer, map);
+	}
+
 	public static String encodeToJSON(Collection list) {
 		return encodeToJSONArray(list).toString();
 	}
@@ -150,6 +164,155 @@ public class JSONUtils
 		return value;
 	}
 
+	private static void writeMap(Writer writer, Map<?,?> map)
+			throws IOException {
+		writer.write('{');
+		boolean first = true;
+		for (Map.Entry<?,?> entry: map.entrySet()){
+			String key 		= (String)entry.getKey();
+			Object value	= entry.getValue();
+
+			if (value instanceof byte[]) {
+				key += ".B64";
+				value = Base64.encode((byte[]) value);
+			}
+
+			if (first) {
+				first = false;
+			} else {
+				writer.write(',');
+			}
+			writer.write('"');
+			writeEscaped(writer, key);
+			writer.write("\":");
+			writeValue(writer, value);
+		}
+		writer.write('}');
+	}
+
+	private static void writeList(Writer writer, Collection<?> list)
+			throws IOException {
+		writer.write('[');
+		boolean first = true;
+		for (Object value : list) {
+			if (first) {
+				first = false;
+			} else {
+				writer.write(',');
+			}
+			writeValue(writer, value);
+		}
+		writer.write(']');
+	}
+
+	private static void writeValue(Writer writer, Object value)
+			throws IOException {
+		if (value == null) {
+			writer.write("null");
+		} else if (value instanceof String) {
+			writer.write('"');
+			writeEscaped(writer, (String) value);
+			writer.write('"');
+		} else if (value instanceof Map) {
+			writeMap(writer, (Map<?,?>) value);
+		} else if (value instanceof List) {
+			writeList(writer, (List<?>) value);
+		} else if (value instanceof Object[]) {
+			writeList(writer, Arrays.asList((Object[]) value));
+		} else if (value instanceof byte[]) {
+			try {
+				writeValue(writer, new String((byte[]) value, "utf-8"));
+			} catch (UnsupportedEncodingException e) {
+				writer.write(String.valueOf(value));
+			}
+		} else if (value instanceof boolean[]) {
+			boolean[] array = (boolean[]) value;
+			writer.write('[');
+			for (int i = 0; i < array.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				writer.write(array[i] ? "true" : "false");
+			}
+			writer.write(']');
+		} else if (value instanceof long[]) {
+			long[] array = (long[]) value;
+			writer.write('[');
+			for (int i = 0; i < array.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				writer.write(Long.toString(array[i]));
+			}
+			writer.write(']');
+		} else if (value instanceof int[]) {
+			int[] array = (int[]) value;
+			writer.write('[');
+			for (int i = 0; i < array.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				writer.write(Integer.toString(array[i]));
+			}
+			writer.write(']');
+		} else {
+			writer.write(String.valueOf(value));
+		}
+	}
+
+	/**
+	 * Same escaping as {@link JSONObject#escape(String)}
+	 */
+	private static void writeEscaped(Writer writer, String s)
+			throws IOException {
+		// write runs of characters that need no escaping in one go
+		int run = 0;
+		for (int i = 0, len = s.length(); i < len; i++) {
+			char ch = s.charAt(i);
+			String escaped;
+			switch (ch) {
+				case '"':
+					escaped = "\\\"";
+					break;
+				case '\\':
+					escaped = "\\\\";
+					break;
+				case '\b':
+					escaped = "\\b";
+					break;
+				case '\f':
+					escaped = "\\f";
+					break;
+				case '\n':
+					escaped = "\\n";
+					break;
+				case '\r':
+					escaped = "\\r";
+					break;
+				case '\t':
+					escaped = "\\t";
+					break;
+				case '/':
+					escaped = "\\/";
+					break;
+				default:
+					if (ch > '\u001F') {
+						continue;
+					}
+					String ss = Integer.toHexString(ch).toUpperCase();
+					escaped = "\\u0000".substring(0, 6 - ss.length()) + ss;
+			}
+			if (i > run) {
+				writer.write(s, run, i - run);
+			}
+			writer.write(escaped);
+			run = i + 1;
+		}
+		if (run < s.length()) {
+			writer.write(s, run, s.length() - run);
+		}
+	}
+
 	/**
 	 * @param value
 	 * @return